@@ -14,6 +14,18 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        
+        // 导出Room schema，用于校验迁移
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
+    }
+    
+    sourceSets {
+        getByName("test").assets.srcDir("$projectDir/schemas")
+        getByName("androidTest").assets.srcDir("$projectDir/schemas")
     }
 
     buildTypes {
@@ -33,6 +45,16 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            // 基准测试默认跳过，传入 -Pbenchmark=true 时运行
+            all {
+                it.systemProperty("benchmark", project.findProperty("benchmark")?.toString() ?: "false")
+            }
+        }
+    }
 }
 
 dependencies {
@@ -64,6 +86,13 @@ dependencies {
     // Room数据库 (Java版本)
     implementation("androidx.room:room-runtime:2.6.1")
     annotationProcessor("androidx.room:room-compiler:2.6.1")
+    implementation("androidx.room:room-paging:2.6.1")
+    
+    // 分页加载
+    implementation("androidx.paging:paging-runtime:3.2.1")
+    
+    // 后台任务（归档压缩）
+    implementation("androidx.work:work-runtime:2.9.1")
     
     // JSON解析
     implementation("com.google.code.gson:gson:2.10.1")
@@ -74,6 +103,13 @@ dependencies {
     
     // 测试依赖
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.13")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+    testImplementation("androidx.test:core:1.5.0")
+    testImplementation("androidx.room:room-testing:2.6.1")
+    testImplementation("androidx.arch.core:core-testing:2.2.0")
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
\ No newline at end of file
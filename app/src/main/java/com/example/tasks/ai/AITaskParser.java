@@ -3,6 +3,7 @@ package com.example.tasks.ai;
 import com.example.tasks.data.models.Priority;
 import com.example.tasks.data.models.SubTask;
 import com.example.tasks.data.models.Todo;
+import com.example.tasks.util.AppExecutors;
 import com.google.gson.Gson;
 
 import java.io.IOException;
@@ -13,8 +14,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import okhttp3.MediaType;
@@ -33,38 +32,30 @@ public class AITaskParser {
     private final String apiKey;
     private final OkHttpClient client;
     private final Gson gson;
-    private final ExecutorService executor;
     
     public AITaskParser(String apiKey) {
         this.apiKey = apiKey;
         this.client = new OkHttpClient();
         this.gson = new Gson();
-        this.executor = Executors.newSingleThreadExecutor();
     }
     
     /**
-     * 解析自然语言输入为Todo对象（异步）
+     * 解析自然语言输入为Todo对象（异步），在全应用共用的网络线程池中执行
      */
     public Future<ParsedTask> parseTaskAsync(String input) {
-        return executor.submit(() -> {
-            try {
-                String prompt = createPrompt(input);
-                String response = callDeepSeekAPI(prompt);
-                return parseResponse(response);
-            } catch (Exception e) {
-                // 如果AI解析失败，返回基础解析结果
-                return createBasicParsedTask(input);
-            }
-        });
+        return AppExecutors.getInstance().network().submit(() -> parseTask(input));
     }
     
     /**
-     * 同步解析方法（用于测试）
+     * 同步解析，会发起网络请求，需在后台线程调用
      */
     public ParsedTask parseTask(String input) {
         try {
-            return parseTaskAsync(input).get();
+            String prompt = createPrompt(input);
+            String response = callDeepSeekAPI(prompt);
+            return parseResponse(response);
         } catch (Exception e) {
+            // 如果AI解析失败，返回基础解析结果
             return createBasicParsedTask(input);
         }
     }
@@ -275,11 +266,4 @@ public class AITaskParser {
             parsedTask.getSubTasks()
         );
     }
-    
-    /**
-     * 关闭资源
-     */
-    public void shutdown() {
-        executor.shutdown();
-    }
 }
\ No newline at end of file
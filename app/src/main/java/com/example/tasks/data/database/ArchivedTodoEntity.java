@@ -0,0 +1,95 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.SubTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 已归档的待办事项，由后台任务从todos表移入
+ * 归档后只读，子任务以JSON内联存储，不再占用subtasks表
+ */
+@Entity(
+    tableName = "archived_todos",
+    indices = {@Index(value = {"completedAt"}), @Index(value = {"archivedAt"})}
+)
+@TypeConverters(Converters.class)
+public class ArchivedTodoEntity {
+    @PrimaryKey
+    @NonNull
+    public String id;
+    
+    public String title;
+    public String description;
+    public Priority priority;
+    public Long dueDate;
+    public long createdAt;
+    public Long completedAt;
+    public long archivedAt;
+    
+    @ColumnInfo(defaultValue = "0")
+    public int subtaskTotal;
+    @ColumnInfo(defaultValue = "0")
+    public int subtaskDone;
+    
+    public List<SubTask> subTasks;
+    
+    public ArchivedTodoEntity() {
+    }
+    
+    /**
+     * 由热表中的行和子任务生成归档行
+     */
+    @Ignore
+    public ArchivedTodoEntity(@NonNull TodoWithSubTasks source, long archivedAt) {
+        TodoEntity todo = source.todo;
+        this.id = todo.id;
+        this.title = todo.title;
+        this.description = todo.description;
+        this.priority = todo.priority;
+        this.dueDate = todo.dueDate;
+        this.createdAt = todo.createdAt;
+        this.completedAt = todo.completedAt;
+        this.archivedAt = archivedAt;
+        this.subtaskTotal = todo.subtaskTotal;
+        this.subtaskDone = todo.subtaskDone;
+        
+        List<SubTaskEntity> sorted = new ArrayList<>(source.subTasks != null ? source.subTasks : new ArrayList<>());
+        sorted.sort((a, b) -> Integer.compare(a.position, b.position));
+        this.subTasks = new ArrayList<>(sorted.size());
+        for (SubTaskEntity entity : sorted) {
+            this.subTasks.add(new SubTask(entity.id, entity.title, entity.isCompleted, entity.createdAt));
+        }
+    }
+    
+    /**
+     * 恢复到热表时的待办事项行，恢复后重新变为未完成，否则下次压缩又会被归档
+     * 子任务数量列由触发器重新计算
+     */
+    public TodoEntity toTodoEntity() {
+        return new TodoEntity(id, title, description, false, priority, dueDate, createdAt, null);
+    }
+    
+    /**
+     * 恢复到热表时的子任务行，按原顺序编号
+     */
+    public List<SubTaskEntity> toSubTaskEntities() {
+        List<SubTaskEntity> entities = new ArrayList<>();
+        if (subTasks == null) return entities;
+        for (int i = 0; i < subTasks.size(); i++) {
+            SubTask subTask = subTasks.get(i);
+            entities.add(new SubTaskEntity(subTask.getId(), id, subTask.getTitle(),
+                    subTask.isCompleted(), subTask.getCreatedAt(), i));
+        }
+        return entities;
+    }
+}
\ No newline at end of file
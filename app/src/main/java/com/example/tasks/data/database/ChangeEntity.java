@@ -0,0 +1,29 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 待推送的变更，由todos上的触发器写入，每个待办事项最多一行
+ * 同一待办事项再次变化时整行替换并取得新的seq，推送成功后按seq删除，推送期间的新变化不会被误删
+ */
+@Entity(
+    tableName = "changes",
+    indices = {@Index(value = {"todoId"}, unique = true)}
+)
+public class ChangeEntity {
+    @PrimaryKey(autoGenerate = true)
+    public long seq;
+    
+    @NonNull
+    public String todoId = "";
+    
+    public boolean deleted;
+    
+    /**
+     * 变化发生的时间，更新为当时的updatedAt，删除为删除时间；冲突时与服务器的修改时间比较
+     */
+    public long changedAt;
+}
\ No newline at end of file
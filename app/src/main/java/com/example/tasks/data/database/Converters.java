@@ -4,38 +4,33 @@ import androidx.room.TypeConverter;
 
 import com.example.tasks.data.models.Priority;
 import com.example.tasks.data.models.SubTask;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Room类型转换器
  */
 public class Converters {
-    private static final Gson gson = new Gson();
     
+    // 优先级按rank存储为整数，ORDER BY priority即按紧急程度排序
     @TypeConverter
-    public static String fromPriority(Priority priority) {
-        return priority.name();
+    public static Integer fromPriority(Priority priority) {
+        return priority != null ? priority.getRank() : null;
     }
     
     @TypeConverter
-    public static Priority toPriority(String priorityName) {
-        return Priority.valueOf(priorityName);
+    public static Priority toPriority(Integer rank) {
+        return rank != null ? Priority.fromRank(rank) : null;
     }
     
+    // 子任务已拆分到subtasks表，以下JSON转换用于迁移旧版本数据和归档表的内联子任务，编解码不经过反射
     @TypeConverter
     public static String fromSubTaskList(List<SubTask> subTasks) {
-        return gson.toJson(subTasks);
+        return SubTaskJsonCodec.encode(subTasks);
     }
     
     @TypeConverter
     public static List<SubTask> toSubTaskList(String subTasksJson) {
-        Type listType = new TypeToken<List<SubTask>>(){}.getType();
-        List<SubTask> result = gson.fromJson(subTasksJson, listType);
-        return result != null ? result : new ArrayList<>();
+        return SubTaskJsonCodec.decode(subTasksJson);
     }
 }
\ No newline at end of file
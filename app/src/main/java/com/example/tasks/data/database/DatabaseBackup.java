@@ -0,0 +1,507 @@
+package com.example.tasks.data.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 数据库备份与恢复，备份文件放在filesDir/backups下
+ * 完整备份是数据库的一致副本；增量备份是一个独立的SQLite文件，只含上次备份之后变化的行和删除记录
+ * 一个完整备份加上它之后的增量备份构成一条链，恢复时依次应用
+ * 所有操作互斥执行
+ */
+public final class DatabaseBackup {
+    
+    private static final String TAG = "DatabaseBackup";
+    private static final String DIRECTORY = "backups";
+    private static final String FULL_PREFIX = "full-";
+    private static final String INCREMENTAL_PREFIX = "inc-";
+    private static final String SUFFIX = ".db";
+    private static final String META_TABLE = "backup_meta";
+    
+    /**
+     * 增量备份包含的表，todos和subtasks按待办事项整体替换
+     */
+    private static final String[] TABLES = {"todos", "subtasks", "archived_todos", "recurrence_exceptions",
+            "deleted_rows"};
+    
+    /**
+     * 保留的备份链数量
+     */
+    private static final int KEEP_CHAINS = 2;
+    
+    private static final Object LOCK = new Object();
+    
+    private final Context context;
+    private final File directory;
+    
+    public DatabaseBackup(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        this.directory = new File(this.context.getFilesDir(), DIRECTORY);
+    }
+    
+    /**
+     * 写一份完整备份，开始一条新的备份链，返回备份文件
+     */
+    @NonNull
+    public File backupFull() throws IOException {
+        synchronized (LOCK) {
+            TodoDatabase database = TodoDatabase.getDatabase(context);
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            File target = newBackupFile(FULL_PREFIX);
+            File temp = new File(target.getPath() + ".tmp");
+            deleteWithSidecars(temp);
+            
+            // 先把WAL合并进主文件，使副本和之后的复制都不依赖WAL
+            runPragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                // VACUUM INTO在一个读事务中写出紧凑的一致副本，不阻塞写入
+                db.execSQL("VACUUM INTO ?", new Object[]{temp.getPath()});
+            } else {
+                // 旧版本SQLite没有VACUUM INTO，持有写锁逐页复制主文件和WAL
+                database.runInTransaction(() -> {
+                    try {
+                        File source = TodoDatabase.getDatabaseFile(context);
+                        copy(source, temp);
+                        File wal = new File(source.getPath() + "-wal");
+                        if (wal.exists()) {
+                            copy(wal, new File(temp.getPath() + "-wal"));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            
+            long until;
+            SQLiteDatabase copy = SQLiteDatabase.openDatabase(temp.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            try {
+                // 打开时回放复制来的WAL，改为回滚日志后备份是单个文件
+                runPragma(copy, "PRAGMA journal_mode=DELETE");
+                until = latestChange(copy);
+                writeMeta(copy, 0, until, db.getVersion());
+            } finally {
+                copy.close();
+            }
+            deleteSidecars(temp);
+            rename(temp, target);
+            
+            // 此前的删除记录已经体现在完整备份里
+            database.todoDao().pruneDeletedRows(until);
+            pruneOldChains();
+            return target;
+        }
+    }
+    
+    /**
+     * 写一份增量备份，只包含当前链最后一次备份之后变化的行
+     * 没有可用的完整备份或表结构已升级时改为完整备份；没有任何变化时不写文件，返回null
+     */
+    @Nullable
+    public File backupIncremental() throws IOException {
+        synchronized (LOCK) {
+            List<BackupFile> chain = readChain();
+            TodoDatabase database = TodoDatabase.getDatabase(context);
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            if (chain.isEmpty() || chain.get(0).schemaVersion != db.getVersion()) {
+                return backupFull();
+            }
+            long since = chain.get(chain.size() - 1).until;
+            File target = newBackupFile(INCREMENTAL_PREFIX);
+            File temp = new File(target.getPath() + ".tmp");
+            deleteWithSidecars(temp);
+            
+            int[] rows = new int[1];
+            long[] until = new long[1];
+            SQLiteDatabase increment = SQLiteDatabase.openOrCreateDatabase(temp, null);
+            try {
+                increment.beginTransaction();
+                try {
+                    // 事务持有写锁，读取期间没有新的修改；截止时间取当前时间减1毫秒，
+                    // 之后同一毫秒内的修改会落在下一次增量里
+                    database.runInTransaction(() -> {
+                        until[0] = Math.max(since, queryLong(db, "SELECT " + Migrations.NOW_MILLIS) - 1);
+                        TodoDao dao = database.todoDao();
+                        for (String table : TABLES) {
+                            increment.execSQL(queryString(db,
+                                    "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?", table));
+                        }
+                        rows[0] += copyRows(dao.getTodosChangedBetween(since, until[0]), increment, "todos");
+                        rows[0] += copyRows(dao.getSubTasksOfTodosChangedBetween(since, until[0]), increment, "subtasks");
+                        rows[0] += copyRows(dao.getArchivedTodosChangedBetween(since, until[0]), increment, "archived_todos");
+                        rows[0] += copyRows(dao.getRecurrenceExceptionsChangedBetween(since, until[0]), increment,
+                                "recurrence_exceptions");
+                        rows[0] += copyRows(dao.getDeletedRowsBetween(since, until[0]), increment, "deleted_rows");
+                    });
+                    writeMeta(increment, since, until[0], db.getVersion());
+                    increment.setTransactionSuccessful();
+                } finally {
+                    increment.endTransaction();
+                }
+            } finally {
+                increment.close();
+            }
+            
+            if (rows[0] == 0) {
+                deleteWithSidecars(temp);
+                return null;
+            }
+            deleteSidecars(temp);
+            rename(temp, target);
+            return target;
+        }
+    }
+    
+    /**
+     * 当前链中完整备份之后的增量备份数量，没有完整备份时返回-1
+     */
+    public int getIncrementalCount() {
+        synchronized (LOCK) {
+            List<BackupFile> chain = readChain();
+            return chain.size() - 1;
+        }
+    }
+    
+    /**
+     * 最近一次备份的时间，没有备份时返回0
+     */
+    public long getLastBackupTime() {
+        synchronized (LOCK) {
+            List<BackupFile> chain = readChain();
+            return chain.isEmpty() ? 0 : chain.get(chain.size() - 1).createdAt;
+        }
+    }
+    
+    /**
+     * 用最近一条备份链恢复数据库
+     * 在临时文件上应用完整备份和各增量备份并检查完整性，成功后关闭当前数据库并原子替换文件再重新打开；
+     * 之前取得的TodoDatabase和DAO实例随之失效，调用方需要重建持有它们的界面和缓存
+     */
+    public void restoreLatest() throws IOException {
+        synchronized (LOCK) {
+            List<BackupFile> chain = readChain();
+            if (chain.isEmpty()) {
+                throw new FileNotFoundException("没有可用的备份");
+            }
+            File databaseFile = TodoDatabase.getDatabaseFile(context);
+            // 与数据库同一目录，替换时可以原子重命名
+            File staging = new File(databaseFile.getPath() + ".restore");
+            deleteWithSidecars(staging);
+            copy(chain.get(0).file, staging);
+            
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(staging.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            try {
+                // 删除全部触发器和索引表，应用时只写数据；重新打开时onOpen会重建它们并重新填充索引
+                for (String trigger : queryStrings(db, "SELECT name FROM sqlite_master WHERE type = 'trigger'")) {
+                    db.execSQL("DROP TRIGGER IF EXISTS `" + trigger + "`");
+                }
+                db.execSQL("DROP TABLE IF EXISTS " + SearchIndex.TABLE);
+                for (BackupFile increment : chain.subList(1, chain.size())) {
+                    applyIncrement(db, increment.file);
+                }
+                db.execSQL("DROP TABLE " + META_TABLE);
+                // 恢复后的数据是新的基准，之前的删除记录不再需要
+                db.execSQL("DELETE FROM deleted_rows");
+                String check = queryString(db, "PRAGMA quick_check");
+                if (!"ok".equals(check)) {
+                    throw new IOException("备份文件已损坏：" + check);
+                }
+            } finally {
+                db.close();
+            }
+            deleteSidecars(staging);
+            
+            TodoDatabase.replaceDatabaseFile(context, staging);
+            // 立即重新打开，迁移和触发器重建在这里完成而不是在界面第一次查询时
+            TodoDatabase.getDatabase(context).getOpenHelper().getWritableDatabase();
+        }
+    }
+    
+    /**
+     * 应用一个增量备份：变化的待办事项连同子任务整体替换，再按删除记录删除
+     * staging不是Room管理的连接，可以用ATTACH直接在SQL中完成
+     */
+    private static void applyIncrement(SQLiteDatabase db, File file) {
+        db.execSQL("ATTACH DATABASE ? AS increment", new Object[]{file.getPath()});
+        try {
+            db.beginTransaction();
+            try {
+                db.execSQL("DELETE FROM subtasks WHERE todoId IN (SELECT id FROM increment.todos)");
+                for (String table : new String[]{"todos", "subtasks", "archived_todos", "recurrence_exceptions"}) {
+                    String columns = joinColumns(db, table);
+                    db.execSQL("INSERT OR REPLACE INTO " + table + " (" + columns + ") SELECT "
+                            + columns + " FROM increment." + table);
+                }
+                db.execSQL("DELETE FROM subtasks WHERE todoId IN "
+                        + "(SELECT id FROM increment.deleted_rows WHERE tableName = 'todos')");
+                db.execSQL("DELETE FROM todos WHERE id IN "
+                        + "(SELECT id FROM increment.deleted_rows WHERE tableName = 'todos')");
+                db.execSQL("DELETE FROM archived_todos WHERE id IN "
+                        + "(SELECT id FROM increment.deleted_rows WHERE tableName = 'archived_todos')");
+                db.execSQL("DELETE FROM recurrence_exceptions WHERE todoId || '@' || occurrenceDate IN "
+                        + "(SELECT id FROM increment.deleted_rows WHERE tableName = 'recurrence_exceptions')");
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.execSQL("DETACH DATABASE increment");
+        }
+    }
+    
+    /**
+     * 增量备份中表的列名，按名称插入，不依赖两边的列顺序
+     */
+    private static String joinColumns(SQLiteDatabase db, String table) {
+        StringBuilder columns = new StringBuilder();
+        try (Cursor cursor = db.rawQuery("PRAGMA increment.table_info(" + table + ")", null)) {
+            int name = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                if (columns.length() > 0) columns.append(", ");
+                columns.append('`').append(cursor.getString(name)).append('`');
+            }
+        }
+        return columns.toString();
+    }
+    
+    private static int copyRows(Cursor cursor, SQLiteDatabase target, String table) {
+        int count = 0;
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.clear();
+                DatabaseUtils.cursorRowToContentValues(cursor, values);
+                target.insertOrThrow(table, null, values);
+                count++;
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+    
+    /**
+     * 副本中最新的修改时间，作为下一次增量备份的起点
+     */
+    private static long latestChange(SQLiteDatabase db) {
+        return queryLong(db, "SELECT MAX("
+                + "(SELECT IFNULL(MAX(updatedAt), 0) FROM todos), "
+                + "(SELECT IFNULL(MAX(archivedAt), 0) FROM archived_todos), "
+                + "(SELECT IFNULL(MAX(updatedAt), 0) FROM recurrence_exceptions), "
+                + "(SELECT IFNULL(MAX(deletedAt), 0) FROM deleted_rows))");
+    }
+    
+    private static void writeMeta(SQLiteDatabase db, long since, long until, int schemaVersion) {
+        db.execSQL("CREATE TABLE " + META_TABLE + " (since INTEGER NOT NULL, until INTEGER NOT NULL, "
+                + "schemaVersion INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO " + META_TABLE + " VALUES (?, ?, ?)", new Object[]{since, until, schemaVersion});
+    }
+    
+    /**
+     * 最近一条完整的备份链：最新的完整备份及其后首尾相接的增量备份；无法读取的文件视为断点
+     */
+    private List<BackupFile> readChain() {
+        List<BackupFile> chain = new ArrayList<>();
+        for (File file : listBackupFiles()) {
+            boolean full = file.getName().startsWith(FULL_PREFIX);
+            // 第一个完整备份之前的增量备份不属于任何链
+            if (!full && chain.isEmpty()) continue;
+            BackupFile backup = BackupFile.read(file);
+            if (full) {
+                chain.clear();
+                if (backup != null) chain.add(backup);
+            } else if (backup != null) {
+                BackupFile previous = chain.get(chain.size() - 1);
+                if (backup.since == previous.until && backup.schemaVersion == previous.schemaVersion) {
+                    chain.add(backup);
+                }
+            }
+        }
+        return chain;
+    }
+    
+    /**
+     * 删除最近KEEP_CHAINS条链之前的备份文件
+     */
+    private void pruneOldChains() {
+        List<File> files = listBackupFiles();
+        int fulls = 0;
+        for (int i = files.size() - 1; i >= 0; i--) {
+            if (fulls >= KEEP_CHAINS) {
+                if (!files.get(i).delete()) {
+                    Log.w(TAG, "无法删除旧备份 " + files.get(i));
+                }
+            } else if (files.get(i).getName().startsWith(FULL_PREFIX)) {
+                fulls++;
+            }
+        }
+    }
+    
+    /**
+     * 按创建时间排序的备份文件
+     */
+    private List<File> listBackupFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX)
+                && (name.startsWith(FULL_PREFIX) || name.startsWith(INCREMENTAL_PREFIX)));
+        if (files == null) return new ArrayList<>();
+        List<File> result = new ArrayList<>(Arrays.asList(files));
+        result.sort((a, b) -> Long.compare(createdAt(a), createdAt(b)));
+        return result;
+    }
+    
+    private File newBackupFile(String prefix) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建备份目录 " + directory);
+        }
+        // 文件名中的时间保证严格递增，同一毫秒内连续备份时顺延
+        long stamp = System.currentTimeMillis();
+        List<File> existing = listBackupFiles();
+        if (!existing.isEmpty()) {
+            stamp = Math.max(stamp, createdAt(existing.get(existing.size() - 1)) + 1);
+        }
+        return new File(directory, prefix + stamp + SUFFIX);
+    }
+    
+    private static long createdAt(File file) {
+        String name = file.getName();
+        String stamp = name.substring(name.indexOf('-') + 1, name.length() - SUFFIX.length());
+        try {
+            return Long.parseLong(stamp);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static void runPragma(SupportSQLiteDatabase db, String sql) {
+        // PRAGMA通过查询执行，需要移动游标才会真正运行
+        try (Cursor cursor = db.query(sql)) {
+            cursor.moveToFirst();
+        }
+    }
+    
+    private static void runPragma(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            cursor.moveToFirst();
+        }
+    }
+    
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+    
+    private static long queryLong(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+    
+    private static String queryString(SupportSQLiteDatabase db, String sql, Object arg) {
+        try (Cursor cursor = db.query(sql, new Object[]{arg})) {
+            if (!cursor.moveToFirst()) {
+                throw new IllegalStateException("查询没有结果：" + sql);
+            }
+            return cursor.getString(0);
+        }
+    }
+    
+    private static String queryString(SQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+    
+    private static List<String> queryStrings(SQLiteDatabase db, String sql) {
+        List<String> result = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                result.add(cursor.getString(0));
+            }
+        }
+        return result;
+    }
+    
+    private static void copy(File source, File target) throws IOException {
+        try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            out.getFD().sync();
+        }
+    }
+    
+    private static void rename(File source, File target) throws IOException {
+        if (!source.renameTo(target)) {
+            throw new IOException("无法重命名 " + source + " 为 " + target);
+        }
+    }
+    
+    private static void deleteWithSidecars(File file) {
+        file.delete();
+        deleteSidecars(file);
+    }
+    
+    private static void deleteSidecars(File file) {
+        for (String suffix : new String[]{"-wal", "-shm", "-journal"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+    
+    /**
+     * 一个备份文件及其backup_meta中的范围
+     */
+    private static final class BackupFile {
+        final File file;
+        final long createdAt;
+        final long since;
+        final long until;
+        final int schemaVersion;
+        
+        private BackupFile(File file, long since, long until, int schemaVersion) {
+            this.file = file;
+            this.createdAt = DatabaseBackup.createdAt(file);
+            this.since = since;
+            this.until = until;
+            this.schemaVersion = schemaVersion;
+        }
+        
+        @Nullable
+        static BackupFile read(File file) {
+            try {
+                SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+                try (Cursor cursor = db.rawQuery("SELECT since, until, schemaVersion FROM " + META_TABLE, null)) {
+                    if (!cursor.moveToFirst()) return null;
+                    return new BackupFile(file, cursor.getLong(0), cursor.getLong(1), cursor.getInt(2));
+                } finally {
+                    db.close();
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "无法读取备份 " + file, e);
+                return null;
+            }
+        }
+    }
+}
\ No newline at end of file
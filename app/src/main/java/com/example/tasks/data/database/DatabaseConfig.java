@@ -0,0 +1,84 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Locale;
+
+/**
+ * 数据库连接配置：日志模式和打开时设置的PRAGMA
+ * WAL模式下读连接不会被写事务阻塞，列表查询和批量写入可以并发执行
+ * 框架连接池只对主连接回调onOpen，读连接由连接池自行打开，无法逐个设置；
+ * 因此只保留在主连接上设置即可生效的项：日志模式写在数据库文件里，所有连接共用；
+ * 写入只在主连接上执行，synchronous只影响写入。cache_size、temp_store这类按连接生效的设置不提供
+ */
+public final class DatabaseConfig {
+    
+    /**
+     * PRAGMA synchronous取值，WAL模式下NORMAL已能保证一致性，只在断电时可能丢失最后的事务
+     */
+    public enum Synchronous {
+        OFF, NORMAL, FULL
+    }
+    
+    private final RoomDatabase.JournalMode journalMode;
+    private final Synchronous synchronous;
+    
+    private DatabaseConfig(Builder builder) {
+        this.journalMode = builder.journalMode;
+        this.synchronous = builder.synchronous;
+    }
+    
+    /**
+     * 应用默认配置：WAL、synchronous=NORMAL
+     */
+    public static DatabaseConfig defaults() {
+        return new Builder().build();
+    }
+    
+    public RoomDatabase.JournalMode getJournalMode() {
+        return journalMode;
+    }
+    
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+    
+    /**
+     * 在主连接上设置PRAGMA，只在onOpen中调用
+     */
+    void applyPragmas(@NonNull SupportSQLiteDatabase db) {
+        pragma(db, "synchronous = " + synchronous.name());
+    }
+    
+    private static void pragma(SupportSQLiteDatabase db, String statement) {
+        // 部分PRAGMA会返回结果行，用query执行并关闭游标，避免execSQL报错
+        db.query("PRAGMA " + statement).close();
+    }
+    
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "DatabaseConfig{journalMode=%s, synchronous=%s}", journalMode, synchronous);
+    }
+    
+    public static class Builder {
+        private RoomDatabase.JournalMode journalMode = RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING;
+        private Synchronous synchronous = Synchronous.NORMAL;
+        
+        public Builder setJournalMode(@NonNull RoomDatabase.JournalMode journalMode) {
+            this.journalMode = journalMode;
+            return this;
+        }
+        
+        public Builder setSynchronous(@NonNull Synchronous synchronous) {
+            this.synchronous = synchronous;
+            return this;
+        }
+        
+        public DatabaseConfig build() {
+            return new DatabaseConfig(this);
+        }
+    }
+}
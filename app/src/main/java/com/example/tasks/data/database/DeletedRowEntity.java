@@ -0,0 +1,25 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * 删除记录，由触发器在todos、archived_todos和recurrence_exceptions删除行时写入，增量备份据此在恢复时删除对应的行
+ * recurrence_exceptions的id为todoId@occurrenceDate
+ * 同ID的行重新插入时记录被清除；完整备份之后，早于备份时间的记录不再需要
+ */
+@Entity(
+    tableName = "deleted_rows",
+    primaryKeys = {"tableName", "id"},
+    indices = {@Index(value = {"deletedAt"})}
+)
+public class DeletedRowEntity {
+    @NonNull
+    public String tableName = "";
+    
+    @NonNull
+    public String id = "";
+    
+    public long deletedAt;
+}
\ No newline at end of file
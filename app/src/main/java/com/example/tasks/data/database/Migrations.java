@@ -0,0 +1,316 @@
+package com.example.tasks.data.database;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.example.tasks.data.models.SubTask;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 数据库版本迁移，每次升级schema都必须在这里追加一个保留数据的Migration
+ */
+public final class Migrations {
+    
+    /**
+     * SQL中的当前时间（毫秒），修改时间和备份时间都用它计算，两者使用同一个时钟
+     */
+    static final String NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+    
+    private Migrations() {
+    }
+    
+    /**
+     * 版本3 -> 4：子任务从todos表的JSON列拆分到独立的subtasks表
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `subtasks` (`id` TEXT NOT NULL, `todoId` TEXT NOT NULL, "
+                    + "`title` TEXT, `isCompleted` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL, "
+                    + "`position` INTEGER NOT NULL, PRIMARY KEY(`id`), "
+                    + "FOREIGN KEY(`todoId`) REFERENCES `todos`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_subtasks_todoId_position` ON `subtasks` (`todoId`, `position`)");
+            
+            // 逐行解析旧的JSON列并写入subtasks表
+            SupportSQLiteStatement insert = db.compileStatement(
+                    "INSERT OR REPLACE INTO subtasks (id, todoId, title, isCompleted, createdAt, position) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)");
+            try (Cursor cursor = db.query("SELECT id, subTasks FROM todos WHERE subTasks IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    String todoId = cursor.getString(0);
+                    List<SubTask> subTasks = Converters.toSubTaskList(cursor.getString(1));
+                    for (int i = 0; i < subTasks.size(); i++) {
+                        SubTask subTask = subTasks.get(i);
+                        insert.bindString(1, subTask.getId() != null ? subTask.getId() : UUID.randomUUID().toString());
+                        insert.bindString(2, todoId);
+                        if (subTask.getTitle() != null) {
+                            insert.bindString(3, subTask.getTitle());
+                        } else {
+                            insert.bindNull(3);
+                        }
+                        insert.bindLong(4, subTask.isCompleted() ? 1 : 0);
+                        insert.bindLong(5, subTask.getCreatedAt());
+                        insert.bindLong(6, i);
+                        insert.executeInsert();
+                        insert.clearBindings();
+                    }
+                }
+            }
+            
+            // SQLite在API 24上不支持DROP COLUMN，重建todos表以去掉subTasks列
+            db.execSQL("CREATE TABLE IF NOT EXISTS `todos_new` (`id` TEXT NOT NULL, `title` TEXT, "
+                    + "`description` TEXT, `isCompleted` INTEGER NOT NULL, `priority` TEXT, `dueDate` INTEGER, "
+                    + "`createdAt` INTEGER NOT NULL, `completedAt` INTEGER, PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO todos_new (id, title, description, isCompleted, priority, dueDate, createdAt, completedAt) "
+                    + "SELECT id, title, description, isCompleted, priority, dueDate, createdAt, completedAt FROM todos");
+            db.execSQL("DROP TABLE todos");
+            db.execSQL("ALTER TABLE todos_new RENAME TO todos");
+        }
+    };
+    
+    /**
+     * 版本4 -> 5：为常用查询列建立索引
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_isCompleted_dueDate` ON `todos` (`isCompleted`, `dueDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_isCompleted_completedAt` ON `todos` (`isCompleted`, `completedAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_dueDate` ON `todos` (`dueDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_createdAt` ON `todos` (`createdAt`)");
+        }
+    };
+    
+    /**
+     * 版本5 -> 6：优先级由枚举名字符串改为整数rank，并建立与未完成列表排序一致的索引
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // 列类型变化需要重建表
+            db.execSQL("CREATE TABLE IF NOT EXISTS `todos_new` (`id` TEXT NOT NULL, `title` TEXT, "
+                    + "`description` TEXT, `isCompleted` INTEGER NOT NULL, `priority` INTEGER, `dueDate` INTEGER, "
+                    + "`createdAt` INTEGER NOT NULL, `completedAt` INTEGER, PRIMARY KEY(`id`))");
+            db.execSQL("INSERT INTO todos_new (id, title, description, isCompleted, priority, dueDate, createdAt, completedAt) "
+                    + "SELECT id, title, description, isCompleted, "
+                    + "CASE priority WHEN 'LOW' THEN 0 WHEN 'MEDIUM' THEN 1 WHEN 'HIGH' THEN 2 WHEN 'URGENT' THEN 3 ELSE 1 END, "
+                    + "dueDate, createdAt, completedAt FROM todos");
+            db.execSQL("DROP TABLE todos");
+            db.execSQL("ALTER TABLE todos_new RENAME TO todos");
+            
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_isCompleted_priority_dueDate` ON `todos` "
+                    + "(`isCompleted` ASC, `priority` DESC, `dueDate` ASC)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_isCompleted_dueDate` ON `todos` (`isCompleted`, `dueDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_isCompleted_completedAt` ON `todos` (`isCompleted`, `completedAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_dueDate` ON `todos` (`dueDate`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_createdAt` ON `todos` (`createdAt`)");
+        }
+    };
+    
+    /**
+     * 版本6 -> 7：增加子任务数量冗余列并回填，触发器在每次打开数据库时创建
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE todos ADD COLUMN `subtaskTotal` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE todos ADD COLUMN `subtaskDone` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE todos SET "
+                    + "subtaskTotal = (SELECT COUNT(*) FROM subtasks WHERE subtasks.todoId = todos.id), "
+                    + "subtaskDone = (SELECT COUNT(*) FROM subtasks WHERE subtasks.todoId = todos.id AND subtasks.isCompleted = 1)");
+        }
+    };
+    
+    /**
+     * 版本7 -> 8：增加已完成任务的归档表
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `archived_todos` (`id` TEXT NOT NULL, `title` TEXT, "
+                    + "`description` TEXT, `priority` INTEGER, `dueDate` INTEGER, `createdAt` INTEGER NOT NULL, "
+                    + "`completedAt` INTEGER, `archivedAt` INTEGER NOT NULL, "
+                    + "`subtaskTotal` INTEGER NOT NULL DEFAULT 0, `subtaskDone` INTEGER NOT NULL DEFAULT 0, "
+                    + "`subTasks` TEXT, PRIMARY KEY(`id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_archived_todos_completedAt` ON `archived_todos` (`completedAt`)");
+        }
+    };
+    
+    /**
+     * 版本8 -> 9：增加修改时间和删除记录，用于增量备份
+     * 已有行的修改时间取创建和完成时间中较晚的一个，升级后的第一次备份总是完整备份
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE todos ADD COLUMN `updatedAt` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE todos SET updatedAt = MAX(createdAt, COALESCE(completedAt, 0))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_updatedAt` ON `todos` (`updatedAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_archived_todos_archivedAt` ON `archived_todos` (`archivedAt`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `deleted_rows` (`tableName` TEXT NOT NULL, `id` TEXT NOT NULL, "
+                    + "`deletedAt` INTEGER NOT NULL, PRIMARY KEY(`tableName`, `id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_deleted_rows_deletedAt` ON `deleted_rows` (`deletedAt`)");
+        }
+    };
+    
+    /**
+     * 版本9 -> 10：增加同步版本号和待推送变更表
+     * todos_changed_update改为只在数据列变化时触发，删除后由onOpen按新定义重建
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE todos ADD COLUMN `version` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `changes` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`todoId` TEXT NOT NULL, `deleted` INTEGER NOT NULL, `changedAt` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_changes_todoId` ON `changes` (`todoId`)");
+            db.execSQL("DROP TRIGGER IF EXISTS `todos_changed_update`");
+        }
+    };
+    
+    /**
+     * 版本10 -> 11：增加写队列的应用进度表
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `outbox_state` (`id` INTEGER NOT NULL, "
+                    + "`appliedSeq` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+        }
+    };
+    
+    /**
+     * 版本11 -> 12：增加重复规则列和重复任务的完成记录表
+     * todos_changed_update需要包含新列，删除后由onOpen重建
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE todos ADD COLUMN `recurrence` TEXT");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_todos_recurrence` ON `todos` (`recurrence`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `recurrence_exceptions` (`todoId` TEXT NOT NULL, "
+                    + "`occurrenceDate` INTEGER NOT NULL, `completedAt` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`todoId`, `occurrenceDate`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_recurrence_exceptions_occurrenceDate` "
+                    + "ON `recurrence_exceptions` (`occurrenceDate`)");
+            db.execSQL("DROP TRIGGER IF EXISTS `todos_changed_update`");
+        }
+    };
+    
+    /**
+     * 版本12 -> 13：完成记录增加写入时间，用于增量备份；已有的记录取完成时间
+     */
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE recurrence_exceptions ADD COLUMN `updatedAt` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE recurrence_exceptions SET updatedAt = completedAt");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_recurrence_exceptions_updatedAt` "
+                    + "ON `recurrence_exceptions` (`updatedAt`)");
+        }
+    };
+    
+    /**
+     * 所有迁移，按版本顺序排列
+     */
+    static final Migration[] ALL = {
+        MIGRATION_3_4,
+        MIGRATION_4_5,
+        MIGRATION_5_6,
+        MIGRATION_6_7,
+        MIGRATION_7_8,
+        MIGRATION_8_9,
+        MIGRATION_9_10,
+        MIGRATION_10_11,
+        MIGRATION_11_12,
+        MIGRATION_12_13
+    };
+    
+    /**
+     * 创建维护todos.subtaskTotal/subtaskDone的触发器
+     * 每次按todoId重新计数而不是增减，这样整体替换子任务等写法也不会累积误差
+     */
+    static void createSubTaskCountTriggers(@NonNull SupportSQLiteDatabase db) {
+        String recount = "UPDATE todos SET "
+                + "subtaskTotal = (SELECT COUNT(*) FROM subtasks WHERE todoId = %1$s.todoId), "
+                + "subtaskDone = (SELECT COUNT(*) FROM subtasks WHERE todoId = %1$s.todoId AND isCompleted = 1) "
+                + "WHERE id = %1$s.todoId; ";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `subtasks_count_insert` AFTER INSERT ON `subtasks` BEGIN "
+                + String.format(recount, "NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `subtasks_count_delete` AFTER DELETE ON `subtasks` BEGIN "
+                + String.format(recount, "OLD") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `subtasks_count_update` AFTER UPDATE OF `isCompleted`, `todoId` ON `subtasks` BEGIN "
+                + String.format(recount, "OLD") + String.format(recount, "NEW") + "END");
+    }
+    
+    /**
+     * todos中除version外的列，todos增加列时需要同步加入，否则只改该列的更新不会被记录
+     */
+    private static final String DATA_COLUMNS = "`title`, `description`, `isCompleted`, `priority`, `dueDate`, "
+            + "`createdAt`, `completedAt`, `subtaskTotal`, `subtaskDone`, `updatedAt`, `recurrence`";
+    
+    /**
+     * 创建维护todos.updatedAt和deleted_rows的触发器
+     * 插入时updatedAt为0才写入当前时间，恢复备份时带着原值写入的行保持不变；
+     * 更新时只要调用方没有写入更大的值就刷新，通过实体整体更新的行也会被记录
+     * 子任务的增删和完成状态变化经由计数触发器更新todos，间接刷新updatedAt
+     * 只写version的更新（同步确认）不算修改
+     * 完成记录只有插入和删除，插入时同样只在updatedAt为0时写入当前时间
+     */
+    static void createChangeTrackingTriggers(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_changed_insert` AFTER INSERT ON `todos` BEGIN "
+                + "UPDATE todos SET updatedAt = " + NOW_MILLIS + " WHERE rowid = NEW.rowid AND NEW.updatedAt = 0; "
+                + "DELETE FROM deleted_rows WHERE tableName = 'todos' AND id = NEW.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_changed_update` AFTER UPDATE OF " + DATA_COLUMNS + " ON `todos` "
+                + "WHEN NEW.updatedAt <= OLD.updatedAt BEGIN "
+                + "UPDATE todos SET updatedAt = MAX(" + NOW_MILLIS + ", OLD.updatedAt + 1) WHERE rowid = NEW.rowid; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_changed_delete` AFTER DELETE ON `todos` BEGIN "
+                + "INSERT OR REPLACE INTO deleted_rows (tableName, id, deletedAt) "
+                + "VALUES ('todos', OLD.id, " + NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `subtasks_changed_update` AFTER UPDATE OF `title`, `position` ON `subtasks` BEGIN "
+                + "UPDATE todos SET updatedAt = MAX(" + NOW_MILLIS + ", updatedAt + 1) WHERE id = NEW.todoId; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `recurrence_exceptions_changed_insert` AFTER INSERT ON `recurrence_exceptions` BEGIN "
+                + "UPDATE recurrence_exceptions SET updatedAt = " + NOW_MILLIS + " WHERE rowid = NEW.rowid AND NEW.updatedAt = 0; "
+                + "DELETE FROM deleted_rows WHERE tableName = 'recurrence_exceptions' "
+                + "AND id = NEW.todoId || '@' || NEW.occurrenceDate; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `recurrence_exceptions_changed_delete` AFTER DELETE ON `recurrence_exceptions` BEGIN "
+                + "INSERT OR REPLACE INTO deleted_rows (tableName, id, deletedAt) "
+                + "VALUES ('recurrence_exceptions', OLD.todoId || '@' || OLD.occurrenceDate, " + NOW_MILLIS + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `archived_todos_changed_insert` AFTER INSERT ON `archived_todos` BEGIN "
+                + "DELETE FROM deleted_rows WHERE tableName = 'archived_todos' AND id = NEW.id; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `archived_todos_changed_delete` AFTER DELETE ON `archived_todos` BEGIN "
+                + "INSERT OR REPLACE INTO deleted_rows (tableName, id, deletedAt) "
+                + "VALUES ('archived_todos', OLD.id, " + NOW_MILLIS + "); END");
+    }
+    
+    /**
+     * 创建写入changes的触发器：插入和修改时间前进时记为更新，删除时记为删除
+     * 归档时先写入archived_todos再删除，这种删除只是移到归档表，不同步给其他设备
+     */
+    static void createSyncTriggers(@NonNull SupportSQLiteDatabase db) {
+        String upsert = "INSERT OR REPLACE INTO changes (todoId, deleted, changedAt) VALUES (NEW.id, 0, %s); ";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_sync_insert` AFTER INSERT ON `todos` BEGIN "
+                + String.format(upsert, "CASE WHEN NEW.updatedAt = 0 THEN " + NOW_MILLIS + " ELSE NEW.updatedAt END")
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_sync_update` AFTER UPDATE OF `updatedAt` ON `todos` "
+                + "WHEN NEW.updatedAt > OLD.updatedAt BEGIN " + String.format(upsert, "NEW.updatedAt") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_sync_delete` AFTER DELETE ON `todos` "
+                + "WHEN NOT EXISTS (SELECT 1 FROM archived_todos WHERE id = OLD.id) BEGIN "
+                + "INSERT OR REPLACE INTO changes (todoId, deleted, changedAt) VALUES (OLD.id, 1, " + NOW_MILLIS + "); END");
+    }
+    
+    /**
+     * 待办事项删除时清除它的完成记录
+     * 不用外键级联：导入和同步用REPLACE整行替换，外键会随之删掉完成记录，而REPLACE不触发删除触发器
+     */
+    static void createRecurrenceTriggers(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todos_recurrence_delete` AFTER DELETE ON `todos` BEGIN "
+                + "DELETE FROM recurrence_exceptions WHERE todoId = OLD.id; END");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.tasks.data.database;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 写队列的应用进度，只有id为0的一行
+ */
+@Entity(tableName = "outbox_state")
+public class OutboxStateEntity {
+    @PrimaryKey
+    public int id;
+    
+    public long appliedSeq;
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * 重复任务某一次发生的完成记录，只有完成的那一次才有一行，发生本身不落库
+ * occurrenceDate是发生当天本地0点，修改截止时刻后记录仍对应同一天
+ */
+@Entity(
+    tableName = "recurrence_exceptions",
+    primaryKeys = {"todoId", "occurrenceDate"},
+    indices = {@Index(value = {"occurrenceDate"}), @Index(value = {"updatedAt"})}
+)
+public class RecurrenceExceptionEntity {
+    @NonNull
+    public String todoId = "";
+    
+    public long occurrenceDate;
+    
+    public long completedAt;
+    
+    /**
+     * 写入时间，由触发器在插入时写入，增量备份据此筛选；completedAt由调用方给出，写队列重放时可能早于实际写入
+     */
+    @ColumnInfo(defaultValue = "0")
+    public long updatedAt;
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.tasks.data.database;
+
+import com.example.tasks.data.models.Priority;
+
+/**
+ * 重复任务的列表投影，加上规则，用于按日期窗口展开发生
+ */
+public class RecurringTodoRow {
+    public String id;
+    public String title;
+    public String descriptionPreview;
+    public boolean isCompleted;
+    public Priority priority;
+    public Long dueDate;
+    public int subtaskTotal;
+    public int subtaskDone;
+    public String recurrence;
+}
\ No newline at end of file
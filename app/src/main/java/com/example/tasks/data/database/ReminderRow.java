@@ -0,0 +1,12 @@
+package com.example.tasks.data.database;
+
+/**
+ * 提醒调度用的投影，只含排程和通知需要的列
+ */
+public class ReminderRow {
+    public String id;
+    public String title;
+    public boolean isCompleted;
+    public Long dueDate;
+    public String recurrence;
+}
\ No newline at end of file
@@ -0,0 +1,339 @@
+package com.example.tasks.data.database;
+
+import android.database.Cursor;
+import android.database.SQLException;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 待办事项全文索引（FTS4）
+ * 索引同时覆盖todos的标题、描述和subtasks的标题，Room不支持跨表的FTS实体，因此由触发器自行维护
+ * docid对应todos表的rowid，更新不会改变rowid；整库替换后需调用rebuild重建
+ * 写入索引的文本在每个汉字前后加空格，每个汉字单独成词，查询把连续的汉字作为短语匹配，
+ * 不依赖ICU也能搜到一段中文中间的词；摘要返回前去掉这些空格
+ */
+public final class SearchIndex {
+    
+    static final String TABLE = "todo_search";
+    
+    /**
+     * 高亮标记，使用控制字符避免与用户输入冲突
+     */
+    public static final char HIGHLIGHT_START = '\u0002';
+    public static final char HIGHLIGHT_END = '\u0003';
+    
+    /**
+     * 参与排序的候选数量上限，排序在Java中完成
+     * 先取标题命中的行，不足时再用其余列命中的行补足，上限不会把标题命中的行挤出候选
+     */
+    static final int MAX_CANDIDATES = 500;
+    
+    // 标题、描述、子任务各列的排序权重
+    private static final float[] COLUMN_WEIGHTS = {4f, 1f, 2f};
+    
+    /**
+     * 分词器按可用性依次尝试：ICU能切分更多语言；unicode61和simple只按空格和标点切分，中文靠写入时拆开的单字
+     */
+    private static final String[] TOKENIZERS = {"icu", "unicode61", "simple"};
+    
+    /**
+     * 序号表，触发器中不能使用WITH，逐字处理文本时用它代替递归查询
+     * 超出长度的部分原样写入，其中的汉字只能按整段匹配
+     */
+    static final String POSITIONS_TABLE = "todo_search_positions";
+    private static final int MAX_SPLIT_LENGTH = 8192;
+    
+    /**
+     * 按单字切分的汉字范围：扩展A、基本区和兼容汉字，SQL和Java两侧使用同一组范围
+     */
+    private static final int[][] HAN_RANGES = {{0x3400, 0x4DBF}, {0x4E00, 0x9FFF}, {0xF900, 0xFAFF}};
+    private static final Pattern SPLIT_HAN = Pattern.compile(
+            " ?(" + HIGHLIGHT_START + "?)([" + hanCharClass() + "])(" + HIGHLIGHT_END + "?) ?");
+    
+    private static final String[] TRIGGERS = {"todo_search_replace", "todo_search_insert", "todo_search_update",
+            "todo_search_delete", "todo_search_subtask_insert", "todo_search_subtask_delete",
+            "todo_search_subtask_update"};
+    
+    private SearchIndex() {
+    }
+    
+    /**
+     * 确保索引表和同步触发器存在，索引表首次创建时从现有数据填充
+     * 没有序号表说明索引是旧版本按原文写入的，触发器和索引内容都按当前规则重建
+     */
+    static void ensureCreated(@NonNull SupportSQLiteDatabase db) {
+        if (tableExists(db, TABLE) && tableExists(db, POSITIONS_TABLE)) {
+            createTriggers(db);
+            return;
+        }
+        db.beginTransaction();
+        try {
+            for (String trigger : TRIGGERS) {
+                db.execSQL("DROP TRIGGER IF EXISTS `" + trigger + "`");
+            }
+            if (!tableExists(db, TABLE)) {
+                createTable(db);
+            }
+            createPositions(db);
+            createTriggers(db);
+            db.execSQL("DELETE FROM " + TABLE);
+            populate(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * 清空并按当前数据重建索引
+     */
+    public static void rebuild(@NonNull SupportSQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + TABLE);
+            populate(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * 删除索引表和序号表，同步触发器建在todos和subtasks上，随它们一起删除
+     */
+    static void drop(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + POSITIONS_TABLE);
+    }
+    
+    private static boolean tableExists(SupportSQLiteDatabase db, String table) {
+        try (Cursor cursor = db.query("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new Object[]{table})) {
+            return cursor.moveToFirst();
+        }
+    }
+    
+    private static void createTable(SupportSQLiteDatabase db) {
+        SQLException lastError = null;
+        for (String tokenizer : TOKENIZERS) {
+            try {
+                db.execSQL("CREATE VIRTUAL TABLE " + TABLE + " USING fts4("
+                        + "title, description, subtasks, tokenize=" + tokenizer + ", prefix=\"2\")");
+                return;
+            } catch (SQLException e) {
+                // 当前SQLite未编译该分词器，尝试下一个
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+    
+    private static void createPositions(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + POSITIONS_TABLE + " (n INTEGER PRIMARY KEY)");
+        db.execSQL("WITH RECURSIVE p(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM p WHERE n < " + MAX_SPLIT_LENGTH + ") "
+                + "INSERT OR IGNORE INTO " + POSITIONS_TABLE + " SELECT n FROM p");
+    }
+    
+    private static void populate(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT INTO " + TABLE + " (docid, title, description, subtasks) "
+                + "SELECT rowid, " + splitHanSql("title") + ", " + splitHanSql("description") + ", "
+                + subTaskTitles("todos.id") + " FROM todos");
+    }
+    
+    private static void createTriggers(SupportSQLiteDatabase db) {
+        // REPLACE冲突删除旧行时不会触发删除触发器，插入前先按id清掉旧文档
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_replace` BEFORE INSERT ON `todos` BEGIN "
+                + "DELETE FROM " + TABLE + " WHERE docid = (SELECT rowid FROM todos WHERE id = NEW.id); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_insert` AFTER INSERT ON `todos` BEGIN "
+                + "INSERT INTO " + TABLE + " (docid, title, description, subtasks) "
+                + "VALUES (NEW.rowid, " + splitHanSql("NEW.title") + ", " + splitHanSql("NEW.description") + ", "
+                + subTaskTitles("NEW.id") + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_update` AFTER UPDATE OF `title`, `description` ON `todos` BEGIN "
+                + "UPDATE " + TABLE + " SET title = " + splitHanSql("NEW.title") + ", description = "
+                + splitHanSql("NEW.description") + " WHERE docid = NEW.rowid; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_delete` AFTER DELETE ON `todos` BEGIN "
+                + "DELETE FROM " + TABLE + " WHERE docid = OLD.rowid; END");
+        
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_subtask_insert` AFTER INSERT ON `subtasks` BEGIN "
+                + refreshSubTasks("NEW") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_subtask_delete` AFTER DELETE ON `subtasks` BEGIN "
+                + refreshSubTasks("OLD") + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_search_subtask_update` AFTER UPDATE OF `title` ON `subtasks` BEGIN "
+                + refreshSubTasks("NEW") + "END");
+    }
+    
+    private static String refreshSubTasks(String row) {
+        return "UPDATE " + TABLE + " SET subtasks = " + subTaskTitles(row + ".todoId")
+                + " WHERE docid = (SELECT rowid FROM todos WHERE id = " + row + ".todoId); ";
+    }
+    
+    private static String subTaskTitles(String todoId) {
+        return "(SELECT group_concat(" + splitHanSql("title") + ", ' ') FROM subtasks WHERE todoId = " + todoId + ")";
+    }
+    
+    /**
+     * 在表达式文本的每个汉字前后加空格的SQL，与splitHan一致；不含汉字的文本原样返回，不逐字处理
+     */
+    private static String splitHanSql(String text) {
+        StringBuilder isHan = new StringBuilder();
+        for (int[] range : HAN_RANGES) {
+            if (isHan.length() > 0) isHan.append(" OR ");
+            isHan.append("unicode(c) BETWEEN ").append(range[0]).append(" AND ").append(range[1]);
+        }
+        return "(CASE WHEN " + text + " GLOB '*[" + hanCharClass() + "]*' THEN "
+                + "(SELECT group_concat(CASE WHEN " + isHan + " THEN ' ' || c || ' ' ELSE c END, '') "
+                + "FROM (SELECT substr(" + text + ", n, 1) AS c FROM " + POSITIONS_TABLE
+                + " WHERE n <= length(" + text + ") ORDER BY n)) || substr(" + text + ", " + (MAX_SPLIT_LENGTH + 1) + ") "
+                + "ELSE " + text + " END)";
+    }
+    
+    /**
+     * 汉字范围的字符类内容，GLOB和正则表达式通用
+     */
+    private static String hanCharClass() {
+        StringBuilder chars = new StringBuilder();
+        for (int[] range : HAN_RANGES) {
+            chars.append((char) range[0]).append('-').append((char) range[1]);
+        }
+        return chars.toString();
+    }
+    
+    private static boolean isHan(int codePoint) {
+        for (int[] range : HAN_RANGES) {
+            if (codePoint >= range[0] && codePoint <= range[1]) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * 在每个汉字前后加空格，与写入索引的文本切分方式相同
+     */
+    static String splitHan(@NonNull String text) {
+        StringBuilder split = new StringBuilder(text.length() * 2);
+        text.codePoints().forEach(codePoint -> {
+            if (isHan(codePoint)) {
+                split.append(' ').appendCodePoint(codePoint).append(' ');
+            } else {
+                split.appendCodePoint(codePoint);
+            }
+        });
+        return split.toString();
+    }
+    
+    /**
+     * 去掉写入索引时在汉字前后加的空格，还原摘要的原文，高亮标记保留在原位置
+     */
+    @Nullable
+    static String joinHan(@Nullable String snippet) {
+        if (snippet == null) return null;
+        return SPLIT_HAN.matcher(snippet).replaceAll("$1$2$3");
+    }
+    
+    /**
+     * 把用户输入转换为MATCH表达式：每个词做前缀匹配，多个词之间为AND
+     * 含汉字的词按写入时的方式切开，作为短语匹配一段中文中的任意位置
+     * 输入为空时返回null
+     */
+    @Nullable
+    static String toMatchExpression(@Nullable String input) {
+        if (input == null) return null;
+        StringBuilder match = new StringBuilder();
+        for (String term : input.trim().split("\\s+")) {
+            // 去掉FTS语法字符，剩余部分作为短语
+            String cleaned = term.replace("\"", "").replace("*", "");
+            if (cleaned.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            // 汉字按单字切开，整个词仍是一个短语，只匹配相邻的字
+            match.append('"').append(splitHan(cleaned).trim()).append("*\"");
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+    
+    /**
+     * 只在标题列中匹配的表达式，输入中没有可用的词时返回null
+     * FTS4的列限定不支持引号短语，按分词字符拆开后逐词限定并转为小写（避免被当作OR、NOT等运算符），
+     * 比完整表达式宽，只用来在满足完整表达式的行中区分标题命中
+     */
+    @Nullable
+    static String toTitleMatchExpression(@Nullable String input) {
+        if (input == null) return null;
+        StringBuilder match = new StringBuilder();
+        String words = splitHan(input.toLowerCase(Locale.ROOT));
+        for (String word : words.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append("title:").append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+    
+    /**
+     * 构造候选查询，返回列与SearchRow对应，不计算摘要
+     * titleMatch不为null时只取标题命中（inTitle）或标题未命中的行；相关度总是按完整表达式计算，两批可以一起排序
+     */
+    static SupportSQLiteQuery buildCandidateQuery(@NonNull String matchExpression, @Nullable String titleMatch,
+                                                  boolean inTitle, int limit) {
+        String sql = "SELECT t.id AS id, t.title AS title, t.isCompleted AS isCompleted, t.priority AS priority, "
+                + "t.dueDate AS dueDate, " + TABLE + ".docid AS docid, "
+                + "matchinfo(" + TABLE + ", 'pcx') AS matchInfo "
+                + "FROM " + TABLE + " JOIN todos t ON t.rowid = " + TABLE + ".docid "
+                + "WHERE " + TABLE + " MATCH ?";
+        if (titleMatch == null) {
+            return new SimpleSQLiteQuery(sql + " LIMIT " + limit, new Object[]{matchExpression});
+        }
+        return new SimpleSQLiteQuery(sql + " AND " + TABLE + ".docid " + (inTitle ? "IN" : "NOT IN")
+                + " (SELECT docid FROM " + TABLE + " WHERE " + TABLE + " MATCH ?) LIMIT " + limit,
+                new Object[]{matchExpression, titleMatch});
+    }
+    
+    /**
+     * 构造摘要查询，只为排序后最终返回的行计算高亮摘要
+     */
+    static SupportSQLiteQuery buildSnippetQuery(@NonNull String matchExpression, @NonNull List<Long> docids) {
+        StringBuilder sql = new StringBuilder("SELECT docid, snippet(" + TABLE + ", ?, ?, '…', -1, 12) AS snippet "
+                + "FROM " + TABLE + " WHERE " + TABLE + " MATCH ? AND docid IN (");
+        Object[] args = new Object[3 + docids.size()];
+        args[0] = String.valueOf(HIGHLIGHT_START);
+        args[1] = String.valueOf(HIGHLIGHT_END);
+        args[2] = matchExpression;
+        for (int i = 0; i < docids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            args[3 + i] = docids.get(i);
+        }
+        return new SimpleSQLiteQuery(sql.append(')').toString(), args);
+    }
+    
+    /**
+     * 根据matchinfo('pcx')计算相关度：各列命中次数占全表命中次数的比例按列加权求和
+     */
+    static float rank(@Nullable byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) return 0f;
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+        float score = 0f;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = 8 + (phrase * columnCount + column) * 12;
+                if (offset + 8 > matchInfo.length) return score;
+                int hitsInRow = buffer.getInt(offset);
+                int hitsInAllRows = buffer.getInt(offset + 4);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    float weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1f;
+                    score += weight * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
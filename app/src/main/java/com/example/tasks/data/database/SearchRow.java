@@ -0,0 +1,16 @@
+package com.example.tasks.data.database;
+
+import com.example.tasks.data.models.Priority;
+
+/**
+ * 全文检索的候选行，matchInfo用于在Java中计算相关度；摘要只为最终返回的行另行查询
+ */
+public class SearchRow {
+    public String id;
+    public String title;
+    public boolean isCompleted;
+    public Priority priority;
+    public Long dueDate;
+    public long docid;
+    public byte[] matchInfo;
+}
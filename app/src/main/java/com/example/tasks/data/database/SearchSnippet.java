@@ -0,0 +1,9 @@
+package com.example.tasks.data.database;
+
+/**
+ * 全文检索结果的高亮摘要，docid对应todos表的rowid
+ */
+public class SearchSnippet {
+    public long docid;
+    public String snippet;
+}
\ No newline at end of file
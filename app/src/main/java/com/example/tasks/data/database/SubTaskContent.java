@@ -0,0 +1,29 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 编辑待办事项时子任务可以改写的列，用于按列更新subtasks
+ * 不含完成状态，已有子任务的勾选只由切换写入
+ */
+public class SubTaskContent {
+    @NonNull
+    public String id;
+    
+    public String title;
+    public int position;
+    
+    public SubTaskContent(@NonNull String id) {
+        this.id = id;
+    }
+    
+    /**
+     * 取出实体中编辑可以改写的列
+     */
+    public static SubTaskContent of(SubTaskEntity subTask) {
+        SubTaskContent content = new SubTaskContent(subTask.id);
+        content.title = subTask.title;
+        content.position = subTask.position;
+        return content;
+    }
+}
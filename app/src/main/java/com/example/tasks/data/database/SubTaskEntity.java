@@ -0,0 +1,53 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 子任务数据库实体，每个子任务单独一行，通过todoId关联到所属的待办事项
+ */
+@Entity(
+    tableName = "subtasks",
+    foreignKeys = @ForeignKey(
+        entity = TodoEntity.class,
+        parentColumns = "id",
+        childColumns = "todoId",
+        onDelete = ForeignKey.CASCADE
+    ),
+    indices = {@Index(value = {"todoId", "position"})}
+)
+public class SubTaskEntity {
+    @PrimaryKey
+    @NonNull
+    public String id;
+    
+    @NonNull
+    public String todoId;
+    
+    public String title;
+    public boolean isCompleted;
+    public long createdAt;
+    
+    /**
+     * 子任务在所属待办事项中的显示顺序
+     */
+    public int position;
+    
+    public SubTaskEntity() {
+    }
+    
+    @Ignore
+    public SubTaskEntity(@NonNull String id, @NonNull String todoId, String title,
+                         boolean isCompleted, long createdAt, int position) {
+        this.id = id;
+        this.todoId = todoId;
+        this.title = title;
+        this.isCompleted = isCompleted;
+        this.createdAt = createdAt;
+        this.position = position;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.tasks.data.database;
+
+import com.example.tasks.data.models.SubTask;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 子任务列表的流式JSON编解码，不经过反射
+ * 格式与之前Gson反射生成的JSON一致：[{"id":..,"title":..,"isCompleted":..,"createdAt":..}]
+ */
+public final class SubTaskJsonCodec {
+    
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_COMPLETED = "isCompleted";
+    private static final String FIELD_CREATED_AT = "createdAt";
+    
+    private SubTaskJsonCodec() {
+    }
+    
+    /**
+     * 编码为JSON字符串，null列表编码为"null"（与Gson一致）
+     */
+    public static String encode(List<SubTask> subTasks) {
+        StringWriter out = new StringWriter(subTasks != null ? 16 + subTasks.size() * 96 : 4);
+        try (JsonWriter writer = new JsonWriter(out)) {
+            write(writer, subTasks);
+        } catch (IOException e) {
+            // StringWriter不会抛出IO异常
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * 解码JSON字符串，null、空串和"null"都返回空列表
+     */
+    public static List<SubTask> decode(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.setLenient(true);
+            List<SubTask> result = read(reader);
+            return result != null ? result : new ArrayList<>();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("无法解析子任务JSON", e);
+        }
+    }
+    
+    /**
+     * 向已有的JsonWriter写入子任务数组，供导出等流式场景复用
+     */
+    public static void write(JsonWriter writer, List<SubTask> subTasks) throws IOException {
+        if (subTasks == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.beginArray();
+        for (SubTask subTask : subTasks) {
+            if (subTask == null) continue;
+            writer.beginObject();
+            if (subTask.getId() != null) {
+                writer.name(FIELD_ID).value(subTask.getId());
+            }
+            if (subTask.getTitle() != null) {
+                writer.name(FIELD_TITLE).value(subTask.getTitle());
+            }
+            writer.name(FIELD_COMPLETED).value(subTask.isCompleted());
+            writer.name(FIELD_CREATED_AT).value(subTask.getCreatedAt());
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+    
+    /**
+     * 从JsonReader读取一个子任务数组，遇到null返回null
+     */
+    public static List<SubTask> read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<SubTask> subTasks = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            subTasks.add(readSubTask(reader));
+        }
+        reader.endArray();
+        return subTasks;
+    }
+    
+    private static SubTask readSubTask(JsonReader reader) throws IOException {
+        // 缺失字段沿用无参构造的默认值，与Gson反射行为一致
+        SubTask subTask = new SubTask();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                if (FIELD_ID.equals(name)) {
+                    subTask.setId(null);
+                } else if (FIELD_TITLE.equals(name)) {
+                    subTask.setTitle(null);
+                }
+                continue;
+            }
+            switch (name) {
+                case FIELD_ID:
+                    subTask.setId(reader.nextString());
+                    break;
+                case FIELD_TITLE:
+                    subTask.setTitle(reader.nextString());
+                    break;
+                case FIELD_COMPLETED:
+                    subTask.setCompleted(readBoolean(reader));
+                    break;
+                case FIELD_CREATED_AT:
+                    subTask.setCreatedAt(reader.nextLong());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return subTask;
+    }
+    
+    private static boolean readBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+                return Boolean.parseBoolean(reader.nextString());
+            case NUMBER:
+                return reader.nextInt() != 0;
+            default:
+                return reader.nextBoolean();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.tasks.data.database;
+
+import androidx.annotation.NonNull;
+
+import com.example.tasks.data.models.Priority;
+
+/**
+ * 本地编辑可以改写的列，用于按列更新todos
+ * 不含version（只由同步写入）、updatedAt和子任务计数（由触发器维护），
+ * 也不含完成状态：它只由切换和批量设置完成写入，编辑时读到的旧值不会覆盖排在前面的切换
+ */
+public class TodoContent {
+    @NonNull
+    public String id;
+    
+    public String title;
+    public String description;
+    public Priority priority;
+    public Long dueDate;
+    public long createdAt;
+    public String recurrence;
+    
+    public TodoContent(@NonNull String id) {
+        this.id = id;
+    }
+    
+    /**
+     * 取出实体中本地编辑可以改写的列
+     */
+    public static TodoContent of(TodoEntity todo) {
+        TodoContent content = new TodoContent(todo.id);
+        content.title = todo.title;
+        content.description = todo.description;
+        content.priority = todo.priority;
+        content.dueDate = todo.dueDate;
+        content.createdAt = todo.createdAt;
+        content.recurrence = todo.recurrence;
+        return content;
+    }
+}
\ No newline at end of file
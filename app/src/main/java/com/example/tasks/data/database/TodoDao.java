@@ -1,14 +1,32 @@
 package com.example.tasks.data.database;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.tasks.data.models.DayTaskCount;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoSearchResult;
+import com.example.tasks.data.models.TodoStats;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Todo数据访问对象
@@ -17,28 +35,145 @@ import java.util.List;
 public interface TodoDao {
     
     /**
-     * 获取所有待办事项
+     * IN列表单次绑定的ID数量，为其余参数留出余量
      */
-    @Query("SELECT * FROM todos ORDER BY createdAt DESC")
-    LiveData<List<TodoEntity>> getAllTodos();
+    int MAX_BIND_ARGS = 900;
+    
+    /**
+     * 任务统计的聚合查询，LiveData和同步两个版本共用
+     * 重复任务的dueDate是第一次发生的时间，不计入逾期和今天到期，由调用方按当天的发生另行累加
+     */
+    String STATS_QUERY = "SELECT COUNT(*) AS totalCount, "
+            + "COALESCE(SUM(isCompleted), 0) AS completedCount, "
+            + "COALESCE(SUM(CASE WHEN isCompleted = 0 THEN 1 ELSE 0 END), 0) AS incompleteCount, "
+            + "COALESCE(SUM(CASE WHEN isCompleted = 0 AND dueDate < :now AND recurrence IS NULL "
+            + "THEN 1 ELSE 0 END), 0) AS overdueCount, "
+            + "COALESCE(SUM(CASE WHEN isCompleted = 0 AND dueDate BETWEEN :dayStart AND :dayEnd AND recurrence IS NULL "
+            + "THEN 1 ELSE 0 END), 0) AS dueTodayCount "
+            + "FROM todos";
     
     /**
      * 根据ID获取待办事项
      */
+    @Transaction
     @Query("SELECT * FROM todos WHERE id = :id")
-    TodoEntity getTodoById(String id);
+    TodoWithSubTasks getTodoById(String id);
+    
+    /**
+     * 待办事项的修改时间，触发器保证每次修改（包括子任务的变化）都会让它变化，用于校验缓存
+     */
+    @Query("SELECT id, updatedAt FROM todos WHERE id IN (:ids)")
+    List<TodoStamp> getTodoStamps(Collection<String> ids);
+    
+    /**
+     * 获取截止日期在指定时间范围内的未完成待办事项，不含重复任务，它们按规则另行展开
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, completedAt, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE isCompleted = 0 AND dueDate BETWEEN :start AND :end "
+            + "AND recurrence IS NULL ORDER BY dueDate ASC")
+    LiveData<List<TodoListRow>> getIncompleteTodosDueBetween(long start, long end);
+    
+    /**
+     * 获取截止日期在指定时间范围内的已完成待办事项，不含重复任务
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, completedAt, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE isCompleted = 1 AND dueDate BETWEEN :start AND :end "
+            + "AND recurrence IS NULL ORDER BY dueDate ASC")
+    LiveData<List<TodoListRow>> getCompletedTodosDueBetween(long start, long end);
+    
+    /**
+     * 按本地日期统计时间范围内每天的未完成/已完成任务数，不含重复任务
+     * recurrence前的一元加号使它不能走索引，否则SQLite可能选用只能排除少数行的recurrence索引，而不是dueDate范围
+     */
+    @Query("SELECT strftime('%Y-%m-%d', dueDate / 1000, 'unixepoch', 'localtime') AS day, "
+            + "SUM(CASE WHEN isCompleted = 0 THEN 1 ELSE 0 END) AS incompleteCount, "
+            + "SUM(isCompleted) AS completedCount "
+            + "FROM todos WHERE dueDate BETWEEN :start AND :end AND +recurrence IS NULL GROUP BY day ORDER BY day")
+    LiveData<List<DayTaskCount>> getDailyTaskCounts(long start, long end);
+    
+    /**
+     * 全部重复任务；数量远少于普通任务，窗口筛选在展开时进行
+     * 用 > '' 而不是 IS NOT NULL，后者用不上recurrence索引
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE recurrence > ''")
+    LiveData<List<RecurringTodoRow>> getRecurringTodos();
+    
+    /**
+     * 同步读取全部重复任务，用于写入首屏快照的统计
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE recurrence > ''")
+    List<RecurringTodoRow> getRecurringTodosNow();
+    
+    /**
+     * 截止时间在now之后的未完成普通任务，提醒调度启动时一次读入
+     */
+    @Query("SELECT id, title, isCompleted, dueDate, recurrence FROM todos "
+            + "WHERE isCompleted = 0 AND dueDate > :now AND +recurrence IS NULL")
+    List<ReminderRow> getUpcomingReminders(long now);
+    
+    /**
+     * 全部重复任务，下一次提醒由规则推算；已结束的由调用方跳过，条件里加上isCompleted会让SQLite改用完成状态索引
+     */
+    @Query("SELECT id, title, isCompleted, dueDate, recurrence FROM todos WHERE recurrence > ''")
+    List<ReminderRow> getRecurringReminders();
+    
+    @Query("SELECT id, title, isCompleted, dueDate, recurrence FROM todos WHERE id IN (:ids)")
+    List<ReminderRow> getReminderRows(Collection<String> ids);
+    
+    /**
+     * 发生日期在范围内的完成记录
+     */
+    @Query("SELECT * FROM recurrence_exceptions WHERE occurrenceDate BETWEEN :start AND :end")
+    LiveData<List<RecurrenceExceptionEntity>> getRecurrenceExceptionsBetween(long start, long end);
+    
+    /**
+     * 同步读取发生日期在范围内的完成记录
+     */
+    @Query("SELECT * FROM recurrence_exceptions WHERE occurrenceDate BETWEEN :start AND :end")
+    List<RecurrenceExceptionEntity> getRecurrenceExceptionsBetweenNow(long start, long end);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertRecurrenceException(RecurrenceExceptionEntity exception);
+    
+    @Query("DELETE FROM recurrence_exceptions WHERE todoId = :todoId AND occurrenceDate = :occurrenceDate")
+    int deleteRecurrenceException(String todoId, long occurrenceDate);
     
     /**
-     * 获取未完成的待办事项
+     * 切换重复任务某一天的完成状态：已完成时删除完成记录，否则写入一行
      */
-    @Query("SELECT * FROM todos WHERE isCompleted = 0 ORDER BY priority DESC, dueDate ASC")
-    LiveData<List<TodoEntity>> getIncompleteTodos();
+    @Transaction
+    default void toggleOccurrence(String todoId, long occurrenceDate, long now) {
+        if (deleteRecurrenceException(todoId, occurrenceDate) == 0) {
+            RecurrenceExceptionEntity exception = new RecurrenceExceptionEntity();
+            exception.todoId = todoId;
+            exception.occurrenceDate = occurrenceDate;
+            exception.completedAt = now;
+            insertRecurrenceException(exception);
+        }
+    }
     
     /**
-     * 获取已完成的待办事项
+     * 分页获取未完成的待办事项
      */
-    @Query("SELECT * FROM todos WHERE isCompleted = 1 ORDER BY completedAt DESC")
-    LiveData<List<TodoEntity>> getCompletedTodos();
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, completedAt, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE isCompleted = 0 ORDER BY priority DESC, dueDate ASC")
+    PagingSource<Integer, TodoListRow> getIncompleteTodosPaged();
+    
+    /**
+     * 未完成列表的前limit行，顺序与分页查询一致，用于写入首屏快照
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, completedAt, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE isCompleted = 0 ORDER BY priority DESC, dueDate ASC LIMIT :limit")
+    List<TodoListRow> getIncompleteTodosHead(int limit);
+    
+    /**
+     * 分页获取已完成的待办事项
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, isCompleted, priority, dueDate, completedAt, "
+            + "subtaskTotal, subtaskDone, recurrence FROM todos WHERE isCompleted = 1 ORDER BY completedAt DESC")
+    PagingSource<Integer, TodoListRow> getCompletedTodosPaged();
     
     /**
      * 插入新的待办事项
@@ -65,26 +200,544 @@ public interface TodoDao {
     void deleteTodoById(String id);
     
     /**
-     * 删除所有已完成的待办事项
+     * 删除至多limit条已完成的待办事项，返回删除的行数
+     * 调用方循环执行直到返回值小于limit，每批单独提交，避免长时间持有写锁
+     */
+    @Query("DELETE FROM todos WHERE id IN (SELECT id FROM todos WHERE isCompleted = 1 LIMIT :limit)")
+    int deleteCompletedTodos(int limit);
+    
+    /**
+     * 插入待办事项及其全部子任务
+     */
+    @Transaction
+    default void insertTodoWithSubTasks(TodoEntity todo, List<SubTaskEntity> subTasks) {
+        insertTodo(todo);
+        insertSubTasks(subTasks);
+    }
+    
+    /**
+     * 更新待办事项并整体替换其子任务
+     */
+    @Transaction
+    default void updateTodoWithSubTasks(TodoEntity todo, List<SubTaskEntity> subTasks) {
+        updateTodo(todo);
+        deleteSubTasksForTodo(todo.id);
+        insertSubTasks(subTasks);
+    }
+    
+    /**
+     * 原子地切换完成状态，完成时间随之设置或清空
      */
-    @Query("DELETE FROM todos WHERE isCompleted = 1")
-    void deleteCompletedTodos();
+    @Query("UPDATE todos SET isCompleted = NOT isCompleted, "
+            + "completedAt = CASE WHEN isCompleted = 0 THEN :now ELSE NULL END WHERE id = :id")
+    void toggleCompleted(String id, long now);
     
     /**
-     * 获取待办事项总数
+     * 批量插入待办事项
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<TodoEntity> todos);
+    
+    /**
+     * 批量按列更新待办事项的内容，不写version，同步得到的版本号不会被本地编辑清零
+     */
+    @Update(entity = TodoEntity.class)
+    void updateContents(List<TodoContent> todos);
+    
+    /**
+     * 批量设置完成状态，单次调用的ID数量不能超过SQLite绑定参数上限
+     */
+    @Query("UPDATE todos SET isCompleted = :completed, completedAt = :completedAt WHERE id IN (:ids)")
+    void updateCompletedByIds(List<String> ids, boolean completed, Long completedAt);
+    
+    /**
+     * 批量删除待办事项，单次调用的ID数量不能超过SQLite绑定参数上限
+     */
+    @Query("DELETE FROM todos WHERE id IN (:ids)")
+    void deleteTodosByIds(List<String> ids);
+    
+    /**
+     * 批量删除多个待办事项的全部子任务
+     */
+    @Query("DELETE FROM subtasks WHERE todoId IN (:todoIds)")
+    void deleteSubTasksForTodos(List<String> todoIds);
+    
+    /**
+     * 在一个事务中批量插入待办事项及其子任务
+     */
+    @Transaction
+    default void insertAllWithSubTasks(List<TodoEntity> todos, List<SubTaskEntity> subTasks) {
+        insertAll(todos);
+        insertSubTasks(subTasks);
+    }
+    
+    /**
+     * 在一个事务中批量更新待办事项的内容并同步其子任务列表
+     * 只写编辑可以改的列：已有子任务只改标题和顺序，不再出现的删除，新的插入；
+     * 待办事项和已有子任务的完成状态都不写，队列中排在前面的切换不会被编辑时读到的旧值覆盖
+     */
+    @Transaction
+    default void updateAllWithSubTasks(List<TodoEntity> todos, List<SubTaskEntity> subTasks) {
+        List<TodoContent> contents = new ArrayList<>(todos.size());
+        List<String> ids = new ArrayList<>(todos.size());
+        for (TodoEntity todo : todos) {
+            contents.add(TodoContent.of(todo));
+            ids.add(todo.id);
+        }
+        updateContents(contents);
+        
+        Set<String> kept = new HashSet<>();
+        List<SubTaskContent> subTaskContents = new ArrayList<>(subTasks.size());
+        for (SubTaskEntity subTask : subTasks) {
+            kept.add(subTask.id);
+            subTaskContents.add(SubTaskContent.of(subTask));
+        }
+        List<String> removed = new ArrayList<>();
+        for (List<String> chunk : chunked(ids)) {
+            for (String id : getSubTaskIdsForTodos(chunk)) {
+                if (!kept.contains(id)) removed.add(id);
+            }
+        }
+        for (List<String> chunk : chunked(removed)) {
+            deleteSubTasksByIds(chunk);
+        }
+        insertNewSubTasks(subTasks);
+        updateSubTaskContents(subTaskContents);
+    }
+    
+    /**
+     * 在一个事务中批量设置完成状态，整个操作只触发一次失效通知
+     */
+    @Transaction
+    default void setCompleted(List<String> ids, boolean completed, Long completedAt) {
+        for (List<String> chunk : chunked(ids)) {
+            updateCompletedByIds(chunk, completed, completedAt);
+        }
+    }
+    
+    /**
+     * 在一个事务中批量删除待办事项，子任务随外键级联删除
+     */
+    @Transaction
+    default void deleteByIds(List<String> ids) {
+        for (List<String> chunk : chunked(ids)) {
+            deleteTodosByIds(chunk);
+        }
+    }
+    
+    /**
+     * 按SQLite绑定参数上限拆分ID列表（API 31以下为999）
+     */
+    static List<List<String>> chunked(List<String> ids) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += MAX_BIND_ARGS) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + MAX_BIND_ARGS)));
+        }
+        return chunks;
+    }
+    
+    /**
+     * 在一个事务中导入一批待办事项，已存在的同ID任务连同子任务整体替换
+     */
+    @Transaction
+    default void replaceAllWithSubTasks(List<TodoEntity> todos, List<SubTaskEntity> subTasks) {
+        List<String> ids = new ArrayList<>(todos.size());
+        for (TodoEntity todo : todos) {
+            ids.add(todo.id);
+        }
+        for (List<String> chunk : chunked(ids)) {
+            deleteSubTasksForTodos(chunk);
+        }
+        insertAll(todos);
+        insertSubTasks(subTasks);
+    }
+    
+    /**
+     * 导出用游标，按id排序，与exportSubTasks的todoId顺序一致，可逐行合并而不必整表读入内存
+     */
+    @Query("SELECT * FROM todos ORDER BY id")
+    Cursor exportTodos();
+    
+    /**
+     * 导出用游标，按所属待办事项和显示顺序排序
+     */
+    @Query("SELECT * FROM subtasks ORDER BY todoId, position")
+    Cursor exportSubTasks();
+    
+    /**
+     * 待办事项总数，用于导出进度
      */
     @Query("SELECT COUNT(*) FROM todos")
     int getTodoCount();
     
     /**
-     * 获取未完成待办事项数量
+     * 修改时间在(since, until]内的待办事项，增量备份用
+     */
+    @Query("SELECT * FROM todos WHERE updatedAt > :since AND updatedAt <= :until")
+    Cursor getTodosChangedBetween(long since, long until);
+    
+    /**
+     * 上述待办事项的全部子任务，恢复时按待办事项整体替换
+     */
+    @Query("SELECT subtasks.* FROM todos JOIN subtasks ON subtasks.todoId = todos.id "
+            + "WHERE todos.updatedAt > :since AND todos.updatedAt <= :until")
+    Cursor getSubTasksOfTodosChangedBetween(long since, long until);
+    
+    /**
+     * 归档时间在(since, until]内的归档行
+     */
+    @Query("SELECT * FROM archived_todos WHERE archivedAt > :since AND archivedAt <= :until")
+    Cursor getArchivedTodosChangedBetween(long since, long until);
+    
+    /**
+     * 写入时间在(since, until]内的完成记录
+     */
+    @Query("SELECT * FROM recurrence_exceptions WHERE updatedAt > :since AND updatedAt <= :until")
+    Cursor getRecurrenceExceptionsChangedBetween(long since, long until);
+    
+    /**
+     * 删除时间在(since, until]内的删除记录
+     */
+    @Query("SELECT * FROM deleted_rows WHERE deletedAt > :since AND deletedAt <= :until")
+    Cursor getDeletedRowsBetween(long since, long until);
+    
+    /**
+     * 清理完整备份之前的删除记录
+     */
+    @Query("DELETE FROM deleted_rows WHERE deletedAt <= :before")
+    void pruneDeletedRows(long before);
+    
+    /**
+     * seq大于afterSeq的待推送变更，按seq顺序取至多limit条
+     */
+    @Query("SELECT * FROM changes WHERE seq > :afterSeq ORDER BY seq LIMIT :limit")
+    List<ChangeEntity> getPendingChanges(long afterSeq, int limit);
+    
+    /**
+     * 指定待办事项的待推送变更，应用服务器变化前判断冲突
+     */
+    @Query("SELECT * FROM changes WHERE todoId IN (:todoIds)")
+    List<ChangeEntity> getPendingChangesForTodos(List<String> todoIds);
+    
+    /**
+     * 把全部待办事项记为待推送，第一次连接某个服务器时上传本地全部数据
+     */
+    @Query("INSERT OR REPLACE INTO changes (todoId, deleted, changedAt) SELECT id, 0, updatedAt FROM todos")
+    void markAllPending();
+    
+    @Query("SELECT COUNT(*) FROM changes")
+    int getPendingChangeCount();
+    
+    @Query("SELECT IFNULL(MAX(seq), 0) FROM changes")
+    long getLastChangeSeq();
+    
+    @Query("DELETE FROM changes WHERE seq IN (:seqs)")
+    void deleteChanges(List<Long> seqs);
+    
+    @Query("DELETE FROM changes WHERE seq > :seq")
+    void deleteChangesAfter(long seq);
+    
+    /**
+     * 只写版本号，不刷新修改时间也不产生新的变更
+     */
+    @Query("UPDATE todos SET version = :version WHERE id = :id")
+    void setVersion(String id, long version);
+    
+    @Transaction
+    @Query("SELECT * FROM todos WHERE id IN (:ids)")
+    List<TodoWithSubTasks> getTodosWithSubTasksByIds(List<String> ids);
+    
+    /**
+     * 推送成功后删除已推送的变更并记录服务器分配的版本号
+     * 推送期间再次变化的待办事项已换了新的seq，不会被删除，下次继续推送
+     */
+    @Transaction
+    default void acknowledgeChanges(List<Long> seqs, Map<String, Long> versions) {
+        for (int i = 0; i < seqs.size(); i += MAX_BIND_ARGS) {
+            deleteChanges(seqs.subList(i, Math.min(seqs.size(), i + MAX_BIND_ARGS)));
+        }
+        for (Map.Entry<String, Long> version : versions.entrySet()) {
+            setVersion(version.getKey(), version.getValue());
+        }
+    }
+    
+    /**
+     * 应用从服务器拉取的变化，返回实际应用的条数
+     * 本地有更晚的未推送修改时保留本地版本（按修改时间后写者胜）；
+     * 应用时触发器写入的变更在事务结束前删除，不会再推送回服务器
+     * 写入的行不保留服务器的修改时间，由触发器记为本地应用的时间，增量备份按updatedAt筛选时不会漏掉拉取的行
+     *
+     * @param deletions 被删除的待办事项ID及服务器记录的删除时间
+     */
+    @Transaction
+    default int applyRemoteChanges(List<TodoEntity> upserts, List<SubTaskEntity> subTasks,
+                                   Map<String, Long> deletions) {
+        List<String> ids = new ArrayList<>(deletions.keySet());
+        for (TodoEntity todo : upserts) {
+            ids.add(todo.id);
+        }
+        Map<String, Long> localChangedAt = new HashMap<>();
+        for (List<String> chunk : chunked(ids)) {
+            for (ChangeEntity change : getPendingChangesForTodos(chunk)) {
+                localChangedAt.put(change.todoId, change.changedAt);
+            }
+        }
+        
+        Set<String> keptIds = new HashSet<>();
+        List<TodoEntity> keptTodos = new ArrayList<>();
+        for (TodoEntity todo : upserts) {
+            Long local = localChangedAt.get(todo.id);
+            if (local == null || local <= todo.updatedAt) {
+                todo.updatedAt = 0;
+                keptTodos.add(todo);
+                keptIds.add(todo.id);
+            }
+        }
+        List<SubTaskEntity> keptSubTasks = new ArrayList<>();
+        for (SubTaskEntity subTask : subTasks) {
+            if (keptIds.contains(subTask.todoId)) {
+                keptSubTasks.add(subTask);
+            }
+        }
+        List<String> keptDeletions = new ArrayList<>();
+        for (Map.Entry<String, Long> deletion : deletions.entrySet()) {
+            Long local = localChangedAt.get(deletion.getKey());
+            if (local == null || local <= deletion.getValue()) {
+                keptDeletions.add(deletion.getKey());
+            }
+        }
+        
+        long lastSeq = getLastChangeSeq();
+        if (!keptTodos.isEmpty()) {
+            replaceAllWithSubTasks(keptTodos, keptSubTasks);
+        }
+        deleteByIds(keptDeletions);
+        deleteChangesAfter(lastSeq);
+        return keptTodos.size() + keptDeletions.size();
+    }
+    
+    /**
+     * 写队列中已写入数据库的最大日志序号，从未写入时为0
+     */
+    @Query("SELECT IFNULL(MAX(appliedSeq), 0) FROM outbox_state")
+    long getOutboxAppliedSeq();
+    
+    /**
+     * 与同一批写操作在同一事务中调用，崩溃后据此判断日志中哪些记录需要重放
+     */
+    @Query("INSERT OR REPLACE INTO outbox_state (id, appliedSeq) VALUES (0, :seq)")
+    void setOutboxAppliedSeq(long seq);
+    
+    /**
+     * 完成时间早于cutoff的已完成待办事项，按完成时间从早到晚取至多limit条
+     */
+    @Transaction
+    @Query("SELECT * FROM todos WHERE isCompleted = 1 AND completedAt < :cutoff ORDER BY completedAt ASC LIMIT :limit")
+    List<TodoWithSubTasks> getArchivableTodos(long cutoff, int limit);
+    
+    /**
+     * 写入归档表
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertArchivedTodos(List<ArchivedTodoEntity> todos);
+    
+    /**
+     * 在一个短事务中把至多limit条旧的已完成待办事项移入归档表，返回移动的行数
+     * limit不能超过MAX_BIND_ARGS
+     */
+    @Transaction
+    default int archiveCompletedBefore(long cutoff, int limit, long now) {
+        List<TodoWithSubTasks> todos = getArchivableTodos(cutoff, limit);
+        if (todos.isEmpty()) {
+            return 0;
+        }
+        List<ArchivedTodoEntity> archived = new ArrayList<>(todos.size());
+        List<String> ids = new ArrayList<>(todos.size());
+        for (TodoWithSubTasks todo : todos) {
+            archived.add(new ArchivedTodoEntity(todo, now));
+            ids.add(todo.todo.id);
+        }
+        insertArchivedTodos(archived);
+        deleteTodosByIds(ids);
+        return todos.size();
+    }
+    
+    /**
+     * 分页读取归档，复用列表行投影
+     */
+    @Query("SELECT id, title, substr(description, 1, 120) AS descriptionPreview, 1 AS isCompleted, "
+            + "priority, dueDate, completedAt, subtaskTotal, subtaskDone, NULL AS recurrence "
+            + "FROM archived_todos ORDER BY completedAt DESC")
+    PagingSource<Integer, TodoListRow> getArchivedTodosPaged();
+    
+    /**
+     * 根据ID获取归档的待办事项
+     */
+    @Query("SELECT * FROM archived_todos WHERE id = :id")
+    ArchivedTodoEntity getArchivedTodoById(String id);
+    
+    /**
+     * 根据ID删除归档的待办事项
+     */
+    @Query("DELETE FROM archived_todos WHERE id = :id")
+    void deleteArchivedTodoById(String id);
+    
+    /**
+     * 把归档的待办事项恢复到todos表并标记为未完成
+     */
+    @Transaction
+    default void restoreArchivedTodo(String id) {
+        ArchivedTodoEntity archived = getArchivedTodoById(id);
+        if (archived == null) return;
+        insertTodoWithSubTasks(archived.toTodoEntity(), archived.toSubTaskEntities());
+        deleteArchivedTodoById(id);
+    }
+    
+    /**
+     * 根据ID获取子任务
+     */
+    @Query("SELECT * FROM subtasks WHERE id = :id")
+    SubTaskEntity getSubTaskById(String id);
+    
+    /**
+     * 插入单个子任务
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertSubTask(SubTaskEntity subTask);
+    
+    /**
+     * 批量插入子任务
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertSubTasks(List<SubTaskEntity> subTasks);
+    
+    /**
+     * 在待办事项的子任务末尾追加一个子任务，位置由数据库计算
+     */
+    @Query("INSERT INTO subtasks (id, todoId, title, isCompleted, createdAt, position) "
+            + "SELECT :id, :todoId, :title, 0, :createdAt, COALESCE(MAX(position) + 1, 0) "
+            + "FROM subtasks WHERE todoId = :todoId")
+    void appendSubTask(String id, String todoId, String title, long createdAt);
+    
+    /**
+     * 插入子任务，已存在的行保持不变
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertNewSubTasks(List<SubTaskEntity> subTasks);
+    
+    /**
+     * 批量按列更新子任务的标题和顺序，不写完成状态
+     */
+    @Update(entity = SubTaskEntity.class)
+    void updateSubTaskContents(List<SubTaskContent> subTasks);
+    
+    /**
+     * 获取多个待办事项的全部子任务ID，单次调用的ID数量不能超过SQLite绑定参数上限
+     */
+    @Query("SELECT id FROM subtasks WHERE todoId IN (:todoIds)")
+    List<String> getSubTaskIdsForTodos(List<String> todoIds);
+    
+    /**
+     * 根据ID批量删除子任务，单次调用的ID数量不能超过SQLite绑定参数上限
+     */
+    @Query("DELETE FROM subtasks WHERE id IN (:ids)")
+    void deleteSubTasksByIds(List<String> ids);
+    
+    /**
+     * 原子地切换子任务完成状态
+     */
+    @Query("UPDATE subtasks SET isCompleted = NOT isCompleted WHERE id = :id")
+    void toggleSubTaskCompleted(String id);
+    
+    /**
+     * 更新单个子任务
+     */
+    @Update
+    void updateSubTask(SubTaskEntity subTask);
+    
+    /**
+     * 删除单个子任务
+     */
+    @Delete
+    void deleteSubTask(SubTaskEntity subTask);
+    
+    /**
+     * 根据ID删除子任务
+     */
+    @Query("DELETE FROM subtasks WHERE id = :id")
+    void deleteSubTaskById(String id);
+    
+    /**
+     * 删除某个待办事项的全部子任务
+     */
+    @Query("DELETE FROM subtasks WHERE todoId = :todoId")
+    void deleteSubTasksForTodo(String todoId);
+    
+    /**
+     * 一次聚合得到总数、已完成、未完成、逾期和今天到期的任务数
+     */
+    @Query(STATS_QUERY)
+    LiveData<TodoStats> getTodoStats(long now, long dayStart, long dayEnd);
+    
+    /**
+     * 同步读取任务统计，用于写入首屏快照
+     */
+    @Query(STATS_QUERY)
+    TodoStats getTodoStatsNow(long now, long dayStart, long dayEnd);
+    
+    /**
+     * 执行全文检索候选查询，查询由SearchIndex构造
+     */
+    @RawQuery
+    List<SearchRow> searchCandidates(SupportSQLiteQuery query);
+    
+    /**
+     * 查询全文检索结果的高亮摘要，查询由SearchIndex构造
      */
-    @Query("SELECT COUNT(*) FROM todos WHERE isCompleted = 0")
-    int getIncompleteCount();
+    @RawQuery
+    List<SearchSnippet> searchSnippets(SupportSQLiteQuery query);
     
     /**
-     * 获取已完成待办事项数量
+     * 全文检索标题、描述和子任务，按相关度降序返回前limit条，带高亮摘要
+     * 候选先取标题命中的行，不足上限时再取其余的行；摘要只为返回的行计算
      */
-    @Query("SELECT COUNT(*) FROM todos WHERE isCompleted = 1")
-    int getCompletedCount();
+    @Transaction
+    default List<TodoSearchResult> search(String query, int limit) {
+        String match = SearchIndex.toMatchExpression(query);
+        if (match == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String titleMatch = SearchIndex.toTitleMatchExpression(query);
+        List<SearchRow> rows = searchCandidates(SearchIndex.buildCandidateQuery(match, titleMatch, true,
+                SearchIndex.MAX_CANDIDATES));
+        if (titleMatch != null && rows.size() < SearchIndex.MAX_CANDIDATES) {
+            rows.addAll(searchCandidates(SearchIndex.buildCandidateQuery(match, titleMatch, false,
+                    SearchIndex.MAX_CANDIDATES - rows.size())));
+        }
+        Map<SearchRow, Float> ranks = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for (SearchRow row : rows) {
+            ranks.put(row, SearchIndex.rank(row.matchInfo));
+        }
+        rows.sort(Comparator.comparingDouble((SearchRow row) -> ranks.get(row)).reversed());
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+        }
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> docids = new ArrayList<>(rows.size());
+        for (SearchRow row : rows) {
+            docids.add(row.docid);
+        }
+        Map<Long, String> snippets = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for (SearchSnippet snippet : searchSnippets(SearchIndex.buildSnippetQuery(match, docids))) {
+            snippets.put(snippet.docid, SearchIndex.joinHan(snippet.snippet));
+        }
+        List<TodoSearchResult> results = new ArrayList<>(rows.size());
+        for (SearchRow row : rows) {
+            results.add(new TodoSearchResult(row.id, row.title, snippets.get(row.docid), row.isCompleted,
+                    row.priority, row.dueDate, ranks.get(row)));
+        }
+        return results;
+    }
 }
\ No newline at end of file
@@ -2,40 +2,133 @@ package com.example.tasks.data.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.tasks.util.AppExecutors;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Room数据库配置类
  */
 @Database(
-    entities = {TodoEntity.class},
-    version = 3,
-    exportSchema = false
+    entities = {TodoEntity.class, SubTaskEntity.class, ArchivedTodoEntity.class, DeletedRowEntity.class,
+        ChangeEntity.class, OutboxStateEntity.class, RecurrenceExceptionEntity.class},
+    version = 13,
+    exportSchema = true
 )
 @TypeConverters({Converters.class})
 public abstract class TodoDatabase extends RoomDatabase {
     
     public abstract TodoDao todoDao();
     
+    private static final String DATABASE_NAME = "todo_database";
+    
     private static volatile TodoDatabase INSTANCE;
     
     public static TodoDatabase getDatabase(Context context) {
+        return getDatabase(context, DatabaseConfig.defaults());
+    }
+    
+    /**
+     * 获取数据库单例，配置只在第一次创建时生效
+     */
+    public static TodoDatabase getDatabase(Context context, DatabaseConfig config) {
         if (INSTANCE == null) {
             synchronized (TodoDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
-                            context.getApplicationContext(),
-                            TodoDatabase.class,
-                            "todo_database"
-                    )
-                    .fallbackToDestructiveMigration()  // 简单起见，直接重建数据库
-                    .build();
+                    INSTANCE = build(context, DATABASE_NAME, config);
                 }
             }
         }
         return INSTANCE;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 数据库主文件路径
+     */
+    public static File getDatabaseFile(Context context) {
+        return context.getApplicationContext().getDatabasePath(DATABASE_NAME);
+    }
+    
+    /**
+     * 用replacement替换数据库文件：关闭当前实例，删除WAL、共享内存和回滚日志后原子重命名，
+     * 下次getDatabase时按新文件重新打开（必要时执行迁移）
+     * replacement必须与数据库文件位于同一目录；替换后旧实例及其DAO不可再用，调用方负责重建持有它们的对象
+     */
+    static void replaceDatabaseFile(Context context, File replacement) throws IOException {
+        File target = getDatabaseFile(context);
+        synchronized (TodoDatabase.class) {
+            closeDatabase();
+            // 旧的WAL留在新文件旁边会被当作新文件的日志回放，必须先删除
+            for (String suffix : new String[]{"-wal", "-shm", "-journal"}) {
+                File sidecar = new File(target.getPath() + suffix);
+                if (sidecar.exists() && !sidecar.delete()) {
+                    throw new IOException("无法删除 " + sidecar);
+                }
+            }
+            if (!replacement.renameTo(target)) {
+                throw new IOException("无法替换数据库文件 " + target);
+            }
+        }
+    }
+    
+    /**
+     * 关闭并丢弃当前实例，下次getDatabase时重新打开
+     */
+    static void closeDatabase() {
+        synchronized (TodoDatabase.class) {
+            if (INSTANCE != null) {
+                INSTANCE.close();
+                INSTANCE = null;
+            }
+        }
+    }
+    
+    /**
+     * 按配置创建数据库实例，基准测试也通过这里创建不同配置的数据库
+     */
+    static TodoDatabase build(Context context, String name, DatabaseConfig config) {
+        return Room.databaseBuilder(
+                context.getApplicationContext(),
+                TodoDatabase.class,
+                name
+        )
+        .addMigrations(Migrations.ALL)
+        .fallbackToDestructiveMigrationFrom(1, 2)  // 版本1、2没有迁移路径，只能重建
+        .setJournalMode(config.getJournalMode())
+        // 异步查询和失效通知使用全应用共用的读线程池，不再另建Room自己的线程池
+        .setQueryExecutor(AppExecutors.getInstance().reader())
+        .addCallback(createCallback(config))
+        .build();
+    }
+    
+    /**
+     * Room不支持声明触发器和跨表的FTS表，每次打开时确保存在（新建、迁移和重建后都会经过这里），同时在主连接上设置PRAGMA
+     */
+    private static RoomDatabase.Callback createCallback(DatabaseConfig config) {
+        return new RoomDatabase.Callback() {
+            @Override
+            public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                config.applyPragmas(db);
+                Migrations.createSubTaskCountTriggers(db);
+                Migrations.createChangeTrackingTriggers(db);
+                Migrations.createSyncTriggers(db);
+                Migrations.createRecurrenceTriggers(db);
+                SearchIndex.ensureCreated(db);
+            }
+            
+            @Override
+            public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+                // Room只删除实体表，索引表需要一并删除，打开时再按新数据重建
+                SearchIndex.drop(db);
+            }
+        };
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.tasks.data.database;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.tasks.data.models.Priority;
-import com.example.tasks.data.models.SubTask;
-
-import java.util.List;
 
 /**
  * Todo数据库实体
  */
-@Entity(tableName = "todos")
+@Entity(
+    tableName = "todos",
+    indices = {
+        @Index(
+            value = {"isCompleted", "priority", "dueDate"},
+            orders = {Index.Order.ASC, Index.Order.DESC, Index.Order.ASC}
+        ),
+        @Index(value = {"isCompleted", "dueDate"}),
+        @Index(value = {"isCompleted", "completedAt"}),
+        @Index(value = {"dueDate"}),
+        @Index(value = {"createdAt"}),
+        @Index(value = {"updatedAt"}),
+        @Index(value = {"recurrence"})
+    }
+)
 @TypeConverters(Converters.class)
 public class TodoEntity {
     @PrimaryKey
@@ -26,16 +39,40 @@ public class TodoEntity {
     public boolean isCompleted;
     public Priority priority;
     public Long dueDate;
-    public List<SubTask> subTasks;
     public long createdAt;
     public Long completedAt;
+    
+    /**
+     * 子任务总数和已完成数的冗余列，由subtasks表上的触发器维护，供列表投影直接读取
+     */
+    @ColumnInfo(defaultValue = "0")
+    public int subtaskTotal;
+    @ColumnInfo(defaultValue = "0")
+    public int subtaskDone;
+    
+    /**
+     * 最后修改时间，由触发器在插入、更新和子任务变化时写入，增量备份据此筛选变化的行
+     */
+    @ColumnInfo(defaultValue = "0")
+    public long updatedAt;
+    
+    /**
+     * 本地副本基于的服务器版本号，0表示从未同步；只由同步写入，不触发修改时间
+     */
+    @ColumnInfo(defaultValue = "0")
+    public long version;
+    
+    /**
+     * RRULE格式的重复规则，null表示不重复；重复任务的dueDate是第一次发生的时间
+     */
+    public String recurrence;
 
     public TodoEntity() {
     }
 
     @Ignore
     public TodoEntity(String id, String title, String description, boolean isCompleted,
-                     Priority priority, Long dueDate, List<SubTask> subTasks,
+                     Priority priority, Long dueDate,
                      long createdAt, Long completedAt) {
         this.id = id;
         this.title = title;
@@ -43,8 +80,17 @@ public class TodoEntity {
         this.isCompleted = isCompleted;
         this.priority = priority;
         this.dueDate = dueDate;
-        this.subTasks = subTasks;
         this.createdAt = createdAt;
         this.completedAt = completedAt;
     }
+    
+    @Ignore
+    public TodoEntity(String id, String title, String description, boolean isCompleted,
+                     Priority priority, Long dueDate,
+                     long createdAt, Long completedAt,
+                     int subtaskTotal, int subtaskDone) {
+        this(id, title, description, isCompleted, priority, dueDate, createdAt, completedAt);
+        this.subtaskTotal = subtaskTotal;
+        this.subtaskDone = subtaskDone;
+    }
 }
\ No newline at end of file
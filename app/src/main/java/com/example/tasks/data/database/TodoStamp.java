@@ -0,0 +1,9 @@
+package com.example.tasks.data.database;
+
+/**
+ * 待办事项ID和修改时间
+ */
+public class TodoStamp {
+    public String id;
+    public long updatedAt;
+}
\ No newline at end of file
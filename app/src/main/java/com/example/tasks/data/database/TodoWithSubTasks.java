@@ -0,0 +1,17 @@
+package com.example.tasks.data.database;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+import java.util.List;
+
+/**
+ * 待办事项及其子任务的读取模型
+ */
+public class TodoWithSubTasks {
+    @Embedded
+    public TodoEntity todo;
+    
+    @Relation(parentColumn = "id", entityColumn = "todoId")
+    public List<SubTaskEntity> subTasks;
+}
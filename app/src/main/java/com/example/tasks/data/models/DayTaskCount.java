@@ -0,0 +1,32 @@
+package com.example.tasks.data.models;
+
+/**
+ * 某一天（本地日期）的任务数量统计，用于日历的月度分布
+ */
+public class DayTaskCount {
+    private final String day; // yyyy-MM-dd
+    private final int incompleteCount;
+    private final int completedCount;
+
+    public DayTaskCount(String day, int incompleteCount, int completedCount) {
+        this.day = day;
+        this.incompleteCount = incompleteCount;
+        this.completedCount = completedCount;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public int getIncompleteCount() {
+        return incompleteCount;
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public int getTotalCount() {
+        return incompleteCount + completedCount;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.tasks.data.models;
+
+/**
+ * 重复任务某一次发生的列表行，id仍是所属待办事项的id，dueDate是这次发生的时间
+ * 切换完成状态时写入或删除这一天的完成记录，不修改待办事项本身
+ */
+public class OccurrenceRow extends TodoListRow {
+    private final long occurrenceDate;
+
+    public OccurrenceRow(String id, String title, String descriptionPreview, boolean isCompleted,
+                         Priority priority, long dueDate, Long completedAt,
+                         int subtaskTotal, int subtaskDone, long occurrenceDate) {
+        super(id, title, descriptionPreview, isCompleted, priority, dueDate, completedAt, subtaskTotal, subtaskDone,
+                null);
+        this.occurrenceDate = occurrenceDate;
+    }
+
+    /**
+     * 发生当天本地0点，对应完成记录的occurrenceDate
+     */
+    public long getOccurrenceDate() {
+        return occurrenceDate;
+    }
+}
\ No newline at end of file
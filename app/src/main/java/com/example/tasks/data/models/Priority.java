@@ -6,19 +6,40 @@ import com.example.tasks.R;
  * 优先级枚举
  */
 public enum Priority {
-    LOW("低", R.color.priority_low),
-    MEDIUM("中", R.color.priority_medium),
-    HIGH("高", R.color.priority_high),
-    URGENT("紧急", R.color.priority_urgent);
+    LOW(0, "低", R.color.priority_low),
+    MEDIUM(1, "中", R.color.priority_medium),
+    HIGH(2, "高", R.color.priority_high),
+    URGENT(3, "紧急", R.color.priority_urgent);
 
+    /**
+     * 持久化到数据库的紧急程度，数值越大越紧急，已有数值不可修改
+     */
+    private final int rank;
     private final String displayName;
     private final int colorRes;
 
-    Priority(String displayName, int colorRes) {
+    Priority(int rank, String displayName, int colorRes) {
+        this.rank = rank;
         this.displayName = displayName;
         this.colorRes = colorRes;
     }
 
+    /**
+     * 根据数据库中的rank获取优先级，未知值按中等优先级处理
+     */
+    public static Priority fromRank(int rank) {
+        for (Priority priority : values()) {
+            if (priority.rank == rank) {
+                return priority;
+            }
+        }
+        return MEDIUM;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
     public String getDisplayName() {
         return displayName;
     }
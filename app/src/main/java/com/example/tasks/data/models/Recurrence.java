@@ -0,0 +1,316 @@
+package com.example.tasks.data.models;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 重复规则，使用RRULE（RFC 5545）的子集：FREQ、INTERVAL、BYDAY（仅每周）、UNTIL、COUNT
+ * 例如 "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10"
+ * 第一次发生在所属待办事项的截止时间，之后的发生时间按规则在本地日历上推算，保持同一时刻
+ */
+public final class Recurrence {
+
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    /**
+     * 添加和编辑界面提供的几种常用规则
+     */
+    public static final String RULE_DAILY = "FREQ=DAILY";
+    public static final String RULE_WEEKLY = "FREQ=WEEKLY";
+    public static final String RULE_MONTHLY = "FREQ=MONTHLY";
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * BYDAY的取值，下标为从周一开始的偏移
+     */
+    private static final String[] WEEKDAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int weekdays;
+    private final Long until;
+    private final int count;
+
+    /**
+     * @param weekdays 每周规则的星期位图，第0位为周一；0表示与第一次发生同一天
+     * @param until 最后可能发生的时间（含），null表示不限
+     * @param count 总发生次数，0表示不限
+     */
+    public Recurrence(Frequency frequency, int interval, int weekdays, Long until, int count) {
+        if (frequency == null || interval < 1 || count < 0 || weekdays < 0 || weekdays > 0x7f) {
+            throw new IllegalArgumentException("无效的重复规则");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.weekdays = frequency == Frequency.WEEKLY ? weekdays : 0;
+        this.until = until;
+        this.count = count;
+    }
+
+    /**
+     * 解析RRULE，null或空串返回null；格式错误或包含不支持的部分时抛出IllegalArgumentException
+     */
+    public static Recurrence parse(String rule) {
+        if (rule == null || rule.trim().isEmpty()) return null;
+        Frequency frequency = null;
+        int interval = 1;
+        int weekdays = 0;
+        Long until = null;
+        int count = 0;
+        String text = rule.trim();
+        if (text.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            text = text.substring(6);
+        }
+        for (String part : text.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("无效的重复规则: " + rule);
+            String name = part.substring(0, eq).trim().toUpperCase(Locale.ROOT);
+            String value = part.substring(eq + 1).trim().toUpperCase(Locale.ROOT);
+            try {
+                switch (name) {
+                    case "FREQ":
+                        frequency = Frequency.valueOf(value);
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(value);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(value);
+                        break;
+                    case "UNTIL":
+                        until = parseUntil(value);
+                        break;
+                    case "BYDAY":
+                        for (String day : value.split(",")) {
+                            int index = indexOfWeekday(day.trim());
+                            if (index < 0) throw new IllegalArgumentException("不支持的BYDAY: " + day);
+                            weekdays |= 1 << index;
+                        }
+                        break;
+                    case "WKST":
+                        // 一周固定从周一开始
+                        break;
+                    default:
+                        throw new IllegalArgumentException("不支持的规则部分: " + name);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的重复规则: " + rule, e);
+            }
+        }
+        if (frequency == null) throw new IllegalArgumentException("重复规则缺少FREQ: " + rule);
+        return new Recurrence(frequency, interval, weekdays, until, count);
+    }
+
+    /**
+     * 按RRULE格式输出，省略默认值
+     */
+    public String toRule() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency.name());
+        if (interval != 1) rule.append(";INTERVAL=").append(interval);
+        if (weekdays != 0) {
+            rule.append(";BYDAY=");
+            boolean first = true;
+            for (int i = 0; i < WEEKDAYS.length; i++) {
+                if ((weekdays & (1 << i)) == 0) continue;
+                if (!first) rule.append(',');
+                rule.append(WEEKDAYS[i]);
+                first = false;
+            }
+        }
+        if (until != null) rule.append(";UNTIL=").append(formatUntil(until));
+        if (count != 0) rule.append(";COUNT=").append(count);
+        return rule.toString();
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * 计算落在[start, end]内的发生时间，按时间升序
+     * 不从第一次发生开始逐个推算，而是直接跳到窗口附近，耗时只与窗口内的次数有关；
+     * 只有每月/每年规则带COUNT时，因为不存在的日期（如2月30日）不计数，需要从头数起
+     *
+     * @param first 第一次发生的时间，即待办事项的截止时间
+     */
+    public List<Long> occurrencesBetween(long first, long start, long end) {
+        List<Long> result = new ArrayList<>();
+        long last = until != null ? Math.min(end, until) : end;
+        if (last < start || last < first) return result;
+        Calendar calendar = Calendar.getInstance();
+        switch (frequency) {
+            case DAILY:
+                expandByDays(calendar, first, start, last, interval, result);
+                break;
+            case WEEKLY:
+                if (weekdays == 0) {
+                    expandByDays(calendar, first, start, last, 7 * interval, result);
+                } else {
+                    expandWeekdays(calendar, first, start, last, result);
+                }
+                break;
+            case MONTHLY:
+                expandByMonths(calendar, first, start, last, interval, result);
+                break;
+            case YEARLY:
+                expandByMonths(calendar, first, start, last, 12 * interval, result);
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * 严格晚于after的下一次发生，没有时返回null
+     * 窗口从8天起逐次放大，常见的每天/每周规则只展开几次；最大窗口约11年，足够覆盖2月29日的每年规则
+     */
+    public Long nextAfter(long first, long after) {
+        for (long span = 8 * DAY_MILLIS; span <= 4096 * DAY_MILLIS; span *= 8) {
+            List<Long> next = occurrencesBetween(first, after + 1, after + span);
+            if (!next.isEmpty()) return next.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * 每隔固定天数发生一次，第k次在第一次之后k*period天
+     */
+    private void expandByDays(Calendar calendar, long first, long start, long last, int period, List<Long> out) {
+        calendar.setTimeInMillis(first);
+        long firstDay = localDay(calendar);
+        calendar.setTimeInMillis(start);
+        long startDay = localDay(calendar);
+        long k = Math.max(0, (startDay - firstDay) / period);
+        while (count == 0 || k < count) {
+            calendar.setTimeInMillis(first);
+            calendar.add(Calendar.DAY_OF_MONTH, (int) (k * period));
+            long time = calendar.getTimeInMillis();
+            if (time > last) break;
+            if (time >= start) out.add(time);
+            k++;
+        }
+    }
+
+    /**
+     * 每interval周在BYDAY列出的几天发生；第一次发生所在周中早于它的日子不算
+     */
+    private void expandWeekdays(Calendar calendar, long first, long start, long last, List<Long> out) {
+        int[] offsets = new int[Integer.bitCount(weekdays)];
+        for (int i = 0, j = 0; i < WEEKDAYS.length; i++) {
+            if ((weekdays & (1 << i)) != 0) offsets[j++] = i;
+        }
+        calendar.setTimeInMillis(first);
+        long firstDay = localDay(calendar);
+        int firstOffset = mondayOffset(calendar);
+        long weekStart = firstDay - firstOffset;
+        int skipped = 0;
+        for (int offset : offsets) {
+            if (offset < firstOffset) skipped++;
+        }
+        calendar.setTimeInMillis(start);
+        long startDay = localDay(calendar);
+        int period = 7 * interval;
+        long week = Math.max(0, (startDay - weekStart) / period);
+        while (true) {
+            for (int j = 0; j < offsets.length; j++) {
+                long index = week * offsets.length + j - skipped;
+                if (index < 0) continue;
+                if (count != 0 && index >= count) return;
+                calendar.setTimeInMillis(first);
+                calendar.add(Calendar.DAY_OF_MONTH, (int) (weekStart + week * period + offsets[j] - firstDay));
+                long time = calendar.getTimeInMillis();
+                if (time > last) return;
+                if (time >= start) out.add(time);
+            }
+            week++;
+        }
+    }
+
+    /**
+     * 每隔固定月数在第一次发生的同一日发生，该月没有这一天时跳过且不计数
+     */
+    private void expandByMonths(Calendar calendar, long first, long start, long last, int period, List<Long> out) {
+        calendar.setTimeInMillis(first);
+        int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+        int firstMonth = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+        calendar.setTimeInMillis(start);
+        int startMonth = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+        long k = count == 0 ? Math.max(0, (startMonth - firstMonth) / period) : 0;
+        int emitted = 0;
+        while (count == 0 || emitted < count) {
+            calendar.setTimeInMillis(first);
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.add(Calendar.MONTH, (int) (k * period));
+            k++;
+            if (calendar.getActualMaximum(Calendar.DAY_OF_MONTH) < dayOfMonth) {
+                if (calendar.getTimeInMillis() > last) break;
+                continue;
+            }
+            calendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+            long time = calendar.getTimeInMillis();
+            if (time > last) break;
+            emitted++;
+            if (time >= start) out.add(time);
+        }
+    }
+
+    /**
+     * 本地日期的序号（自1970-01-01起的天数），用于按天计算间隔
+     */
+    private static long localDay(Calendar calendar) {
+        long local = calendar.getTimeInMillis() + calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET);
+        return Math.floorDiv(local, DAY_MILLIS);
+    }
+
+    private static int mondayOffset(Calendar calendar) {
+        return (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+    }
+
+    private static int indexOfWeekday(String day) {
+        for (int i = 0; i < WEEKDAYS.length; i++) {
+            if (WEEKDAYS[i].equals(day)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * UNTIL支持yyyyMMdd（当天结束前都算）和UTC的yyyyMMdd'T'HHmmss'Z'
+     */
+    private static long parseUntil(String value) {
+        Calendar calendar;
+        if (value.length() == 8) {
+            calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)) - 1,
+                    Integer.parseInt(value.substring(6, 8)));
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            return calendar.getTimeInMillis() - 1;
+        }
+        if (value.length() == 16 && value.charAt(8) == 'T' && value.endsWith("Z")) {
+            calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+            calendar.clear();
+            calendar.set(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)) - 1,
+                    Integer.parseInt(value.substring(6, 8)), Integer.parseInt(value.substring(9, 11)),
+                    Integer.parseInt(value.substring(11, 13)), Integer.parseInt(value.substring(13, 15)));
+            return calendar.getTimeInMillis();
+        }
+        throw new IllegalArgumentException("无效的UNTIL: " + value);
+    }
+
+    private static String formatUntil(long until) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(until);
+        return String.format(Locale.ROOT, "%04d%02d%02dT%02d%02d%02dZ",
+                calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+                calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+    }
+}
\ No newline at end of file
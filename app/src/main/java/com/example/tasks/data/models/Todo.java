@@ -17,6 +17,7 @@ public class Todo {
     private List<SubTask> subTasks;
     private long createdAt;
     private Long completedAt;
+    private String recurrence; // RRULE格式的重复规则，null表示不重复
 
     public Todo() {
         this.id = UUID.randomUUID().toString();
@@ -92,6 +93,10 @@ public class Todo {
         return completedAt;
     }
 
+    public String getRecurrence() {
+        return recurrence;
+    }
+
     // Setters
     public void setId(String id) {
         this.id = id;
@@ -129,6 +134,10 @@ public class Todo {
         this.completedAt = completedAt;
     }
 
+    public void setRecurrence(String recurrence) {
+        this.recurrence = recurrence;
+    }
+
     // Business logic methods
     
     /**
@@ -174,13 +183,15 @@ public class Todo {
 
     // Copy methods for immutability patterns
     public Todo copy() {
-        return new Todo(this.id, this.title, this.description, this.isCompleted,
+        Todo copy = new Todo(this.id, this.title, this.description, this.isCompleted,
                 this.priority, this.dueDate, this.subTasks, this.createdAt, this.completedAt);
+        copy.recurrence = this.recurrence;
+        return copy;
     }
 
     public Todo copyWith(String title, String description, Boolean isCompleted, 
                         Priority priority, Long dueDate, List<SubTask> subTasks, Long completedAt) {
-        return new Todo(
+        Todo copy = new Todo(
             this.id,
             title != null ? title : this.title,
             description != null ? description : this.description,
@@ -191,6 +202,8 @@ public class Todo {
             this.createdAt,
             completedAt != null ? completedAt : this.completedAt
         );
+        copy.recurrence = this.recurrence;
+        return copy;
     }
 
     @Override
@@ -0,0 +1,109 @@
+package com.example.tasks.data.models;
+
+/**
+ * 列表行投影，只包含渲染折叠状态所需的列
+ * 描述只取前若干字符，子任务只取冗余的数量列，完整内容展开时再按需加载
+ */
+public class TodoListRow {
+    private final String id;
+    private final String title;
+    private final String descriptionPreview;
+    private final boolean isCompleted;
+    private final Priority priority;
+    private final Long dueDate;
+    private final Long completedAt;
+    private final int subtaskTotal;
+    private final int subtaskDone;
+    private final String recurrence;
+
+    public TodoListRow(String id, String title, String descriptionPreview, boolean isCompleted,
+                       Priority priority, Long dueDate, Long completedAt,
+                       int subtaskTotal, int subtaskDone, String recurrence) {
+        this.id = id;
+        this.title = title;
+        this.descriptionPreview = descriptionPreview != null ? descriptionPreview : "";
+        this.isCompleted = isCompleted;
+        this.priority = priority != null ? priority : Priority.MEDIUM;
+        this.dueDate = dueDate;
+        this.completedAt = completedAt;
+        this.subtaskTotal = subtaskTotal;
+        this.subtaskDone = subtaskDone;
+        this.recurrence = recurrence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescriptionPreview() {
+        return descriptionPreview;
+    }
+
+    public boolean isCompleted() {
+        return isCompleted;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Long getDueDate() {
+        return dueDate;
+    }
+
+    public Long getCompletedAt() {
+        return completedAt;
+    }
+
+    public int getSubtaskTotal() {
+        return subtaskTotal;
+    }
+
+    public int getSubtaskDone() {
+        return subtaskDone;
+    }
+
+    public String getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * 是否为重复任务本身：dueDate是第一次发生的时间，完成状态表示整个系列是否结束
+     * 某一次发生（OccurrenceRow）不算
+     */
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+
+    /**
+     * 获取子任务完成进度 (0.0 - 1.0)
+     */
+    public float getSubTaskProgress() {
+        if (subtaskTotal == 0) {
+            return 1.0f;
+        }
+        return (float) subtaskDone / subtaskTotal;
+    }
+
+    /**
+     * 检查是否过期，重复任务本身不算过期，逾期按每次发生计算
+     */
+    public boolean isOverdue() {
+        return dueDate != null && dueDate < System.currentTimeMillis() && !isCompleted && !isRecurring();
+    }
+
+    /**
+     * 检查是否即将到期 (24小时内)
+     */
+    public boolean isDueSoon() {
+        if (dueDate == null || isCompleted) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        return dueDate > now && dueDate <= now + 24 * 60 * 60 * 1000;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.tasks.data.models;
+
+/**
+ * 搜索结果，snippet中命中的片段用SearchIndex的高亮标记包围
+ */
+public class TodoSearchResult {
+    private final String id;
+    private final String title;
+    private final String snippet;
+    private final boolean isCompleted;
+    private final Priority priority;
+    private final Long dueDate;
+    private final float rank;
+
+    public TodoSearchResult(String id, String title, String snippet, boolean isCompleted,
+                            Priority priority, Long dueDate, float rank) {
+        this.id = id;
+        this.title = title;
+        this.snippet = snippet != null ? snippet : "";
+        this.isCompleted = isCompleted;
+        this.priority = priority != null ? priority : Priority.MEDIUM;
+        this.dueDate = dueDate;
+        this.rank = rank;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public boolean isCompleted() {
+        return isCompleted;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Long getDueDate() {
+        return dueDate;
+    }
+
+    /**
+     * 相关度，越大越靠前
+     */
+    public float getRank() {
+        return rank;
+    }
+}
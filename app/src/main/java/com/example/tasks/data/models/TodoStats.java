@@ -0,0 +1,47 @@
+package com.example.tasks.data.models;
+
+/**
+ * 任务统计，由一条聚合查询一次性得到
+ */
+public class TodoStats {
+    private final int totalCount;
+    private final int completedCount;
+    private final int incompleteCount;
+    private final int overdueCount;
+    private final int dueTodayCount;
+
+    public TodoStats(int totalCount, int completedCount, int incompleteCount,
+                     int overdueCount, int dueTodayCount) {
+        this.totalCount = totalCount;
+        this.completedCount = completedCount;
+        this.incompleteCount = incompleteCount;
+        this.overdueCount = overdueCount;
+        this.dueTodayCount = dueTodayCount;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public int getIncompleteCount() {
+        return incompleteCount;
+    }
+
+    /**
+     * 已过截止时间且未完成的任务数
+     */
+    public int getOverdueCount() {
+        return overdueCount;
+    }
+
+    /**
+     * 今天到期且未完成的任务数
+     */
+    public int getDueTodayCount() {
+        return dueTodayCount;
+    }
+}
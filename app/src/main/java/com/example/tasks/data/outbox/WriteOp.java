@@ -0,0 +1,381 @@
+package com.example.tasks.data.outbox;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 写队列中的一条写操作，序列化后追加到日志文件，重放时按类型调用对应的DAO方法
+ * 切换类操作不是幂等的，是否已经执行由日志序号和数据库中记录的已应用序号判断
+ */
+public final class WriteOp {
+    
+    static final byte CHECKPOINT = 0;
+    static final byte INSERT_TODOS = 1;
+    static final byte UPDATE_TODOS = 2;
+    static final byte DELETE_TODOS = 3;
+    static final byte SET_COMPLETED = 4;
+    static final byte TOGGLE_COMPLETED = 5;
+    static final byte TOGGLE_SUB_TASK = 6;
+    static final byte APPEND_SUB_TASK = 7;
+    static final byte DELETE_SUB_TASK = 8;
+    static final byte DELETE_COMPLETED = 9;
+    static final byte RESTORE_ARCHIVED = 10;
+    static final byte DELETE_ARCHIVED = 11;
+    static final byte TOGGLE_OCCURRENCE = 12;
+    
+    /**
+     * 分批删除已完成事项时每批的行数
+     */
+    private static final int DELETE_BATCH = 500;
+    
+    final byte type;
+    long seq;
+    
+    private List<TodoEntity> todos = Collections.emptyList();
+    private List<SubTaskEntity> subTasks = Collections.emptyList();
+    private List<String> ids = Collections.emptyList();
+    private boolean completed;
+    private Long time;
+    private String todoId;
+    private String title;
+    private long stamp;
+    
+    /**
+     * 以下只在内存中，不写入日志：执行是否失败，执行后的回调，以及一组操作的最后一个持有整组和结果回调
+     */
+    boolean failed;
+    WriteOutbox.OnExecutedListener executedListener;
+    List<WriteOp> group;
+    WriteOutbox.OnResultListener resultListener;
+    
+    private WriteOp(byte type) {
+        this.type = type;
+    }
+    
+    public static WriteOp insertTodos(@NonNull List<TodoEntity> todos, @NonNull List<SubTaskEntity> subTasks) {
+        WriteOp op = new WriteOp(INSERT_TODOS);
+        op.todos = todos;
+        op.subTasks = subTasks;
+        return op;
+    }
+    
+    /**
+     * 更新待办事项并整体替换其子任务
+     */
+    public static WriteOp updateTodos(@NonNull List<TodoEntity> todos, @NonNull List<SubTaskEntity> subTasks) {
+        WriteOp op = new WriteOp(UPDATE_TODOS);
+        op.todos = todos;
+        op.subTasks = subTasks;
+        return op;
+    }
+    
+    public static WriteOp deleteTodos(@NonNull List<String> ids) {
+        WriteOp op = new WriteOp(DELETE_TODOS);
+        op.ids = ids;
+        return op;
+    }
+    
+    public static WriteOp setCompleted(@NonNull List<String> ids, boolean completed, Long completedAt) {
+        WriteOp op = new WriteOp(SET_COMPLETED);
+        op.ids = ids;
+        op.completed = completed;
+        op.time = completedAt;
+        return op;
+    }
+    
+    /**
+     * 切换完成状态，完成时间取追加时刻而不是执行时刻
+     */
+    public static WriteOp toggleCompleted(@NonNull String id, long now) {
+        WriteOp op = new WriteOp(TOGGLE_COMPLETED);
+        op.ids = Collections.singletonList(id);
+        op.time = now;
+        return op;
+    }
+    
+    /**
+     * 切换重复任务某一天的完成状态
+     */
+    public static WriteOp toggleOccurrence(@NonNull String todoId, long occurrenceDate, long now) {
+        WriteOp op = new WriteOp(TOGGLE_OCCURRENCE);
+        op.ids = Collections.singletonList(todoId);
+        op.time = occurrenceDate;
+        op.stamp = now;
+        return op;
+    }
+    
+    public static WriteOp toggleSubTask(@NonNull String subTaskId) {
+        WriteOp op = new WriteOp(TOGGLE_SUB_TASK);
+        op.ids = Collections.singletonList(subTaskId);
+        return op;
+    }
+    
+    /**
+     * 设置执行后的回调，只在本次运行中有效，进程重启后重放的操作不回调
+     */
+    public WriteOp withExecutedListener(@Nullable WriteOutbox.OnExecutedListener listener) {
+        executedListener = listener;
+        return this;
+    }
+    
+    public static WriteOp appendSubTask(@NonNull String subTaskId, @NonNull String todoId, String title,
+                                        long createdAt) {
+        WriteOp op = new WriteOp(APPEND_SUB_TASK);
+        op.ids = Collections.singletonList(subTaskId);
+        op.todoId = todoId;
+        op.title = title;
+        op.time = createdAt;
+        return op;
+    }
+    
+    public static WriteOp deleteSubTask(@NonNull String subTaskId) {
+        WriteOp op = new WriteOp(DELETE_SUB_TASK);
+        op.ids = Collections.singletonList(subTaskId);
+        return op;
+    }
+    
+    public static WriteOp deleteCompleted() {
+        return new WriteOp(DELETE_COMPLETED);
+    }
+    
+    public static WriteOp restoreArchived(@NonNull String id) {
+        WriteOp op = new WriteOp(RESTORE_ARCHIVED);
+        op.ids = Collections.singletonList(id);
+        return op;
+    }
+    
+    public static WriteOp deleteArchived(@NonNull String id) {
+        WriteOp op = new WriteOp(DELETE_ARCHIVED);
+        op.ids = Collections.singletonList(id);
+        return op;
+    }
+    
+    static WriteOp checkpoint(long seq) {
+        WriteOp op = new WriteOp(CHECKPOINT);
+        op.seq = seq;
+        return op;
+    }
+    
+    /**
+     * 是否需要单独执行：分批删除每批单独提交，不能放进合并的事务
+     */
+    boolean runsAlone() {
+        return type == DELETE_COMPLETED;
+    }
+    
+    /**
+     * 收集这个操作可能改变截止时间或完成状态的待办事项ID；清除已完成事项不涉及未完成的任务，不收集
+     */
+    void collectTodoIds(Set<String> out) {
+        switch (type) {
+            case INSERT_TODOS:
+            case UPDATE_TODOS:
+                for (TodoEntity todo : todos) {
+                    out.add(todo.id);
+                }
+                break;
+            case DELETE_TODOS:
+            case SET_COMPLETED:
+            case TOGGLE_COMPLETED:
+            case TOGGLE_OCCURRENCE:
+            case RESTORE_ARCHIVED:
+                out.addAll(ids);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    void apply(TodoDao dao) {
+        switch (type) {
+            case INSERT_TODOS:
+                dao.insertAllWithSubTasks(todos, subTasks);
+                break;
+            case UPDATE_TODOS:
+                dao.updateAllWithSubTasks(todos, subTasks);
+                break;
+            case DELETE_TODOS:
+                dao.deleteByIds(ids);
+                break;
+            case SET_COMPLETED:
+                dao.setCompleted(ids, completed, time);
+                break;
+            case TOGGLE_COMPLETED:
+                dao.toggleCompleted(ids.get(0), time);
+                break;
+            case TOGGLE_OCCURRENCE:
+                dao.toggleOccurrence(ids.get(0), time, stamp);
+                break;
+            case TOGGLE_SUB_TASK:
+                dao.toggleSubTaskCompleted(ids.get(0));
+                break;
+            case APPEND_SUB_TASK:
+                dao.appendSubTask(ids.get(0), todoId, title, time);
+                break;
+            case DELETE_SUB_TASK:
+                dao.deleteSubTaskById(ids.get(0));
+                break;
+            case DELETE_COMPLETED:
+                // 分批删除，每批之间释放写锁，列表查询不会被整体删除阻塞；重复执行无副作用
+                while (dao.deleteCompletedTodos(DELETE_BATCH) == DELETE_BATCH) {
+                    Thread.yield();
+                }
+                break;
+            case RESTORE_ARCHIVED:
+                dao.restoreArchivedTodo(ids.get(0));
+                break;
+            case DELETE_ARCHIVED:
+                dao.deleteArchivedTodoById(ids.get(0));
+                break;
+            default:
+                break;
+        }
+    }
+    
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(seq);
+        out.writeByte(type);
+        out.writeInt(todos.size());
+        for (TodoEntity todo : todos) {
+            writeTodo(out, todo);
+        }
+        out.writeInt(subTasks.size());
+        for (SubTaskEntity subTask : subTasks) {
+            writeSubTask(out, subTask);
+        }
+        out.writeInt(ids.size());
+        for (String id : ids) {
+            writeString(out, id);
+        }
+        out.writeBoolean(completed);
+        writeNullableLong(out, time);
+        writeString(out, todoId);
+        writeString(out, title);
+        // 以下为后加的字段，读取时按剩余长度判断，旧版本写入的记录仍可重放
+        for (TodoEntity todo : todos) {
+            writeString(out, todo.recurrence);
+        }
+        out.writeLong(stamp);
+    }
+    
+    static WriteOp readFrom(DataInputStream in) throws IOException {
+        long seq = in.readLong();
+        WriteOp op = new WriteOp(in.readByte());
+        op.seq = seq;
+        int count = in.readInt();
+        op.todos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            op.todos.add(readTodo(in));
+        }
+        count = in.readInt();
+        op.subTasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            op.subTasks.add(readSubTask(in));
+        }
+        count = in.readInt();
+        op.ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            op.ids.add(readString(in));
+        }
+        op.completed = in.readBoolean();
+        op.time = readNullableLong(in);
+        op.todoId = readString(in);
+        op.title = readString(in);
+        if (in.available() > 0) {
+            for (TodoEntity todo : op.todos) {
+                todo.recurrence = readString(in);
+            }
+            op.stamp = in.readLong();
+        }
+        return op;
+    }
+    
+    private static void writeTodo(DataOutputStream out, TodoEntity todo) throws IOException {
+        writeString(out, todo.id);
+        writeString(out, todo.title);
+        writeString(out, todo.description);
+        out.writeBoolean(todo.isCompleted);
+        writeString(out, todo.priority != null ? todo.priority.name() : null);
+        writeNullableLong(out, todo.dueDate);
+        out.writeLong(todo.createdAt);
+        writeNullableLong(out, todo.completedAt);
+        out.writeInt(todo.subtaskTotal);
+        out.writeInt(todo.subtaskDone);
+    }
+    
+    private static TodoEntity readTodo(DataInputStream in) throws IOException {
+        TodoEntity todo = new TodoEntity();
+        todo.id = readString(in);
+        todo.title = readString(in);
+        todo.description = readString(in);
+        todo.isCompleted = in.readBoolean();
+        String priority = readString(in);
+        todo.priority = priority != null ? Priority.valueOf(priority) : null;
+        todo.dueDate = readNullableLong(in);
+        todo.createdAt = in.readLong();
+        todo.completedAt = readNullableLong(in);
+        todo.subtaskTotal = in.readInt();
+        todo.subtaskDone = in.readInt();
+        return todo;
+    }
+    
+    private static void writeSubTask(DataOutputStream out, SubTaskEntity subTask) throws IOException {
+        writeString(out, subTask.id);
+        writeString(out, subTask.todoId);
+        writeString(out, subTask.title);
+        out.writeBoolean(subTask.isCompleted);
+        out.writeLong(subTask.createdAt);
+        out.writeInt(subTask.position);
+    }
+    
+    private static SubTaskEntity readSubTask(DataInputStream in) throws IOException {
+        return new SubTaskEntity(readString(in), readString(in), readString(in), in.readBoolean(), in.readLong(),
+                in.readInt());
+    }
+    
+    /**
+     * 字符串按UTF-8字节长度前缀写出，null写-1；不用writeUTF，它限制64KB
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+    
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,414 @@
+package com.example.tasks.data.outbox;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.util.AppExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的有序写队列
+ * 写操作在调用线程上追加到日志文件后立即返回，单个写线程按顺序成批取出，在一个事务中写入Room，
+ * 同一事务里记录已应用的日志序号；进程被杀后重新打开时重放序号更大的记录，已写入的不会重复执行
+ * 追加只写到内核缓冲区，进程退出不丢失；断电保护只在压缩日志时通过fsync提供
+ */
+public final class WriteOutbox {
+    
+    private static final String TAG = "WriteOutbox";
+    private static final String FILE_NAME = "write_outbox.log";
+    
+    /**
+     * 一个事务最多合并的写操作数
+     */
+    private static final int MAX_BATCH = 200;
+    
+    /**
+     * 日志超过这个大小且队列为空时重写为只含检查点的新文件
+     */
+    private static final long COMPACT_BYTES = 256 * 1024;
+    
+    /**
+     * 单条记录的长度上限，超过视为文件损坏
+     */
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    
+    private static volatile WriteOutbox INSTANCE;
+    
+    private final File file;
+    private final Supplier<TodoDatabase> database;
+    private final Executor writer;
+    private final Object lock = new Object();
+    private final ArrayDeque<WriteOp> pending = new ArrayDeque<>();
+    private final List<OnAppliedListener> listeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * 打开时日志中是否有记录；压缩后总会留下检查点，没有记录说明日志是新建的
+     */
+    private final boolean hasLog;
+    private FileOutputStream out;
+    private long lastSeq;
+    private boolean draining;
+    
+    /**
+     * 数据库中记录的已应用序号，写线程第一次执行时读取，之后只由写线程访问
+     */
+    private long appliedSeq = -1;
+    
+    /**
+     * 一批写操作写入数据库后的回调，在写线程上调用
+     */
+    public interface OnAppliedListener {
+        void onApplied(Set<String> todoIds);
+    }
+    
+    /**
+     * 一组写操作的结果回调，在写线程上调用；applied为false表示其中有操作失败被跳过，或因恢复备份被丢弃
+     */
+    public interface OnResultListener {
+        void onResult(boolean applied);
+    }
+    
+    /**
+     * 单个写操作在数据库中执行后的回调，在写线程上、事务提交之前调用，可在同一事务中读取执行后的值
+     * 整批事务失败后逐条重试，同一个操作可能回调多次；最终是否写入以所在组的结果回调为准
+     */
+    public interface OnExecutedListener {
+        void onExecuted(@NonNull TodoDao dao);
+    }
+    
+    WriteOutbox(File file, Supplier<TodoDatabase> database, Executor writer) {
+        this.file = file;
+        this.database = database;
+        this.writer = writer;
+        
+        // 读取上次遗留的记录，在任何新追加之前放入队列，保证重放的顺序
+        List<WriteOp> recovered = new ArrayList<>();
+        long validLength = readLog(file, recovered);
+        try {
+            if (file.exists() && file.length() != validLength) {
+                Log.w(TAG, "截断日志末尾不完整的记录: " + (file.length() - validLength) + " 字节");
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+            out = new FileOutputStream(file, true);
+        } catch (IOException e) {
+            Log.e(TAG, "无法打开写队列日志，本次运行的写操作不会持久化", e);
+        }
+        hasLog = !recovered.isEmpty();
+        for (WriteOp op : recovered) {
+            lastSeq = Math.max(lastSeq, op.seq);
+            if (op.type != WriteOp.CHECKPOINT) {
+                pending.add(op);
+            }
+        }
+        if (!pending.isEmpty()) {
+            draining = true;
+            writer.execute(this::drain);
+        }
+    }
+    
+    public static WriteOutbox getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (WriteOutbox.class) {
+                if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
+                    // 每次执行时重新获取数据库，恢复备份替换数据库文件后写入新的实例
+                    INSTANCE = new WriteOutbox(new File(appContext.getFilesDir(), FILE_NAME),
+                            () -> TodoDatabase.getDatabase(appContext), AppExecutors.getInstance().writer());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+    
+    /**
+     * 追加一个写操作，写入日志文件后返回，不等待数据库
+     */
+    public void append(@NonNull WriteOp op) {
+        appendAll(Collections.singletonList(op), null);
+    }
+    
+    /**
+     * 连续追加一组写操作，中间不会插入其他调用方的操作，不超过一批的上限时在同一个事务中写入
+     * listener不为null时，这组操作全部处理完后回调结果；进程重启后重放的操作不再回调
+     */
+    public void appendAll(@NonNull List<WriteOp> ops, @Nullable OnResultListener listener) {
+        if (ops.isEmpty()) return;
+        synchronized (lock) {
+            for (WriteOp op : ops) {
+                op.seq = ++lastSeq;
+                if (out != null) {
+                    try {
+                        out.write(frame(op));
+                    } catch (IOException e) {
+                        Log.e(TAG, "写队列日志追加失败，操作只保留在内存中", e);
+                    }
+                }
+                pending.add(op);
+            }
+            if (listener != null) {
+                WriteOp last = ops.get(ops.size() - 1);
+                last.group = new ArrayList<>(ops);
+                last.resultListener = listener;
+            }
+            if (!draining) {
+                draining = true;
+                writer.execute(this::drain);
+            }
+        }
+    }
+    
+    /**
+     * 注册写入完成的回调，参数为这批操作涉及的待办事项ID，只包含未完成任务可能发生变化的那些
+     */
+    public void addOnAppliedListener(@NonNull OnAppliedListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * 等待此前追加的写操作全部写入数据库，超时返回false；需在写线程以外的后台线程调用
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (draining) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * 数据库被备份替换后调用：日志中已有的记录都视为已应用，不再重放到恢复出的数据库上
+     */
+    public void resetAfterRestore() {
+        List<WriteOp> discarded;
+        synchronized (lock) {
+            discarded = new ArrayList<>(pending);
+            pending.clear();
+        }
+        // 已应用序号只在写线程上访问
+        writer.execute(() -> {
+            synchronized (lock) {
+                database.get().todoDao().setOutboxAppliedSeq(lastSeq);
+                appliedSeq = lastSeq;
+                compact();
+            }
+            for (WriteOp op : discarded) {
+                if (op.resultListener != null) {
+                    op.resultListener.onResult(false);
+                }
+            }
+        });
+    }
+    
+    private void drain() {
+        while (true) {
+            List<WriteOp> batch = new ArrayList<>();
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    if (file.length() > COMPACT_BYTES) {
+                        compact();
+                    }
+                    draining = false;
+                    lock.notifyAll();
+                    return;
+                }
+                while (!pending.isEmpty() && batch.size() < MAX_BATCH) {
+                    WriteOp op = pending.peek();
+                    // 需要单独执行的操作自成一批
+                    if (op.runsAlone() && !batch.isEmpty()) break;
+                    batch.add(pending.poll());
+                    if (op.runsAlone()) break;
+                }
+            }
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "写入数据库失败，已跳过 " + batch.size() + " 个写操作", e);
+                for (WriteOp op : batch) {
+                    op.failed = true;
+                }
+            }
+            notifyApplied(batch);
+            notifyResults(batch);
+        }
+    }
+    
+    /**
+     * 一组操作的最后一个已处理，回调这组的结果
+     */
+    private void notifyResults(List<WriteOp> batch) {
+        for (WriteOp op : batch) {
+            if (op.resultListener == null) continue;
+            boolean applied = true;
+            for (WriteOp member : op.group) {
+                applied &= !member.failed;
+            }
+            op.resultListener.onResult(applied);
+        }
+    }
+    
+    private void notifyApplied(List<WriteOp> batch) {
+        if (listeners.isEmpty()) return;
+        Set<String> todoIds = new HashSet<>();
+        for (WriteOp op : batch) {
+            op.collectTodoIds(todoIds);
+        }
+        if (todoIds.isEmpty()) return;
+        for (OnAppliedListener listener : listeners) {
+            listener.onApplied(todoIds);
+        }
+    }
+    
+    /**
+     * 在一个事务中执行一批写操作并记录已应用的序号；事务失败时逐条重试，跳过仍然失败的操作，不阻塞后面的写入
+     */
+    private void apply(List<WriteOp> batch) {
+        TodoDatabase db = database.get();
+        TodoDao dao = db.todoDao();
+        if (appliedSeq < 0) {
+            // 日志丢失而数据库保留了旧序号时，新日志从1重新编号，旧序号作废
+            appliedSeq = hasLog ? dao.getOutboxAppliedSeq() : 0;
+        }
+        List<WriteOp> ops = new ArrayList<>(batch.size());
+        for (WriteOp op : batch) {
+            if (op.seq > appliedSeq) ops.add(op);
+        }
+        if (ops.isEmpty()) return;
+        long last = ops.get(ops.size() - 1).seq;
+        try {
+            if (ops.get(0).runsAlone()) {
+                execute(ops.get(0), dao);
+                dao.setOutboxAppliedSeq(last);
+            } else {
+                db.runInTransaction(() -> {
+                    for (WriteOp op : ops) {
+                        execute(op, dao);
+                    }
+                    dao.setOutboxAppliedSeq(last);
+                });
+            }
+            appliedSeq = last;
+        } catch (RuntimeException e) {
+            if (ops.size() == 1) {
+                Log.e(TAG, "写操作失败，已跳过: type=" + ops.get(0).type, e);
+                ops.get(0).failed = true;
+                dao.setOutboxAppliedSeq(last);
+                appliedSeq = last;
+                return;
+            }
+            for (WriteOp op : ops) {
+                apply(Collections.singletonList(op));
+            }
+        }
+    }
+    
+    private static void execute(WriteOp op, TodoDao dao) {
+        op.apply(dao);
+        if (op.executedListener != null) {
+            op.executedListener.onExecuted(dao);
+        }
+    }
+    
+    /**
+     * 把日志重写为只含当前序号的检查点，临时文件fsync后原子替换；调用方持有lock且队列中没有未应用的记录
+     */
+    private void compact() {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (FileOutputStream tempOut = new FileOutputStream(temp)) {
+                tempOut.write(frame(WriteOp.checkpoint(lastSeq)));
+                tempOut.getFD().sync();
+            }
+            if (out != null) {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("无法替换日志文件: " + file);
+            }
+            out = new FileOutputStream(file, true);
+        } catch (IOException e) {
+            Log.e(TAG, "压缩写队列日志失败", e);
+            try {
+                out = new FileOutputStream(file, true);
+            } catch (IOException reopen) {
+                out = null;
+            }
+        }
+    }
+    
+    /**
+     * 一条记录：长度、内容、CRC32，一次write写出，进程被杀时不会只写一半
+     */
+    private static byte[] frame(WriteOp op) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        op.writeTo(new DataOutputStream(payload));
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(bytes.length + 8);
+        DataOutputStream data = new DataOutputStream(frame);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+        data.writeInt((int) crc.getValue());
+        return frame.toByteArray();
+    }
+    
+    /**
+     * 读取日志中的完整记录，遇到截断或校验失败时停止，返回有效部分的长度
+     */
+    private static long readLog(File file, List<WriteOp> ops) {
+        if (!file.exists()) return 0;
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_BYTES) break;
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                int expected = in.readInt();
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if ((int) crc.getValue() != expected) break;
+                ops.add(WriteOp.readFrom(new DataInputStream(new ByteArrayInputStream(bytes))));
+                valid += length + 8;
+            }
+        } catch (EOFException e) {
+            // 文件结尾或末尾记录不完整
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "读取写队列日志失败", e);
+        }
+        return valid;
+    }
+}
\ No newline at end of file
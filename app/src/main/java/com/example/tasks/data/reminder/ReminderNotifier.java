@@ -0,0 +1,90 @@
+package com.example.tasks.data.reminder;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.tasks.R;
+import com.example.tasks.data.database.ReminderRow;
+import com.example.tasks.ui.activities.MainActivity;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把同一分钟到期的提醒合成一条通知，每分钟使用独立的通知ID
+ */
+final class ReminderNotifier {
+    
+    static final String CHANNEL_ID = "reminders";
+    
+    /**
+     * 合并通知中最多列出的任务数
+     */
+    private static final int MAX_LINES = 6;
+    
+    private final Context context;
+    
+    ReminderNotifier(Context context) {
+        this.context = context;
+    }
+    
+    void notify(List<ReminderRow> due, long minute) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        ensureChannel();
+        String time = new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date(minute));
+        PendingIntent open = PendingIntent.getActivity(context, 0,
+                new Intent(context, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_schedule_24)
+                .setContentIntent(open)
+                .setAutoCancel(true)
+                .setWhen(minute)
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setPriority(NotificationCompat.PRIORITY_HIGH);
+        if (due.size() == 1) {
+            builder.setContentTitle(due.get(0).title)
+                    .setContentText(context.getString(R.string.reminder_due_at, time));
+        } else {
+            String title = context.getString(R.string.reminder_batch_title, due.size());
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setBigContentTitle(title);
+            for (int i = 0; i < Math.min(MAX_LINES, due.size()); i++) {
+                style.addLine(due.get(i).title);
+            }
+            if (due.size() > MAX_LINES) {
+                style.setSummaryText("+" + (due.size() - MAX_LINES));
+            }
+            builder.setContentTitle(title)
+                    .setContentText(due.get(0).title)
+                    .setNumber(due.size())
+                    .setStyle(style);
+        }
+        NotificationManagerCompat.from(context).notify((int) (minute / ReminderScheduler.MINUTE_MS), builder.build());
+    }
+    
+    private void ensureChannel() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+        if (manager == null || manager.getNotificationChannel(CHANNEL_ID) != null) return;
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                context.getString(R.string.reminder_channel_name), NotificationManager.IMPORTANCE_HIGH);
+        channel.setDescription(context.getString(R.string.reminder_channel_description));
+        manager.createNotificationChannel(channel);
+    }
+}
\ No newline at end of file
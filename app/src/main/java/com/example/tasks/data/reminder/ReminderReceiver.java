@@ -0,0 +1,22 @@
+package com.example.tasks.data.reminder;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * 提醒唤醒到达，或开机、修改时间/时区后重新登记唤醒；AlarmManager的登记在重启后丢失
+ */
+public class ReminderReceiver extends BroadcastReceiver {
+    
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        PendingResult result = goAsync();
+        ReminderScheduler scheduler = ReminderScheduler.getInstance(context);
+        if (ReminderScheduler.ACTION_REMIND.equals(intent.getAction())) {
+            scheduler.onAlarm(result::finish);
+        } else {
+            scheduler.rebuild(result::finish);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.example.tasks.data.reminder;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.ReminderRow;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.models.Recurrence;
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 截止时间提醒
+ * 内存中按提醒时间维护一个最小堆，任何时刻只向AlarmManager登记最早的一个唤醒；
+ * 唤醒时把同一分钟内到期的提醒合并成一条通知，再登记下一个
+ * 写操作写入数据库后按涉及的ID增量更新堆，导入、同步和恢复备份后整体重建
+ * 所有状态只在一个串行的执行序列上访问
+ */
+public final class ReminderScheduler {
+    
+    private static final String TAG = "ReminderScheduler";
+    
+    static final String ACTION_REMIND = "com.example.tasks.action.REMIND";
+    
+    static final long MINUTE_MS = 60_000L;
+    
+    /**
+     * 堆中失效的条目超过有效条目这么多时重建堆
+     */
+    private static final int STALE_SLACK = 64;
+    
+    private static volatile ReminderScheduler INSTANCE;
+    
+    private final Context context;
+    private final Supplier<TodoDatabase> database;
+    private final Executor executor;
+    private final LongSupplier clock;
+    private final ReminderNotifier notifier;
+    
+    /**
+     * 堆中的条目不原地修改：更新时压入新条目，旧条目在到达堆顶时与scheduled对照后丢弃
+     */
+    private PriorityQueue<Reminder> heap = new PriorityQueue<>();
+    private final Map<String, Long> scheduled = new HashMap<>();
+    private boolean loaded;
+    
+    /**
+     * 当前登记的唤醒时间，0表示没有登记，-1表示未知（进程刚启动或唤醒刚到达），下次总会重新登记
+     */
+    private long armedAt = -1;
+    
+    ReminderScheduler(Context context, Supplier<TodoDatabase> database, Executor executor, LongSupplier clock) {
+        this.context = context;
+        this.database = database;
+        this.executor = executor;
+        this.clock = clock;
+        this.notifier = new ReminderNotifier(context);
+    }
+    
+    public static ReminderScheduler getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ReminderScheduler.class) {
+                if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
+                    ReminderScheduler scheduler = new ReminderScheduler(appContext,
+                            () -> TodoDatabase.getDatabase(appContext), AppExecutors.getInstance().newSerialReader(),
+                            System::currentTimeMillis);
+                    WriteOutbox.getInstance(appContext).addOnAppliedListener(scheduler::onTodosChanged);
+                    INSTANCE = scheduler;
+                }
+            }
+        }
+        return INSTANCE;
+    }
+    
+    /**
+     * 从数据库重新读入全部提醒并登记下一个唤醒
+     */
+    public void rebuild() {
+        rebuild(null);
+    }
+    
+    public void rebuild(@Nullable Runnable done) {
+        run(this::load, done);
+    }
+    
+    /**
+     * 这些待办事项已写入数据库，重新读取它们并更新各自的提醒
+     */
+    public void onTodosChanged(@NonNull Collection<String> todoIds) {
+        List<String> ids = new ArrayList<>(todoIds);
+        run(() -> {
+            if (!loaded) {
+                load();
+                return;
+            }
+            Map<String, ReminderRow> rows = readRows(ids);
+            long now = clock.getAsLong();
+            for (String id : ids) {
+                ReminderRow row = rows.get(id);
+                put(id, row != null ? nextReminder(row, now) : null);
+            }
+        }, null);
+    }
+    
+    /**
+     * 唤醒到达：通知到当前这一分钟结束为止的全部提醒，重复任务排入下一次
+     */
+    void onAlarm(@Nullable Runnable done) {
+        run(() -> {
+            if (!loaded) load();
+            armedAt = -1;
+            long now = clock.getAsLong();
+            long limit = floorMinute(now) + MINUTE_MS;
+            List<String> dueIds = new ArrayList<>();
+            Map<String, Long> dueTimes = new HashMap<>();
+            Reminder head;
+            while ((head = peek()) != null && head.time < limit) {
+                heap.poll();
+                scheduled.remove(head.id);
+                dueIds.add(head.id);
+                dueTimes.put(head.id, head.time);
+            }
+            if (dueIds.isEmpty()) return;
+            Map<String, ReminderRow> rows = readRows(dueIds);
+            List<ReminderRow> due = new ArrayList<>();
+            for (String id : dueIds) {
+                ReminderRow row = rows.get(id);
+                // 堆与数据库之间有写入未同步时以数据库为准
+                if (row == null || row.isCompleted) continue;
+                if (row.recurrence == null && !dueTimes.get(id).equals(row.dueDate)) {
+                    put(id, nextReminder(row, now));
+                    continue;
+                }
+                due.add(row);
+                if (row.recurrence != null) {
+                    put(id, nextReminder(row, dueTimes.get(id)));
+                }
+            }
+            if (!due.isEmpty()) {
+                notifier.notify(due, floorMinute(now));
+            }
+        }, done);
+    }
+    
+    /**
+     * 当前登记的唤醒时间，没有时为0；供测试检查
+     */
+    long getArmedAt() {
+        return armedAt;
+    }
+    
+    int size() {
+        return scheduled.size();
+    }
+    
+    /**
+     * 在调度线程上执行，结束后按堆顶重新登记唤醒
+     */
+    private void run(Runnable task, @Nullable Runnable done) {
+        executor.execute(() -> {
+            try {
+                task.run();
+                arm();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "更新提醒失败", e);
+            } finally {
+                if (done != null) done.run();
+            }
+        });
+    }
+    
+    private void load() {
+        TodoDao dao = database.get().todoDao();
+        long now = clock.getAsLong();
+        List<Reminder> reminders = new ArrayList<>();
+        scheduled.clear();
+        for (ReminderRow row : dao.getUpcomingReminders(now)) {
+            reminders.add(new Reminder(row.id, row.dueDate));
+            scheduled.put(row.id, row.dueDate);
+        }
+        for (ReminderRow row : dao.getRecurringReminders()) {
+            Long next = nextReminder(row, now);
+            if (next == null) continue;
+            reminders.add(new Reminder(row.id, next));
+            scheduled.put(row.id, next);
+        }
+        // 由集合构造时整体建堆，O(n)
+        heap = new PriorityQueue<>(reminders);
+        loaded = true;
+    }
+    
+    /**
+     * 待办事项在after之后的下一次提醒时间，已完成、没有截止时间或已过期时为null
+     */
+    @Nullable
+    private static Long nextReminder(ReminderRow row, long after) {
+        if (row.isCompleted || row.dueDate == null) return null;
+        if (row.recurrence == null) {
+            return row.dueDate > after ? row.dueDate : null;
+        }
+        try {
+            Recurrence recurrence = Recurrence.parse(row.recurrence);
+            return recurrence != null ? recurrence.nextAfter(row.dueDate, after) : null;
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "忽略无法解析的重复规则: " + row.recurrence, e);
+            return null;
+        }
+    }
+    
+    private void put(String id, @Nullable Long time) {
+        Long previous = time != null ? scheduled.put(id, time) : scheduled.remove(id);
+        if (time != null && !time.equals(previous)) {
+            heap.add(new Reminder(id, time));
+        }
+        if (heap.size() > 2 * scheduled.size() + STALE_SLACK) {
+            List<Reminder> live = new ArrayList<>(scheduled.size());
+            for (Map.Entry<String, Long> entry : scheduled.entrySet()) {
+                live.add(new Reminder(entry.getKey(), entry.getValue()));
+            }
+            heap = new PriorityQueue<>(live);
+        }
+    }
+    
+    /**
+     * 堆顶的有效条目，顺带丢弃已失效的
+     */
+    @Nullable
+    private Reminder peek() {
+        Reminder head;
+        while ((head = heap.peek()) != null) {
+            Long time = scheduled.get(head.id);
+            if (time != null && time == head.time) return head;
+            heap.poll();
+        }
+        return null;
+    }
+    
+    /**
+     * 按堆顶登记唯一的唤醒，时间没变时不重复调用AlarmManager
+     * 唤醒对齐到提醒所在分钟的开始，窗口一分钟，不需要精确闹钟权限
+     */
+    private void arm() {
+        Reminder head = peek();
+        long at = head != null ? floorMinute(head.time) : 0;
+        if (at == armedAt) return;
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+        PendingIntent operation = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, ReminderReceiver.class).setAction(ACTION_REMIND),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        if (head == null) {
+            alarmManager.cancel(operation);
+        } else {
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, at, MINUTE_MS, operation);
+        }
+        armedAt = at;
+    }
+    
+    private Map<String, ReminderRow> readRows(List<String> ids) {
+        Map<String, ReminderRow> rows = new HashMap<>();
+        TodoDao dao = database.get().todoDao();
+        // SQLite单条语句的参数个数有上限
+        for (int from = 0; from < ids.size(); from += 500) {
+            for (ReminderRow row : dao.getReminderRows(ids.subList(from, Math.min(ids.size(), from + 500)))) {
+                rows.put(row.id, row);
+            }
+        }
+        return rows;
+    }
+    
+    static long floorMinute(long time) {
+        return Math.floorDiv(time, MINUTE_MS) * MINUTE_MS;
+    }
+    
+    private static final class Reminder implements Comparable<Reminder> {
+        final String id;
+        final long time;
+        
+        Reminder(String id, long time) {
+            this.id = id;
+            this.time = time;
+        }
+        
+        @Override
+        public int compareTo(Reminder other) {
+            return Long.compare(time, other.time);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.example.tasks.data.repositories;
+
+import android.util.Log;
+
+import com.example.tasks.data.database.RecurrenceExceptionEntity;
+import com.example.tasks.data.database.RecurringTodoRow;
+import com.example.tasks.data.models.DayTaskCount;
+import com.example.tasks.data.models.OccurrenceRow;
+import com.example.tasks.data.models.Recurrence;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoStats;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 把重复任务按规则展开为日期窗口内的发生，合并完成记录；只展开请求的窗口，发生不落库
+ */
+public final class OccurrenceExpander {
+    
+    private static final String TAG = "OccurrenceExpander";
+    
+    private OccurrenceExpander() {
+    }
+    
+    /**
+     * 展开[start, end]内的发生，按时间升序
+     *
+     * @param completed 只返回已完成或未完成的发生，null表示全部
+     */
+    public static List<TodoListRow> expand(List<RecurringTodoRow> todos, List<RecurrenceExceptionEntity> exceptions,
+                                           long start, long end, Boolean completed) {
+        Map<String, RecurrenceExceptionEntity> done = new HashMap<>();
+        if (exceptions != null) {
+            for (RecurrenceExceptionEntity exception : exceptions) {
+                done.put(key(exception.todoId, exception.occurrenceDate), exception);
+            }
+        }
+        List<TodoListRow> rows = new ArrayList<>();
+        if (todos == null) return rows;
+        for (RecurringTodoRow todo : todos) {
+            // 待办事项本身被标记完成表示整个系列结束
+            if (todo.isCompleted || todo.dueDate == null || todo.dueDate > end) continue;
+            Recurrence recurrence;
+            try {
+                recurrence = Recurrence.parse(todo.recurrence);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "忽略无法解析的重复规则: " + todo.recurrence, e);
+                continue;
+            }
+            if (recurrence == null) continue;
+            for (long time : recurrence.occurrencesBetween(todo.dueDate, start, end)) {
+                long day = TodoRepository.startOfDay(time);
+                RecurrenceExceptionEntity exception = done.get(key(todo.id, day));
+                boolean isDone = exception != null;
+                if (completed != null && completed != isDone) continue;
+                rows.add(new OccurrenceRow(todo.id, todo.title, todo.descriptionPreview, isDone, todo.priority,
+                        time, isDone ? exception.completedAt : null, todo.subtaskTotal, todo.subtaskDone, day));
+            }
+        }
+        rows.sort((a, b) -> Long.compare(a.getDueDate(), b.getDueDate()));
+        return rows;
+    }
+    
+    /**
+     * 把窗口内发生的按天计数加到普通任务的按天计数上
+     */
+    public static List<DayTaskCount> mergeDayCounts(List<DayTaskCount> counts, List<TodoListRow> occurrences) {
+        Map<String, int[]> byDay = new TreeMap<>();
+        if (counts != null) {
+            for (DayTaskCount count : counts) {
+                byDay.put(count.getDay(), new int[]{count.getIncompleteCount(), count.getCompletedCount()});
+            }
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.ROOT);
+        for (TodoListRow occurrence : occurrences) {
+            int[] day = byDay.computeIfAbsent(format.format(occurrence.getDueDate()), k -> new int[2]);
+            day[occurrence.isCompleted() ? 1 : 0]++;
+        }
+        List<DayTaskCount> merged = new ArrayList<>(byDay.size());
+        for (Map.Entry<String, int[]> entry : byDay.entrySet()) {
+            merged.add(new DayTaskCount(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        return merged;
+    }
+    
+    /**
+     * 把当天发生的加到统计上：未完成的计入今天到期，其中时间已过的计入逾期
+     * 之前各天没完成的发生不累积为逾期，与日历中每天单独完成一致
+     *
+     * @param occurrences 当天0点到当天结束之间展开的发生
+     */
+    public static TodoStats addToStats(TodoStats stats, List<TodoListRow> occurrences, long now) {
+        int overdue = 0;
+        int dueToday = 0;
+        for (TodoListRow occurrence : occurrences) {
+            if (occurrence.isCompleted()) continue;
+            dueToday++;
+            if (occurrence.getDueDate() < now) overdue++;
+        }
+        return new TodoStats(stats.getTotalCount(), stats.getCompletedCount(), stats.getIncompleteCount(),
+                stats.getOverdueCount() + overdue, stats.getDueTodayCount() + dueToday);
+    }
+    
+    /**
+     * 两个已按截止时间排序的列表合并为一个
+     */
+    public static List<TodoListRow> mergeByDueDate(List<TodoListRow> first, List<TodoListRow> second) {
+        List<TodoListRow> merged = new ArrayList<>((first != null ? first.size() : 0) + second.size());
+        if (first != null) merged.addAll(first);
+        merged.addAll(second);
+        merged.sort((a, b) -> Long.compare(a.getDueDate(), b.getDueDate()));
+        return merged;
+    }
+    
+    private static String key(String todoId, long day) {
+        return todoId + '@' + day;
+    }
+}
\ No newline at end of file
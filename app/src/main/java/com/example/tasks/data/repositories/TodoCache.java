@@ -0,0 +1,284 @@
+package com.example.tasks.data.repositories;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.InvalidationTracker;
+
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoStamp;
+import com.example.tasks.data.models.SubTask;
+import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.outbox.WriteOutbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按ID缓存完整的待办事项（含子任务），容量有限，淘汰最久未用的条目
+ * 条目记录读取时行的updatedAt，触发器保证行和它的子任务每次变化都会改变这个值；
+ * todos表有写入后，下次读取前用一次主键查询比对全部条目，变化或已删除的丢弃，
+ * 因此同步、导入、归档、批量删除等不经过仓库的写入也不会读到旧值
+ * 写队列应用写操作后立即丢弃涉及的ID，不等待失效通知
+ * 存入和取出的都是副本，调用方修改返回值不影响缓存
+ */
+public final class TodoCache {
+    
+    /**
+     * 不超过SQLite单条语句的参数上限，校验时一次查询即可
+     */
+    static final int DEFAULT_CAPACITY = 256;
+    
+    /**
+     * 新插入的写穿条目没有可沿用的修改时间，校验时跳过，由写队列应用后丢弃
+     */
+    private static final long UNKNOWN_STAMP = -1;
+    
+    private static volatile TodoCache INSTANCE;
+    
+    private final TodoDatabase database;
+    private final TodoDao todoDao;
+    private final int capacity;
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, Entry> entries;
+    
+    /**
+     * 失效计数，每次失效加一；从数据库读取前后不一致时，读到的结果不放入缓存
+     */
+    private long generation;
+    private long validatedGeneration;
+    
+    /**
+     * 失效观察者注册之前和实例被丢弃之后不缓存任何条目
+     */
+    private boolean active;
+    
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    
+    TodoCache(TodoDatabase database, int capacity) {
+        this.database = database;
+        this.todoDao = database.todoDao();
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= TodoCache.this.capacity) return false;
+                evictionCount++;
+                return true;
+            }
+        };
+    }
+    
+    public static TodoCache getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (TodoCache.class) {
+                if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
+                    TodoDatabase database = TodoDatabase.getDatabase(appContext);
+                    TodoCache cache = new TodoCache(database, DEFAULT_CAPACITY);
+                    // 观察者注册会访问数据库，放到后台线程
+                    database.getQueryExecutor().execute(cache::register);
+                    WriteOutbox.getInstance(appContext).addOnAppliedListener(cache::invalidate);
+                    INSTANCE = cache;
+                }
+            }
+        }
+        return INSTANCE;
+    }
+    
+    /**
+     * 数据库文件被整体替换（从备份恢复）后调用：旧实例清空并停用，下次getInstance时基于新数据库重建
+     */
+    public static void reset() {
+        synchronized (TodoCache.class) {
+            if (INSTANCE != null) {
+                synchronized (INSTANCE.lock) {
+                    INSTANCE.active = false;
+                    INSTANCE.entries.clear();
+                    INSTANCE.generation++;
+                }
+                INSTANCE = null;
+            }
+        }
+    }
+    
+    /**
+     * 注册todos和subtasks的失效观察者，之后才开始缓存
+     */
+    void register() {
+        database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("todos", "subtasks") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                synchronized (lock) {
+                    generation++;
+                }
+            }
+        });
+        synchronized (lock) {
+            active = true;
+            generation++;
+        }
+    }
+    
+    /**
+     * 缓存中的副本，没有时返回null并计为未命中
+     * 上次校验之后todos有写入时先校验全部条目，会查询数据库，需在后台线程调用
+     */
+    @Nullable
+    Todo get(String id) {
+        revalidateIfNeeded();
+        synchronized (lock) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            return detach(entry.todo);
+        }
+    }
+    
+    /**
+     * 从数据库读取之前取得当前的失效计数，读取后连同结果传给put
+     */
+    long generation() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+    
+    /**
+     * 放入从数据库读到的待办事项；读取期间发生过失效时结果可能已过时，丢弃
+     */
+    void put(Todo todo, long updatedAt, long generationBeforeRead) {
+        synchronized (lock) {
+            if (!active || generation != generationBeforeRead) return;
+            // 写穿的条目比数据库中的新
+            Entry current = entries.get(todo.getId());
+            if (current != null && current.pending) return;
+            entries.put(todo.getId(), new Entry(detach(todo), updatedAt, false));
+        }
+    }
+    
+    /**
+     * 写穿：写操作追加到写队列时放入新值，在写队列应用之前也能读到
+     * 沿用原条目的修改时间，行在此期间被其他途径修改时校验会丢弃它；写队列应用后由invalidate丢弃
+     */
+    void putPending(Todo todo) {
+        synchronized (lock) {
+            if (!active) return;
+            Entry previous = entries.get(todo.getId());
+            long updatedAt = previous != null ? previous.updatedAt : UNKNOWN_STAMP;
+            entries.put(todo.getId(), new Entry(detach(todo), updatedAt, true));
+        }
+    }
+    
+    /**
+     * 丢弃这些ID的条目
+     */
+    void invalidate(Collection<String> ids) {
+        synchronized (lock) {
+            for (String id : ids) {
+                entries.remove(id);
+            }
+            generation++;
+        }
+    }
+    
+    public long getHitCount() {
+        synchronized (lock) {
+            return hitCount;
+        }
+    }
+    
+    public long getMissCount() {
+        synchronized (lock) {
+            return missCount;
+        }
+    }
+    
+    /**
+     * 因容量淘汰的条目数，不包括失效丢弃的
+     */
+    public long getEvictionCount() {
+        synchronized (lock) {
+            return evictionCount;
+        }
+    }
+    
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+    
+    /**
+     * 一次查询取得全部条目当前的修改时间，丢弃不一致的；查询期间又有失效时下次读取再校验一遍
+     */
+    private void revalidateIfNeeded() {
+        long checking;
+        Set<String> ids;
+        synchronized (lock) {
+            if (validatedGeneration == generation) return;
+            checking = generation;
+            if (entries.isEmpty()) {
+                validatedGeneration = checking;
+                return;
+            }
+            ids = new HashSet<>(entries.keySet());
+        }
+        Map<String, Long> stamps = new HashMap<>();
+        for (TodoStamp stamp : todoDao.getTodoStamps(ids)) {
+            stamps.put(stamp.id, stamp.updatedAt);
+        }
+        synchronized (lock) {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> entry = iterator.next();
+                if (!ids.contains(entry.getKey())) continue;
+                if (entry.getValue().updatedAt == UNKNOWN_STAMP) continue;
+                Long stamp = stamps.get(entry.getKey());
+                if (stamp == null || stamp != entry.getValue().updatedAt) {
+                    iterator.remove();
+                }
+            }
+            validatedGeneration = Math.max(validatedGeneration, checking);
+        }
+    }
+    
+    /**
+     * 复制Todo和它的子任务
+     */
+    private static Todo detach(Todo todo) {
+        List<SubTask> subTasks = new ArrayList<>(todo.getSubTasks().size());
+        for (SubTask subTask : todo.getSubTasks()) {
+            subTasks.add(subTask.copy());
+        }
+        Todo copy = todo.copy();
+        copy.setSubTasks(subTasks);
+        return copy;
+    }
+    
+    private static final class Entry {
+        final Todo todo;
+        final long updatedAt;
+        final boolean pending;
+        
+        Entry(Todo todo, long updatedAt, boolean pending) {
+            this.todo = todo;
+            this.updatedAt = updatedAt;
+            this.pending = pending;
+        }
+    }
+}
\ No newline at end of file
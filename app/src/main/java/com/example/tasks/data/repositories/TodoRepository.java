@@ -1,163 +1,558 @@
 package com.example.tasks.data.repositories;
 
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.Transformations;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.paging.PagingSource;
 
+import com.example.tasks.data.models.DayTaskCount;
+import com.example.tasks.data.models.SubTask;
 import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoSearchResult;
+import com.example.tasks.data.models.TodoStats;
+import com.example.tasks.data.database.RecurrenceExceptionEntity;
+import com.example.tasks.data.database.RecurringTodoRow;
+import com.example.tasks.data.database.SubTaskEntity;
 import com.example.tasks.data.database.TodoDao;
 import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.database.TodoWithSubTasks;
+import com.example.tasks.data.outbox.WriteOp;
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.data.snapshot.ListSnapshot;
+import com.example.tasks.data.snapshot.ListSnapshotStore;
+import com.example.tasks.util.AppExecutors;
 
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Todo数据仓库
+ * 写操作追加到持久化写队列后立即返回，由队列按顺序成批写入数据库
  */
 public class TodoRepository {
+    private static final int PAGE_SIZE = 30;
+    private static final int SEARCH_LIMIT = 50;
+    
     private final TodoDao todoDao;
-    private final ExecutorService executor;
+    private final WriteOutbox outbox;
+    private final ListSnapshotStore snapshotStore;
+    private final TodoCache todoCache;
+    private final WriteCoalescer coalescer;
+    private Consumer<Set<String>> rollbackListener;
+    
+    public TodoRepository(TodoDao todoDao, WriteOutbox outbox) {
+        this(todoDao, outbox, null);
+    }
+    
+    /**
+     * snapshotStore不为null时，启动可先用首屏快照渲染
+     */
+    public TodoRepository(TodoDao todoDao, WriteOutbox outbox, ListSnapshotStore snapshotStore) {
+        this(todoDao, outbox, snapshotStore, null);
+    }
+    
+    /**
+     * todoCache不为null时，按ID读取先查缓存，没有命中时把读到的结果放入缓存，整行写入随时更新缓存
+     */
+    public TodoRepository(TodoDao todoDao, WriteOutbox outbox, ListSnapshotStore snapshotStore, TodoCache todoCache) {
+        this(todoDao, outbox, snapshotStore, todoCache, outbox != null ? WriteCoalescer.getInstance(outbox) : null);
+    }
     
-    public TodoRepository(TodoDao todoDao) {
+    TodoRepository(TodoDao todoDao, WriteOutbox outbox, ListSnapshotStore snapshotStore, TodoCache todoCache,
+                   WriteCoalescer coalescer) {
         this.todoDao = todoDao;
-        this.executor = Executors.newFixedThreadPool(4);
+        this.outbox = outbox;
+        this.snapshotStore = snapshotStore;
+        this.todoCache = todoCache;
+        this.coalescer = coalescer;
     }
     
     /**
-     * 获取所有待办事项
+     * 进程启动时磁盘上的首屏快照，没有时返回null
      */
-    public LiveData<List<Todo>> getAllTodos() {
-        return Transformations.map(todoDao.getAllTodos(), entities -> {
-            List<Todo> todos = new ArrayList<>();
-            for (TodoEntity entity : entities) {
-                todos.add(entityToTodo(entity));
-            }
-            return todos;
-        });
+    public ListSnapshot getStartupSnapshot() {
+        return snapshotStore != null ? snapshotStore.getStartupSnapshot() : null;
     }
     
     /**
-     * 根据ID获取待办事项
+     * 根据ID获取待办事项，同步执行，需在后台线程调用
+     * 子任务的完成状态叠加了还没写入数据库的切换
      */
     public Todo getTodoById(String id) {
-        TodoEntity entity = todoDao.getTodoById(id);
-        return entity != null ? entityToTodo(entity) : null;
+        Todo todo = readTodoById(id);
+        if (todo != null && coalescer != null) {
+            coalescer.applyOverlay(todo);
+        }
+        return todo;
     }
     
     /**
-     * 获取未完成的待办事项
+     * 有缓存时先查缓存，没有命中再查数据库
      */
-    public LiveData<List<Todo>> getIncompleteTodos() {
-        return Transformations.map(todoDao.getIncompleteTodos(), entities -> {
-            List<Todo> todos = new ArrayList<>();
-            for (TodoEntity entity : entities) {
-                todos.add(entityToTodo(entity));
-            }
-            return todos;
-        });
+    private Todo readTodoById(String id) {
+        if (todoCache == null) {
+            TodoWithSubTasks entity = todoDao.getTodoById(id);
+            return entity != null ? entityToTodo(entity) : null;
+        }
+        Todo cached = todoCache.get(id);
+        if (cached != null) return cached;
+        long generation = todoCache.generation();
+        TodoWithSubTasks entity = todoDao.getTodoById(id);
+        if (entity == null) return null;
+        Todo todo = entityToTodo(entity);
+        todoCache.put(todo, entity.todo.updatedAt, generation);
+        return todo;
     }
     
     /**
-     * 获取已完成的待办事项
+     * 获取截止日期在指定日期当天的未完成待办事项，包括重复任务当天未完成的发生
      */
-    public LiveData<List<Todo>> getCompletedTodos() {
-        return Transformations.map(todoDao.getCompletedTodos(), entities -> {
-            List<Todo> todos = new ArrayList<>();
-            for (TodoEntity entity : entities) {
-                todos.add(entityToTodo(entity));
+    public LiveData<List<TodoListRow>> getIncompleteTodosForDay(long dateMillis) {
+        long start = startOfDay(dateMillis);
+        long end = endOfDay(start);
+        return withOccurrences(todoDao.getIncompleteTodosDueBetween(start, end), start, end, false);
+    }
+    
+    /**
+     * 获取截止日期在指定日期当天的已完成待办事项，包括重复任务当天已完成的发生
+     */
+    public LiveData<List<TodoListRow>> getCompletedTodosForDay(long dateMillis) {
+        long start = startOfDay(dateMillis);
+        long end = endOfDay(start);
+        return withOccurrences(todoDao.getCompletedTodosDueBetween(start, end), start, end, true);
+    }
+    
+    /**
+     * 获取指定日期所在月份每天的任务数量，重复任务按当月的发生计数
+     */
+    public LiveData<List<DayTaskCount>> getMonthTaskCounts(long dateMillis) {
+        long start = startOfMonth(dateMillis);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(start);
+        calendar.add(Calendar.MONTH, 1);
+        long end = calendar.getTimeInMillis() - 1;
+        return combineWithOccurrences(todoDao.getDailyTaskCounts(start, end), start, end,
+                OccurrenceExpander::mergeDayCounts);
+    }
+    
+    /**
+     * 普通任务的日期范围查询结果合并窗口内重复任务的发生
+     */
+    private LiveData<List<TodoListRow>> withOccurrences(LiveData<List<TodoListRow>> rows, long start, long end,
+                                                        boolean completed) {
+        return combineWithOccurrences(rows, start, end, (plain, occurrences) -> {
+            List<TodoListRow> filtered = new ArrayList<>();
+            for (TodoListRow occurrence : occurrences) {
+                if (occurrence.isCompleted() == completed) filtered.add(occurrence);
             }
-            return todos;
+            return OccurrenceExpander.mergeByDueDate(plain, filtered);
         });
     }
     
+    /**
+     * 三个来源（普通任务查询、重复任务、窗口内的完成记录）都有值后展开并合并，任一变化时重新计算
+     * 展开和合并在读线程池上执行，开始前和完成后已有更新的输入时丢弃结果
+     */
+    private <T> LiveData<T> combineWithOccurrences(LiveData<T> plain, long start, long end,
+                                                   BiFunction<T, List<TodoListRow>, T> merge) {
+        LiveData<List<RecurringTodoRow>> recurring = todoDao.getRecurringTodos();
+        LiveData<List<RecurrenceExceptionEntity>> exceptions = todoDao.getRecurrenceExceptionsBetween(start, end);
+        MediatorLiveData<T> result = new MediatorLiveData<>();
+        AtomicLong latest = new AtomicLong();
+        Runnable update = () -> {
+            T plainValue = plain.getValue();
+            List<RecurringTodoRow> rules = recurring.getValue();
+            List<RecurrenceExceptionEntity> done = exceptions.getValue();
+            if (plainValue == null || rules == null || done == null) return;
+            long generation = latest.incrementAndGet();
+            AppExecutors.getInstance().reader().execute(() -> {
+                if (generation != latest.get()) return;
+                T merged = merge.apply(plainValue, OccurrenceExpander.expand(rules, done, start, end, null));
+                // 检查和提交在同一把锁内，较早的结果不会在较新的之后提交
+                synchronized (latest) {
+                    if (generation == latest.get()) {
+                        result.postValue(merged);
+                    }
+                }
+            });
+        };
+        result.addSource(plain, value -> update.run());
+        result.addSource(recurring, value -> update.run());
+        result.addSource(exceptions, value -> update.run());
+        return result;
+    }
+    
+    /**
+     * 获取指定时间所在日期的0点
+     */
+    public static long startOfDay(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+    
+    /**
+     * 获取指定时间所在月份1号的0点
+     */
+    public static long startOfMonth(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(timeMillis));
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+    
+    /**
+     * 获取当天最后一毫秒（按日历加一天，兼容夏令时）
+     */
+    public static long endOfDay(long startOfDay) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis() - 1;
+    }
+    
+    /**
+     * 分页获取未完成的待办事项
+     */
+    public LiveData<PagingData<TodoListRow>> getIncompleteTodosPaged() {
+        return createPagedTodos(todoDao::getIncompleteTodosPaged);
+    }
+    
+    /**
+     * 分页获取已完成的待办事项
+     */
+    public LiveData<PagingData<TodoListRow>> getCompletedTodosPaged() {
+        return createPagedTodos(todoDao::getCompletedTodosPaged);
+    }
+    
+    /**
+     * 分页获取归档的待办事项
+     */
+    public LiveData<PagingData<TodoListRow>> getArchivedTodosPaged() {
+        return createPagedTodos(todoDao::getArchivedTodosPaged);
+    }
+    
+    /**
+     * 根据PagingSource工厂创建分页数据流，列表行投影无需再做实体转换
+     */
+    private LiveData<PagingData<TodoListRow>> createPagedTodos(Supplier<PagingSource<Integer, TodoListRow>> sourceFactory) {
+        Pager<Integer, TodoListRow> pager = new Pager<>(
+            new PagingConfig(PAGE_SIZE, PAGE_SIZE, false),
+            sourceFactory::get
+        );
+        return PagingLiveData.getLiveData(pager);
+    }
+    
     /**
      * 插入新的待办事项
      */
     public void insertTodo(Todo todo) {
-        executor.execute(() -> todoDao.insertTodo(todoToEntity(todo)));
+        cachePending(Collections.singletonList(todo));
+        outbox.append(WriteOp.insertTodos(Collections.singletonList(todoToEntity(todo)), subTasksToEntities(todo)));
     }
     
     /**
      * 更新待办事项
      */
     public void updateTodo(Todo todo) {
-        executor.execute(() -> todoDao.updateTodo(todoToEntity(todo)));
+        flushCoalesced();
+        cachePending(Collections.singletonList(todo));
+        outbox.append(WriteOp.updateTodos(Collections.singletonList(todoToEntity(todo)), subTasksToEntities(todo)));
     }
     
     /**
      * 删除待办事项
      */
     public void deleteTodo(Todo todo) {
-        executor.execute(() -> todoDao.deleteTodo(todoToEntity(todo)));
+        outbox.append(WriteOp.deleteTodos(Collections.singletonList(todo.getId())));
+    }
+    
+    /**
+     * 批量插入待办事项，所有行在同一事务中写入
+     */
+    public void insertTodos(List<Todo> todos) {
+        cachePending(todos);
+        outbox.append(WriteOp.insertTodos(todosToEntities(todos), allSubTasksToEntities(todos)));
+    }
+    
+    /**
+     * 批量更新待办事项，所有行在同一事务中写入
+     */
+    public void updateTodos(List<Todo> todos) {
+        flushCoalesced();
+        cachePending(todos);
+        outbox.append(WriteOp.updateTodos(todosToEntities(todos), allSubTasksToEntities(todos)));
+    }
+    
+    /**
+     * 批量设置完成状态
+     */
+    public void setTodosCompleted(List<String> ids, boolean completed) {
+        if (ids.isEmpty()) return;
+        Long completedAt = completed ? System.currentTimeMillis() : null;
+        outbox.append(WriteOp.setCompleted(new ArrayList<>(ids), completed, completedAt));
+    }
+    
+    /**
+     * 根据ID批量删除待办事项
+     */
+    public void deleteTodosByIds(List<String> ids) {
+        if (ids.isEmpty()) return;
+        outbox.append(WriteOp.deleteTodos(new ArrayList<>(ids)));
+    }
+    
+    /**
+     * 切换完成状态，只写completion两列，无需先读取整行
+     */
+    public void toggleTodoCompletion(String todoId) {
+        outbox.append(WriteOp.toggleCompleted(todoId, System.currentTimeMillis()));
+    }
+    
+    /**
+     * 设置完成状态
+     */
+    public void setTodoCompleted(String todoId, boolean completed) {
+        Long completedAt = completed ? System.currentTimeMillis() : null;
+        outbox.append(WriteOp.setCompleted(Collections.singletonList(todoId), completed, completedAt));
+    }
+    
+    /**
+     * 切换子任务完成状态；短时间内的连续切换合并为一次写入，只改内存，可在主线程调用
+     */
+    public void toggleSubTaskCompletion(String todoId, String subTaskId) {
+        if (coalescer == null) {
+            outbox.append(WriteOp.toggleSubTask(subTaskId));
+            return;
+        }
+        coalescer.toggleSubTask(todoId, subTaskId);
+    }
+    
+    /**
+     * 合并的子任务切换写入失败时回调，参数为需要按数据库重新显示的待办事项ID，在写线程上调用
+     * 合并器是共用的，传入null注销这个仓库的回调，不影响其他页面
+     */
+    public void setOnToggleRolledBackListener(Consumer<Set<String>> listener) {
+        if (coalescer == null) return;
+        synchronized (this) {
+            if (rollbackListener != null) {
+                coalescer.removeRollbackListener(rollbackListener);
+            }
+            rollbackListener = listener;
+            if (listener != null) {
+                coalescer.addRollbackListener(listener);
+            }
+        }
+    }
+    
+    /**
+     * 切换重复任务某一次发生的完成状态，只写入或删除一行完成记录
+     */
+    public void toggleOccurrence(String todoId, long occurrenceDate) {
+        outbox.append(WriteOp.toggleOccurrence(todoId, occurrenceDate, System.currentTimeMillis()));
+    }
+    
+    /**
+     * 在待办事项末尾追加子任务
+     */
+    public void appendSubTask(String todoId, SubTask subTask) {
+        outbox.append(WriteOp.appendSubTask(subTask.getId(), todoId, subTask.getTitle(), subTask.getCreatedAt()));
+    }
+    
+    /**
+     * 根据ID删除子任务
+     */
+    public void deleteSubTaskById(String subTaskId) {
+        outbox.append(WriteOp.deleteSubTask(subTaskId));
     }
     
     /**
      * 根据ID删除待办事项
      */
     public void deleteTodoById(String id) {
-        executor.execute(() -> todoDao.deleteTodoById(id));
+        outbox.append(WriteOp.deleteTodos(Collections.singletonList(id)));
     }
     
     /**
      * 删除所有已完成的待办事项
      */
     public void deleteCompletedTodos() {
-        executor.execute(() -> todoDao.deleteCompletedTodos());
+        outbox.append(WriteOp.deleteCompleted());
+    }
+    
+    /**
+     * 把归档的待办事项恢复为未完成
+     */
+    public void restoreArchivedTodo(String id) {
+        outbox.append(WriteOp.restoreArchived(id));
+    }
+    
+    /**
+     * 永久删除归档的待办事项
+     */
+    public void deleteArchivedTodo(String id) {
+        outbox.append(WriteOp.deleteArchived(id));
     }
     
     /**
-     * 获取待办事项总数
+     * 获取任务统计，逾期和今天到期按调用时刻计算，重复任务按当天的发生计数
      */
-    public int getTodoCount() {
-        return todoDao.getTodoCount();
+    public LiveData<TodoStats> getTodoStats() {
+        long now = System.currentTimeMillis();
+        long dayStart = startOfDay(now);
+        long dayEnd = endOfDay(dayStart);
+        return combineWithOccurrences(todoDao.getTodoStats(now, dayStart, dayEnd), dayStart, dayEnd,
+                (stats, occurrences) -> OccurrenceExpander.addToStats(stats, occurrences, now));
     }
     
     /**
-     * 获取未完成待办事项数量
+     * 全文检索待办事项，同步执行，需在后台线程调用
      */
-    public int getIncompleteCount() {
-        return todoDao.getIncompleteCount();
+    public List<TodoSearchResult> searchTodos(String query) {
+        return todoDao.search(query, SEARCH_LIMIT);
     }
     
     /**
-     * 获取已完成待办事项数量
+     * 整行写入子任务的完成状态，先写出积攒的切换，避免它们排在整行写入之后再切换一次
      */
-    public int getCompletedCount() {
-        return todoDao.getCompletedCount();
+    private void flushCoalesced() {
+        if (coalescer != null) {
+            coalescer.flush();
+        }
     }
     
     /**
-     * TodoEntity转换为Todo
+     * 整行写入的新值写穿到缓存；只改部分列的写操作不动缓存，写队列应用后涉及的ID会被丢弃
      */
-    private Todo entityToTodo(TodoEntity entity) {
-        return new Todo(
-            entity.id,
-            entity.title,
-            entity.description,
-            entity.isCompleted,
-            entity.priority,
-            entity.dueDate,
-            entity.subTasks,
-            entity.createdAt,
-            entity.completedAt
+    private void cachePending(List<Todo> todos) {
+        if (todoCache == null) return;
+        for (Todo todo : todos) {
+            todoCache.putPending(todo);
+        }
+    }
+    
+    /**
+     * TodoWithSubTasks转换为Todo
+     */
+    private Todo entityToTodo(TodoWithSubTasks entity) {
+        TodoEntity todo = entity.todo;
+        Todo result = new Todo(
+            todo.id,
+            todo.title,
+            todo.description,
+            todo.isCompleted,
+            todo.priority,
+            todo.dueDate,
+            entitiesToSubTasks(entity.subTasks),
+            todo.createdAt,
+            todo.completedAt
         );
+        result.setRecurrence(todo.recurrence);
+        return result;
+    }
+    
+    /**
+     * SubTaskEntity列表按position排序后转换为SubTask列表
+     */
+    private List<SubTask> entitiesToSubTasks(List<SubTaskEntity> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 按索引读出时通常已经有序，无需再复制一份排序
+        List<SubTaskEntity> sorted = entities;
+        for (int i = 1; i < entities.size(); i++) {
+            if (entities.get(i - 1).position > entities.get(i).position) {
+                sorted = new ArrayList<>(entities);
+                Collections.sort(sorted, (a, b) -> Integer.compare(a.position, b.position));
+                break;
+            }
+        }
+        List<SubTask> subTasks = new ArrayList<>(sorted.size());
+        for (SubTaskEntity entity : sorted) {
+            subTasks.add(new SubTask(entity.id, entity.title, entity.isCompleted, entity.createdAt));
+        }
+        return subTasks;
     }
     
     /**
      * Todo转换为TodoEntity
      */
     private TodoEntity todoToEntity(Todo todo) {
-        return new TodoEntity(
+        TodoEntity entity = new TodoEntity(
             todo.getId(),
             todo.getTitle(),
             todo.getDescription(),
             todo.isCompleted(),
             todo.getPriority(),
             todo.getDueDate(),
-            todo.getSubTasks(),
             todo.getCreatedAt(),
-            todo.getCompletedAt()
+            todo.getCompletedAt(),
+            todo.getSubTasks().size(),
+            todo.getCompletedSubTasksCount()
+        );
+        entity.recurrence = todo.getRecurrence();
+        return entity;
+    }
+    
+    /**
+     * Todo列表转换为TodoEntity列表
+     */
+    private List<TodoEntity> todosToEntities(List<Todo> todos) {
+        List<TodoEntity> entities = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            entities.add(todoToEntity(todo));
+        }
+        return entities;
+    }
+    
+    /**
+     * 多个Todo的子任务合并转换为一个SubTaskEntity列表
+     */
+    private List<SubTaskEntity> allSubTasksToEntities(List<Todo> todos) {
+        List<SubTaskEntity> entities = new ArrayList<>();
+        for (Todo todo : todos) {
+            entities.addAll(subTasksToEntities(todo));
+        }
+        return entities;
+    }
+    
+    /**
+     * Todo的子任务转换为SubTaskEntity列表
+     */
+    private List<SubTaskEntity> subTasksToEntities(Todo todo) {
+        List<SubTask> subTasks = todo.getSubTasks();
+        List<SubTaskEntity> entities = new ArrayList<>(subTasks.size());
+        for (int i = 0; i < subTasks.size(); i++) {
+            entities.add(subTaskToEntity(todo.getId(), i, subTasks.get(i)));
+        }
+        return entities;
+    }
+    
+    /**
+     * SubTask转换为SubTaskEntity
+     */
+    private SubTaskEntity subTaskToEntity(String todoId, int position, SubTask subTask) {
+        return new SubTaskEntity(
+            subTask.getId(),
+            todoId,
+            subTask.getTitle(),
+            subTask.isCompleted(),
+            subTask.getCreatedAt(),
+            position
         );
     }
 }
\ No newline at end of file
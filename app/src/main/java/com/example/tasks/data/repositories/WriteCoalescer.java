@@ -0,0 +1,254 @@
+package com.example.tasks.data.repositories;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.models.SubTask;
+import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.outbox.WriteOp;
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.util.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 合并短时间内连续的子任务切换
+ * 切换先按待办事项ID积攒，窗口结束后一起追加到写队列，在同一个事务中写入，只触发一次失效通知；
+ * 同一子任务切换偶数次相互抵消，不写入
+ * 写入数据库之前，按ID读取的结果叠加尚未写入的切换，界面立即反映每次点击；写入失败时撤销叠加并通知
+ * 切换在事务中执行后记下子任务写入后的值，提交前后读到的旧值或新值都以它为准，不会在提交和结果回调之间重复叠加
+ * 同一个写队列共用一个实例，各个页面的仓库看到同一份未写入的切换
+ */
+final class WriteCoalescer {
+    
+    private static final String TAG = "WriteCoalescer";
+    
+    /**
+     * 合并窗口，约为几帧
+     */
+    static final long WINDOW_MS = 50;
+    
+    private static volatile WriteCoalescer INSTANCE;
+    
+    private final WriteOutbox outbox;
+    private final Handler timer;
+    private final Executor writer;
+    private final long windowMs;
+    private final Object lock = new Object();
+    
+    /**
+     * 窗口内积攒的切换：待办事项ID -> 切换了奇数次的子任务ID
+     */
+    private final LinkedHashMap<String, Set<String>> buffered = new LinkedHashMap<>();
+    
+    /**
+     * 已追加到写队列、还没有在数据库中执行的切换次数，key为子任务ID
+     */
+    private final Map<String, Integer> inFlight = new HashMap<>();
+    
+    /**
+     * 已在事务中执行、还没有结果的切换：子任务ID -> 执行后的完成状态
+     */
+    private final Map<String, Boolean> executed = new HashMap<>();
+    
+    private final List<Consumer<Set<String>>> rollbackListeners = new CopyOnWriteArrayList<>();
+    private boolean scheduled;
+    
+    private long toggleCount;
+    private long writeCount;
+    
+    /**
+     * timer用于等待窗口结束，到期后在writer上追加到写队列
+     */
+    WriteCoalescer(WriteOutbox outbox, Handler timer, Executor writer, long windowMs) {
+        this.outbox = outbox;
+        this.timer = timer;
+        this.writer = writer;
+        this.windowMs = windowMs;
+    }
+    
+    /**
+     * 返回outbox对应的共用实例；写队列本身是进程内唯一的，实际上整个进程只有一个
+     */
+    static WriteCoalescer getInstance(WriteOutbox outbox) {
+        WriteCoalescer instance = INSTANCE;
+        if (instance == null || instance.outbox != outbox) {
+            synchronized (WriteCoalescer.class) {
+                if (INSTANCE == null || INSTANCE.outbox != outbox) {
+                    INSTANCE = new WriteCoalescer(outbox, new Handler(Looper.getMainLooper()),
+                            AppExecutors.getInstance().writer(), WINDOW_MS);
+                }
+                instance = INSTANCE;
+            }
+        }
+        return instance;
+    }
+    
+    /**
+     * 记录一次子任务切换，只改内存，可在主线程调用
+     */
+    void toggleSubTask(String todoId, String subTaskId) {
+        synchronized (lock) {
+            Set<String> subTaskIds = buffered.get(todoId);
+            if (subTaskIds == null) {
+                subTaskIds = new LinkedHashSet<>();
+                buffered.put(todoId, subTaskIds);
+            }
+            if (!subTaskIds.remove(subTaskId)) {
+                subTaskIds.add(subTaskId);
+            }
+            if (subTaskIds.isEmpty()) {
+                buffered.remove(todoId);
+            }
+            toggleCount++;
+            if (!scheduled) {
+                scheduled = true;
+                timer.postDelayed(() -> {
+                    synchronized (lock) {
+                        scheduled = false;
+                    }
+                    writer.execute(this::flush);
+                }, windowMs);
+            }
+        }
+    }
+    
+    /**
+     * 把积攒的切换作为一组追加到写队列
+     * 在锁内追加：整行更新之前调用，积攒的切换总是排在它前面，不会在整行写入之后再切换一次
+     */
+    void flush() {
+        synchronized (lock) {
+            if (buffered.isEmpty()) return;
+            Set<String> todoIds = new HashSet<>(buffered.keySet());
+            List<Toggle> toggles = new ArrayList<>();
+            List<WriteOp> ops = new ArrayList<>();
+            for (Set<String> ids : buffered.values()) {
+                for (String subTaskId : ids) {
+                    Toggle toggle = new Toggle(subTaskId);
+                    toggles.add(toggle);
+                    ops.add(WriteOp.toggleSubTask(subTaskId).withExecutedListener(toggle));
+                    inFlight.merge(subTaskId, 1, Integer::sum);
+                }
+            }
+            buffered.clear();
+            writeCount++;
+            outbox.appendAll(ops, applied -> onResult(todoIds, toggles, applied));
+        }
+    }
+    
+    /**
+     * 在子任务的完成状态上叠加还没有写入数据库的切换
+     * 已执行的切换直接取执行后的值，读到的是提交前还是提交后的数据都一样
+     */
+    void applyOverlay(Todo todo) {
+        synchronized (lock) {
+            if (buffered.isEmpty() && inFlight.isEmpty() && executed.isEmpty()) return;
+            Set<String> pending = buffered.get(todo.getId());
+            for (SubTask subTask : todo.getSubTasks()) {
+                boolean completed = executed.getOrDefault(subTask.getId(), subTask.isCompleted());
+                int flips = inFlight.getOrDefault(subTask.getId(), 0);
+                if (pending != null && pending.contains(subTask.getId())) {
+                    flips++;
+                }
+                subTask.setCompleted(flips % 2 == 1 ? !completed : completed);
+            }
+        }
+    }
+    
+    /**
+     * 注册写入失败的回调，参数为需要按数据库重新显示的待办事项ID，在写线程上调用
+     */
+    void addRollbackListener(@NonNull Consumer<Set<String>> listener) {
+        rollbackListeners.add(listener);
+    }
+    
+    void removeRollbackListener(Consumer<Set<String>> listener) {
+        rollbackListeners.remove(listener);
+    }
+    
+    /**
+     * 收到的切换次数
+     */
+    long getToggleCount() {
+        synchronized (lock) {
+            return toggleCount;
+        }
+    }
+    
+    /**
+     * 合并后实际追加到写队列的次数
+     */
+    long getWriteCount() {
+        synchronized (lock) {
+            return writeCount;
+        }
+    }
+    
+    /**
+     * 整组已提交或被丢弃：没有执行过的切换不再计入，执行后的值交还给数据库
+     */
+    private void onResult(Set<String> todoIds, List<Toggle> toggles, boolean applied) {
+        synchronized (lock) {
+            for (Toggle toggle : toggles) {
+                toggle.settle();
+                executed.remove(toggle.subTaskId);
+            }
+        }
+        if (applied) return;
+        Log.w(TAG, "子任务切换写入失败，撤销 " + todoIds.size() + " 个待办事项上的显示");
+        for (Consumer<Set<String>> listener : rollbackListeners) {
+            listener.accept(todoIds);
+        }
+    }
+    
+    /**
+     * 一次追加到写队列的子任务切换；整批事务失败后会逐条重试，执行回调可能不止一次，只在第一次扣减计数
+     */
+    private final class Toggle implements WriteOutbox.OnExecutedListener {
+        final String subTaskId;
+        
+        /**
+         * 是否已从inFlight中扣除，在lock内访问
+         */
+        private boolean settled;
+        
+        Toggle(String subTaskId) {
+            this.subTaskId = subTaskId;
+        }
+        
+        @Override
+        public void onExecuted(@NonNull TodoDao dao) {
+            SubTaskEntity stored = dao.getSubTaskById(subTaskId);
+            synchronized (lock) {
+                settle();
+                if (stored != null) {
+                    executed.put(subTaskId, stored.isCompleted);
+                } else {
+                    executed.remove(subTaskId);
+                }
+            }
+        }
+        
+        void settle() {
+            if (settled) return;
+            settled = true;
+            inFlight.computeIfPresent(subTaskId, (id, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+}
\ No newline at end of file
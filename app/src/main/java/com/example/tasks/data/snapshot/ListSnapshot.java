@@ -0,0 +1,166 @@
+package com.example.tasks.data.snapshot;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoStats;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 首屏列表快照：未完成列表的第一页和统计数字
+ * 二进制格式（大端）：magic、version、writtenAt、5个统计值、行数，之后逐行写入各字段，字符串为长度前缀的UTF-8
+ */
+public final class ListSnapshot {
+    
+    private static final int MAGIC = 0x54534E50; // "TSNP"
+    private static final int VERSION = 2;
+    
+    // 可空的Long用-1表示null，时间戳不会为负
+    private static final long NULL_TIME = -1L;
+    
+    private final long writtenAt;
+    private final TodoStats stats;
+    private final List<TodoListRow> rows;
+    
+    public ListSnapshot(long writtenAt, @NonNull TodoStats stats, @NonNull List<TodoListRow> rows) {
+        this.writtenAt = writtenAt;
+        this.stats = stats;
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+    }
+    
+    public long getWrittenAt() {
+        return writtenAt;
+    }
+    
+    public TodoStats getStats() {
+        return stats;
+    }
+    
+    public List<TodoListRow> getRows() {
+        return rows;
+    }
+    
+    /**
+     * 写入临时文件后重命名，读取方不会看到写了一半的快照
+     */
+    public void writeTo(@NonNull File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(writtenAt);
+            out.writeInt(stats.getTotalCount());
+            out.writeInt(stats.getCompletedCount());
+            out.writeInt(stats.getIncompleteCount());
+            out.writeInt(stats.getOverdueCount());
+            out.writeInt(stats.getDueTodayCount());
+            out.writeInt(rows.size());
+            for (TodoListRow row : rows) {
+                writeString(out, row.getId());
+                writeString(out, row.getTitle());
+                writeString(out, row.getDescriptionPreview());
+                out.writeBoolean(row.isCompleted());
+                out.writeByte(row.getPriority().getRank());
+                out.writeLong(row.getDueDate() != null ? row.getDueDate() : NULL_TIME);
+                out.writeLong(row.getCompletedAt() != null ? row.getCompletedAt() : NULL_TIME);
+                out.writeInt(row.getSubtaskTotal());
+                out.writeInt(row.getSubtaskDone());
+                writeString(out, row.getRecurrence());
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法替换快照文件 " + file);
+        }
+    }
+    
+    /**
+     * 以内存映射方式读取快照，文件不存在、版本不符或已损坏时返回null
+     */
+    @Nullable
+    public static ListSnapshot readFrom(@NonNull File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static ListSnapshot parse(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        long writtenAt = buffer.getLong();
+        TodoStats stats = new TodoStats(buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                buffer.getInt(), buffer.getInt());
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<TodoListRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(buffer);
+            String title = readString(buffer);
+            String descriptionPreview = readString(buffer);
+            boolean completed = buffer.get() != 0;
+            Priority priority = Priority.fromRank(buffer.get());
+            Long dueDate = readTime(buffer);
+            Long completedAt = readTime(buffer);
+            int subtaskTotal = buffer.getInt();
+            int subtaskDone = buffer.getInt();
+            String recurrence = readString(buffer);
+            rows.add(new TodoListRow(id, title, descriptionPreview, completed, priority,
+                    dueDate, completedAt, subtaskTotal, subtaskDone, recurrence));
+        }
+        return new ListSnapshot(writtenAt, stats, rows);
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("快照已损坏");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static Long readTime(ByteBuffer buffer) {
+        long value = buffer.getLong();
+        return value == NULL_TIME ? null : value;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.example.tasks.data.snapshot;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.InvalidationTracker;
+
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoStats;
+import com.example.tasks.data.repositories.OccurrenceExpander;
+import com.example.tasks.data.repositories.TodoRepository;
+import com.example.tasks.util.AppExecutors;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 首屏快照的读写
+ * 启动时直接映射读取上次写入的快照用于立即渲染，不等待Room打开数据库；
+ * todos表每次变化后防抖一段时间重新生成快照
+ */
+public final class ListSnapshotStore {
+    
+    private static final String TAG = "ListSnapshotStore";
+    private static final String FILE_NAME = "list_snapshot.bin";
+    
+    /**
+     * 快照行数，与首屏分页大小一致
+     */
+    private static final int SNAPSHOT_ROWS = 30;
+    
+    /**
+     * 连续写入合并为一次快照的等待时间
+     */
+    private static final long DEBOUNCE_MS = 1_000L;
+    
+    private static volatile ListSnapshotStore INSTANCE;
+    
+    private final File file;
+    private final TodoDao todoDao;
+    
+    /**
+     * 注册和写入在reader线程池上按顺序执行，两次快照写入不会并发
+     */
+    private final Executor executor = AppExecutors.getInstance().newSerialReader();
+    private final Object lock = new Object();
+    private ScheduledFuture<?> pendingWrite;
+    private boolean closed;
+    private ListSnapshot startupSnapshot;
+    private boolean startupSnapshotLoaded;
+    
+    private ListSnapshotStore(File file, TodoDatabase database) {
+        this.file = file;
+        this.todoDao = database.todoDao();
+        
+        // 观察者注册会访问数据库，放到后台线程；注册后先写一次，保证升级后也有快照
+        // 重复任务当天的完成记录影响统计，同时观察recurrence_exceptions
+        executor.execute(() -> {
+            database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer(
+                    "todos", "recurrence_exceptions") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    scheduleWrite();
+                }
+            });
+            scheduleWrite();
+        });
+    }
+    
+    public static ListSnapshotStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ListSnapshotStore.class) {
+                if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
+                    INSTANCE = new ListSnapshotStore(new File(appContext.getFilesDir(), FILE_NAME),
+                            TodoDatabase.getDatabase(appContext));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+    
+    /**
+     * 数据库文件被整体替换（从备份恢复）后调用：停止旧实例并删除快照，下次getInstance时基于新数据库重建
+     */
+    public static void reset(Context context) {
+        synchronized (ListSnapshotStore.class) {
+            if (INSTANCE != null) {
+                INSTANCE.close();
+                INSTANCE = null;
+            }
+            new File(context.getApplicationContext().getFilesDir(), FILE_NAME).delete();
+        }
+    }
+    
+    /**
+     * 本次进程启动时磁盘上的快照，只读取一次；没有可用快照时返回null
+     * 在主线程调用，快照只有几KB，映射读取的耗时远小于打开数据库
+     */
+    @Nullable
+    public ListSnapshot getStartupSnapshot() {
+        synchronized (lock) {
+            if (!startupSnapshotLoaded) {
+                startupSnapshot = ListSnapshot.readFrom(file);
+                startupSnapshotLoaded = true;
+            }
+            return startupSnapshot;
+        }
+    }
+    
+    /**
+     * 防抖：每次变化都推迟写入，直到变化停止DEBOUNCE_MS
+     */
+    private void scheduleWrite() {
+        synchronized (lock) {
+            if (closed) return;
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+            }
+            pendingWrite = AppExecutors.getInstance().schedule(this::write, DEBOUNCE_MS, TimeUnit.MILLISECONDS,
+                    executor);
+        }
+    }
+    
+    /**
+     * 取消等待中的写入，之后的变化不再生成快照
+     */
+    private void close() {
+        synchronized (lock) {
+            closed = true;
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+                pendingWrite = null;
+            }
+        }
+    }
+    
+    private void write() {
+        synchronized (lock) {
+            if (closed) return;
+        }
+        long now = System.currentTimeMillis();
+        long dayStart = TodoRepository.startOfDay(now);
+        long dayEnd = TodoRepository.endOfDay(dayStart);
+        TodoStats stats = OccurrenceExpander.addToStats(todoDao.getTodoStatsNow(now, dayStart, dayEnd),
+                OccurrenceExpander.expand(todoDao.getRecurringTodosNow(),
+                        todoDao.getRecurrenceExceptionsBetweenNow(dayStart, dayEnd), dayStart, dayEnd, null), now);
+        List<TodoListRow> rows = todoDao.getIncompleteTodosHead(SNAPSHOT_ROWS);
+        try {
+            new ListSnapshot(now, stats, rows).writeTo(file);
+        } catch (IOException e) {
+            // 快照只是启动优化，写入失败时下次启动按无快照处理
+            Log.w(TAG, "写入首屏快照失败", e);
+        }
+    }
+}
\ No newline at end of file
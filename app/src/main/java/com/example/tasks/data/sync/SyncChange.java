@@ -0,0 +1,53 @@
+package com.example.tasks.data.sync;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TodoEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一条待办事项的变化，推送和拉取共用
+ * 推送时version是本地副本基于的服务器版本号，拉取时是服务器上的当前版本号
+ */
+public final class SyncChange {
+    
+    @NonNull
+    public final String id;
+    public final boolean deleted;
+    public final long version;
+    
+    /**
+     * 修改或删除的时间，冲突时后写者胜
+     */
+    public final long updatedAt;
+    
+    /**
+     * 删除时为null
+     */
+    @Nullable
+    public final TodoEntity todo;
+    @NonNull
+    public final List<SubTaskEntity> subTasks;
+    
+    private SyncChange(@NonNull String id, boolean deleted, long version, long updatedAt,
+                       @Nullable TodoEntity todo, @NonNull List<SubTaskEntity> subTasks) {
+        this.id = id;
+        this.deleted = deleted;
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.todo = todo;
+        this.subTasks = subTasks;
+    }
+    
+    public static SyncChange upsert(@NonNull TodoEntity todo, @NonNull List<SubTaskEntity> subTasks) {
+        return new SyncChange(todo.id, false, todo.version, todo.updatedAt, todo, subTasks);
+    }
+    
+    public static SyncChange deletion(@NonNull String id, long version, long deletedAt) {
+        return new SyncChange(id, true, version, deletedAt, null, new ArrayList<>());
+    }
+}
\ No newline at end of file
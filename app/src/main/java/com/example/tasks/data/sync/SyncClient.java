@@ -0,0 +1,180 @@
+package com.example.tasks.data.sync;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * 同步服务器的HTTP客户端
+ * POST {base}/sync/push 上传一批变化，返回被接受的版本号和服务器上更新的冲突行；
+ * GET {base}/sync/pull?cursor=&limit= 拉取游标之后的一批变化
+ * 请求体gzip压缩；响应的gzip由OkHttp透明解压
+ */
+public class SyncClient {
+    
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String HEADER_DEVICE_ID = "X-Device-Id";
+    
+    private final OkHttpClient client;
+    private final HttpUrl baseUrl;
+    private final String deviceId;
+    
+    public SyncClient(@NonNull OkHttpClient client, @NonNull String baseUrl, @NonNull String deviceId) {
+        this.client = client;
+        this.baseUrl = HttpUrl.get(baseUrl);
+        this.deviceId = deviceId;
+    }
+    
+    /**
+     * 上传一批变化
+     */
+    public PushResult push(@NonNull List<SyncChange> changes) throws IOException {
+        Request request = new Request.Builder()
+                .url(baseUrl.newBuilder().addPathSegments("sync/push").build())
+                .header(HEADER_DEVICE_ID, deviceId)
+                .header("Content-Encoding", "gzip")
+                .post(new GzipJsonBody(changes, deviceId))
+                .build();
+        try (Response response = execute(request)) {
+            PushResult result = new PushResult();
+            JsonReader json = new JsonReader(response.body().charStream());
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (SyncCodec.FIELD_VERSIONS.equals(name)) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        result.versions.put(json.nextName(), json.nextLong());
+                    }
+                    json.endObject();
+                } else if (SyncCodec.FIELD_CONFLICTS.equals(name)) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        result.conflicts.add(SyncCodec.readChange(json));
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            return result;
+        }
+    }
+    
+    /**
+     * 拉取cursor之后的至多limit条变化，cursor为null时从头开始
+     */
+    public PullResult pull(@Nullable String cursor, int limit) throws IOException {
+        HttpUrl.Builder url = baseUrl.newBuilder()
+                .addPathSegments("sync/pull")
+                .addQueryParameter("limit", String.valueOf(limit));
+        if (cursor != null) {
+            url.addQueryParameter(SyncCodec.FIELD_CURSOR, cursor);
+        }
+        Request request = new Request.Builder()
+                .url(url.build())
+                .header(HEADER_DEVICE_ID, deviceId)
+                .get()
+                .build();
+        try (Response response = execute(request)) {
+            PullResult result = new PullResult();
+            result.cursor = cursor;
+            JsonReader json = new JsonReader(response.body().charStream());
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (SyncCodec.FIELD_CURSOR.equals(name)) {
+                    result.cursor = json.nextString();
+                } else if (SyncCodec.FIELD_HAS_MORE.equals(name)) {
+                    result.hasMore = json.nextBoolean();
+                } else if (SyncCodec.FIELD_CHANGES.equals(name)) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        result.changes.add(SyncCodec.readChange(json));
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            return result;
+        }
+    }
+    
+    private Response execute(Request request) throws IOException {
+        Response response = client.newCall(request).execute();
+        ResponseBody body = response.body();
+        if (!response.isSuccessful() || body == null) {
+            response.close();
+            throw new IOException("同步请求失败: " + response.code() + " " + request.url().encodedPath());
+        }
+        return response;
+    }
+    
+    /**
+     * 推送结果：被接受的变化的新版本号，以及因服务器上有更晚修改而被拒绝的行的服务器状态
+     */
+    public static final class PushResult {
+        public final Map<String, Long> versions = new HashMap<>();
+        public final List<SyncChange> conflicts = new ArrayList<>();
+    }
+    
+    public static final class PullResult {
+        @Nullable
+        public String cursor;
+        public boolean hasMore;
+        public final List<SyncChange> changes = new ArrayList<>();
+    }
+    
+    /**
+     * 写出时直接序列化并压缩到请求流，不在内存中保留完整的JSON
+     */
+    private static final class GzipJsonBody extends RequestBody {
+        private final List<SyncChange> changes;
+        private final String deviceId;
+        
+        GzipJsonBody(List<SyncChange> changes, String deviceId) {
+            this.changes = changes;
+            this.deviceId = deviceId;
+        }
+        
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+        
+        @Override
+        public void writeTo(@NonNull BufferedSink sink) throws IOException {
+            try (BufferedSink gzip = Okio.buffer(new GzipSink(sink))) {
+                Writer writer = new OutputStreamWriter(gzip.outputStream(), StandardCharsets.UTF_8);
+                JsonWriter json = new JsonWriter(writer);
+                SyncCodec.writePush(json, deviceId, changes);
+                json.flush();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.example.tasks.data.sync;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.SubTaskJsonCodec;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.SubTask;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * 同步协议的JSON编解码，流式读写，不经过反射
+ * 一条变化：{"id", "deleted", "version", "updatedAt", "todo": {...}}，删除时没有todo
+ */
+final class SyncCodec {
+    
+    static final String FIELD_DEVICE_ID = "deviceId";
+    static final String FIELD_CHANGES = "changes";
+    static final String FIELD_VERSIONS = "versions";
+    static final String FIELD_CONFLICTS = "conflicts";
+    static final String FIELD_CURSOR = "cursor";
+    static final String FIELD_HAS_MORE = "hasMore";
+    
+    static final String FIELD_ID = "id";
+    static final String FIELD_DELETED = "deleted";
+    static final String FIELD_VERSION = "version";
+    static final String FIELD_UPDATED_AT = "updatedAt";
+    static final String FIELD_TODO = "todo";
+    
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_DESCRIPTION = "description";
+    private static final String FIELD_COMPLETED = "isCompleted";
+    private static final String FIELD_PRIORITY = "priority";
+    private static final String FIELD_DUE_DATE = "dueDate";
+    private static final String FIELD_CREATED_AT = "createdAt";
+    private static final String FIELD_COMPLETED_AT = "completedAt";
+    private static final String FIELD_SUB_TASKS = "subTasks";
+    private static final String FIELD_RECURRENCE = "recurrence";
+    
+    private SyncCodec() {
+    }
+    
+    /**
+     * 推送请求体：{"deviceId", "changes": [...]}
+     */
+    static void writePush(JsonWriter json, String deviceId, List<SyncChange> changes) throws IOException {
+        json.beginObject();
+        json.name(FIELD_DEVICE_ID).value(deviceId);
+        json.name(FIELD_CHANGES).beginArray();
+        for (SyncChange change : changes) {
+            writeChange(json, change);
+        }
+        json.endArray();
+        json.endObject();
+    }
+    
+    static void writeChange(JsonWriter json, SyncChange change) throws IOException {
+        json.beginObject();
+        json.name(FIELD_ID).value(change.id);
+        json.name(FIELD_DELETED).value(change.deleted);
+        json.name(FIELD_VERSION).value(change.version);
+        json.name(FIELD_UPDATED_AT).value(change.updatedAt);
+        if (change.todo != null) {
+            TodoEntity todo = change.todo;
+            json.name(FIELD_TODO).beginObject();
+            json.name(FIELD_TITLE).value(todo.title);
+            json.name(FIELD_DESCRIPTION).value(todo.description);
+            json.name(FIELD_COMPLETED).value(todo.isCompleted);
+            json.name(FIELD_PRIORITY).value(todo.priority != null ? todo.priority.name() : Priority.MEDIUM.name());
+            json.name(FIELD_DUE_DATE).value(todo.dueDate);
+            json.name(FIELD_CREATED_AT).value(todo.createdAt);
+            json.name(FIELD_COMPLETED_AT).value(todo.completedAt);
+            json.name(FIELD_RECURRENCE).value(todo.recurrence);
+            json.name(FIELD_SUB_TASKS);
+            List<SubTask> subTasks = new ArrayList<>(change.subTasks.size());
+            for (SubTaskEntity subTask : change.subTasks) {
+                subTasks.add(new SubTask(subTask.id, subTask.title, subTask.isCompleted, subTask.createdAt));
+            }
+            SubTaskJsonCodec.write(json, subTasks);
+            json.endObject();
+        }
+        json.endObject();
+    }
+    
+    /**
+     * 读取一条变化，未知字段跳过，便于服务器增加字段
+     */
+    static SyncChange readChange(JsonReader json) throws IOException {
+        String id = null;
+        boolean deleted = false;
+        long version = 0;
+        long updatedAt = 0;
+        TodoEntity todo = null;
+        List<SubTask> subTasks = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case FIELD_ID:
+                    id = json.nextString();
+                    break;
+                case FIELD_DELETED:
+                    deleted = json.nextBoolean();
+                    break;
+                case FIELD_VERSION:
+                    version = json.nextLong();
+                    break;
+                case FIELD_UPDATED_AT:
+                    updatedAt = json.nextLong();
+                    break;
+                case FIELD_TODO:
+                    todo = new TodoEntity();
+                    subTasks = readTodo(json, todo);
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        if (id == null) {
+            throw new IOException("变化缺少id");
+        }
+        if (deleted || todo == null) {
+            return SyncChange.deletion(id, version, updatedAt);
+        }
+        todo.id = id;
+        todo.version = version;
+        todo.updatedAt = updatedAt;
+        return SyncChange.upsert(todo, toEntities(id, subTasks));
+    }
+    
+    private static List<SubTask> readTodo(JsonReader json, TodoEntity todo) throws IOException {
+        List<SubTask> subTasks = null;
+        todo.priority = Priority.MEDIUM;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case FIELD_TITLE:
+                    todo.title = json.nextString();
+                    break;
+                case FIELD_DESCRIPTION:
+                    todo.description = json.nextString();
+                    break;
+                case FIELD_COMPLETED:
+                    todo.isCompleted = json.nextBoolean();
+                    break;
+                case FIELD_PRIORITY:
+                    todo.priority = parsePriority(json.nextString());
+                    break;
+                case FIELD_DUE_DATE:
+                    todo.dueDate = json.nextLong();
+                    break;
+                case FIELD_CREATED_AT:
+                    todo.createdAt = json.nextLong();
+                    break;
+                case FIELD_COMPLETED_AT:
+                    todo.completedAt = json.nextLong();
+                    break;
+                case FIELD_RECURRENCE:
+                    todo.recurrence = json.nextString();
+                    break;
+                case FIELD_SUB_TASKS:
+                    subTasks = SubTaskJsonCodec.read(json);
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return subTasks;
+    }
+    
+    /**
+     * 子任务按数组顺序编号，缺失的ID重新生成
+     */
+    private static List<SubTaskEntity> toEntities(String todoId, List<SubTask> subTasks) {
+        List<SubTaskEntity> entities = new ArrayList<>();
+        if (subTasks == null) return entities;
+        int position = 0;
+        for (SubTask subTask : subTasks) {
+            String id = subTask.getId() != null ? subTask.getId() : UUID.randomUUID().toString();
+            entities.add(new SubTaskEntity(id, todoId, subTask.getTitle(), subTask.isCompleted(),
+                    subTask.getCreatedAt(), position++));
+        }
+        return entities;
+    }
+    
+    private static Priority parsePriority(String value) {
+        try {
+            return Priority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Priority.MEDIUM;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.example.tasks.data.sync;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.ChangeEntity;
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.database.TodoWithSubTasks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量同步：先把changes表中的本地变化分批推送，再从上次的游标开始分批拉取服务器上的变化
+ * 每批推送和应用各自在一个事务中完成，中途失败或取消时已完成的批次保留，下次从断点继续
+ */
+public class SyncEngine {
+    
+    /**
+     * 每次请求的变化条数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    
+    private final TodoDao todoDao;
+    private final SyncClient client;
+    private final SyncPreferences preferences;
+    private final int batchSize;
+    
+    public SyncEngine(@NonNull TodoDao todoDao, @NonNull SyncClient client, @NonNull SyncPreferences preferences) {
+        this(todoDao, client, preferences, DEFAULT_BATCH_SIZE);
+    }
+    
+    public SyncEngine(@NonNull TodoDao todoDao, @NonNull SyncClient client, @NonNull SyncPreferences preferences,
+                      int batchSize) {
+        this.todoDao = todoDao;
+        this.client = client;
+        this.preferences = preferences;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * 执行一次完整的推送和拉取；取消时抛出android.os.OperationCanceledException
+     */
+    public Stats sync(@Nullable CancellationSignal cancellation) throws IOException {
+        Stats stats = new Stats();
+        push(stats, cancellation);
+        pull(stats, cancellation);
+        preferences.setLastSyncAt(System.currentTimeMillis());
+        return stats;
+    }
+    
+    private void push(Stats stats, @Nullable CancellationSignal cancellation) throws IOException {
+        long afterSeq = 0;
+        while (true) {
+            if (cancellation != null) {
+                cancellation.throwIfCanceled();
+            }
+            List<ChangeEntity> pending = todoDao.getPendingChanges(afterSeq, batchSize);
+            if (pending.isEmpty()) break;
+            afterSeq = pending.get(pending.size() - 1).seq;
+            
+            List<String> ids = new ArrayList<>();
+            for (ChangeEntity change : pending) {
+                if (!change.deleted) ids.add(change.todoId);
+            }
+            Map<String, TodoWithSubTasks> todos = new HashMap<>();
+            for (List<String> chunk : TodoDao.chunked(ids)) {
+                for (TodoWithSubTasks todo : todoDao.getTodosWithSubTasksByIds(chunk)) {
+                    todos.put(todo.todo.id, todo);
+                }
+            }
+            
+            List<SyncChange> changes = new ArrayList<>(pending.size());
+            List<Long> seqs = new ArrayList<>(pending.size());
+            for (ChangeEntity change : pending) {
+                seqs.add(change.seq);
+                if (change.deleted) {
+                    changes.add(SyncChange.deletion(change.todoId, 0, change.changedAt));
+                    continue;
+                }
+                TodoWithSubTasks todo = todos.get(change.todoId);
+                // 行已不在todos中且没有删除记录，说明被移入了归档表，归档不同步
+                if (todo == null) continue;
+                List<SubTaskEntity> subTasks = new ArrayList<>(todo.subTasks);
+                subTasks.sort(Comparator.comparingInt(subTask -> subTask.position));
+                changes.add(SyncChange.upsert(todo.todo, subTasks));
+            }
+            
+            SyncClient.PushResult result = changes.isEmpty() ? new SyncClient.PushResult() : client.push(changes);
+            todoDao.acknowledgeChanges(seqs, result.versions);
+            stats.pushed += changes.size() - result.conflicts.size();
+            // 服务器上有更晚的修改，以服务器为准
+            stats.conflicts += result.conflicts.size();
+            apply(result.conflicts);
+            if (pending.size() < batchSize) break;
+        }
+    }
+    
+    private void pull(Stats stats, @Nullable CancellationSignal cancellation) throws IOException {
+        String cursor = preferences.getCursor();
+        while (true) {
+            if (cancellation != null) {
+                cancellation.throwIfCanceled();
+            }
+            SyncClient.PullResult result = client.pull(cursor, batchSize);
+            stats.pulled += apply(result.changes);
+            cursor = result.cursor;
+            preferences.setCursor(cursor);
+            if (!result.hasMore || result.changes.isEmpty()) break;
+        }
+    }
+    
+    private int apply(List<SyncChange> changes) {
+        if (changes.isEmpty()) return 0;
+        List<TodoEntity> upserts = new ArrayList<>();
+        List<SubTaskEntity> subTasks = new ArrayList<>();
+        Map<String, Long> deletions = new HashMap<>();
+        // 同一待办事项在一批中出现多次时只取最后一次
+        Map<String, SyncChange> latest = new LinkedHashMap<>();
+        for (SyncChange change : changes) {
+            latest.put(change.id, change);
+        }
+        for (SyncChange change : latest.values()) {
+            if (change.deleted || change.todo == null) {
+                deletions.put(change.id, change.updatedAt);
+            } else {
+                upserts.add(change.todo);
+                subTasks.addAll(change.subTasks);
+            }
+        }
+        return todoDao.applyRemoteChanges(upserts, subTasks, deletions);
+    }
+    
+    /**
+     * 一次同步的统计
+     */
+    public static final class Stats {
+        public int pushed;
+        public int pulled;
+        public int conflicts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.example.tasks.data.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.Nullable;
+import androidx.preference.PreferenceManager;
+
+import java.util.UUID;
+
+/**
+ * 同步设置和状态：服务器地址来自设置页，拉取游标和设备ID保存在单独的文件中
+ */
+public class SyncPreferences {
+    public static final String PREF_SERVER_URL = "sync_server_url";
+    
+    private static final String PREFS_NAME = "sync_state";
+    private static final String KEY_CURSOR = "cursor";
+    private static final String KEY_CURSOR_SERVER_URL = "cursor_server_url";
+    private static final String KEY_DEVICE_ID = "device_id";
+    private static final String KEY_LAST_SYNC_AT = "last_sync_at";
+    
+    private final SharedPreferences settings;
+    private final SharedPreferences state;
+    
+    public SyncPreferences(Context context) {
+        this(context, PREFS_NAME);
+    }
+    
+    /**
+     * 使用指定的状态文件，测试中模拟多台设备
+     */
+    public SyncPreferences(Context context, String stateName) {
+        this.settings = PreferenceManager.getDefaultSharedPreferences(context);
+        this.state = context.getSharedPreferences(stateName, Context.MODE_PRIVATE);
+    }
+    
+    /**
+     * 服务器地址，未配置时返回null，此时不同步
+     */
+    @Nullable
+    public String getServerUrl() {
+        String url = settings.getString(PREF_SERVER_URL, null);
+        return url == null || url.trim().isEmpty() ? null : url.trim();
+    }
+    
+    /**
+     * 上次拉取到的位置，由服务器给出，客户端不解析
+     */
+    @Nullable
+    public String getCursor() {
+        return state.getString(KEY_CURSOR, null);
+    }
+    
+    public void setCursor(@Nullable String cursor) {
+        state.edit().putString(KEY_CURSOR, cursor).apply();
+    }
+    
+    /**
+     * 游标所属的服务器地址，与当前地址不同时游标作废
+     */
+    @Nullable
+    public String getCursorServerUrl() {
+        return state.getString(KEY_CURSOR_SERVER_URL, null);
+    }
+    
+    public void setCursorServerUrl(@Nullable String url) {
+        state.edit().putString(KEY_CURSOR_SERVER_URL, url).apply();
+    }
+    
+    /**
+     * 本机的设备ID，首次调用时生成，服务器据此不把设备自己的推送再发回来
+     */
+    public String getDeviceId() {
+        String id = state.getString(KEY_DEVICE_ID, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+            state.edit().putString(KEY_DEVICE_ID, id).apply();
+        }
+        return id;
+    }
+    
+    public long getLastSyncAt() {
+        return state.getLong(KEY_LAST_SYNC_AT, 0);
+    }
+    
+    public void setLastSyncAt(long time) {
+        state.edit().putLong(KEY_LAST_SYNC_AT, time).apply();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.example.tasks.data.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * RFC 4180格式的CSV写出，逐行写入底层Writer
+ */
+final class CsvWriter implements Closeable {
+    
+    private final Writer out;
+    private boolean rowStarted;
+    
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+    
+    /**
+     * 写入一个字段，null写为空字段
+     */
+    CsvWriter field(String value) throws IOException {
+        if (rowStarted) {
+            out.write(',');
+        }
+        rowStarted = true;
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return this;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+        return this;
+    }
+    
+    CsvWriter field(long value) throws IOException {
+        return field(Long.toString(value));
+    }
+    
+    CsvWriter field(Long value) throws IOException {
+        return field(value != null ? value.toString() : null);
+    }
+    
+    CsvWriter field(boolean value) throws IOException {
+        return field(value ? "1" : "0");
+    }
+    
+    void endRow() throws IOException {
+        out.write("\r\n");
+        rowStarted = false;
+    }
+    
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.example.tasks.data.transfer;
+
+import android.database.Cursor;
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.SubTaskJsonCodec;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.models.Priority;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式导出：从数据库游标逐行读取，直接写入输出流
+ * 同一时刻内存中只有一条待办事项及其子任务，占用与数据量无关
+ */
+public class TodoExporter {
+    
+    /**
+     * 每处理这么多行报告一次进度
+     */
+    private static final int PROGRESS_INTERVAL = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final TodoDao todoDao;
+    
+    public TodoExporter(@NonNull TodoDao todoDao) {
+        this.todoDao = todoDao;
+    }
+    
+    /**
+     * 导出全部待办事项，返回导出的行数；不关闭out
+     * 取消时抛出android.os.OperationCanceledException
+     */
+    public long export(@NonNull OutputStream out, @NonNull TransferFormat format,
+                       @Nullable TransferListener listener, @Nullable CancellationSignal cancellation) throws IOException {
+        long total = todoDao.getTodoCount();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowSink sink = format == TransferFormat.CSV ? new CsvSink(writer) : new JsonSink(writer);
+        long count = 0;
+        try (Cursor todos = todoDao.exportTodos(); Cursor subTasks = todoDao.exportSubTasks()) {
+            TodoColumns todoColumns = new TodoColumns(todos);
+            SubTaskCursor subTaskCursor = new SubTaskCursor(subTasks);
+            sink.begin();
+            while (todos.moveToNext()) {
+                if (cancellation != null) {
+                    cancellation.throwIfCanceled();
+                }
+                TransferRecord record = todoColumns.read(todos);
+                record.subTasks = TransferRecord.toSubTasks(subTaskCursor.takeFor(record.id));
+                sink.write(record);
+                count++;
+                if (listener != null && count % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(count, total);
+                }
+            }
+            sink.end();
+        }
+        writer.flush();
+        if (listener != null) {
+            listener.onProgress(count, Math.max(total, count));
+        }
+        return count;
+    }
+    
+    private interface RowSink {
+        void begin() throws IOException;
+        
+        void write(TransferRecord record) throws IOException;
+        
+        void end() throws IOException;
+    }
+    
+    private static class JsonSink implements RowSink {
+        private final JsonWriter json;
+        
+        JsonSink(Writer writer) {
+            this.json = new JsonWriter(writer);
+        }
+        
+        @Override
+        public void begin() throws IOException {
+            json.beginObject();
+            json.name(TransferRecord.FIELD_VERSION).value(TransferRecord.FORMAT_VERSION);
+            json.name(TransferRecord.FIELD_TODOS).beginArray();
+        }
+        
+        @Override
+        public void write(TransferRecord record) throws IOException {
+            json.beginObject();
+            json.name(TransferRecord.FIELD_ID).value(record.id);
+            json.name(TransferRecord.FIELD_TITLE).value(record.title);
+            json.name(TransferRecord.FIELD_DESCRIPTION).value(record.description);
+            json.name(TransferRecord.FIELD_COMPLETED).value(record.isCompleted);
+            json.name(TransferRecord.FIELD_PRIORITY).value(record.priority.name());
+            json.name(TransferRecord.FIELD_DUE_DATE).value(record.dueDate);
+            json.name(TransferRecord.FIELD_CREATED_AT).value(record.createdAt);
+            json.name(TransferRecord.FIELD_COMPLETED_AT).value(record.completedAt);
+            json.name(TransferRecord.FIELD_SUB_TASKS);
+            SubTaskJsonCodec.write(json, record.subTasks);
+            json.name(TransferRecord.FIELD_RECURRENCE).value(record.recurrence);
+            json.endObject();
+        }
+        
+        @Override
+        public void end() throws IOException {
+            json.endArray();
+            json.endObject();
+            json.flush();
+        }
+    }
+    
+    private static class CsvSink implements RowSink {
+        private final CsvWriter csv;
+        
+        CsvSink(Writer writer) {
+            this.csv = new CsvWriter(writer);
+        }
+        
+        @Override
+        public void begin() throws IOException {
+            for (String column : TransferRecord.CSV_COLUMNS) {
+                csv.field(column);
+            }
+            csv.endRow();
+        }
+        
+        @Override
+        public void write(TransferRecord record) throws IOException {
+            csv.field(record.id)
+                    .field(record.title)
+                    .field(record.description)
+                    .field(record.isCompleted)
+                    .field(record.priority.name())
+                    .field(record.dueDate)
+                    .field(record.createdAt)
+                    .field(record.completedAt)
+                    // 子任务作为一个JSON数组字段，保持一行一条待办事项
+                    .field(record.subTasks.isEmpty() ? null : SubTaskJsonCodec.encode(record.subTasks))
+                    .field(record.recurrence);
+            csv.endRow();
+        }
+        
+        @Override
+        public void end() {
+        }
+    }
+    
+    /**
+     * todos游标的列下标，只查一次
+     */
+    private static class TodoColumns {
+        final int id;
+        final int title;
+        final int description;
+        final int isCompleted;
+        final int priority;
+        final int dueDate;
+        final int createdAt;
+        final int completedAt;
+        final int recurrence;
+        
+        TodoColumns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            title = cursor.getColumnIndexOrThrow("title");
+            description = cursor.getColumnIndexOrThrow("description");
+            isCompleted = cursor.getColumnIndexOrThrow("isCompleted");
+            priority = cursor.getColumnIndexOrThrow("priority");
+            dueDate = cursor.getColumnIndexOrThrow("dueDate");
+            createdAt = cursor.getColumnIndexOrThrow("createdAt");
+            completedAt = cursor.getColumnIndexOrThrow("completedAt");
+            recurrence = cursor.getColumnIndexOrThrow("recurrence");
+        }
+        
+        TransferRecord read(Cursor cursor) {
+            TransferRecord record = new TransferRecord();
+            record.id = cursor.getString(id);
+            record.title = cursor.getString(title);
+            record.description = cursor.getString(description);
+            record.isCompleted = cursor.getInt(isCompleted) != 0;
+            record.priority = cursor.isNull(priority) ? Priority.MEDIUM : Priority.fromRank(cursor.getInt(priority));
+            record.dueDate = cursor.isNull(dueDate) ? null : cursor.getLong(dueDate);
+            record.createdAt = cursor.getLong(createdAt);
+            record.completedAt = cursor.isNull(completedAt) ? null : cursor.getLong(completedAt);
+            record.recurrence = cursor.isNull(recurrence) ? null : cursor.getString(recurrence);
+            return record;
+        }
+    }
+    
+    /**
+     * subtasks游标与todos游标按同一键排序，随待办事项逐个向前推进
+     */
+    private static class SubTaskCursor {
+        private final Cursor cursor;
+        private final int id;
+        private final int todoId;
+        private final int title;
+        private final int isCompleted;
+        private final int createdAt;
+        private final int position;
+        private boolean hasRow;
+        
+        SubTaskCursor(Cursor cursor) {
+            this.cursor = cursor;
+            id = cursor.getColumnIndexOrThrow("id");
+            todoId = cursor.getColumnIndexOrThrow("todoId");
+            title = cursor.getColumnIndexOrThrow("title");
+            isCompleted = cursor.getColumnIndexOrThrow("isCompleted");
+            createdAt = cursor.getColumnIndexOrThrow("createdAt");
+            position = cursor.getColumnIndexOrThrow("position");
+            hasRow = cursor.moveToNext();
+        }
+        
+        /**
+         * 取出属于todoId的连续一段子任务
+         */
+        List<SubTaskEntity> takeFor(String owner) {
+            List<SubTaskEntity> result = new ArrayList<>();
+            while (hasRow && owner.equals(cursor.getString(todoId))) {
+                result.add(new SubTaskEntity(cursor.getString(id), owner, cursor.getString(title),
+                        cursor.getInt(isCompleted) != 0, cursor.getLong(createdAt), cursor.getInt(position)));
+                hasRow = cursor.moveToNext();
+            }
+            return result;
+        }
+    }
+}
\ No newline at end of file
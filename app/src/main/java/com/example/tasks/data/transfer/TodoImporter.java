@@ -0,0 +1,299 @@
+package com.example.tasks.data.transfer;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.SubTaskJsonCodec;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoEntity;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式导入：边解析边按批写入，每批一个事务，内存占用只与批大小有关
+ * 同ID的待办事项整体替换；取消或出错时已提交的批次保留
+ */
+public class TodoImporter {
+    
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final TodoDao todoDao;
+    private final int batchSize;
+    
+    public TodoImporter(@NonNull TodoDao todoDao) {
+        this(todoDao, DEFAULT_BATCH_SIZE);
+    }
+    
+    public TodoImporter(@NonNull TodoDao todoDao, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize必须大于0");
+        }
+        this.todoDao = todoDao;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * 导入输入流中的全部待办事项，返回导入的行数；不关闭in
+     * totalBytes为文件大小，未知时传-1，进度按已读取的字节数报告
+     * 取消时抛出android.os.OperationCanceledException
+     */
+    public long importFrom(@NonNull InputStream in, long totalBytes, @NonNull TransferFormat format,
+                           @Nullable TransferListener listener, @Nullable CancellationSignal cancellation) throws IOException {
+        CountingInputStream counting = new CountingInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        Reader reader = skipByteOrderMark(new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8)));
+        Batch batch = new Batch(counting, totalBytes, listener, cancellation);
+        if (format == TransferFormat.CSV) {
+            readCsv(new CsvReader(reader), batch);
+        } else {
+            readJson(new JsonReader(reader), batch);
+        }
+        batch.flush();
+        return batch.imported;
+    }
+    
+    /**
+     * 跳过表格软件保存CSV时常带的UTF-8 BOM
+     */
+    private static Reader skipByteOrderMark(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        return reader;
+    }
+    
+    /**
+     * 支持{"version":1,"todos":[...]}和顶层数组两种形式
+     */
+    private void readJson(JsonReader json, Batch batch) throws IOException {
+        try {
+            if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                readJsonArray(json, batch);
+                return;
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (TransferRecord.FIELD_VERSION.equals(name)) {
+                    int version = json.nextInt();
+                    if (version > TransferRecord.FORMAT_VERSION) {
+                        throw new IOException("不支持的导出文件版本: " + version);
+                    }
+                } else if (TransferRecord.FIELD_TODOS.equals(name)) {
+                    readJsonArray(json, batch);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("无法解析JSON导入文件", e);
+        }
+    }
+    
+    private void readJsonArray(JsonReader json, Batch batch) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            batch.add(readJsonRecord(json));
+        }
+        json.endArray();
+    }
+    
+    private static TransferRecord readJsonRecord(JsonReader json) throws IOException {
+        TransferRecord record = new TransferRecord();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case TransferRecord.FIELD_ID:
+                    record.id = json.nextString();
+                    break;
+                case TransferRecord.FIELD_TITLE:
+                    record.title = json.nextString();
+                    break;
+                case TransferRecord.FIELD_DESCRIPTION:
+                    record.description = json.nextString();
+                    break;
+                case TransferRecord.FIELD_COMPLETED:
+                    record.isCompleted = json.peek() == JsonToken.BOOLEAN ? json.nextBoolean() : json.nextInt() != 0;
+                    break;
+                case TransferRecord.FIELD_PRIORITY:
+                    record.priority = TransferRecord.parsePriority(json.nextString());
+                    break;
+                case TransferRecord.FIELD_DUE_DATE:
+                    record.dueDate = json.nextLong();
+                    break;
+                case TransferRecord.FIELD_CREATED_AT:
+                    record.createdAt = json.nextLong();
+                    break;
+                case TransferRecord.FIELD_COMPLETED_AT:
+                    record.completedAt = json.nextLong();
+                    break;
+                case TransferRecord.FIELD_SUB_TASKS:
+                    record.subTasks = SubTaskJsonCodec.read(json);
+                    break;
+                case TransferRecord.FIELD_RECURRENCE:
+                    record.recurrence = json.nextString();
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+        return record;
+    }
+    
+    /**
+     * 第一行为表头，按列名取值，列顺序和多余的列不影响解析
+     */
+    private void readCsv(CsvReader csv, Batch batch) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        if (!columns.containsKey(TransferRecord.FIELD_TITLE)) {
+            throw new IOException("CSV缺少title列");
+        }
+        List<String> row;
+        while ((row = csv.readRecord()) != null) {
+            try {
+                batch.add(readCsvRecord(row, columns));
+            } catch (NumberFormatException e) {
+                throw new IOException("无法解析CSV第" + (batch.imported + batch.todos.size() + 2) + "行", e);
+            }
+        }
+    }
+    
+    private static TransferRecord readCsvRecord(List<String> row, Map<String, Integer> columns) {
+        TransferRecord record = new TransferRecord();
+        record.id = cell(row, columns, TransferRecord.FIELD_ID);
+        record.title = cell(row, columns, TransferRecord.FIELD_TITLE);
+        record.description = cell(row, columns, TransferRecord.FIELD_DESCRIPTION);
+        String completed = cell(row, columns, TransferRecord.FIELD_COMPLETED);
+        record.isCompleted = "1".equals(completed) || "true".equalsIgnoreCase(completed);
+        record.priority = TransferRecord.parsePriority(cell(row, columns, TransferRecord.FIELD_PRIORITY));
+        record.dueDate = longCell(row, columns, TransferRecord.FIELD_DUE_DATE);
+        Long createdAt = longCell(row, columns, TransferRecord.FIELD_CREATED_AT);
+        if (createdAt != null) {
+            record.createdAt = createdAt;
+        }
+        record.completedAt = longCell(row, columns, TransferRecord.FIELD_COMPLETED_AT);
+        String subTasks = cell(row, columns, TransferRecord.FIELD_SUB_TASKS);
+        record.subTasks = subTasks != null ? SubTaskJsonCodec.decode(subTasks) : null;
+        record.recurrence = cell(row, columns, TransferRecord.FIELD_RECURRENCE);
+        return record;
+    }
+    
+    private static String cell(List<String> row, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= row.size()) return null;
+        String value = row.get(index);
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static Long longCell(List<String> row, Map<String, Integer> columns, String name) {
+        String value = cell(row, columns, name);
+        return value != null ? Long.parseLong(value.trim()) : null;
+    }
+    
+    /**
+     * 当前批次，攒满batchSize行后在一个事务中写入
+     */
+    private class Batch {
+        final CountingInputStream counting;
+        final long totalBytes;
+        final TransferListener listener;
+        final CancellationSignal cancellation;
+        final List<TodoEntity> todos = new ArrayList<>(batchSize);
+        final List<SubTaskEntity> subTasks = new ArrayList<>();
+        long imported;
+        
+        Batch(CountingInputStream counting, long totalBytes, TransferListener listener, CancellationSignal cancellation) {
+            this.counting = counting;
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+            this.cancellation = cancellation;
+        }
+        
+        void add(TransferRecord record) {
+            if (cancellation != null) {
+                cancellation.throwIfCanceled();
+            }
+            todos.add(record.toEntity(subTasks));
+            if (todos.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (!todos.isEmpty()) {
+                todoDao.replaceAllWithSubTasks(todos, subTasks);
+                imported += todos.size();
+                todos.clear();
+                subTasks.clear();
+            }
+            if (listener != null) {
+                listener.onProgress(counting.count, totalBytes);
+            }
+        }
+    }
+    
+    /**
+     * 统计已读取的字节数，用于报告进度
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
\ No newline at end of file
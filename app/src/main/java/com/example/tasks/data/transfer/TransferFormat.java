@@ -0,0 +1,42 @@
+package com.example.tasks.data.transfer;
+
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+
+/**
+ * 导入导出的文件格式
+ */
+public enum TransferFormat {
+    JSON("application/json", "json"),
+    CSV("text/csv", "csv");
+    
+    private final String mimeType;
+    private final String extension;
+    
+    TransferFormat(String mimeType, String extension) {
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+    
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    /**
+     * 根据MIME类型或文件名判断格式，无法判断时按JSON处理
+     */
+    public static TransferFormat detect(@Nullable String mimeType, @Nullable String fileName) {
+        if (mimeType != null && mimeType.toLowerCase(Locale.ROOT).contains("csv")) {
+            return CSV;
+        }
+        if (fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith("." + CSV.extension)) {
+            return CSV;
+        }
+        return JSON;
+    }
+}
\ No newline at end of file
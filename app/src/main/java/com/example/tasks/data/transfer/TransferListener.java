@@ -0,0 +1,13 @@
+package com.example.tasks.data.transfer;
+
+/**
+ * 导入导出进度回调，在执行导入导出的后台线程上调用
+ */
+public interface TransferListener {
+    
+    /**
+     * @param processed 已处理的量：导出为行数，导入为已读取的字节数
+     * @param total 总量，未知时为-1
+     */
+    void onProgress(long processed, long total);
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.tasks.data.transfer;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.SubTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * 导入导出文件中的字段名和一条待办事项记录，JSON和CSV共用
+ */
+final class TransferRecord {
+    
+    static final int FORMAT_VERSION = 1;
+    
+    static final String FIELD_VERSION = "version";
+    static final String FIELD_TODOS = "todos";
+    static final String FIELD_ID = "id";
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_COMPLETED = "isCompleted";
+    static final String FIELD_PRIORITY = "priority";
+    static final String FIELD_DUE_DATE = "dueDate";
+    static final String FIELD_CREATED_AT = "createdAt";
+    static final String FIELD_COMPLETED_AT = "completedAt";
+    static final String FIELD_SUB_TASKS = "subTasks";
+    static final String FIELD_RECURRENCE = "recurrence";
+    
+    /**
+     * CSV的列顺序；后加的列放在末尾，旧版本按列名读取时忽略
+     */
+    static final String[] CSV_COLUMNS = {
+        FIELD_ID, FIELD_TITLE, FIELD_DESCRIPTION, FIELD_COMPLETED, FIELD_PRIORITY,
+        FIELD_DUE_DATE, FIELD_CREATED_AT, FIELD_COMPLETED_AT, FIELD_SUB_TASKS, FIELD_RECURRENCE
+    };
+    
+    String id;
+    String title;
+    String description;
+    boolean isCompleted;
+    Priority priority;
+    Long dueDate;
+    // 文件中缺少创建时间时按导入时间处理
+    long createdAt = System.currentTimeMillis();
+    Long completedAt;
+    List<SubTask> subTasks;
+    // RRULE格式的重复规则，null表示不重复
+    String recurrence;
+    
+    /**
+     * 优先级按名称写出，文件可读且不依赖数据库中的rank
+     */
+    static Priority parsePriority(String value) {
+        if (value == null || value.isEmpty()) return Priority.MEDIUM;
+        try {
+            return Priority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Priority.MEDIUM;
+        }
+    }
+    
+    /**
+     * 转换为实体，缺失的ID重新生成；子任务追加到subTaskOut
+     */
+    TodoEntity toEntity(List<SubTaskEntity> subTaskOut) {
+        String todoId = id != null && !id.isEmpty() ? id : UUID.randomUUID().toString();
+        TodoEntity entity = new TodoEntity(todoId, title != null ? title : "", description, isCompleted,
+                priority != null ? priority : Priority.MEDIUM, dueDate, createdAt,
+                isCompleted ? completedAt : null);
+        entity.recurrence = recurrence;
+        if (subTasks != null) {
+            int position = 0;
+            for (SubTask subTask : subTasks) {
+                String subTaskId = subTask.getId() != null ? subTask.getId() : UUID.randomUUID().toString();
+                subTaskOut.add(new SubTaskEntity(subTaskId, todoId, subTask.getTitle(),
+                        subTask.isCompleted(), subTask.getCreatedAt(), position++));
+            }
+        }
+        return entity;
+    }
+    
+    /**
+     * 子任务实体转换为文件中的子任务
+     */
+    static List<SubTask> toSubTasks(List<SubTaskEntity> entities) {
+        List<SubTask> subTasks = new ArrayList<>(entities.size());
+        for (SubTaskEntity entity : entities) {
+            subTasks.add(new SubTask(entity.id, entity.title, entity.isCompleted, entity.createdAt));
+        }
+        return subTasks;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.example.tasks.data.work;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.preference.PreferenceManager;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期把完成较久的待办事项从todos移入archived_todos，使热表大小只取决于近期数据
+ * 每批在一个短事务中完成，批之间释放写锁，前台的读写不会被长时间阻塞
+ */
+public class ArchiveWorker extends Worker {
+    
+    public static final String PREF_ARCHIVE_AFTER_DAYS = "archive_after_days";
+    public static final String DEFAULT_ARCHIVE_AFTER_DAYS = "30";
+    public static final String KEY_ARCHIVED_COUNT = "archived_count";
+    
+    private static final String WORK_NAME = "archive_completed_todos";
+    
+    /**
+     * 每批移动的行数，需小于TodoDao.MAX_BIND_ARGS
+     */
+    static final int CHUNK_SIZE = 200;
+    
+    public ArchiveWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    /**
+     * 注册每天一次的归档任务，已注册时保持原有计划
+     */
+    public static void schedule(@NonNull Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(ArchiveWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        long archiveAfterDays = readArchiveAfterDays(getApplicationContext());
+        if (archiveAfterDays <= 0) {
+            // 设置为从不归档
+            return Result.success();
+        }
+        long now = System.currentTimeMillis();
+        long cutoff = now - TimeUnit.DAYS.toMillis(archiveAfterDays);
+        
+        TodoDao dao = TodoDatabase.getDatabase(getApplicationContext()).todoDao();
+        int archived = archiveInChunks(dao, cutoff, now);
+        return Result.success(new Data.Builder().putInt(KEY_ARCHIVED_COUNT, archived).build());
+    }
+    
+    /**
+     * 逐批归档直到没有更多可归档的行或任务被系统停止，返回移动的总行数
+     */
+    int archiveInChunks(TodoDao dao, long cutoff, long now) {
+        int total = 0;
+        while (!isStopped()) {
+            int moved = dao.archiveCompletedBefore(cutoff, CHUNK_SIZE, now);
+            total += moved;
+            if (moved < CHUNK_SIZE) break;
+        }
+        return total;
+    }
+    
+    private static long readArchiveAfterDays(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        try {
+            return Long.parseLong(prefs.getString(PREF_ARCHIVE_AFTER_DAYS, DEFAULT_ARCHIVE_AFTER_DAYS));
+        } catch (NumberFormatException e) {
+            return Long.parseLong(DEFAULT_ARCHIVE_AFTER_DAYS);
+        }
+    }
+}
\ No newline at end of file
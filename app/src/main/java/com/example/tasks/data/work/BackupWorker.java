@@ -0,0 +1,116 @@
+package com.example.tasks.data.work;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.tasks.data.database.DatabaseBackup;
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.data.reminder.ReminderScheduler;
+import com.example.tasks.data.repositories.TodoCache;
+import com.example.tasks.data.snapshot.ListSnapshotStore;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库备份与恢复的后台任务
+ * 定期任务每天写一份增量备份，增量备份累积到MAX_INCREMENTS份时改写完整备份，限制恢复时需要应用的文件数
+ */
+public class BackupWorker extends Worker {
+    
+    private static final String TAG = "BackupWorker";
+    private static final String PERIODIC_WORK_NAME = "database_backup";
+    private static final String MANUAL_WORK_NAME = "database_backup_manual";
+    
+    public static final String ACTION_BACKUP = "backup";
+    public static final String ACTION_RESTORE = "restore";
+    
+    public static final String KEY_ACTION = "action";
+    public static final String KEY_ERROR = "error";
+    
+    /**
+     * 一条备份链中增量备份的上限
+     */
+    static final int MAX_INCREMENTS = 7;
+    
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    /**
+     * 注册每天一次的备份任务，已注册时保持原有计划
+     */
+    public static void schedule(@NonNull Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(BackupWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder().putString(KEY_ACTION, ACTION_BACKUP).build())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+    
+    /**
+     * 立即执行一次备份或恢复，已有手动任务在执行时忽略本次提交；action同时作为标签，便于界面区分
+     */
+    public static void enqueue(@NonNull Context context, @NonNull String action) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BackupWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_ACTION, action).build())
+                .addTag(action)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(MANUAL_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+    
+    public static LiveData<List<WorkInfo>> getWorkInfos(@NonNull Context context) {
+        return WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(MANUAL_WORK_NAME);
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        String action = getInputData().getString(KEY_ACTION);
+        Data.Builder output = new Data.Builder().putString(KEY_ACTION, action);
+        DatabaseBackup backup = new DatabaseBackup(getApplicationContext());
+        try {
+            if (ACTION_RESTORE.equals(action)) {
+                backup.restoreLatest();
+                // 快照来自替换前的数据库
+                ListSnapshotStore.reset(getApplicationContext());
+                // 缓存的条目和失效观察者属于替换前的数据库
+                TodoCache.reset();
+                // 写队列日志中的记录属于替换前的数据库，不再重放
+                WriteOutbox.getInstance(getApplicationContext()).resetAfterRestore();
+                ReminderScheduler.getInstance(getApplicationContext()).rebuild();
+            } else {
+                int increments = backup.getIncrementalCount();
+                if (increments < 0 || increments >= MAX_INCREMENTS) {
+                    backup.backupFull();
+                } else {
+                    backup.backupIncremental();
+                }
+            }
+            return Result.success(output.build());
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "备份任务失败: " + action, e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return Result.failure(output.putString(KEY_ERROR, message).build());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.example.tasks.data.work;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.reminder.ReminderScheduler;
+import com.example.tasks.data.sync.SyncClient;
+import com.example.tasks.data.sync.SyncEngine;
+import com.example.tasks.data.sync.SyncPreferences;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * 与同步服务器交换增量变化，未配置服务器地址时直接结束
+ * 网络错误按指数退避重试，下次从上次完成的批次继续
+ */
+public class SyncWorker extends Worker {
+    
+    private static final String TAG = "SyncWorker";
+    private static final String PERIODIC_WORK_NAME = "todo_sync";
+    private static final String MANUAL_WORK_NAME = "todo_sync_manual";
+    
+    public static final String KEY_PUSHED = "pushed";
+    public static final String KEY_PULLED = "pulled";
+    public static final String KEY_ERROR = "error";
+    
+    private static volatile OkHttpClient httpClient;
+    
+    private final CancellationSignal cancellation = new CancellationSignal();
+    
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    /**
+     * 注册每6小时一次的同步任务，已注册时保持原有计划
+     */
+    public static void schedule(@NonNull Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SyncWorker.class, 6, TimeUnit.HOURS)
+                .setConstraints(networkConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+    
+    /**
+     * 立即同步一次，已有手动同步在执行时忽略本次提交
+     */
+    public static void syncNow(@NonNull Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(networkConstraints())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(MANUAL_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+    
+    public static LiveData<List<WorkInfo>> getWorkInfos(@NonNull Context context) {
+        return WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(MANUAL_WORK_NAME);
+    }
+    
+    private static Constraints networkConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+    }
+    
+    /**
+     * 进程内共用一个OkHttpClient，复用连接池
+     */
+    private static OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            synchronized (SyncWorker.class) {
+                if (httpClient == null) {
+                    httpClient = new OkHttpClient.Builder()
+                            .callTimeout(60, TimeUnit.SECONDS)
+                            .build();
+                }
+            }
+        }
+        return httpClient;
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        SyncPreferences preferences = new SyncPreferences(getApplicationContext());
+        String serverUrl = preferences.getServerUrl();
+        if (serverUrl == null) {
+            return Result.success();
+        }
+        try {
+            SyncClient client = new SyncClient(getHttpClient(), serverUrl, preferences.getDeviceId());
+            TodoDao dao = TodoDatabase.getDatabase(getApplicationContext()).todoDao();
+            if (!serverUrl.equals(preferences.getCursorServerUrl())) {
+                // 第一次连接这个服务器：从头拉取，并把本地全部数据记为待推送
+                dao.markAllPending();
+                preferences.setCursor(null);
+                preferences.setCursorServerUrl(serverUrl);
+            }
+            SyncEngine engine = new SyncEngine(dao, client, preferences);
+            SyncEngine.Stats stats = engine.sync(cancellation);
+            if (stats.pulled > 0) {
+                // 拉取的修改不经过写队列，提醒整体重建
+                ReminderScheduler.getInstance(getApplicationContext()).rebuild();
+            }
+            return Result.success(new Data.Builder()
+                    .putInt(KEY_PUSHED, stats.pushed)
+                    .putInt(KEY_PULLED, stats.pulled)
+                    .build());
+        } catch (OperationCanceledException e) {
+            return Result.failure();
+        } catch (IllegalArgumentException e) {
+            // 服务器地址格式错误，重试也不会成功
+            Log.w(TAG, "同步服务器地址无效: " + serverUrl, e);
+            return Result.failure(new Data.Builder().putString(KEY_ERROR, e.getMessage()).build());
+        } catch (IOException e) {
+            Log.w(TAG, "同步失败，稍后重试", e);
+            return Result.retry();
+        }
+    }
+    
+    @Override
+    public void onStopped() {
+        cancellation.cancel();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.example.tasks.data.work;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.reminder.ReminderScheduler;
+import com.example.tasks.data.transfer.TodoExporter;
+import com.example.tasks.data.transfer.TodoImporter;
+import com.example.tasks.data.transfer.TransferFormat;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 在后台执行导入或导出，进度通过WorkInfo.getProgress()报告，取消通过WorkManager.cancelUniqueWork
+ * 同一时刻只允许一个导入导出任务
+ */
+public class TransferWorker extends Worker {
+    
+    private static final String TAG = "TransferWorker";
+    private static final String WORK_NAME = "data_transfer";
+    
+    public static final String DIRECTION_EXPORT = "export";
+    public static final String DIRECTION_IMPORT = "import";
+    
+    public static final String KEY_DIRECTION = "direction";
+    public static final String KEY_URI = "uri";
+    public static final String KEY_FORMAT = "format";
+    public static final String KEY_PROCESSED = "processed";
+    public static final String KEY_TOTAL = "total";
+    public static final String KEY_ERROR = "error";
+    
+    /**
+     * 进度上报的最小间隔，避免频繁写入WorkManager数据库
+     */
+    private static final long PROGRESS_INTERVAL_MS = 200;
+    
+    private final CancellationSignal cancellation = new CancellationSignal();
+    private long lastProgressAt;
+    
+    public TransferWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    /**
+     * 提交导入或导出任务，已有任务在执行时忽略本次提交
+     */
+    public static void enqueue(@NonNull Context context, @NonNull String direction,
+                               @NonNull Uri uri, @NonNull TransferFormat format) {
+        Data input = new Data.Builder()
+                .putString(KEY_DIRECTION, direction)
+                .putString(KEY_URI, uri.toString())
+                .putString(KEY_FORMAT, format.name())
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(TransferWorker.class)
+                .setInputData(input)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+    
+    public static void cancel(@NonNull Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+    }
+    
+    public static LiveData<List<WorkInfo>> getWorkInfos(@NonNull Context context) {
+        return WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(WORK_NAME);
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        String direction = getInputData().getString(KEY_DIRECTION);
+        String uriString = getInputData().getString(KEY_URI);
+        if (uriString == null) {
+            return Result.failure();
+        }
+        Uri uri = Uri.parse(uriString);
+        TransferFormat format = TransferFormat.valueOf(getInputData().getString(KEY_FORMAT));
+        boolean export = DIRECTION_EXPORT.equals(direction);
+        TodoDao dao = TodoDatabase.getDatabase(getApplicationContext()).todoDao();
+        try {
+            long processed = export ? export(dao, uri, format) : importFrom(dao, uri, format);
+            if (!export) {
+                ReminderScheduler.getInstance(getApplicationContext()).rebuild();
+            }
+            return Result.success(new Data.Builder()
+                    .putString(KEY_DIRECTION, direction)
+                    .putLong(KEY_PROCESSED, processed)
+                    .build());
+        } catch (OperationCanceledException e) {
+            if (export) deletePartialFile(uri);
+            return Result.failure();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "导入导出失败", e);
+            if (export) deletePartialFile(uri);
+            return Result.failure(new Data.Builder()
+                    .putString(KEY_DIRECTION, direction)
+                    .putString(KEY_ERROR, e.getMessage() != null ? e.getMessage() : e.toString())
+                    .build());
+        }
+    }
+    
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        cancellation.cancel();
+    }
+    
+    private long export(TodoDao dao, Uri uri, TransferFormat format) throws IOException {
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+        try (OutputStream out = resolver.openOutputStream(uri, "wt")) {
+            if (out == null) throw new FileNotFoundException(uri.toString());
+            return new TodoExporter(dao).export(out, format, this::reportProgress, cancellation);
+        }
+    }
+    
+    private long importFrom(TodoDao dao, Uri uri, TransferFormat format) throws IOException {
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+        long size = querySize(resolver, uri);
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new FileNotFoundException(uri.toString());
+            return new TodoImporter(dao).importFrom(in, size, format, this::reportProgress, cancellation);
+        }
+    }
+    
+    private void reportProgress(long processed, long total) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastProgressAt < PROGRESS_INTERVAL_MS) return;
+        lastProgressAt = now;
+        setProgressAsync(new Data.Builder()
+                .putString(KEY_DIRECTION, getInputData().getString(KEY_DIRECTION))
+                .putLong(KEY_PROCESSED, processed)
+                .putLong(KEY_TOTAL, total)
+                .build());
+    }
+    
+    private static long querySize(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (RuntimeException e) {
+            // 部分文档提供方不支持查询大小，按未知处理
+        }
+        return -1;
+    }
+    
+    /**
+     * 导出未完成时删除写了一半的文件
+     */
+    private void deletePartialFile(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(getApplicationContext().getContentResolver(), uri);
+        } catch (FileNotFoundException | RuntimeException e) {
+            Log.w(TAG, "删除未完成的导出文件失败", e);
+        }
+    }
+}
\ No newline at end of file
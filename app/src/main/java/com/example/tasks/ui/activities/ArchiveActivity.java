@@ -0,0 +1,87 @@
+package com.example.tasks.ui.activities;
+
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.view.View;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
+import androidx.recyclerview.widget.LinearLayoutManager;
+
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.data.repositories.TodoRepository;
+import com.example.tasks.databinding.ActivityArchiveBinding;
+import com.example.tasks.ui.adapters.ArchivedTodoAdapter;
+import com.example.tasks.ui.viewmodel.ArchiveViewModel;
+
+import kotlin.Unit;
+
+/**
+ * 归档页面，从归档表分页浏览已归档的任务
+ */
+public class ArchiveActivity extends AppCompatActivity {
+    
+    private ActivityArchiveBinding binding;
+    private ArchiveViewModel viewModel;
+    private ArchivedTodoAdapter adapter;
+    
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityArchiveBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        
+        setupToolbar();
+        setupViewModel();
+        setupRecyclerView();
+        
+        viewModel.getArchivedTodos().observe(this, pagingData ->
+                adapter.submitData(getLifecycle(), pagingData));
+    }
+    
+    private void setupToolbar() {
+        setSupportActionBar(binding.toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+    }
+    
+    private void setupViewModel() {
+        TodoDatabase database = TodoDatabase.getDatabase(this);
+        TodoRepository repository = new TodoRepository(database.todoDao(), WriteOutbox.getInstance(this));
+        ArchiveViewModel.Factory factory = new ArchiveViewModel.Factory(repository);
+        viewModel = new ViewModelProvider(this, factory).get(ArchiveViewModel.class);
+    }
+    
+    private void setupRecyclerView() {
+        adapter = new ArchivedTodoAdapter();
+        adapter.setOnRestoreListener(viewModel::restoreTodo);
+        adapter.setOnDeleteListener(viewModel::deleteTodo);
+        binding.recyclerViewArchived.setLayoutManager(new LinearLayoutManager(this));
+        binding.recyclerViewArchived.setAdapter(adapter);
+        
+        // 首次加载完成后才判断是否为空
+        adapter.addLoadStateListener(loadStates -> {
+            boolean empty = loadStates.getRefresh() instanceof LoadState.NotLoading && adapter.getItemCount() == 0;
+            binding.tvEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
+            return Unit.INSTANCE;
+        });
+    }
+    
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        binding = null;
+    }
+}
\ No newline at end of file
@@ -1,33 +1,51 @@
 package com.example.tasks.ui.activities;
 
+import android.Manifest;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.preference.PreferenceManager;
 
 import com.example.tasks.R;
 import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.data.reminder.ReminderScheduler;
+import com.example.tasks.data.snapshot.ListSnapshotStore;
+import com.example.tasks.data.work.ArchiveWorker;
+import com.example.tasks.data.work.BackupWorker;
+import com.example.tasks.data.work.SyncWorker;
 import com.example.tasks.data.models.Todo;
 import com.example.tasks.databinding.ActivityMainBinding;
+import com.example.tasks.data.repositories.TodoCache;
 import com.example.tasks.data.repositories.TodoRepository;
 import com.example.tasks.ui.fragments.AddTodoDialogFragment;
 import com.example.tasks.ui.fragments.AllTasksFragment;
 import com.example.tasks.ui.fragments.CalendarFragment;
 import com.example.tasks.ui.fragments.EditTodoDialogFragment;
 import com.example.tasks.ui.viewmodel.TodoViewModel;
+import com.example.tasks.util.StartupTimeline;
 
 public class MainActivity extends AppCompatActivity {
     private ActivityMainBinding binding;
     private TodoViewModel viewModel;
     private boolean isCalendarView = false;
+    private final ActivityResultLauncher<String> notificationPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(), granted -> { });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTimeline.mark(StartupTimeline.ACTIVITY_CREATE);
+        
         // 应用保存的主题设置
         applyThemeFromPreferences();
         
@@ -40,21 +58,40 @@ public class MainActivity extends AppCompatActivity {
 
         // 初始化数据库和Repository
         TodoDatabase database = TodoDatabase.getDatabase(this);
-        TodoRepository repository = new TodoRepository(database.todoDao());
+        TodoRepository repository = new TodoRepository(database.todoDao(), WriteOutbox.getInstance(this),
+                ListSnapshotStore.getInstance(this), TodoCache.getInstance(this));
         
         // 初始化ViewModel
         TodoViewModel.Factory factory = new TodoViewModel.Factory(repository);
         viewModel = new ViewModelProvider(this, factory).get(TodoViewModel.class);
 
+        // 注册后台归档、备份和同步任务，已注册时不会重复
+        ArchiveWorker.schedule(this);
+        BackupWorker.schedule(this);
+        SyncWorker.schedule(this);
+
         // 设置观察者
         setupObservers();
 
         // 设置点击事件
         setupClickListeners();
 
-        // 加载默认视图
+        // 加载默认视图；首次创建时读入截止时间，登记下一个提醒
         if (savedInstanceState == null) {
             loadDefaultView();
+            ReminderScheduler.getInstance(this).rebuild();
+            requestNotificationPermission();
+        }
+    }
+    
+    /**
+     * Android 13起发通知需要运行时权限，未授权时询问
+     */
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            notificationPermissionLauncher.launch(Manifest.permission.POST_NOTIFICATIONS);
         }
     }
     
@@ -156,8 +193,8 @@ public class MainActivity extends AppCompatActivity {
 
     private void showAddTodoDialog() {
         AddTodoDialogFragment dialog = new AddTodoDialogFragment();
-        dialog.setOnTodoAddedListener((title, description, priority, dueDate, subTasks) -> {
-            viewModel.addTodo(title, description, priority, dueDate, subTasks);
+        dialog.setOnTodoAddedListener((title, description, priority, dueDate, subTasks, recurrence) -> {
+            viewModel.addTodo(title, description, priority, dueDate, subTasks, recurrence);
         });
         dialog.show(getSupportFragmentManager(), "AddTodoDialog");
     }
@@ -165,8 +202,8 @@ public class MainActivity extends AppCompatActivity {
     private void showEditTodoDialog(Todo todo) {
         EditTodoDialogFragment dialog = new EditTodoDialogFragment();
         dialog.setTodo(todo);
-        dialog.setOnTodoUpdatedListener((todoId, title, description, priority, dueDate, subTasks) -> {
-            viewModel.updateTodo(todoId, title, description, priority, dueDate, subTasks);
+        dialog.setOnTodoUpdatedListener((todoId, title, description, priority, dueDate, subTasks, recurrence) -> {
+            viewModel.updateTodo(todoId, title, description, priority, dueDate, subTasks, recurrence);
         });
         dialog.show(getSupportFragmentManager(), "EditTodoDialog");
     }
@@ -0,0 +1,94 @@
+package com.example.tasks.ui.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.tasks.R;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.databinding.ItemArchivedTodoBinding;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 归档列表适配器，归档项只读，只能恢复或永久删除
+ */
+public class ArchivedTodoAdapter extends PagingDataAdapter<TodoListRow, ArchivedTodoAdapter.ArchivedViewHolder> {
+    
+    private Consumer<String> onRestoreListener;
+    private Consumer<String> onDeleteListener;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy年MM月dd日", Locale.getDefault());
+    
+    public ArchivedTodoAdapter() {
+        super(new TodoAdapter.TodoDiffCallback());
+    }
+    
+    public void setOnRestoreListener(Consumer<String> onRestoreListener) {
+        this.onRestoreListener = onRestoreListener;
+    }
+    
+    public void setOnDeleteListener(Consumer<String> onDeleteListener) {
+        this.onDeleteListener = onDeleteListener;
+    }
+    
+    @NonNull
+    @Override
+    public ArchivedViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemArchivedTodoBinding binding = ItemArchivedTodoBinding.inflate(
+            LayoutInflater.from(parent.getContext()), parent, false);
+        return new ArchivedViewHolder(binding);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ArchivedViewHolder holder, int position) {
+        TodoListRow todo = getItem(position);
+        if (todo != null) {
+            holder.bind(todo);
+        }
+    }
+    
+    class ArchivedViewHolder extends RecyclerView.ViewHolder {
+        private final ItemArchivedTodoBinding binding;
+        
+        ArchivedViewHolder(ItemArchivedTodoBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+        }
+        
+        void bind(TodoListRow todo) {
+            int priorityColor = binding.getRoot().getContext().getColor(todo.getPriority().getColorRes());
+            binding.priorityStripe.setBackgroundColor(priorityColor);
+            
+            binding.tvTitle.setText(todo.getTitle());
+            String description = todo.getDescriptionPreview();
+            binding.tvDescription.setText(description);
+            binding.tvDescription.setVisibility(description.isEmpty() ? View.GONE : View.VISIBLE);
+            
+            if (todo.getCompletedAt() != null) {
+                String completedAt = dateFormat.format(new Date(todo.getCompletedAt()));
+                binding.tvCompletedAt.setText(binding.getRoot().getContext().getString(R.string.completed_at, completedAt));
+                binding.tvCompletedAt.setVisibility(View.VISIBLE);
+            } else {
+                binding.tvCompletedAt.setVisibility(View.GONE);
+            }
+            
+            binding.btnRestore.setOnClickListener(v -> {
+                if (onRestoreListener != null) {
+                    onRestoreListener.accept(todo.getId());
+                }
+            });
+            binding.btnDelete.setOnClickListener(v -> {
+                if (onDeleteListener != null) {
+                    onDeleteListener.accept(todo.getId());
+                }
+            });
+        }
+    }
+}
\ No newline at end of file
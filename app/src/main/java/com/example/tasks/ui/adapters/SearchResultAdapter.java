@@ -0,0 +1,116 @@
+package com.example.tasks.ui.adapters;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.tasks.data.database.SearchIndex;
+import com.example.tasks.data.models.TodoSearchResult;
+import com.example.tasks.databinding.ItemSearchResultBinding;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 搜索结果适配器，点击结果打开编辑对话框
+ */
+public class SearchResultAdapter extends ListAdapter<TodoSearchResult, SearchResultAdapter.ResultViewHolder> {
+    
+    private Consumer<String> onResultClickListener;
+    
+    public SearchResultAdapter() {
+        super(new ResultDiffCallback());
+    }
+    
+    public void setOnResultClickListener(Consumer<String> onResultClickListener) {
+        this.onResultClickListener = onResultClickListener;
+    }
+    
+    @NonNull
+    @Override
+    public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemSearchResultBinding binding = ItemSearchResultBinding.inflate(
+            LayoutInflater.from(parent.getContext()), parent, false);
+        return new ResultViewHolder(binding);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+    
+    /**
+     * 把SearchIndex的高亮标记转换为加粗样式
+     */
+    static CharSequence highlight(String snippet) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        int start = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == SearchIndex.HIGHLIGHT_START) {
+                start = builder.length();
+            } else if (c == SearchIndex.HIGHLIGHT_END) {
+                if (start >= 0 && start < builder.length()) {
+                    builder.setSpan(new StyleSpan(Typeface.BOLD), start, builder.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                start = -1;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder;
+    }
+    
+    class ResultViewHolder extends RecyclerView.ViewHolder {
+        private final ItemSearchResultBinding binding;
+        
+        ResultViewHolder(ItemSearchResultBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+        }
+        
+        void bind(TodoSearchResult result) {
+            int priorityColor = binding.getRoot().getContext().getColor(result.getPriority().getColorRes());
+            binding.priorityStripe.setBackgroundColor(priorityColor);
+            
+            binding.tvTitle.setText(result.getTitle());
+            if (result.isCompleted()) {
+                binding.tvTitle.setPaintFlags(binding.tvTitle.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+            } else {
+                binding.tvTitle.setPaintFlags(binding.tvTitle.getPaintFlags() & ~Paint.STRIKE_THRU_TEXT_FLAG);
+            }
+            binding.tvSnippet.setText(highlight(result.getSnippet()));
+            
+            binding.getRoot().setOnClickListener(v -> {
+                if (onResultClickListener != null) {
+                    onResultClickListener.accept(result.getId());
+                }
+            });
+        }
+    }
+    
+    static class ResultDiffCallback extends DiffUtil.ItemCallback<TodoSearchResult> {
+        @Override
+        public boolean areItemsTheSame(@NonNull TodoSearchResult oldItem, @NonNull TodoSearchResult newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull TodoSearchResult oldItem, @NonNull TodoSearchResult newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && oldItem.getSnippet().equals(newItem.getSnippet())
+                    && oldItem.isCompleted() == newItem.isCompleted()
+                    && oldItem.getPriority() == newItem.getPriority();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.example.tasks.ui.adapters;
+
+import android.content.res.ColorStateList;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.AttrRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.tasks.R;
+import com.example.tasks.databinding.ItemSectionHeaderBinding;
+import com.google.android.material.color.MaterialColors;
+
+/**
+ * 任务分类头部适配器，只包含一个可折叠的头部项
+ */
+public class SectionHeaderAdapter extends RecyclerView.Adapter<SectionHeaderAdapter.HeaderViewHolder> {
+    
+    private final int titleRes;
+    private final int colorAttr;
+    private final int onColorAttr;
+    private int count;
+    private boolean expanded;
+    private Runnable onToggleListener;
+    
+    public SectionHeaderAdapter(@StringRes int titleRes, @AttrRes int colorAttr,
+                                @AttrRes int onColorAttr, boolean expanded) {
+        this.titleRes = titleRes;
+        this.colorAttr = colorAttr;
+        this.onColorAttr = onColorAttr;
+        this.expanded = expanded;
+    }
+    
+    public void setOnToggleListener(Runnable onToggleListener) {
+        this.onToggleListener = onToggleListener;
+    }
+    
+    public void setCount(int count) {
+        if (this.count != count) {
+            this.count = count;
+            notifyItemChanged(0);
+        }
+    }
+    
+    public void setExpanded(boolean expanded) {
+        if (this.expanded != expanded) {
+            this.expanded = expanded;
+            notifyItemChanged(0);
+        }
+    }
+    
+    public boolean isExpanded() {
+        return expanded;
+    }
+    
+    @NonNull
+    @Override
+    public HeaderViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemSectionHeaderBinding binding = ItemSectionHeaderBinding.inflate(
+            LayoutInflater.from(parent.getContext()), parent, false);
+        return new HeaderViewHolder(binding);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull HeaderViewHolder holder, int position) {
+        holder.bind();
+    }
+    
+    @Override
+    public int getItemCount() {
+        return 1;
+    }
+    
+    public class HeaderViewHolder extends RecyclerView.ViewHolder {
+        private final ItemSectionHeaderBinding binding;
+        
+        public HeaderViewHolder(ItemSectionHeaderBinding binding) {
+            super(binding.getRoot());
+            this.binding = binding;
+            
+            // 设置分类配色
+            int color = MaterialColors.getColor(binding.getRoot(), colorAttr);
+            int onColor = MaterialColors.getColor(binding.getRoot(), onColorAttr);
+            binding.iconExpand.setImageTintList(ColorStateList.valueOf(color));
+            binding.tvSectionTitle.setTextColor(color);
+            binding.chipCount.setTextColor(onColor);
+            binding.chipCount.setChipBackgroundColor(ColorStateList.valueOf(color));
+            
+            binding.getRoot().setOnClickListener(v -> {
+                if (onToggleListener != null) {
+                    onToggleListener.run();
+                }
+            });
+        }
+        
+        void bind() {
+            binding.tvSectionTitle.setText(binding.getRoot().getContext().getString(titleRes, count));
+            binding.chipCount.setText(String.valueOf(count));
+            binding.iconExpand.setImageResource(
+                expanded ? R.drawable.ic_expand_less_24 : R.drawable.ic_expand_more_24
+            );
+        }
+    }
+}
@@ -18,25 +18,43 @@ import com.example.tasks.R;
 import com.example.tasks.data.models.Priority;
 import com.example.tasks.data.models.SubTask;
 import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.models.TodoListRow;
 import com.example.tasks.databinding.ItemTodoBinding;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Todo RecyclerView适配器
  */
-public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
+public class TodoAdapter extends ListAdapter<TodoListRow, TodoAdapter.TodoViewHolder> {
+    
+    /**
+     * 展开时按需加载完整Todo，回调需在主线程执行
+     */
+    public interface TodoDetailsLoader {
+        void loadTodoDetails(String todoId, Consumer<Todo> callback);
+    }
+    
+    private static final int COLLAPSED_DESCRIPTION_LINES = 3;
     
     private OnTodoClickListener listener;
+    private TodoDetailsLoader detailsLoader;
+    private TodoSelection selection;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy年MM月dd日", Locale.getDefault());
     private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("MM月dd日 HH:mm", Locale.getDefault());
     
     // 保存展开状态的Map，key为todoId
     private final java.util.HashMap<String, Boolean> expandedStates = new java.util.HashMap<>();
     
+    // 已加载的完整Todo，key为todoId，只包含展开过的项
+    private final java.util.HashMap<String, Todo> loadedDetails = new java.util.HashMap<>();
+    
     public TodoAdapter() {
         super(new TodoDiffCallback());
     }
@@ -45,6 +63,32 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
         this.listener = listener;
     }
     
+    public void setDetailsLoader(TodoDetailsLoader detailsLoader) {
+        this.detailsLoader = detailsLoader;
+    }
+    
+    /**
+     * 设置多选状态，为null时不支持长按多选
+     */
+    public void setSelection(TodoSelection selection) {
+        this.selection = selection;
+    }
+    
+    /**
+     * 丢弃这些待办事项已加载的完整内容并重新绑定，用于子任务切换写入失败后按数据库重新显示
+     */
+    public void reloadDetails(Collection<String> todoIds) {
+        forgetDetails(todoIds);
+        notifyItemRangeChanged(0, getItemCount());
+    }
+    
+    /**
+     * 只丢弃完整内容，由分页适配器自己通知重新绑定
+     */
+    void forgetDetails(Collection<String> todoIds) {
+        loadedDetails.keySet().removeAll(todoIds);
+    }
+    
     @NonNull
     @Override
     public TodoViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -60,13 +104,16 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
     
     public class TodoViewHolder extends RecyclerView.ViewHolder {
         private final ItemTodoBinding binding;
+        private String boundTodoId;
         
         public TodoViewHolder(ItemTodoBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
         }
         
-        public void bind(Todo todo) {
+        public void bind(TodoListRow todo) {
+            boundTodoId = todo.getId();
+            
             // 获取该todo的展开状态
             boolean isSubTasksExpanded = expandedStates.getOrDefault(todo.getId(), false);
             
@@ -77,6 +124,8 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
             // 设置基本信息
             binding.tvTitle.setText(todo.getTitle());
             binding.checkboxCompleted.setChecked(todo.isCompleted());
+            // 重复任务在日历中按天完成，列表里勾选会结束整个系列，不允许
+            binding.checkboxCompleted.setEnabled(!todo.isRecurring());
             
             // 设置完成状态的视觉效果
             if (todo.isCompleted()) {
@@ -87,12 +136,13 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
                 binding.tvTitle.setAlpha(1.0f);
             }
             
-            // 设置描述
-            if (todo.getDescription().isEmpty()) {
+            // 设置描述（折叠时只显示预览）
+            if (todo.getDescriptionPreview().isEmpty()) {
                 binding.tvDescription.setVisibility(View.GONE);
             } else {
                 binding.tvDescription.setVisibility(View.VISIBLE);
-                binding.tvDescription.setText(todo.getDescription());
+                binding.tvDescription.setText(todo.getDescriptionPreview());
+                binding.tvDescription.setMaxLines(COLLAPSED_DESCRIPTION_LINES);
             }
             
             // 设置优先级Chip
@@ -139,11 +189,26 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
             // 显示/隐藏子任务列表
             binding.layoutSubtaskList.setVisibility(isSubTasksExpanded ? View.VISIBLE : View.GONE);
             
-            // 如果展开了，重新渲染子任务列表以反映最新状态
+            // 如果展开了，重新加载完整内容以反映最新状态
             if (isSubTasksExpanded) {
-                populateSubTasks(todo);
+                showDetails(todo);
             }
             
+            // 多选：长按进入多选模式，多选模式下点击切换选中
+            binding.getRoot().setChecked(selection != null && selection.isSelected(todo.getId()));
+            binding.getRoot().setOnLongClickListener(v -> {
+                if (selection == null || selection.isActive()) return false;
+                selection.toggle(todo.getId());
+                binding.getRoot().setChecked(true);
+                return true;
+            });
+            binding.getRoot().setOnClickListener(v -> {
+                if (selection != null && selection.isActive()) {
+                    selection.toggle(todo.getId());
+                    binding.getRoot().setChecked(selection.isSelected(todo.getId()));
+                }
+            });
+            
             // 设置点击事件
             binding.checkboxCompleted.setOnClickListener(v -> {
                 if (listener != null) {
@@ -176,11 +241,49 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
                 binding.layoutSubtaskList.setVisibility(newState ? View.VISIBLE : View.GONE);
                 
                 if (newState) {
-                    populateSubTasks(todo);
+                    showDetails(todo);
+                } else if (!todo.getDescriptionPreview().isEmpty()) {
+                    binding.tvDescription.setText(todo.getDescriptionPreview());
+                    binding.tvDescription.setMaxLines(COLLAPSED_DESCRIPTION_LINES);
                 }
             });
         }
         
+        /**
+         * 先用缓存的完整内容渲染，再从数据库加载最新内容
+         */
+        private void showDetails(TodoListRow row) {
+            Todo cached = loadedDetails.get(row.getId());
+            if (cached != null) {
+                renderDetails(cached);
+            }
+            if (detailsLoader == null) return;
+            
+            String todoId = row.getId();
+            detailsLoader.loadTodoDetails(todoId, todo -> {
+                if (todo == null) return;
+                loadedDetails.put(todoId, todo);
+                // ViewHolder可能已被复用到其他项
+                if (todoId.equals(boundTodoId) && expandedStates.getOrDefault(todoId, false)) {
+                    renderDetails(todo);
+                }
+            });
+        }
+        
+        /**
+         * 渲染完整描述和子任务列表
+         */
+        private void renderDetails(Todo todo) {
+            if (!todo.getDescription().isEmpty()) {
+                binding.tvDescription.setVisibility(View.VISIBLE);
+                binding.tvDescription.setText(todo.getDescription());
+                binding.tvDescription.setMaxLines(Integer.MAX_VALUE);
+            }
+            populateSubTasks(todo);
+            // 完整内容可能叠加了还没写入的子任务切换，比列表行的计数新
+            showSubTaskProgress(todo.getCompletedSubTasksCount(), todo.getSubTasks().size());
+        }
+        
         /**
          * 获取相对时间字符串（用于创建时间）
          */
@@ -246,16 +349,17 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
         /**
          * 更新子任务进度显示
          */
-        private void updateSubTaskProgress(Todo todo) {
-            int completed = todo.getCompletedSubTasksCount();
-            int total = todo.getSubTasks().size();
-            
+        private void updateSubTaskProgress(TodoListRow todo) {
+            showSubTaskProgress(todo.getSubtaskDone(), todo.getSubtaskTotal());
+        }
+        
+        private void showSubTaskProgress(int completed, int total) {
             if (total == 0) {
                 binding.tvSubtaskProgress.setText("暂无子任务");
                 binding.progressSubtasks.setProgress(0);
             } else {
                 binding.tvSubtaskProgress.setText("子任务 " + completed + "/" + total);
-                binding.progressSubtasks.setProgress((int) (todo.getSubTaskProgress() * 100));
+                binding.progressSubtasks.setProgress(completed * 100 / total);
             }
         }
         
@@ -276,18 +380,13 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
                 
                 checkBox.setChecked(subTask.isCompleted());
                 title.setText(subTask.getTitle());
+                styleSubTaskTitle(title, subTask.isCompleted());
                 
-                // 设置完成状态的视觉效果
-                if (subTask.isCompleted()) {
-                    title.setPaintFlags(title.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
-                    title.setAlpha(0.6f);
-                } else {
-                    title.setPaintFlags(title.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
-                    title.setAlpha(1.0f);
-                }
-                
-                // 子任务完成状态切换
+                // 子任务完成状态切换：先改本地的完整内容立即显示，写入由仓库合并后执行
                 checkBox.setOnClickListener(v -> {
+                    subTask.setCompleted(checkBox.isChecked());
+                    styleSubTaskTitle(title, subTask.isCompleted());
+                    showSubTaskProgress(todo.getCompletedSubTasksCount(), todo.getSubTasks().size());
                     if (listener != null) {
                         listener.onSubTaskToggle(todo.getId(), subTask.getId());
                     }
@@ -326,6 +425,19 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
             }
         }
         
+        /**
+         * 设置子任务完成状态的视觉效果
+         */
+        private void styleSubTaskTitle(TextView title, boolean completed) {
+            if (completed) {
+                title.setPaintFlags(title.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+                title.setAlpha(0.6f);
+            } else {
+                title.setPaintFlags(title.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
+                title.setAlpha(1.0f);
+            }
+        }
+        
         /**
          * 显示添加子任务对话框
          */
@@ -347,38 +459,25 @@ public class TodoAdapter extends ListAdapter<Todo, TodoAdapter.TodoViewHolder> {
         }
     }
     
-    private static class TodoDiffCallback extends DiffUtil.ItemCallback<Todo> {
+    static class TodoDiffCallback extends DiffUtil.ItemCallback<TodoListRow> {
         @Override
-        public boolean areItemsTheSame(@NonNull Todo oldItem, @NonNull Todo newItem) {
+        public boolean areItemsTheSame(@NonNull TodoListRow oldItem, @NonNull TodoListRow newItem) {
             return oldItem.getId().equals(newItem.getId());
         }
         
         @Override
-        public boolean areContentsTheSame(@NonNull Todo oldItem, @NonNull Todo newItem) {
-            // 比较所有关键字段
-            if (!oldItem.getTitle().equals(newItem.getTitle())) return false;
-            if (!oldItem.getDescription().equals(newItem.getDescription())) return false;
+        public boolean areContentsTheSame(@NonNull TodoListRow oldItem, @NonNull TodoListRow newItem) {
+            // 比较所有渲染用到的字段
+            if (!Objects.equals(oldItem.getTitle(), newItem.getTitle())) return false;
+            if (!oldItem.getDescriptionPreview().equals(newItem.getDescriptionPreview())) return false;
             if (oldItem.isCompleted() != newItem.isCompleted()) return false;
             if (oldItem.getPriority() != newItem.getPriority()) return false;
+            if (!Objects.equals(oldItem.getDueDate(), newItem.getDueDate())) return false;
+            if (oldItem.isRecurring() != newItem.isRecurring()) return false;
             
-            // 比较截止日期
-            if (oldItem.getDueDate() == null && newItem.getDueDate() != null) return false;
-            if (oldItem.getDueDate() != null && !oldItem.getDueDate().equals(newItem.getDueDate())) return false;
-            
-            // 比较子任务数量和状态
-            if (oldItem.getSubTasks().size() != newItem.getSubTasks().size()) return false;
-            
-            // 比较每个子任务
-            for (int i = 0; i < oldItem.getSubTasks().size(); i++) {
-                SubTask oldSubTask = oldItem.getSubTasks().get(i);
-                SubTask newSubTask = newItem.getSubTasks().get(i);
-                
-                if (!oldSubTask.getId().equals(newSubTask.getId())) return false;
-                if (!oldSubTask.getTitle().equals(newSubTask.getTitle())) return false;
-                if (oldSubTask.isCompleted() != newSubTask.isCompleted()) return false;
-            }
-            
-            return true;
+            // 比较子任务进度
+            if (oldItem.getSubtaskTotal() != newItem.getSubtaskTotal()) return false;
+            return oldItem.getSubtaskDone() == newItem.getSubtaskDone();
         }
     }
 }
\ No newline at end of file
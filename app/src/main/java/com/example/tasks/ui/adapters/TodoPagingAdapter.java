@@ -0,0 +1,57 @@
+package com.example.tasks.ui.adapters;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+
+import com.example.tasks.data.models.TodoListRow;
+
+import java.util.Collection;
+
+/**
+ * 分页加载的Todo适配器，只持有屏幕附近的若干页数据
+ */
+public class TodoPagingAdapter extends PagingDataAdapter<TodoListRow, TodoAdapter.TodoViewHolder> {
+    
+    // 复用TodoAdapter的ViewHolder、展开状态和绑定逻辑
+    private final TodoAdapter delegate = new TodoAdapter();
+    
+    public TodoPagingAdapter() {
+        super(new TodoAdapter.TodoDiffCallback());
+    }
+    
+    public void setOnTodoClickListener(OnTodoClickListener listener) {
+        delegate.setOnTodoClickListener(listener);
+    }
+    
+    public void setDetailsLoader(TodoAdapter.TodoDetailsLoader detailsLoader) {
+        delegate.setDetailsLoader(detailsLoader);
+    }
+    
+    public void setSelection(TodoSelection selection) {
+        delegate.setSelection(selection);
+    }
+    
+    /**
+     * 丢弃这些待办事项已加载的完整内容并重新绑定
+     */
+    public void reloadDetails(Collection<String> todoIds) {
+        delegate.forgetDetails(todoIds);
+        notifyItemRangeChanged(0, getItemCount());
+    }
+    
+    @NonNull
+    @Override
+    public TodoAdapter.TodoViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return delegate.onCreateViewHolder(parent, viewType);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull TodoAdapter.TodoViewHolder holder, int position) {
+        TodoListRow todo = getItem(position);
+        if (todo != null) {
+            holder.bind(todo);
+        }
+    }
+}
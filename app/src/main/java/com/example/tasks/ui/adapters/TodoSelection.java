@@ -0,0 +1,67 @@
+package com.example.tasks.ui.adapters;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 列表多选状态，同一页面的多个适配器共享一个实例
+ */
+public class TodoSelection {
+    
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(TodoSelection selection);
+    }
+    
+    private final Set<String> selectedIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener listener;
+    
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * 是否处于多选模式
+     */
+    public boolean isActive() {
+        return !selectedIds.isEmpty();
+    }
+    
+    public boolean isSelected(String todoId) {
+        return selectedIds.contains(todoId);
+    }
+    
+    public int size() {
+        return selectedIds.size();
+    }
+    
+    public List<String> getSelectedIds() {
+        return new ArrayList<>(selectedIds);
+    }
+    
+    /**
+     * 切换选中状态，取消最后一项时自动退出多选模式
+     */
+    public void toggle(String todoId) {
+        if (!selectedIds.remove(todoId)) {
+            selectedIds.add(todoId);
+        }
+        notifyChanged();
+    }
+    
+    /**
+     * 清空选择并退出多选模式
+     */
+    public void clear() {
+        if (selectedIds.isEmpty()) return;
+        selectedIds.clear();
+        notifyChanged();
+    }
+    
+    private void notifyChanged() {
+        if (listener != null) {
+            listener.onSelectionChanged(this);
+        }
+    }
+}
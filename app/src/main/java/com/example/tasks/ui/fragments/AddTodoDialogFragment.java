@@ -25,8 +25,10 @@ import com.example.tasks.R;
 import com.example.tasks.ai.AITaskParser;
 import com.example.tasks.ai.ParsedTask;
 import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.Recurrence;
 import com.example.tasks.data.models.SubTask;
 import com.example.tasks.databinding.DialogAddTodoBinding;
+import com.example.tasks.util.AppExecutors;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -55,11 +57,12 @@ public class AddTodoDialogFragment extends DialogFragment {
     // AI相关
     private AITaskParser aiParser;
     private ParsedTask currentParsedTask;
-    private Future<ParsedTask> aiParseTask;
+    private Future<?> aiParseTask;
     private boolean isAiModeEnabled = false;
     
     public interface OnTodoAddedListener {
-        void onTodoAdded(String title, String description, Priority priority, Long dueDate, List<SubTask> subTasks);
+        void onTodoAdded(String title, String description, Priority priority, Long dueDate, List<SubTask> subTasks,
+                         String recurrence);
     }
     
     public void setOnTodoAddedListener(OnTodoAddedListener listener) {
@@ -212,13 +215,10 @@ public class AddTodoDialogFragment extends DialogFragment {
         binding.btnAiParse.setText("🤖 AI分析中...");
         binding.btnAiParse.setEnabled(false);
         
-        // 异步执行AI解析
-        aiParseTask = aiParser.parseTaskAsync(input);
-        
-        // 在后台线程等待结果
-        new Thread(() -> {
+        // 在共用的网络线程池中解析，完成后切换到主线程更新UI
+        aiParseTask = AppExecutors.getInstance().network().submit(() -> {
             try {
-                ParsedTask result = aiParseTask.get();
+                ParsedTask result = aiParser.parseTask(input);
                 // 切换到主线程更新UI
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
@@ -237,7 +237,7 @@ public class AddTodoDialogFragment extends DialogFragment {
                     });
                 }
             }
-        }).start();
+        });
     }
     
     private void showAIResult(ParsedTask parsedTask) {
@@ -321,7 +321,7 @@ public class AddTodoDialogFragment extends DialogFragment {
         List<SubTask> subTasks = collectSubTasks();
         
         if (listener != null) {
-            listener.onTodoAdded(title, description, priority, selectedDueDate, subTasks);
+            listener.onTodoAdded(title, description, priority, selectedDueDate, subTasks, getSelectedRecurrence());
         }
         
         dismiss();
@@ -341,6 +341,21 @@ public class AddTodoDialogFragment extends DialogFragment {
         return Priority.MEDIUM; // 默认中等优先级
     }
     
+    /**
+     * 重复选项对应的RRULE，不重复返回null
+     */
+    private String getSelectedRecurrence() {
+        int checkedId = binding.chipGroupRepeat.getCheckedChipId();
+        if (checkedId == R.id.chip_repeat_daily) {
+            return Recurrence.RULE_DAILY;
+        } else if (checkedId == R.id.chip_repeat_weekly) {
+            return Recurrence.RULE_WEEKLY;
+        } else if (checkedId == R.id.chip_repeat_monthly) {
+            return Recurrence.RULE_MONTHLY;
+        }
+        return null;
+    }
+    
     private void showDatePicker() {
         Calendar calendar = Calendar.getInstance();
         DatePickerDialog dialog = new DatePickerDialog(
@@ -450,13 +465,10 @@ public class AddTodoDialogFragment extends DialogFragment {
         binding.btnAiAnalyze.setText("🤖 AI分析中...");
         binding.btnAiAnalyze.setEnabled(false);
         
-        // 异步执行AI解析
-        aiParseTask = aiParser.parseTaskAsync(input);
-        
-        // 在后台线程等待结果
-        new Thread(() -> {
+        // 在共用的网络线程池中解析，完成后切换到主线程更新UI
+        aiParseTask = AppExecutors.getInstance().network().submit(() -> {
             try {
-                ParsedTask result = aiParseTask.get();
+                ParsedTask result = aiParser.parseTask(input);
                 // 切换到主线程更新UI
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
@@ -482,7 +494,7 @@ public class AddTodoDialogFragment extends DialogFragment {
                     });
                 }
             }
-        }).start();
+        });
     }
     
     /**
@@ -608,10 +620,5 @@ public class AddTodoDialogFragment extends DialogFragment {
         if (aiParseTask != null && !aiParseTask.isDone()) {
             aiParseTask.cancel(true);
         }
-        
-        // 关闭AI解析器
-        if (aiParser != null) {
-            aiParser.shutdown();
-        }
     }
 }
\ No newline at end of file
@@ -1,30 +1,53 @@
 package com.example.tasks.ui.fragments;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.tasks.R;
-import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.models.TodoStats;
+import com.example.tasks.data.snapshot.ListSnapshot;
 import com.example.tasks.ui.adapters.OnTodoClickListener;
-import com.example.tasks.ui.adapters.TodoAdapter;
+import com.example.tasks.ui.adapters.SearchResultAdapter;
+import com.example.tasks.ui.adapters.SectionHeaderAdapter;
+import com.example.tasks.ui.adapters.TodoPagingAdapter;
+import com.example.tasks.ui.adapters.TodoSelection;
 import com.example.tasks.databinding.FragmentAllTasksBinding;
 import com.example.tasks.ui.viewmodel.TodoViewModel;
+import com.example.tasks.util.StartupTimeline;
+
+import kotlin.Unit;
 
 public class AllTasksFragment extends Fragment {
     private FragmentAllTasksBinding binding;
     private TodoViewModel viewModel;
-    private TodoAdapter incompleteAdapter;
-    private TodoAdapter completedAdapter;
-    private boolean isCompletedExpanded = false;
-    private boolean isIncompleteExpanded = true;
+    private TodoPagingAdapter incompleteAdapter;
+    private TodoPagingAdapter completedAdapter;
+    private SectionHeaderAdapter incompleteHeader;
+    private SectionHeaderAdapter completedHeader;
+    private ConcatAdapter concatAdapter;
+    private SearchResultAdapter searchAdapter;
+    private final TodoSelection selection = new TodoSelection();
+    private ActionMode actionMode;
+    private int totalCount;
+    private boolean searching;
+    private boolean liveDataSubmitted;
 
     @Nullable
     @Override
@@ -46,15 +69,20 @@ public class AllTasksFragment extends Fragment {
     }
 
     private void setupRecyclerViews() {
-        // 设置未完成任务RecyclerView
-        incompleteAdapter = new TodoAdapter();
-        binding.recyclerViewIncomplete.setLayoutManager(new LinearLayoutManager(requireContext()));
-        binding.recyclerViewIncomplete.setAdapter(incompleteAdapter);
-
-        // 设置已完成任务RecyclerView
-        completedAdapter = new TodoAdapter();
-        binding.recyclerViewCompleted.setLayoutManager(new LinearLayoutManager(requireContext()));
-        binding.recyclerViewCompleted.setAdapter(completedAdapter);
+        // 分类头部和分页列表拼接到同一个RecyclerView，只绑定屏幕上可见的项
+        incompleteHeader = new SectionHeaderAdapter(R.string.incomplete_section,
+                com.google.android.material.R.attr.colorPrimary,
+                com.google.android.material.R.attr.colorOnPrimary, true);
+        completedHeader = new SectionHeaderAdapter(R.string.completed_section,
+                com.google.android.material.R.attr.colorTertiary,
+                com.google.android.material.R.attr.colorOnTertiary, false);
+        incompleteAdapter = new TodoPagingAdapter();
+        completedAdapter = new TodoPagingAdapter();
+
+        // 已完成分类默认折叠
+        concatAdapter = new ConcatAdapter(incompleteHeader, incompleteAdapter, completedHeader);
+        binding.recyclerViewTasks.setLayoutManager(new LinearLayoutManager(requireContext()));
+        binding.recyclerViewTasks.setAdapter(concatAdapter);
 
         // 设置适配器回调
         OnTodoClickListener todoClickListener = new OnTodoClickListener() {
@@ -86,100 +114,233 @@ public class AllTasksFragment extends Fragment {
 
         incompleteAdapter.setOnTodoClickListener(todoClickListener);
         completedAdapter.setOnTodoClickListener(todoClickListener);
+        incompleteAdapter.setDetailsLoader(viewModel::loadTodoDetails);
+        completedAdapter.setDetailsLoader(viewModel::loadTodoDetails);
+
+        // 两个分类共享同一个多选状态
+        incompleteAdapter.setSelection(selection);
+        completedAdapter.setSelection(selection);
+        selection.setOnSelectionChangedListener(this::onSelectionChanged);
+
+        searchAdapter = new SearchResultAdapter();
+        searchAdapter.setOnResultClickListener(viewModel::startEditingTodo);
     }
 
     private void setupObservers() {
-        // 观察Todo列表并分类
-        viewModel.getAllTodos().observe(getViewLifecycleOwner(), todos -> {
-            if (todos != null) {
-                // 分离未完成和已完成任务
-                java.util.List<Todo> incompleteTodos = new java.util.ArrayList<>();
-                java.util.List<Todo> completedTodos = new java.util.ArrayList<>();
-
-                for (Todo todo : todos) {
-                    if (todo.isCompleted()) {
-                        completedTodos.add(todo);
-                    } else {
-                        incompleteTodos.add(todo);
-                    }
-                }
-
-                // 更新适配器
-                incompleteAdapter.submitList(incompleteTodos);
-                completedAdapter.submitList(completedTodos);
-
-                // 更新UI和计数
-                updateCategoryCounts(incompleteTodos.size(), completedTodos.size());
-                updateUI(todos.size());
+        // 冷启动时先用磁盘快照渲染首屏，实时数据的第一页到达后由分页适配器按差异替换
+        ListSnapshot snapshot = viewModel.consumeStartupSnapshot();
+        if (snapshot != null) {
+            StartupTimeline.mark(StartupTimeline.SNAPSHOT_LOADED, snapshot.getRows().size() + " rows");
+            bindStats(snapshot.getStats());
+            incompleteAdapter.submitData(getViewLifecycleOwner().getLifecycle(), PagingData.from(snapshot.getRows()));
+            if (!snapshot.getRows().isEmpty()) {
+                markOnNextDraw(StartupTimeline.FIRST_ROW_SNAPSHOT);
             }
+        }
+        incompleteAdapter.addOnPagesUpdatedListener(() -> {
+            if (liveDataSubmitted && incompleteAdapter.getItemCount() > 0) {
+                markOnNextDraw(StartupTimeline.FIRST_ROW_LIVE);
+            }
+            return Unit.INSTANCE;
+        });
+
+        // 观察分页数据
+        viewModel.getIncompleteTodosPaged().observe(getViewLifecycleOwner(), pagingData -> {
+            liveDataSubmitted = true;
+            incompleteAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
+        });
+
+        viewModel.getCompletedTodosPaged().observe(getViewLifecycleOwner(), pagingData ->
+                completedAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData));
+
+        // 观察统计数据，一条聚合查询同时更新所有计数
+        viewModel.getTodoStats().observe(getViewLifecycleOwner(), this::bindStats);
+
+        // 观察搜索结果，只接收最后一次输入对应的结果
+        viewModel.getSearchResults().observe(getViewLifecycleOwner(), results -> {
+            searchAdapter.submitList(results, this::updateUI);
+        });
+
+        // 子任务切换写入失败，按数据库重新显示
+        viewModel.getRolledBackTodoIds().observe(getViewLifecycleOwner(), todoIds -> {
+            incompleteAdapter.reloadDetails(todoIds);
+            completedAdapter.reloadDetails(todoIds);
         });
+    }
 
-        // 观察统计数据
-        viewModel.getTotalCount().observe(getViewLifecycleOwner(), count ->
-                binding.tvTotalCount.setText(String.valueOf(count)));
+    private void bindStats(TodoStats stats) {
+        binding.tvTotalCount.setText(String.valueOf(stats.getTotalCount()));
+        binding.tvCompletedCount.setText(String.valueOf(stats.getCompletedCount()));
+        binding.tvIncompleteCount.setText(String.valueOf(stats.getIncompleteCount()));
+        binding.tvOverdueCount.setText(String.valueOf(stats.getOverdueCount()));
+        binding.tvDueTodayCount.setText(String.valueOf(stats.getDueTodayCount()));
+        completedHeader.setCount(stats.getCompletedCount());
+        incompleteHeader.setCount(stats.getIncompleteCount());
+        totalCount = stats.getTotalCount();
+        updateUI();
+    }
 
-        viewModel.getCompletedCount().observe(getViewLifecycleOwner(), count ->
-                binding.tvCompletedCount.setText(String.valueOf(count)));
+    /**
+     * 在列表下一次绘制时记录启动阶段，即首行真正上屏的时间
+     */
+    private void markOnNextDraw(String stage) {
+        View list = binding.recyclerViewTasks;
+        list.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                list.getViewTreeObserver().removeOnPreDrawListener(this);
+                StartupTimeline.mark(stage);
+                return true;
+            }
+        });
+    }
 
-        viewModel.getIncompleteCount().observe(getViewLifecycleOwner(), count ->
-                binding.tvIncompleteCount.setText(String.valueOf(count)));
+    @Override
+    public void onResume() {
+        super.onResume();
+        // 逾期和今天到期随时间变化
+        viewModel.refreshStats();
     }
 
     private void setupClickListeners() {
         // 未完成分类折叠/展开
-        binding.headerIncomplete.setOnClickListener(v -> toggleIncompleteSection());
+        incompleteHeader.setOnToggleListener(this::toggleIncompleteSection);
 
         // 已完成分类折叠/展开
-        binding.headerCompleted.setOnClickListener(v -> toggleCompletedSection());
+        completedHeader.setOnToggleListener(this::toggleCompletedSection);
+
+        // 边输入边搜索，每次输入都会取消上一次查询
+        binding.etSearch.setText(viewModel.getSearchQuery().getValue());
+        binding.etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setSearchQuery(s.toString());
+            }
+        });
     }
 
     private void toggleIncompleteSection() {
-        isIncompleteExpanded = !isIncompleteExpanded;
+        boolean expanded = !incompleteHeader.isExpanded();
+        incompleteHeader.setExpanded(expanded);
 
-        if (isIncompleteExpanded) {
-            binding.recyclerViewIncomplete.setVisibility(View.VISIBLE);
-            binding.iconIncompleteExpand.setImageResource(R.drawable.ic_expand_less_24);
+        if (expanded) {
+            concatAdapter.addAdapter(1, incompleteAdapter);
         } else {
-            binding.recyclerViewIncomplete.setVisibility(View.GONE);
-            binding.iconIncompleteExpand.setImageResource(R.drawable.ic_expand_more_24);
+            concatAdapter.removeAdapter(incompleteAdapter);
         }
     }
 
     private void toggleCompletedSection() {
-        isCompletedExpanded = !isCompletedExpanded;
+        boolean expanded = !completedHeader.isExpanded();
+        completedHeader.setExpanded(expanded);
 
-        if (isCompletedExpanded) {
-            binding.recyclerViewCompleted.setVisibility(View.VISIBLE);
-            binding.iconCompletedExpand.setImageResource(R.drawable.ic_expand_less_24);
+        if (expanded) {
+            concatAdapter.addAdapter(completedAdapter);
         } else {
-            binding.recyclerViewCompleted.setVisibility(View.GONE);
-            binding.iconCompletedExpand.setImageResource(R.drawable.ic_expand_more_24);
+            concatAdapter.removeAdapter(completedAdapter);
         }
     }
 
-    private void updateCategoryCounts(int incompleteCount, int completedCount) {
-        binding.chipIncompleteCount.setText(String.valueOf(incompleteCount));
-        binding.chipCompletedCount.setText(String.valueOf(completedCount));
-
-        // 更新分类标题
-        binding.tvIncompleteTitle.setText(getString(R.string.incomplete_section, incompleteCount));
-        binding.tvCompletedTitle.setText(getString(R.string.completed_section, completedCount));
+    private void onSelectionChanged(TodoSelection selection) {
+        if (!selection.isActive()) {
+            if (actionMode != null) {
+                actionMode.finish();
+            }
+            return;
+        }
+        if (actionMode == null) {
+            actionMode = ((AppCompatActivity) requireActivity()).startSupportActionMode(selectionActionModeCallback);
+        }
+        if (actionMode != null) {
+            actionMode.setTitle(getString(R.string.selected_count, selection.size()));
+        }
     }
 
-    private void updateUI(int todoCount) {
-        if (todoCount == 0) {
+    /**
+     * 多选操作栏，所有批量操作都在一个事务中完成
+     */
+    private final ActionMode.Callback selectionActionModeCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.menu_todo_selection, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            int itemId = item.getItemId();
+            if (itemId == R.id.action_mark_completed) {
+                viewModel.setTodosCompleted(selection.getSelectedIds(), true);
+            } else if (itemId == R.id.action_mark_incomplete) {
+                viewModel.setTodosCompleted(selection.getSelectedIds(), false);
+            } else if (itemId == R.id.action_delete_selected) {
+                viewModel.deleteTodos(selection.getSelectedIds());
+            } else {
+                return false;
+            }
+            mode.finish();
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            actionMode = null;
+            selection.clear();
+
+            // 刷新可见项以清除选中样式
+            incompleteAdapter.notifyItemRangeChanged(0, incompleteAdapter.getItemCount());
+            completedAdapter.notifyItemRangeChanged(0, completedAdapter.getItemCount());
+        }
+    };
+
+    private void updateUI() {
+        String query = viewModel.getSearchQuery().getValue();
+        boolean searchActive = query != null && !query.isEmpty();
+        if (searchActive != searching) {
+            searching = searchActive;
+            if (searching) {
+                selection.clear();
+            }
+            binding.recyclerViewTasks.setAdapter(searching ? searchAdapter : concatAdapter);
+        }
+
+        if (searching) {
+            binding.emptyStateLayout.setVisibility(View.GONE);
+            binding.statsCard.setVisibility(View.GONE);
+            binding.recyclerViewTasks.setVisibility(View.VISIBLE);
+            binding.tvSearchEmpty.setVisibility(searchAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            return;
+        }
+        binding.tvSearchEmpty.setVisibility(View.GONE);
+        if (totalCount == 0) {
             binding.emptyStateLayout.setVisibility(View.VISIBLE);
-            binding.nestedScrollView.setVisibility(View.GONE);
+            binding.recyclerViewTasks.setVisibility(View.GONE);
             binding.statsCard.setVisibility(View.GONE);
         } else {
             binding.emptyStateLayout.setVisibility(View.GONE);
-            binding.nestedScrollView.setVisibility(View.VISIBLE);
+            binding.recyclerViewTasks.setVisibility(View.VISIBLE);
             binding.statsCard.setVisibility(View.VISIBLE);
         }
     }
 
     @Override
     public void onDestroyView() {
+        if (actionMode != null) {
+            actionMode.finish();
+        }
         super.onDestroyView();
         binding = null;
     }
@@ -12,14 +12,15 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.example.tasks.R;
 import com.example.tasks.ui.adapters.OnTodoClickListener;
 import com.example.tasks.ui.adapters.TodoAdapter;
-import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.models.DayTaskCount;
+import com.example.tasks.data.models.TodoListRow;
 import com.example.tasks.databinding.FragmentCalendarBinding;
 import com.example.tasks.ui.viewmodel.TodoViewModel;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
@@ -49,6 +50,7 @@ public class CalendarFragment extends Fragment {
         
         setupRecyclerViews();
         setupCalendar();
+        setupObservers();
         
         // 默认显示今天的任务
         selectedDateMillis = System.currentTimeMillis();
@@ -71,7 +73,7 @@ public class CalendarFragment extends Fragment {
         OnTodoClickListener todoClickListener = new OnTodoClickListener() {
             @Override
             public void onTodoToggle(String todoId) {
-                viewModel.toggleTodoCompletion(todoId);
+                viewModel.toggleCalendarTodo(todoId);
             }
             
             @Override
@@ -97,6 +99,8 @@ public class CalendarFragment extends Fragment {
         
         incompleteAdapter.setOnTodoClickListener(todoClickListener);
         completedAdapter.setOnTodoClickListener(todoClickListener);
+        incompleteAdapter.setDetailsLoader(viewModel::loadTodoDetails);
+        completedAdapter.setDetailsLoader(viewModel::loadTodoDetails);
     }
     
     private void setupCalendar() {
@@ -123,53 +127,55 @@ public class CalendarFragment extends Fragment {
      * 加载指定日期的任务
      */
     private void loadTasksForDate(long dateMillis) {
-        viewModel.getAllTodos().observe(getViewLifecycleOwner(), todos -> {
-            if (todos != null) {
-                // 获取选中日期的开始和结束时间戳
-                Calendar startOfDay = Calendar.getInstance();
-                startOfDay.setTimeInMillis(dateMillis);
-                startOfDay.set(Calendar.HOUR_OF_DAY, 0);
-                startOfDay.set(Calendar.MINUTE, 0);
-                startOfDay.set(Calendar.SECOND, 0);
-                startOfDay.set(Calendar.MILLISECOND, 0);
-                
-                Calendar endOfDay = Calendar.getInstance();
-                endOfDay.setTimeInMillis(dateMillis);
-                endOfDay.set(Calendar.HOUR_OF_DAY, 23);
-                endOfDay.set(Calendar.MINUTE, 59);
-                endOfDay.set(Calendar.SECOND, 59);
-                endOfDay.set(Calendar.MILLISECOND, 999);
-                
-                long startTime = startOfDay.getTimeInMillis();
-                long endTime = endOfDay.getTimeInMillis();
-                
-                // 筛选出该日期的任务（截止日期在这一天的）
-                List<Todo> incompleteTodos = new ArrayList<>();
-                List<Todo> completedTodos = new ArrayList<>();
-                
-                for (Todo todo : todos) {
-                    if (todo.getDueDate() != null && 
-                        todo.getDueDate() >= startTime && 
-                        todo.getDueDate() <= endTime) {
-                        if (todo.isCompleted()) {
-                            completedTodos.add(todo);
-                        } else {
-                            incompleteTodos.add(todo);
-                        }
-                    }
-                }
-                
-                // 更新UI
-                updateTaskLists(incompleteTodos, completedTodos);
+        // 切换日期只更新选中日期，列表由ViewModel按日期范围查询
+        viewModel.selectDate(dateMillis);
+    }
+    
+    /**
+     * 观察选中日期的任务和本月任务分布
+     */
+    private void setupObservers() {
+        viewModel.getSelectedDayIncompleteTodos().observe(getViewLifecycleOwner(), incompleteTodos -> {
+            if (incompleteTodos != null) {
+                updateIncompleteList(incompleteTodos);
+            }
+        });
+        
+        viewModel.getSelectedDayCompletedTodos().observe(getViewLifecycleOwner(), completedTodos -> {
+            if (completedTodos != null) {
+                updateCompletedList(completedTodos);
             }
         });
+        
+        viewModel.getSelectedMonthTaskCounts().observe(getViewLifecycleOwner(), this::updateMonthSummary);
+        
+        // 子任务切换写入失败，按数据库重新显示
+        viewModel.getRolledBackTodoIds().observe(getViewLifecycleOwner(), todoIds -> {
+            incompleteAdapter.reloadDetails(todoIds);
+            completedAdapter.reloadDetails(todoIds);
+        });
     }
     
     /**
-     * 更新任务列表UI
+     * 更新本月任务分布
      */
-    private void updateTaskLists(List<Todo> incompleteTodos, List<Todo> completedTodos) {
-        // 更新未完成任务
+    private void updateMonthSummary(List<DayTaskCount> dayCounts) {
+        int incomplete = 0;
+        int completed = 0;
+        if (dayCounts != null) {
+            for (DayTaskCount dayCount : dayCounts) {
+                incomplete += dayCount.getIncompleteCount();
+                completed += dayCount.getCompletedCount();
+            }
+        }
+        int days = dayCounts != null ? dayCounts.size() : 0;
+        binding.tvMonthSummary.setText(getString(R.string.month_task_summary, days, incomplete, completed));
+    }
+    
+    /**
+     * 更新未完成任务列表UI
+     */
+    private void updateIncompleteList(List<TodoListRow> incompleteTodos) {
         incompleteAdapter.submitList(incompleteTodos);
         binding.chipIncompleteCount.setText(String.valueOf(incompleteTodos.size()));
         
@@ -180,8 +186,12 @@ public class CalendarFragment extends Fragment {
             binding.recyclerViewIncomplete.setVisibility(View.VISIBLE);
             binding.tvEmptyIncomplete.setVisibility(View.GONE);
         }
-        
-        // 更新已完成任务
+    }
+    
+    /**
+     * 更新已完成任务列表UI
+     */
+    private void updateCompletedList(List<TodoListRow> completedTodos) {
         completedAdapter.submitList(completedTodos);
         binding.chipCompletedCount.setText(String.valueOf(completedTodos.size()));
         
@@ -23,9 +23,11 @@ import com.example.tasks.R;
 import com.example.tasks.ai.AITaskParser;
 import com.example.tasks.ai.ParsedTask;
 import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.Recurrence;
 import com.example.tasks.data.models.SubTask;
 import com.example.tasks.data.models.Todo;
 import com.example.tasks.databinding.DialogEditTodoBinding;
+import com.example.tasks.util.AppExecutors;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -54,11 +56,12 @@ public class EditTodoDialogFragment extends DialogFragment {
     // AI相关
     private AITaskParser aiParser;
     private ParsedTask currentParsedTask;
-    private Future<ParsedTask> aiParseTask;
+    private Future<?> aiParseTask;
     private boolean isAiModeEnabled = false;
     
     public interface OnTodoUpdatedListener {
-        void onTodoUpdated(String todoId, String title, String description, Priority priority, Long dueDate, List<SubTask> subTasks);
+        void onTodoUpdated(String todoId, String title, String description, Priority priority, Long dueDate, List<SubTask> subTasks,
+                           String recurrence);
     }
     
     public void setOnTodoUpdatedListener(OnTodoUpdatedListener listener) {
@@ -145,6 +148,9 @@ public class EditTodoDialogFragment extends DialogFragment {
         // 设置优先级
         setPriorityChip(todo.getPriority());
         
+        // 设置重复
+        setRepeatChip(todo.getRecurrence());
+        
         // 设置截止日期
         if (todo.getDueDate() != null) {
             selectedDueDate = todo.getDueDate();
@@ -179,6 +185,22 @@ public class EditTodoDialogFragment extends DialogFragment {
         }
     }
     
+    /**
+     * 自定义的规则（如隔周、指定星期）没有对应的选项，不选中任何一项，保存时保持原规则
+     */
+    private void setRepeatChip(String recurrence) {
+        binding.chipGroupRepeat.clearCheck();
+        if (recurrence == null) {
+            binding.chipRepeatNone.setChecked(true);
+        } else if (recurrence.equals(Recurrence.RULE_DAILY)) {
+            binding.chipRepeatDaily.setChecked(true);
+        } else if (recurrence.equals(Recurrence.RULE_WEEKLY)) {
+            binding.chipRepeatWeekly.setChecked(true);
+        } else if (recurrence.equals(Recurrence.RULE_MONTHLY)) {
+            binding.chipRepeatMonthly.setChecked(true);
+        }
+    }
+    
     private void setupClickListeners() {
         // 取消按钮
         binding.btnCancel.setOnClickListener(v -> dismiss());
@@ -221,7 +243,8 @@ public class EditTodoDialogFragment extends DialogFragment {
         List<SubTask> subTasks = collectSubTasks();
         
         if (listener != null && todo != null) {
-            listener.onTodoUpdated(todo.getId(), title, description, priority, selectedDueDate, subTasks);
+            listener.onTodoUpdated(todo.getId(), title, description, priority, selectedDueDate, subTasks,
+                    getSelectedRecurrence());
         }
         
         dismiss();
@@ -241,6 +264,20 @@ public class EditTodoDialogFragment extends DialogFragment {
         return Priority.MEDIUM; // 默认中等优先级
     }
     
+    private String getSelectedRecurrence() {
+        int checkedId = binding.chipGroupRepeat.getCheckedChipId();
+        if (checkedId == R.id.chip_repeat_none) {
+            return null;
+        } else if (checkedId == R.id.chip_repeat_daily) {
+            return Recurrence.RULE_DAILY;
+        } else if (checkedId == R.id.chip_repeat_weekly) {
+            return Recurrence.RULE_WEEKLY;
+        } else if (checkedId == R.id.chip_repeat_monthly) {
+            return Recurrence.RULE_MONTHLY;
+        }
+        return todo.getRecurrence(); // 保持自定义规则
+    }
+    
     private void showDatePicker() {
         Calendar calendar = Calendar.getInstance();
         DatePickerDialog dialog = new DatePickerDialog(
@@ -352,11 +389,6 @@ public class EditTodoDialogFragment extends DialogFragment {
         if (aiParseTask != null && !aiParseTask.isDone()) {
             aiParseTask.cancel(true);
         }
-        
-        // 关闭AI解析器
-        if (aiParser != null) {
-            aiParser.shutdown();
-        }
     }
     
     @Override
@@ -428,13 +460,10 @@ public class EditTodoDialogFragment extends DialogFragment {
         binding.btnAiAnalyze.setText("🤖 AI分析中...");
         binding.btnAiAnalyze.setEnabled(false);
         
-        // 异步执行AI解析
-        aiParseTask = aiParser.parseTaskAsync(input);
-        
-        // 在后台线程等待结果
-        new Thread(() -> {
+        // 在共用的网络线程池中解析，完成后切换到主线程更新UI
+        aiParseTask = AppExecutors.getInstance().network().submit(() -> {
             try {
-                ParsedTask result = aiParseTask.get();
+                ParsedTask result = aiParser.parseTask(input);
                 // 切换到主线程更新UI
                 if (getActivity() != null) {
                     getActivity().runOnUiThread(() -> {
@@ -460,7 +489,7 @@ public class EditTodoDialogFragment extends DialogFragment {
                     });
                 }
             }
-        }).start();
+        });
     }
     
     /**
@@ -1,22 +1,63 @@
 package com.example.tasks.ui.fragments;
 
 import android.app.AlertDialog;
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.OpenableColumns;
 import android.text.InputType;
+import android.view.View;
+import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.preference.EditTextPreference;
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
 
 import com.example.tasks.R;
+import com.example.tasks.data.sync.SyncPreferences;
+import com.example.tasks.data.transfer.TransferFormat;
+import com.example.tasks.data.work.BackupWorker;
+import com.example.tasks.data.work.SyncWorker;
+import com.example.tasks.data.work.TransferWorker;
+import com.example.tasks.databinding.DialogTransferProgressBinding;
+import com.example.tasks.ui.activities.ArchiveActivity;
+import com.example.tasks.ui.activities.MainActivity;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * 设置Fragment
  */
 public class SettingsFragment extends PreferenceFragmentCompat {
     
+    // 导出文件由系统文件选择器创建，每种格式一个启动器
+    private final ActivityResultLauncher<String> exportJsonLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(TransferFormat.JSON.getMimeType()),
+            uri -> startExport(uri, TransferFormat.JSON));
+    private final ActivityResultLauncher<String> exportCsvLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(TransferFormat.CSV.getMimeType()),
+            uri -> startExport(uri, TransferFormat.CSV));
+    private final ActivityResultLauncher<String[]> importLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::startImport);
+    
+    private AlertDialog progressDialog;
+    private DialogTransferProgressBinding progressBinding;
+    private AlertDialog backupDialog;
+    private boolean syncRequested;
+    
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
         setPreferencesFromResource(R.xml.preferences, rootKey);
@@ -55,6 +96,69 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             });
         }
         
+        // 打开归档页面
+        Preference archivePref = findPreference("archived_tasks");
+        if (archivePref != null) {
+            archivePref.setOnPreferenceClickListener(preference -> {
+                startActivity(new Intent(requireContext(), ArchiveActivity.class));
+                return true;
+            });
+        }
+        
+        // 导入导出
+        Preference exportPref = findPreference("export_data");
+        if (exportPref != null) {
+            exportPref.setOnPreferenceClickListener(preference -> {
+                chooseExportFormat();
+                return true;
+            });
+        }
+        Preference importPref = findPreference("import_data");
+        if (importPref != null) {
+            importPref.setOnPreferenceClickListener(preference -> {
+                importLauncher.launch(new String[]{"application/json", "text/csv",
+                        "text/comma-separated-values", "text/plain"});
+                return true;
+            });
+        }
+        
+        // 备份恢复
+        Preference backupPref = findPreference("backup_now");
+        if (backupPref != null) {
+            backupPref.setOnPreferenceClickListener(preference -> {
+                BackupWorker.enqueue(requireContext(), BackupWorker.ACTION_BACKUP);
+                return true;
+            });
+        }
+        Preference restorePref = findPreference("restore_backup");
+        if (restorePref != null) {
+            restorePref.setOnPreferenceClickListener(preference -> {
+                new AlertDialog.Builder(requireContext())
+                        .setTitle(R.string.restore_backup)
+                        .setMessage(R.string.restore_confirm)
+                        .setPositiveButton(R.string.restore, (dialog, which) ->
+                                BackupWorker.enqueue(requireContext(), BackupWorker.ACTION_RESTORE))
+                        .setNegativeButton(R.string.cancel, null)
+                        .show();
+                return true;
+            });
+        }
+        
+        // 同步
+        Preference syncPref = findPreference("sync_now");
+        if (syncPref != null) {
+            syncPref.setOnPreferenceClickListener(preference -> {
+                if (new SyncPreferences(requireContext()).getServerUrl() == null) {
+                    Toast.makeText(requireContext(), R.string.sync_not_configured, Toast.LENGTH_SHORT).show();
+                    return true;
+                }
+                syncRequested = true;
+                SyncWorker.syncNow(requireContext());
+                Toast.makeText(requireContext(), R.string.sync_started, Toast.LENGTH_SHORT).show();
+                return true;
+            });
+        }
+        
         // 设置AI帮助点击事件 - 显示教学对话框
         Preference aiHelpPref = findPreference("ai_help");
         if (aiHelpPref != null) {
@@ -65,6 +169,174 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         }
     }
     
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        TransferWorker.getWorkInfos(requireContext()).observe(getViewLifecycleOwner(), this::onTransferUpdated);
+        BackupWorker.getWorkInfos(requireContext()).observe(getViewLifecycleOwner(), this::onBackupUpdated);
+        SyncWorker.getWorkInfos(requireContext()).observe(getViewLifecycleOwner(), this::onSyncUpdated);
+    }
+    
+    @Override
+    public void onDestroyView() {
+        dismissProgressDialog();
+        if (backupDialog != null) {
+            backupDialog.dismiss();
+            backupDialog = null;
+        }
+        super.onDestroyView();
+    }
+    
+    private void chooseExportFormat() {
+        String[] formats = {"JSON", "CSV"};
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.choose_export_format)
+                .setItems(formats, (dialog, which) -> {
+                    String stamp = new SimpleDateFormat("yyyyMMdd-HHmm", Locale.ROOT).format(new Date());
+                    if (which == 0) {
+                        exportJsonLauncher.launch("tasks-" + stamp + "." + TransferFormat.JSON.getExtension());
+                    } else {
+                        exportCsvLauncher.launch("tasks-" + stamp + "." + TransferFormat.CSV.getExtension());
+                    }
+                })
+                .show();
+    }
+    
+    private void startExport(@Nullable Uri uri, TransferFormat format) {
+        if (uri == null) return;
+        TransferWorker.enqueue(requireContext(), TransferWorker.DIRECTION_EXPORT, uri, format);
+    }
+    
+    private void startImport(@Nullable Uri uri) {
+        if (uri == null) return;
+        ContentResolver resolver = requireContext().getContentResolver();
+        TransferFormat format = TransferFormat.detect(resolver.getType(uri), queryDisplayName(resolver, uri));
+        TransferWorker.enqueue(requireContext(), TransferWorker.DIRECTION_IMPORT, uri, format);
+    }
+    
+    @Nullable
+    private static String queryDisplayName(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            return cursor != null && cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+    
+    /**
+     * 根据后台任务状态显示进度；只有本页面看到过运行状态时才提示结果，避免重新进入设置页时重复提示
+     */
+    private void onTransferUpdated(List<WorkInfo> infos) {
+        if (infos == null || infos.isEmpty()) return;
+        WorkInfo info = infos.get(infos.size() - 1);
+        if (!info.getState().isFinished()) {
+            showProgress(info.getProgress());
+            return;
+        }
+        if (progressDialog == null) return;
+        dismissProgressDialog();
+        Data output = info.getOutputData();
+        String message;
+        if (info.getState() == WorkInfo.State.SUCCEEDED) {
+            long processed = output.getLong(TransferWorker.KEY_PROCESSED, 0);
+            boolean export = TransferWorker.DIRECTION_EXPORT.equals(output.getString(TransferWorker.KEY_DIRECTION));
+            message = getString(export ? R.string.export_done : R.string.import_done, processed);
+        } else if (output.getString(TransferWorker.KEY_ERROR) != null) {
+            message = getString(R.string.transfer_failed, output.getString(TransferWorker.KEY_ERROR));
+        } else {
+            message = getString(R.string.transfer_cancelled);
+        }
+        Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+    }
+    
+    /**
+     * 备份恢复期间显示不可取消的等待框；恢复成功后数据库已被替换，重建整个任务栈
+     */
+    private void onBackupUpdated(List<WorkInfo> infos) {
+        if (infos == null || infos.isEmpty()) return;
+        WorkInfo info = infos.get(infos.size() - 1);
+        if (!info.getState().isFinished()) {
+            if (backupDialog == null) {
+                boolean restore = info.getTags().contains(BackupWorker.ACTION_RESTORE);
+                backupDialog = new AlertDialog.Builder(requireContext())
+                        .setMessage(restore ? R.string.restore_running : R.string.backup_running)
+                        .setCancelable(false)
+                        .show();
+            }
+            return;
+        }
+        if (backupDialog == null) return;
+        backupDialog.dismiss();
+        backupDialog = null;
+        Data output = info.getOutputData();
+        boolean restore = BackupWorker.ACTION_RESTORE.equals(output.getString(BackupWorker.KEY_ACTION));
+        if (info.getState() != WorkInfo.State.SUCCEEDED) {
+            String error = output.getString(BackupWorker.KEY_ERROR);
+            Toast.makeText(requireContext(), getString(R.string.backup_failed, error != null ? error : ""),
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        Toast.makeText(requireContext(), restore ? R.string.restore_done : R.string.backup_done,
+                Toast.LENGTH_SHORT).show();
+        if (restore) {
+            Intent intent = new Intent(requireContext(), MainActivity.class)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+            startActivity(intent);
+        }
+    }
+    
+    /**
+     * 只提示本页面发起的同步的结果；网络错误时任务会退避重试，不视为结束
+     */
+    private void onSyncUpdated(List<WorkInfo> infos) {
+        if (!syncRequested || infos == null || infos.isEmpty()) return;
+        WorkInfo info = infos.get(infos.size() - 1);
+        if (!info.getState().isFinished()) return;
+        syncRequested = false;
+        Data output = info.getOutputData();
+        String message;
+        if (info.getState() == WorkInfo.State.SUCCEEDED) {
+            message = getString(R.string.sync_done, output.getInt(SyncWorker.KEY_PUSHED, 0),
+                    output.getInt(SyncWorker.KEY_PULLED, 0));
+        } else {
+            String error = output.getString(SyncWorker.KEY_ERROR);
+            message = getString(R.string.sync_failed, error != null ? error : "");
+        }
+        Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
+    }
+    
+    private void showProgress(Data progress) {
+        if (progressDialog == null) {
+            progressBinding = DialogTransferProgressBinding.inflate(getLayoutInflater());
+            progressDialog = new AlertDialog.Builder(requireContext())
+                    .setView(progressBinding.getRoot())
+                    .setCancelable(false)
+                    .setNegativeButton(R.string.cancel, (dialog, which) -> TransferWorker.cancel(requireContext()))
+                    .show();
+            progressBinding.tvTransferProgress.setText(R.string.import_progress_unknown);
+        }
+        long processed = progress.getLong(TransferWorker.KEY_PROCESSED, -1);
+        long total = progress.getLong(TransferWorker.KEY_TOTAL, -1);
+        if (processed < 0) return;
+        boolean export = TransferWorker.DIRECTION_EXPORT.equals(progress.getString(TransferWorker.KEY_DIRECTION));
+        if (total > 0) {
+            int percent = (int) Math.min(100, processed * 100 / total);
+            progressBinding.progressTransfer.setIndeterminate(false);
+            progressBinding.progressTransfer.setProgressCompat(percent, true);
+            progressBinding.tvTransferProgress.setText(export
+                    ? getString(R.string.export_progress, processed, total)
+                    : getString(R.string.import_progress, percent));
+        } else if (export) {
+            progressBinding.tvTransferProgress.setText(getString(R.string.export_progress, processed, processed));
+        }
+    }
+    
+    private void dismissProgressDialog() {
+        if (progressDialog != null) {
+            progressDialog.dismiss();
+            progressDialog = null;
+            progressBinding = null;
+        }
+    }
+    
     /**
      * 显示API密钥获取教程
      */
@@ -0,0 +1,62 @@
+package com.example.tasks.ui.viewmodel;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.repositories.TodoRepository;
+import com.example.tasks.util.AppExecutors;
+
+/**
+ * 归档页面的ViewModel，只从归档表分页读取
+ */
+public class ArchiveViewModel extends ViewModel {
+    private final TodoRepository repository;
+    private final LiveData<PagingData<TodoListRow>> archivedTodos;
+    
+    public ArchiveViewModel(TodoRepository repository) {
+        this.repository = repository;
+        this.archivedTodos = PagingLiveData.cachedIn(repository.getArchivedTodosPaged(), this);
+    }
+    
+    public LiveData<PagingData<TodoListRow>> getArchivedTodos() {
+        return archivedTodos;
+    }
+    
+    /**
+     * 恢复为未完成并移回任务列表
+     */
+    public void restoreTodo(String todoId) {
+        AppExecutors.getInstance().writer().execute(() -> repository.restoreArchivedTodo(todoId));
+    }
+    
+    /**
+     * 永久删除
+     */
+    public void deleteTodo(String todoId) {
+        AppExecutors.getInstance().writer().execute(() -> repository.deleteArchivedTodo(todoId));
+    }
+    
+    /**
+     * ArchiveViewModel工厂类
+     */
+    public static class Factory implements ViewModelProvider.Factory {
+        private final TodoRepository repository;
+        
+        public Factory(TodoRepository repository) {
+            this.repository = repository;
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends ViewModel> T create(Class<T> modelClass) {
+            if (modelClass.isAssignableFrom(ArchiveViewModel.class)) {
+                return (T) new ArchiveViewModel(repository);
+            }
+            throw new IllegalArgumentException("Unknown ViewModel class");
+        }
+    }
+}
\ No newline at end of file
@@ -1,76 +1,142 @@
 package com.example.tasks.ui.viewmodel;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
+import com.example.tasks.data.models.DayTaskCount;
+import com.example.tasks.data.models.OccurrenceRow;
 import com.example.tasks.data.models.Priority;
 import com.example.tasks.data.models.SubTask;
 import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoSearchResult;
+import com.example.tasks.data.models.TodoStats;
 import com.example.tasks.data.repositories.TodoRepository;
+import com.example.tasks.data.snapshot.ListSnapshot;
+import com.example.tasks.util.AppExecutors;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * Todo列表的ViewModel
+ * 写操作都提交到全应用唯一的写线程，按调用顺序追加到写队列；读取在共用的读线程池中执行
  */
 public class TodoViewModel extends ViewModel {
     private final TodoRepository repository;
-    private final ExecutorService executor;
+    private final Executor writer;
+    private final ExecutorService reader;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     // LiveData for UI
-    private final LiveData<List<Todo>> allTodos;
-    private final LiveData<Integer> totalCount;
-    private final LiveData<Integer> completedCount;
-    private final LiveData<Integer> incompleteCount;
+    private final LiveData<PagingData<TodoListRow>> incompleteTodosPaged;
+    private final LiveData<PagingData<TodoListRow>> completedTodosPaged;
+    private final LiveData<TodoStats> todoStats;
+    
+    // 统计中的逾期和今天到期依赖当前时间，重新进入页面时刷新
+    private final MutableLiveData<Long> statsRefresh = new MutableLiveData<>(System.currentTimeMillis());
+    
+    // 日历选中日期及其任务
+    private final MutableLiveData<Long> selectedDate = new MutableLiveData<>(System.currentTimeMillis());
+    private final LiveData<List<TodoListRow>> selectedDayIncompleteTodos;
+    private final LiveData<List<TodoListRow>> selectedDayCompletedTodos;
+    private final LiveData<List<DayTaskCount>> selectedMonthTaskCounts;
+    
+    // 搜索：新的输入取消尚未执行的旧查询，旧查询的结果按序号丢弃
+    private final MutableLiveData<String> searchQuery = new MutableLiveData<>("");
+    private final MutableLiveData<List<TodoSearchResult>> searchResults = new MutableLiveData<>(Collections.emptyList());
+    private Future<?> pendingSearch;
+    private int searchGeneration;
+    
+    // 首屏快照只在第一次渲染时使用
+    private boolean startupSnapshotConsumed;
     
     // Dialog state
     private final MutableLiveData<Boolean> showAddDialog = new MutableLiveData<>(false);
     private final MutableLiveData<Todo> editingTodo = new MutableLiveData<>(null);
     
+    // 子任务切换写入失败后需要重新显示的待办事项
+    private final MutableLiveData<Set<String>> rolledBackTodoIds = new MutableLiveData<>();
+    
     public TodoViewModel(TodoRepository repository) {
         this.repository = repository;
-        this.executor = Executors.newFixedThreadPool(4);
+        this.writer = AppExecutors.getInstance().writer();
+        this.reader = AppExecutors.getInstance().reader();
+        repository.setOnToggleRolledBackListener(rolledBackTodoIds::postValue);
         
         // 初始化LiveData
-        this.allTodos = repository.getAllTodos();
-        this.totalCount = Transformations.map(allTodos, List::size);
-        this.completedCount = Transformations.map(allTodos, todos -> {
-            int count = 0;
-            for (Todo todo : todos) {
-                if (todo.isCompleted()) count++;
-            }
-            return count;
-        });
-        this.incompleteCount = Transformations.map(allTodos, todos -> {
-            int count = 0;
-            for (Todo todo : todos) {
-                if (!todo.isCompleted()) count++;
-            }
-            return count;
-        });
+        this.incompleteTodosPaged = PagingLiveData.cachedIn(repository.getIncompleteTodosPaged(), this);
+        this.completedTodosPaged = PagingLiveData.cachedIn(repository.getCompletedTodosPaged(), this);
+        this.todoStats = Transformations.switchMap(statsRefresh, time -> repository.getTodoStats());
+        
+        // 切换日期时只重新执行当天的索引范围查询，同月内切换不重新统计月度分布
+        this.selectedDayIncompleteTodos = Transformations.switchMap(selectedDate, repository::getIncompleteTodosForDay);
+        this.selectedDayCompletedTodos = Transformations.switchMap(selectedDate, repository::getCompletedTodosForDay);
+        this.selectedMonthTaskCounts = Transformations.switchMap(
+            Transformations.distinctUntilChanged(Transformations.map(selectedDate, TodoRepository::startOfMonth)),
+            repository::getMonthTaskCounts
+        );
     }
     
     // Getters for LiveData
-    public LiveData<List<Todo>> getAllTodos() {
-        return allTodos;
+    
+    public LiveData<PagingData<TodoListRow>> getIncompleteTodosPaged() {
+        return incompleteTodosPaged;
+    }
+    
+    public LiveData<PagingData<TodoListRow>> getCompletedTodosPaged() {
+        return completedTodosPaged;
+    }
+    
+    public LiveData<TodoStats> getTodoStats() {
+        return todoStats;
+    }
+    
+    public LiveData<Long> getSelectedDate() {
+        return selectedDate;
+    }
+    
+    public LiveData<List<TodoListRow>> getSelectedDayIncompleteTodos() {
+        return selectedDayIncompleteTodos;
+    }
+    
+    public LiveData<List<TodoListRow>> getSelectedDayCompletedTodos() {
+        return selectedDayCompletedTodos;
+    }
+    
+    public LiveData<List<DayTaskCount>> getSelectedMonthTaskCounts() {
+        return selectedMonthTaskCounts;
     }
     
-    public LiveData<Integer> getTotalCount() {
-        return totalCount;
+    /**
+     * 取出启动快照，只返回一次；之后页面重建时分页数据已缓存在ViewModel中，不再需要快照
+     */
+    public ListSnapshot consumeStartupSnapshot() {
+        if (startupSnapshotConsumed) return null;
+        startupSnapshotConsumed = true;
+        return repository.getStartupSnapshot();
     }
     
-    public LiveData<Integer> getCompletedCount() {
-        return completedCount;
+    public LiveData<String> getSearchQuery() {
+        return searchQuery;
     }
     
-    public LiveData<Integer> getIncompleteCount() {
-        return incompleteCount;
+    public LiveData<List<TodoSearchResult>> getSearchResults() {
+        return searchResults;
     }
     
     public LiveData<Boolean> getShowAddDialog() {
@@ -84,37 +150,104 @@ public class TodoViewModel extends ViewModel {
     /**
      * 添加新的Todo
      */
-    public void addTodo(String title, String description, Priority priority, Long dueDate, List<SubTask> subTasks) {
+    public void addTodo(String title, String description, Priority priority, Long dueDate, List<SubTask> subTasks,
+                        String recurrence) {
         if (title == null || title.trim().isEmpty()) return;
         
+        // 重复任务从截止时间开始，没有截止时间时从现在开始
+        Long anchor = recurrence != null && dueDate == null ? Long.valueOf(System.currentTimeMillis()) : dueDate;
         Todo newTodo = new Todo(title.trim(), 
                                description != null ? description.trim() : "", 
-                               priority, dueDate, subTasks);
+                               priority, anchor, subTasks);
+        newTodo.setRecurrence(recurrence);
         
-        executor.execute(() -> repository.insertTodo(newTodo));
+        writer.execute(() -> repository.insertTodo(newTodo));
     }
     
     /**
      * 切换Todo完成状态
      */
     public void toggleTodoCompletion(String todoId) {
-        executor.execute(() -> {
-            Todo todo = repository.getTodoById(todoId);
-            if (todo != null) {
-                Todo updatedTodo = todo.copyWith(
-                    null, null, !todo.isCompleted(), null, null, null,
-                    !todo.isCompleted() ? System.currentTimeMillis() : null
-                );
-                repository.updateTodo(updatedTodo);
+        writer.execute(() -> repository.toggleTodoCompletion(todoId));
+    }
+    
+    /**
+     * 切换日历当天列表中的一项，重复任务只切换当天这一次
+     */
+    public void toggleCalendarTodo(String todoId) {
+        OccurrenceRow occurrence = findOccurrence(selectedDayIncompleteTodos.getValue(), todoId);
+        if (occurrence == null) {
+            occurrence = findOccurrence(selectedDayCompletedTodos.getValue(), todoId);
+        }
+        if (occurrence != null) {
+            long occurrenceDate = occurrence.getOccurrenceDate();
+            writer.execute(() -> repository.toggleOccurrence(todoId, occurrenceDate));
+        } else {
+            writer.execute(() -> repository.toggleTodoCompletion(todoId));
+        }
+    }
+    
+    private static OccurrenceRow findOccurrence(List<TodoListRow> rows, String todoId) {
+        if (rows == null) return null;
+        for (TodoListRow row : rows) {
+            if (row instanceof OccurrenceRow && row.getId().equals(todoId)) {
+                return (OccurrenceRow) row;
             }
-        });
+        }
+        return null;
     }
     
     /**
      * 删除Todo
      */
     public void deleteTodo(String todoId) {
-        executor.execute(() -> repository.deleteTodoById(todoId));
+        writer.execute(() -> repository.deleteTodoById(todoId));
+    }
+    
+    /**
+     * 批量设置完成状态
+     */
+    public void setTodosCompleted(List<String> todoIds, boolean completed) {
+        List<String> ids = new ArrayList<>(todoIds);
+        writer.execute(() -> repository.setTodosCompleted(ids, completed));
+    }
+    
+    /**
+     * 批量删除Todo
+     */
+    public void deleteTodos(List<String> todoIds) {
+        List<String> ids = new ArrayList<>(todoIds);
+        writer.execute(() -> repository.deleteTodosByIds(ids));
+    }
+    
+    /**
+     * 批量添加Todo
+     */
+    public void addTodos(List<Todo> todos) {
+        List<Todo> copy = new ArrayList<>(todos);
+        writer.execute(() -> repository.insertTodos(copy));
+    }
+    
+    /**
+     * 批量更新Todo
+     */
+    public void updateTodos(List<Todo> todos) {
+        List<Todo> copy = new ArrayList<>(todos);
+        writer.execute(() -> repository.updateTodos(copy));
+    }
+    
+    /**
+     * 按当前时间重新计算统计
+     */
+    public void refreshStats() {
+        statsRefresh.setValue(System.currentTimeMillis());
+    }
+    
+    /**
+     * 选择日历日期
+     */
+    public void selectDate(long dateMillis) {
+        selectedDate.setValue(dateMillis);
     }
     
     /**
@@ -135,12 +268,22 @@ public class TodoViewModel extends ViewModel {
      * 开始编辑Todo
      */
     public void startEditingTodo(String todoId) {
-        executor.execute(() -> {
+        reader.execute(() -> {
             Todo todo = repository.getTodoById(todoId);
             editingTodo.postValue(todo);
         });
     }
     
+    /**
+     * 按需加载完整的Todo（描述和子任务），结果在主线程回调
+     */
+    public void loadTodoDetails(String todoId, Consumer<Todo> callback) {
+        reader.execute(() -> {
+            Todo todo = repository.getTodoById(todoId);
+            mainHandler.post(() -> callback.accept(todo));
+        });
+    }
+    
     /**
      * 取消编辑Todo
      */
@@ -152,17 +295,20 @@ public class TodoViewModel extends ViewModel {
      * 更新Todo
      */
     public void updateTodo(String todoId, String title, String description, 
-                          Priority priority, Long dueDate, List<SubTask> subTasks) {
+                          Priority priority, Long dueDate, List<SubTask> subTasks, String recurrence) {
         if (title == null || title.trim().isEmpty()) return;
         
-        executor.execute(() -> {
+        // 读取和写入在同一个写线程任务中，不会与同一待办事项的其他写操作交错
+        writer.execute(() -> {
             Todo todo = repository.getTodoById(todoId);
             if (todo != null) {
+                Long anchor = recurrence != null && dueDate == null ? Long.valueOf(System.currentTimeMillis()) : dueDate;
                 Todo updatedTodo = todo.copyWith(
                     title.trim(), 
                     description != null ? description.trim() : "",
-                    null, priority, dueDate, subTasks, null
+                    null, priority, anchor, subTasks, null
                 );
+                updatedTodo.setRecurrence(recurrence);
                 repository.updateTodo(updatedTodo);
             }
         });
@@ -170,23 +316,17 @@ public class TodoViewModel extends ViewModel {
     }
     
     /**
-     * 切换子任务完成状态
+     * 切换子任务完成状态，由仓库合并连续的点击后写入，不经过写线程排队
      */
     public void toggleSubTaskCompletion(String todoId, String subTaskId) {
-        executor.execute(() -> {
-            Todo todo = repository.getTodoById(todoId);
-            if (todo != null) {
-                List<SubTask> updatedSubTasks = new ArrayList<>();
-                for (SubTask subTask : todo.getSubTasks()) {
-                    if (subTask.getId().equals(subTaskId)) {
-                        updatedSubTasks.add(subTask.copyWith(null, !subTask.isCompleted()));
-                    } else {
-                        updatedSubTasks.add(subTask);
-                    }
-                }
-                repository.updateTodo(todo.copyWith(null, null, null, null, null, updatedSubTasks, null));
-            }
-        });
+        repository.toggleSubTaskCompletion(todoId, subTaskId);
+    }
+    
+    /**
+     * 子任务切换写入失败的待办事项ID，界面应按数据库重新显示这些项
+     */
+    public LiveData<Set<String>> getRolledBackTodoIds() {
+        return rolledBackTodoIds;
     }
     
     /**
@@ -195,13 +335,35 @@ public class TodoViewModel extends ViewModel {
     public void addSubTask(String todoId, String subTaskTitle) {
         if (subTaskTitle == null || subTaskTitle.trim().isEmpty()) return;
         
-        executor.execute(() -> {
-            Todo todo = repository.getTodoById(todoId);
-            if (todo != null) {
-                List<SubTask> updatedSubTasks = new ArrayList<>(todo.getSubTasks());
-                updatedSubTasks.add(new SubTask(subTaskTitle.trim()));
-                repository.updateTodo(todo.copyWith(null, null, null, null, null, updatedSubTasks, null));
-            }
+        SubTask subTask = new SubTask(subTaskTitle.trim());
+        writer.execute(() -> repository.appendSubTask(todoId, subTask));
+    }
+    
+    /**
+     * 更新搜索词，每次输入都会取消上一次查询；空查询直接清空结果
+     */
+    public void setSearchQuery(String query) {
+        String trimmed = query != null ? query.trim() : "";
+        if (trimmed.equals(searchQuery.getValue())) return;
+        searchQuery.setValue(trimmed);
+        
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+        int generation = ++searchGeneration;
+        if (trimmed.isEmpty()) {
+            pendingSearch = null;
+            searchResults.setValue(Collections.emptyList());
+            return;
+        }
+        pendingSearch = reader.submit(() -> {
+            List<TodoSearchResult> results = repository.searchTodos(trimmed);
+            mainHandler.post(() -> {
+                // 执行期间又有新的输入，结果已过期
+                if (generation == searchGeneration) {
+                    searchResults.setValue(results);
+                }
+            });
         });
     }
     
@@ -209,13 +371,17 @@ public class TodoViewModel extends ViewModel {
      * 清除所有已完成的Todo
      */
     public void clearCompletedTodos() {
-        executor.execute(() -> repository.deleteCompletedTodos());
+        writer.execute(() -> repository.deleteCompletedTodos());
     }
     
     @Override
     protected void onCleared() {
         super.onCleared();
-        executor.shutdown();
+        // 线程池是全应用共用的，不关闭；已提交的写操作照常执行
+        repository.setOnToggleRolledBackListener(null);
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
     }
     
     /**
@@ -0,0 +1,232 @@
+package com.example.tasks.util;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全应用共用的线程池，各处不再自建线程
+ * writer：单线程，写操作按提交顺序执行，同一待办事项的写入不会乱序；写队列也在这个线程上写入数据库
+ * reader：按CPU核数限定大小，数据库查询（包括Room的异步查询）和搜索在这里执行
+ * network：网络请求
+ * timer：单线程，只负责延迟任务的计时，到期后交给上面的线程池执行，不在计时线程上跑任务
+ * 线程都带名字，空闲一段时间后退出；每个线程池记录队列长度和任务的排队、执行耗时
+ */
+public final class AppExecutors {
+    
+    private static final String TAG = "AppExecutors";
+    
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    
+    /**
+     * 任务排队超过这么久时打印警告
+     */
+    private static final long SLOW_WAIT_MS = 500;
+    
+    private static volatile AppExecutors INSTANCE;
+    
+    private final Pool writer;
+    private final Pool reader;
+    private final Pool network;
+    private final ScheduledThreadPoolExecutor timer;
+    private final AtomicLong scheduledTasks = new AtomicLong();
+    
+    private AppExecutors() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        writer = new Pool("tasks-writer", 1);
+        reader = new Pool("tasks-reader", Math.max(2, Math.min(cores, 4)));
+        network = new Pool("tasks-network", 2);
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> new Thread(runnable, "tasks-timer"));
+        timer.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        // 取消的任务立即移出队列，防抖反复取消时不会堆积
+        timer.setRemoveOnCancelPolicy(true);
+    }
+    
+    public static AppExecutors getInstance() {
+        if (INSTANCE == null) {
+            synchronized (AppExecutors.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new AppExecutors();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+    
+    public Pool writer() {
+        return writer;
+    }
+    
+    public Pool reader() {
+        return reader;
+    }
+    
+    public Pool network() {
+        return network;
+    }
+    
+    /**
+     * 在reader线程池上逐个按顺序执行任务的执行器，用于把状态限制在单个执行序列上而不必独占一个线程
+     */
+    public Executor newSerialReader() {
+        return new SerialExecutor(reader);
+    }
+    
+    /**
+     * 延迟delay后把任务提交给executor执行，任务的排队和执行耗时记在executor所属的线程池上
+     * 返回值可用于在到期前取消
+     */
+    public ScheduledFuture<?> schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit,
+                                       @NonNull Executor executor) {
+        scheduledTasks.incrementAndGet();
+        return timer.schedule(() -> executor.execute(task), delay, unit);
+    }
+    
+    /**
+     * 等待到期的延迟任务数
+     */
+    public int getPendingScheduledCount() {
+        return timer.getQueue().size();
+    }
+    
+    /**
+     * 把各线程池的统计输出到logcat（tag: AppExecutors）
+     */
+    public void logStats() {
+        Log.i(TAG, writer + "\n" + reader + "\n" + network + "\n" + String.format(Locale.ROOT,
+                "tasks-timer: 待触发 %d，累计 %d", getPendingScheduledCount(), scheduledTasks.get()));
+    }
+    
+    /**
+     * 固定大小、线程带名字且空闲退出的线程池，记录队列长度和任务耗时
+     */
+    public static final class Pool extends ThreadPoolExecutor {
+        private final String name;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong finishedTasks = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        
+        Pool(String name, int threads) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            this.name = name;
+            setThreadFactory(runnable -> new Thread(runnable, name + "-" + threadNumber.incrementAndGet()));
+            allowCoreThreadTimeOut(true);
+        }
+        
+        @Override
+        public void execute(@NonNull Runnable command) {
+            long queuedAt = System.nanoTime();
+            super.execute(() -> {
+                long startedAt = System.nanoTime();
+                long waited = startedAt - queuedAt;
+                if (waited > TimeUnit.MILLISECONDS.toNanos(SLOW_WAIT_MS)) {
+                    Log.w(TAG, name + " 任务排队 " + TimeUnit.NANOSECONDS.toMillis(waited)
+                            + " ms，队列长度 " + getQueue().size());
+                }
+                try {
+                    command.run();
+                } finally {
+                    totalWaitNanos.addAndGet(waited);
+                    maxWaitNanos.accumulateAndGet(waited, Math::max);
+                    totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+                    finishedTasks.incrementAndGet();
+                }
+            });
+            maxQueueDepth.accumulateAndGet(getQueue().size(), Math::max);
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * 当前排队等待执行的任务数
+         */
+        public int getQueueDepth() {
+            return getQueue().size();
+        }
+        
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+        
+        public long getFinishedTaskCount() {
+            return finishedTasks.get();
+        }
+        
+        /**
+         * 任务从提交到开始执行的平均等待时间
+         */
+        public double getAverageWaitMillis() {
+            long count = finishedTasks.get();
+            return count > 0 ? totalWaitNanos.get() / 1e6 / count : 0;
+        }
+        
+        public double getMaxWaitMillis() {
+            return maxWaitNanos.get() / 1e6;
+        }
+        
+        public double getAverageRunMillis() {
+            long count = finishedTasks.get();
+            return count > 0 ? totalRunNanos.get() / 1e6 / count : 0;
+        }
+        
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s: 线程 %d/%d，队列 %d（最多 %d），完成 %d，等待 平均%.1f/最长%.1f ms，执行 平均%.1f ms",
+                    name, getPoolSize(), getMaximumPoolSize(), getQueueDepth(), getMaxQueueDepth(),
+                    getFinishedTaskCount(), getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis());
+        }
+    }
+    
+    /**
+     * 同一时刻最多向底层执行器提交一个任务，前一个结束后再提交下一个
+     */
+    private static final class SerialExecutor implements Executor {
+        private final Executor executor;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+        
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+        
+        @Override
+        public synchronized void execute(@NonNull Runnable command) {
+            tasks.add(() -> {
+                try {
+                    command.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+        
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                executor.execute(active);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.example.tasks.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 冷启动时间线，记录各阶段相对进程启动的耗时并输出到logcat（tag: StartupTimeline）
+ * 每个阶段每个进程只记录一次，之后的调用被忽略
+ *
+ * 首行渲染分别记录快照来源和实时数据来源，两者之差即快照节省的时间：
+ * adb logcat -s StartupTimeline
+ */
+public final class StartupTimeline {
+    
+    private static final String TAG = "StartupTimeline";
+    
+    public static final String ACTIVITY_CREATE = "activity_create";
+    public static final String SNAPSHOT_LOADED = "snapshot_loaded";
+    public static final String FIRST_ROW_SNAPSHOT = "first_row_snapshot";
+    public static final String FIRST_ROW_LIVE = "first_row_live";
+    
+    private static final Set<String> recorded = new HashSet<>();
+    
+    private StartupTimeline() {
+    }
+    
+    /**
+     * 记录一个阶段，detail为附加说明，可为null
+     */
+    public static synchronized void mark(String stage, String detail) {
+        if (!recorded.add(stage)) return;
+        long elapsed = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        Log.i(TAG, stage + " +" + elapsed + "ms" + (detail != null ? " (" + detail + ")" : ""));
+    }
+    
+    public static void mark(String stage) {
+        mark(stage, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.outbox.WriteOutbox;
+import com.example.tasks.data.repositories.TodoRepository;
+import com.example.tasks.ui.viewmodel.TodoViewModel;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 数据层规模基准：在1k、10k、100k条待办事项上分别测量TodoDao查询、TodoRepository实体到模型的转换
+ * 以及TodoViewModel派生LiveData的刷新耗时
+ * repository.todoById与dao.todoById之差即为展开详情时实体到模型的转换开销
+ *
+ * 结果写入 build/reports/benchmarks/data-layer-benchmark.json，数据集固定种子生成，可在不同构建之间直接diff
+ * 默认跳过，运行方式：./gradlew :app:testDebugUnitTest --tests "*DataLayerBenchmark" -Pbenchmark=true
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DataLayerBenchmark {
+
+    private static final int[] SCALES = {1_000, 10_000, 100_000};
+    private static final int WARMUP = 3;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final File REPORT = new File("build/reports/benchmarks/data-layer-benchmark.json");
+
+    // LiveData的分发和Room的查询都在当前线程同步执行，测得的是完整的刷新耗时
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        assumeTrue("未开启基准测试", Boolean.getBoolean("benchmark"));
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void dataLayerAtScale() throws IOException {
+        List<ScaleResult> results = new ArrayList<>();
+        for (int scale : SCALES) {
+            results.add(run(scale));
+        }
+        writeReport(results);
+        System.out.println("data layer benchmark report: " + REPORT.getAbsolutePath());
+    }
+
+    private ScaleResult run(int todoCount) {
+        SyntheticDataset dataset = new SyntheticDataset.Builder()
+                .setTodoCount(todoCount)
+                .build();
+        TodoDatabase database = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run)
+                .setTransactionExecutor(Runnable::run)
+                .build();
+        try {
+            Migrations.createSubTaskCountTriggers(database.getOpenHelper().getWritableDatabase());
+            SearchIndex.ensureCreated(database.getOpenHelper().getWritableDatabase());
+            TodoDao dao = database.todoDao();
+            ScaleResult result = new ScaleResult(dataset);
+
+            long seedStart = System.nanoTime();
+            dataset.insertInto(dao);
+            result.add("seed.insert", Collections.singletonList(System.nanoTime() - seedStart));
+
+            // 大数据量时减少迭代次数，控制总时长
+            int iterations = todoCount >= 100_000 ? 5 : todoCount >= 10_000 ? 20 : 50;
+            long base = dataset.getBaseTime();
+            long dayStart = TodoRepository.startOfDay(base);
+            List<String> ids = dataset.getTodoIds();
+            Random random = new Random(7);
+
+            result.add("dao.incompleteHead", measure(iterations, () -> dao.getIncompleteTodosHead(30)));
+            result.add("dao.statsNow", measure(iterations,
+                    () -> dao.getTodoStatsNow(base, dayStart, TodoRepository.endOfDay(dayStart))));
+            result.add("dao.todoById", measure(iterations,
+                    () -> dao.getTodoById(ids.get(random.nextInt(ids.size())))));
+            result.add("dao.search", measure(iterations, () -> dao.search("rep", 50)));
+
+            // 基准只读不写，写队列不会用到
+            TodoRepository repository = new TodoRepository(dao, WriteOutbox.getInstance(context));
+            result.add("repository.todoById", measure(iterations,
+                    () -> repository.getTodoById(ids.get(random.nextInt(ids.size())))));
+
+            TodoViewModel viewModel = new TodoViewModel(repository);
+            List<Runnable> detach = new ArrayList<>();
+            detach.add(observe(viewModel.getSelectedDayIncompleteTodos()));
+            detach.add(observe(viewModel.getSelectedDayCompletedTodos()));
+            detach.add(observe(viewModel.getSelectedMonthTaskCounts()));
+            detach.add(observe(viewModel.getTodoStats()));
+            int[] day = {0};
+            // 同月内切换只刷新当天列表，跨月切换还会重新统计月度分布
+            result.add("viewModel.selectDate.sameMonth", measure(iterations,
+                    () -> viewModel.selectDate(dayStart + (day[0]++ % 2) * DAY_MS)));
+            int[] month = {0};
+            result.add("viewModel.selectDate.otherMonth", measure(iterations,
+                    () -> viewModel.selectDate(dayStart + (++month[0] % 2 == 0 ? 0 : 40 * DAY_MS))));
+            result.add("viewModel.refreshStats", measure(iterations, viewModel::refreshStats));
+            for (Runnable remove : detach) {
+                remove.run();
+            }
+            return result;
+        } finally {
+            database.close();
+        }
+    }
+
+    private static List<Long> measure(int iterations, Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        List<Long> samples = new ArrayList<>(iterations);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples.add(System.nanoTime() - start);
+        }
+        return samples;
+    }
+
+    /**
+     * 保持订阅，返回取消订阅的操作
+     */
+    private static <T> Runnable observe(LiveData<T> liveData) {
+        Observer<T> observer = value -> { };
+        liveData.observeForever(observer);
+        return () -> liveData.removeObserver(observer);
+    }
+
+    /**
+     * 报告只包含数据集参数和耗时统计，不写入时间戳等每次都会变化的内容
+     */
+    private static void writeReport(List<ScaleResult> results) throws IOException {
+        File dir = REPORT.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录 " + dir);
+        }
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                new FileOutputStream(REPORT), StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("benchmark").value("data-layer");
+            writer.name("unit").value("ms");
+            writer.name("scales").beginArray();
+            for (ScaleResult result : results) {
+                writer.beginObject();
+                writer.name("todos").value(result.dataset.getTodos().size());
+                writer.name("subTasks").value(result.dataset.getSubTasks().size());
+                writer.name("dataset").value(result.dataset.toString());
+                writer.name("metrics").beginObject();
+                for (int i = 0; i < result.names.size(); i++) {
+                    List<Long> sorted = new ArrayList<>(result.samples.get(i));
+                    Collections.sort(sorted);
+                    writer.name(result.names.get(i)).beginObject();
+                    writer.name("iterations").value(sorted.size());
+                    writer.name("min").value(millis(sorted.get(0)));
+                    writer.name("p50").value(millis(sorted.get(sorted.size() / 2)));
+                    writer.name("p95").value(millis(sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * 0.95)))));
+                    writer.name("max").value(millis(sorted.get(sorted.size() - 1)));
+                    writer.endObject();
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    private static double millis(long nanos) {
+        // 保留3位小数，便于diff
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static class ScaleResult {
+        final SyntheticDataset dataset;
+        final List<String> names = new ArrayList<>();
+        final List<List<Long>> samples = new ArrayList<>();
+
+        ScaleResult(SyntheticDataset dataset) {
+            this.dataset = dataset;
+        }
+
+        void add(String name, List<Long> values) {
+            names.add(name);
+            samples.add(values);
+        }
+    }
+}
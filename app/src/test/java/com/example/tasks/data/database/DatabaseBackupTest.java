@@ -0,0 +1,165 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.models.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 变更跟踪触发器，以及完整备份、增量备份和恢复的往返
+ * Room禁止在主线程查询，数据库操作都放到后台线程执行
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseBackupTest {
+
+    private Context context;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        onBackground(() -> {
+            TodoDatabase.closeDatabase();
+            return null;
+        });
+        executor.shutdown();
+    }
+
+    @Test
+    public void triggersStampChangesAndRecordDeletes() throws Exception {
+        onBackground(() -> {
+            TodoDao dao = TodoDatabase.getDatabase(context).todoDao();
+            dao.insertTodo(todo("t1", "first"));
+            long inserted = dao.getTodoById("t1").todo.updatedAt;
+            assertTrue(inserted > 0);
+
+            TodoEntity edited = dao.getTodoById("t1").todo;
+            edited.title = "edited";
+            dao.updateTodo(edited);
+            assertTrue(dao.getTodoById("t1").todo.updatedAt > inserted);
+
+            dao.deleteTodoById("t1");
+            try (Cursor deleted = dao.getDeletedRowsBetween(0, Long.MAX_VALUE)) {
+                assertEquals(1, deleted.getCount());
+            }
+            // 重新插入同一ID时删除记录作废
+            dao.insertTodo(todo("t1", "again"));
+            try (Cursor deleted = dao.getDeletedRowsBetween(0, Long.MAX_VALUE)) {
+                assertEquals(0, deleted.getCount());
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void restoreAppliesFullAndIncrementalBackups() throws Exception {
+        DatabaseBackup backup = new DatabaseBackup(context);
+        onBackground(() -> {
+            TodoDao dao = TodoDatabase.getDatabase(context).todoDao();
+            dao.insertTodoWithSubTasks(todo("t1", "first"), Arrays.asList(
+                    new SubTaskEntity("s1", "t1", "old step", false, 0L, 0)));
+            dao.insertTodo(todo("t2", "second"));
+            File full = backup.backupFull();
+            assertTrue(full.getName().startsWith("full-"));
+
+            // 增量备份的截止时间比当前时间早1毫秒
+            Thread.sleep(5);
+            TodoEntity edited = dao.getTodoById("t1").todo;
+            edited.title = "first edited";
+            dao.updateTodoWithSubTasks(edited, Arrays.asList(
+                    new SubTaskEntity("s2", "t1", "new step", true, 0L, 0)));
+            dao.deleteTodoById("t2");
+            dao.insertTodo(todo("t3", "third"));
+            Thread.sleep(5);
+            assertNotNull(backup.backupIncremental());
+            assertEquals(1, backup.getIncrementalCount());
+            // 没有新的变化时不写文件
+            assertNull(backup.backupIncremental());
+
+            // 备份之后的修改在恢复后丢失
+            dao.insertTodo(todo("t4", "after backup"));
+            backup.restoreLatest();
+
+            TodoDao restored = TodoDatabase.getDatabase(context).todoDao();
+            TodoWithSubTasks first = restored.getTodoById("t1");
+            assertEquals("first edited", first.todo.title);
+            assertEquals(1, first.subTasks.size());
+            assertEquals("new step", first.subTasks.get(0).title);
+            assertEquals(1, first.todo.subtaskTotal);
+            assertEquals(1, first.todo.subtaskDone);
+            assertNull(restored.getTodoById("t2"));
+            assertNotNull(restored.getTodoById("t3"));
+            assertNull(restored.getTodoById("t4"));
+            // 触发器和全文索引在重新打开时重建
+            assertEquals(1, restored.search("edited", 10).size());
+            return null;
+        });
+    }
+
+    @Test
+    public void incrementalBackupCarriesOccurrenceCompletions() throws Exception {
+        DatabaseBackup backup = new DatabaseBackup(context);
+        long day = 86_400_000L;
+        onBackground(() -> {
+            TodoDao dao = TodoDatabase.getDatabase(context).todoDao();
+            TodoEntity daily = todo("t1", "daily");
+            daily.dueDate = 1_000L;
+            daily.recurrence = "FREQ=DAILY";
+            dao.insertTodo(daily);
+            dao.toggleOccurrence("t1", day, 1L);
+            backup.backupFull();
+
+            // 取消一天、完成另一天；完成时间早于完整备份，增量备份按写入时间筛选
+            Thread.sleep(5);
+            dao.toggleOccurrence("t1", day, 2L);
+            dao.toggleOccurrence("t1", 2 * day, 1L);
+            Thread.sleep(5);
+            assertNotNull(backup.backupIncremental());
+            backup.restoreLatest();
+
+            List<RecurrenceExceptionEntity> restored = TodoDatabase.getDatabase(context).todoDao()
+                    .getRecurrenceExceptionsBetweenNow(0, Long.MAX_VALUE);
+            assertEquals(1, restored.size());
+            assertEquals(2 * day, restored.get(0).occurrenceDate);
+            assertEquals(1L, restored.get(0).completedAt);
+            return null;
+        });
+    }
+
+    private <T> T onBackground(Callable<T> task) throws Exception {
+        return executor.submit(task).get();
+    }
+
+    private static TodoEntity todo(String id, String title) {
+        return new TodoEntity(id, title, "", false, Priority.MEDIUM, null, 1L, null);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.RoomDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 并发读写基准：在5万行数据上执行批量写入的同时，测量列表分页查询的延迟
+ * 分别在WAL和TRUNCATE日志模式下运行，输出p50/p95/max
+ *
+ * 默认跳过，运行方式：./gradlew :app:testDebugUnitTest --tests "*DatabaseConcurrencyBenchmark" -Pbenchmark=true
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseConcurrencyBenchmark {
+
+    private static final int SEED_ROWS = 50_000;
+    private static final int WRITE_BATCH = 5_000;
+    private static final int PAGE_SIZE = 30;
+
+    // 与TodoDao.getIncompleteTodosPaged相同的列表查询
+    private static final String LIST_QUERY = "SELECT id, title, substr(description, 1, 120) AS descriptionPreview, "
+            + "isCompleted, priority, dueDate, completedAt, subtaskTotal, subtaskDone FROM todos "
+            + "WHERE isCompleted = 0 ORDER BY priority DESC, dueDate ASC LIMIT ? OFFSET ?";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        assumeTrue("未开启基准测试", Boolean.getBoolean("benchmark"));
+        context = ApplicationProvider.getApplicationContext();
+    }
+
+    @Test
+    public void listQueryLatencyDuringBulkWrite() throws Exception {
+        DatabaseConfig wal = DatabaseConfig.defaults();
+        DatabaseConfig rollback = new DatabaseConfig.Builder()
+                .setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+                .setSynchronous(DatabaseConfig.Synchronous.FULL)
+                .build();
+
+        // Room禁止在主线程访问数据库，Robolectric的测试线程就是主线程
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (DatabaseConfig config : Arrays.asList(wal, rollback)) {
+                System.out.println(executor.submit(() -> run(config)).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String run(DatabaseConfig config) throws Exception {
+        String name = "benchmark_" + config.getJournalMode().name().toLowerCase(Locale.ROOT) + ".db";
+        context.deleteDatabase(name);
+        TodoDatabase database = TodoDatabase.build(context, name, config);
+        try {
+            TodoDao dao = database.todoDao();
+            List<String> ids = seed(dao);
+
+            // 后台线程循环执行批量完成/取消完成，模拟多选操作
+            AtomicBoolean writing = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                boolean completed = true;
+                int offset = 0;
+                while (writing.get()) {
+                    int end = Math.min(ids.size(), offset + WRITE_BATCH);
+                    dao.setCompleted(ids.subList(offset, end), completed, completed ? System.currentTimeMillis() : null);
+                    offset = end >= ids.size() ? 0 : end;
+                    completed = !completed;
+                }
+            }, "bulk-writer");
+            writer.start();
+
+            List<Long> latencies = new ArrayList<>();
+            try {
+                for (int i = 0; i < 500; i++) {
+                    long start = System.nanoTime();
+                    try (Cursor cursor = database.query(LIST_QUERY, new Object[]{PAGE_SIZE, (i % 20) * PAGE_SIZE})) {
+                        while (cursor.moveToNext()) {
+                            cursor.getString(0);
+                        }
+                    }
+                    latencies.add(System.nanoTime() - start);
+                }
+            } finally {
+                writing.set(false);
+                writer.join();
+            }
+            return format(config, latencies);
+        } finally {
+            database.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    private static List<String> seed(TodoDao dao) {
+        SyntheticDataset dataset = new SyntheticDataset.Builder()
+                .setTodoCount(SEED_ROWS)
+                .build();
+        dataset.insertInto(dao);
+        return dataset.getTodoIds();
+    }
+
+    private static String format(DatabaseConfig config, List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        return String.format(Locale.ROOT, "%s  list query p50=%.2fms p95=%.2fms max=%.2fms (n=%d)",
+                config,
+                sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.95)) / 1e6,
+                sorted.get(sorted.size() - 1) / 1e6,
+                sorted.size());
+    }
+}
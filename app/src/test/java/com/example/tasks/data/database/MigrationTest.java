@@ -0,0 +1,227 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+/**
+ * 逐个版本校验迁移：按导出的schema创建旧版本数据库，迁移后与新版本的schema比对，并检查数据保留
+ * schema文件在 app/schemas 下，作为测试资源加载
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), TodoDatabase.class);
+
+    @Test
+    public void migrate3To4MovesSubTasksIntoTheirOwnTable() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 3)) {
+            db.execSQL("INSERT INTO todos (id, title, description, isCompleted, priority, dueDate, subTasks, "
+                    + "createdAt, completedAt) VALUES ('t1', 'Trip', '', 0, 'HIGH', NULL, "
+                    + "'[{\"id\":\"s1\",\"title\":\"pack\",\"isCompleted\":true,\"createdAt\":1},"
+                    + "{\"id\":\"s2\",\"title\":\"book\",\"isCompleted\":false,\"createdAt\":2}]', 1, NULL)");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 4, true,
+                Migrations.MIGRATION_3_4)) {
+            assertEquals("Trip", queryString(db, "SELECT title FROM todos WHERE id = 't1'"));
+            assertEquals("s1,s2", queryString(db,
+                    "SELECT group_concat(id) FROM (SELECT id FROM subtasks WHERE todoId = 't1' ORDER BY position)"));
+            assertEquals(1, queryLong(db, "SELECT isCompleted FROM subtasks WHERE id = 's1'"));
+            assertEquals(1, queryLong(db, "SELECT position FROM subtasks WHERE id = 's2'"));
+        }
+    }
+
+    @Test
+    public void migrate4To5KeepsRows() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 4)) {
+            insertTodo(db, "t1", "'MEDIUM'");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 5, true,
+                Migrations.MIGRATION_4_5)) {
+            assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM todos"));
+        }
+    }
+
+    @Test
+    public void migrate5To6ConvertsPriorityNamesToRanks() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5)) {
+            insertTodo(db, "low", "'LOW'");
+            insertTodo(db, "urgent", "'URGENT'");
+            insertTodo(db, "unknown", "'SOMEDAY'");
+            insertTodo(db, "none", "NULL");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 6, true,
+                Migrations.MIGRATION_5_6)) {
+            assertEquals(0, queryLong(db, "SELECT priority FROM todos WHERE id = 'low'"));
+            assertEquals(3, queryLong(db, "SELECT priority FROM todos WHERE id = 'urgent'"));
+            assertEquals(1, queryLong(db, "SELECT priority FROM todos WHERE id = 'unknown'"));
+            assertEquals(1, queryLong(db, "SELECT priority FROM todos WHERE id = 'none'"));
+        }
+    }
+
+    @Test
+    public void migrate6To7BackfillsSubTaskCounts() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 6)) {
+            insertTodo(db, "t1", "1");
+            insertTodo(db, "t2", "1");
+            insertSubTask(db, "s1", "t1", true, 0);
+            insertSubTask(db, "s2", "t1", true, 1);
+            insertSubTask(db, "s3", "t1", false, 2);
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 7, true,
+                Migrations.MIGRATION_6_7)) {
+            assertEquals(3, queryLong(db, "SELECT subtaskTotal FROM todos WHERE id = 't1'"));
+            assertEquals(2, queryLong(db, "SELECT subtaskDone FROM todos WHERE id = 't1'"));
+            assertEquals(0, queryLong(db, "SELECT subtaskTotal FROM todos WHERE id = 't2'"));
+        }
+    }
+
+    @Test
+    public void migrate7To8AddsArchiveTable() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7)) {
+            insertTodo(db, "t1", "1");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 8, true,
+                Migrations.MIGRATION_7_8)) {
+            assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM todos"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM archived_todos"));
+        }
+    }
+
+    @Test
+    public void migrate8To9BackfillsUpdatedAt() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 8)) {
+            insertTodo(db, "open", "1");
+            db.execSQL("INSERT INTO todos (id, title, description, isCompleted, priority, createdAt, completedAt) "
+                    + "VALUES ('done', 'done', '', 1, 1, 100, 200)");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 9, true,
+                Migrations.MIGRATION_8_9)) {
+            assertEquals(100, queryLong(db, "SELECT updatedAt FROM todos WHERE id = 'open'"));
+            assertEquals(200, queryLong(db, "SELECT updatedAt FROM todos WHERE id = 'done'"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM deleted_rows"));
+        }
+    }
+
+    @Test
+    public void migrate9To10AddsSyncVersionAndChangeLog() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 9)) {
+            insertTodo(db, "t1", "1");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 10, true,
+                Migrations.MIGRATION_9_10)) {
+            assertEquals(0, queryLong(db, "SELECT version FROM todos WHERE id = 't1'"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM changes"));
+        }
+    }
+
+    @Test
+    public void migrate10To11AddsOutboxState() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 10)) {
+            insertTodo(db, "t1", "1");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 11, true,
+                Migrations.MIGRATION_10_11)) {
+            assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM todos"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM outbox_state"));
+        }
+    }
+
+    @Test
+    public void migrate11To12AddsRecurrence() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 11)) {
+            insertTodo(db, "t1", "1");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 12, true,
+                Migrations.MIGRATION_11_12)) {
+            assertNull(queryString(db, "SELECT recurrence FROM todos WHERE id = 't1'"));
+            assertEquals(0, queryLong(db, "SELECT COUNT(*) FROM recurrence_exceptions"));
+        }
+    }
+
+    @Test
+    public void migrate12To13StampsExistingCompletions() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 12)) {
+            insertTodo(db, "t1", "1");
+            db.execSQL("INSERT INTO recurrence_exceptions (todoId, occurrenceDate, completedAt) "
+                    + "VALUES ('t1', 86400000, 90000000)");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 13, true,
+                Migrations.MIGRATION_12_13)) {
+            assertEquals(90_000_000L, queryLong(db,
+                    "SELECT updatedAt FROM recurrence_exceptions WHERE todoId = 't1'"));
+        }
+    }
+
+    @Test
+    public void migrateAllFrom3KeepsTodosAndSubTasks() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 3)) {
+            db.execSQL("INSERT INTO todos (id, title, description, isCompleted, priority, dueDate, subTasks, "
+                    + "createdAt, completedAt) VALUES ('t1', 'Trip', '', 0, 'URGENT', 5000, "
+                    + "'[{\"id\":\"s1\",\"title\":\"pack\",\"isCompleted\":true,\"createdAt\":1}]', 1, NULL)");
+        }
+
+        try (SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 13, true,
+                Migrations.ALL)) {
+            assertEquals(3, queryLong(db, "SELECT priority FROM todos WHERE id = 't1'"));
+            assertEquals(5000, queryLong(db, "SELECT dueDate FROM todos WHERE id = 't1'"));
+            assertEquals(1, queryLong(db, "SELECT subtaskDone FROM todos WHERE id = 't1'"));
+            assertTrue(queryLong(db, "SELECT updatedAt FROM todos WHERE id = 't1'") > 0);
+            assertEquals(1, queryLong(db, "SELECT COUNT(*) FROM subtasks WHERE todoId = 't1'"));
+        }
+    }
+
+    private static void insertTodo(SupportSQLiteDatabase db, String id, String priority) {
+        db.execSQL("INSERT INTO todos (id, title, description, isCompleted, priority, createdAt) "
+                + "VALUES ('" + id + "', '" + id + "', '', 0, " + priority + ", 100)");
+    }
+
+    private static void insertSubTask(SupportSQLiteDatabase db, String id, String todoId, boolean completed,
+                                      int position) {
+        db.execSQL("INSERT INTO subtasks (id, todoId, title, isCompleted, createdAt, position) "
+                + "VALUES ('" + id + "', '" + todoId + "', 'step', " + (completed ? 1 : 0) + ", 1, " + position + ")");
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        }
+    }
+
+    private static String queryString(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.TodoSearchResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 全文索引：触发器同步、排序和高亮摘要
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SearchIndexTest {
+
+    private TodoDatabase database;
+    private TodoDao dao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        SearchIndex.ensureCreated(database.getOpenHelper().getWritableDatabase());
+        dao = database.todoDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void matchExpressionUsesPrefixTermsAndStripsSyntax() {
+        assertEquals("\"milk*\" \"buy*\"", SearchIndex.toMatchExpression("  milk   buy "));
+        assertEquals("\"a*\" \"b*\"", SearchIndex.toMatchExpression("\"a b\""));
+        assertNull(SearchIndex.toMatchExpression("   "));
+        assertNull(SearchIndex.toMatchExpression("\"*\""));
+        assertNull(SearchIndex.toMatchExpression(null));
+    }
+
+    @Test
+    public void titleMatchExpressionFiltersTitleColumnWordByWord() {
+        assertEquals("title:e* title:mail*", SearchIndex.toTitleMatchExpression(" E-mail "));
+        assertEquals("title:or* title:not*", SearchIndex.toTitleMatchExpression("OR \"not\""));
+        assertNull(SearchIndex.toTitleMatchExpression("-- *"));
+        assertNull(SearchIndex.toTitleMatchExpression(null));
+    }
+
+    @Test
+    public void hanCharactersAreSplitIntoAPhrase() {
+        assertEquals("\"买  牛  奶*\"", SearchIndex.toMatchExpression("买牛奶"));
+        assertEquals("\"iphone 手  机*\" \"milk*\"", SearchIndex.toMatchExpression("iphone手机 milk"));
+        assertEquals("title:牛* title:奶*", SearchIndex.toTitleMatchExpression("牛奶"));
+        assertEquals(" 买  牛  milk", SearchIndex.splitHan("买牛 milk"));
+        // 摘要的高亮标记加在切开后的单字两侧
+        assertEquals("买" + SearchIndex.HIGHLIGHT_START + "牛" + SearchIndex.HIGHLIGHT_END + " milk",
+                SearchIndex.joinHan(" 买  " + SearchIndex.HIGHLIGHT_START + "牛" + SearchIndex.HIGHLIGHT_END + "  milk"));
+    }
+
+    @Test
+    public void findsChineseWordInsideLongerRun() {
+        dao.insertTodo(todo("t1", "周末去超市买牛奶和面包", ""));
+        dao.insertTodoWithSubTasks(todo("t2", "准备", "出门前"),
+                Collections.singletonList(subTask("s1", "t2", "给妈妈打电话")));
+        dao.insertTodo(todo("t3", "奶茶", "不要面包"));
+
+        List<TodoSearchResult> results = dao.search("牛奶", 10);
+        assertEquals(Collections.singletonList("t1"), ids(results));
+        assertEquals("周末去超市买" + SearchIndex.HIGHLIGHT_START + "牛" + SearchIndex.HIGHLIGHT_END
+                + SearchIndex.HIGHLIGHT_START + "奶" + SearchIndex.HIGHLIGHT_END + "和面包", results.get(0).getSnippet());
+
+        assertEquals(Collections.singletonList("t2"), ids(dao.search("打电话", 10)));
+        // 两个字都出现但不相邻，不算命中
+        assertTrue(dao.search("奶面", 10).isEmpty());
+    }
+
+    @Test
+    public void chinesePrefixMatchesWithinRun() {
+        dao.insertTodo(todo("t1", "整理房间", "clean up"));
+        dao.insertTodo(todo("t2", "学习英语", "房租"));
+
+        assertEquals(Collections.singletonList("t1"), ids(dao.search("理房", 10)));
+        assertEquals(Arrays.asList("t1", "t2"), ids(dao.search("房", 10)));
+        assertEquals(Collections.singletonList("t1"), ids(dao.search("房 clea", 10)));
+    }
+
+    @Test
+    public void indexFromOlderVersionIsRebuiltWithSplitHan() {
+        dao.insertTodo(todo("t1", "周末去超市买牛奶", ""));
+        // 旧版本没有序号表，索引中是原文
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("DROP TABLE " + SearchIndex.POSITIONS_TABLE);
+        db.execSQL("UPDATE " + SearchIndex.TABLE + " SET title = '周末去超市买牛奶'");
+        assertTrue(dao.search("牛奶", 10).isEmpty());
+
+        SearchIndex.ensureCreated(db);
+
+        assertEquals(Collections.singletonList("t1"), ids(dao.search("牛奶", 10)));
+        dao.insertTodo(todo("t2", "牛奶", ""));
+        assertEquals(2, dao.search("牛奶", 10).size());
+    }
+
+    @Test
+    public void findsTitleDescriptionAndSubTaskMatches() {
+        dao.insertTodo(todo("t1", "Buy milk", "on the way home"));
+        dao.insertTodo(todo("t2", "Groceries", "remember the milk"));
+        dao.insertTodoWithSubTasks(todo("t3", "Weekend", ""),
+                Collections.singletonList(subTask("s1", "t3", "milkshake for kids")));
+        dao.insertTodo(todo("t4", "Dentist", "book appointment"));
+
+        List<TodoSearchResult> results = dao.search("mil", 10);
+
+        assertEquals(Arrays.asList("t1", "t3", "t2"), ids(results));
+        assertTrue(results.get(0).getSnippet().contains(SearchIndex.HIGHLIGHT_START + "milk" + SearchIndex.HIGHLIGHT_END));
+    }
+
+    @Test
+    public void titleMatchesBeyondCandidateLimitStillRankFirst() {
+        List<TodoEntity> batch = new ArrayList<>();
+        for (int i = 0; i < SearchIndex.MAX_CANDIDATES + 100; i++) {
+            batch.add(todo("d" + i, "note " + i, "budget draft"));
+        }
+        dao.insertAll(batch);
+        dao.insertTodo(todo("t1", "Budget review", ""));
+
+        List<TodoSearchResult> results = dao.search("budget", 3);
+
+        assertEquals(3, results.size());
+        assertEquals("t1", results.get(0).getId());
+        for (TodoSearchResult result : results) {
+            assertTrue(result.getSnippet().contains(String.valueOf(SearchIndex.HIGHLIGHT_START)));
+        }
+    }
+
+    @Test
+    public void indexFollowsUpdatesAndDeletes() {
+        dao.insertTodoWithSubTasks(todo("t1", "Report", ""),
+                Collections.singletonList(subTask("s1", "t1", "charts")));
+
+        dao.updateTodo(todo("t1", "Quarterly summary", ""));
+        assertTrue(dao.search("report", 10).isEmpty());
+        assertEquals(Collections.singletonList("t1"), ids(dao.search("quarterly", 10)));
+
+        dao.deleteSubTaskById("s1");
+        assertTrue(dao.search("charts", 10).isEmpty());
+        dao.insertSubTask(subTask("s2", "t1", "tables"));
+        assertEquals(Collections.singletonList("t1"), ids(dao.search("tables", 10)));
+
+        dao.deleteTodoById("t1");
+        assertTrue(dao.search("quarterly", 10).isEmpty());
+    }
+
+    @Test
+    public void replaceDoesNotLeaveStaleDocuments() {
+        dao.insertAll(Collections.singletonList(todo("t1", "Old title", "")));
+        dao.insertAll(Collections.singletonList(todo("t1", "New title", "")));
+
+        assertTrue(dao.search("old", 10).isEmpty());
+        assertEquals(1, countDocuments());
+    }
+
+    @Test
+    public void rebuildRestoresIndexFromTables() {
+        dao.insertTodo(todo("t1", "Plan trip", ""));
+        database.getOpenHelper().getWritableDatabase().execSQL("DELETE FROM " + SearchIndex.TABLE);
+        assertTrue(dao.search("trip", 10).isEmpty());
+
+        SearchIndex.rebuild(database.getOpenHelper().getWritableDatabase());
+
+        assertEquals(Collections.singletonList("t1"), ids(dao.search("trip", 10)));
+    }
+
+    /**
+     * 10万行数据上的搜索延迟，p95需在一帧（16ms）以内，默认跳过，-Pbenchmark=true时运行
+     */
+    @Test
+    public void searchLatencyAt100kRows() {
+        assumeTrue("未开启基准测试", Boolean.getBoolean("benchmark"));
+        String[] words = {"buy", "milk", "report", "meeting", "dentist", "gym", "email", "review",
+                "code", "deploy", "call", "plan", "trip", "pay", "bills"};
+        String[] hanWords = {"买牛奶", "写报告", "开会", "看牙医", "健身", "发邮件", "代码审查", "部署",
+                "打电话", "旅行计划", "付账单", "读书", "整理房间", "学习英语", "购物"};
+        List<TodoEntity> batch = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            // 一半英文，一半连写不带空格的中文
+            String[] w = i % 2 == 0 ? words : hanWords;
+            String separator = i % 2 == 0 ? " " : "";
+            String title = w[i % w.length] + separator + w[(i / 7) % w.length] + separator + i;
+            batch.add(todo("t" + i, title, w[(i / 3) % w.length]));
+            if (batch.size() == 1_000) {
+                dao.insertAll(batch);
+                batch.clear();
+            }
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        for (String query : Arrays.asList("mil", "dent rev", "4242", "re", "pay bi", "牛奶", "审查 代码", "房",
+                "报告")) {
+            for (int i = 0; i < 20; i++) {
+                long start = System.nanoTime();
+                dao.search(query, 50);
+                latencies.add(System.nanoTime() - start);
+            }
+        }
+        Collections.sort(latencies);
+        long p95 = latencies.get((int) (latencies.size() * 0.95));
+        System.out.println(String.format(Locale.ROOT, "search p50=%.2fms p95=%.2fms max=%.2fms",
+                latencies.get(latencies.size() / 2) / 1e6, p95 / 1e6,
+                latencies.get(latencies.size() - 1) / 1e6));
+        assertTrue("p95超出16ms：" + p95 / 1e6 + "ms", p95 < 16_000_000L);
+    }
+
+    private int countDocuments() {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + SearchIndex.TABLE, null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private static TodoEntity todo(String id, String title, String description) {
+        return new TodoEntity(id, title, description, false, Priority.MEDIUM, null, 0L, null);
+    }
+
+    private static SubTaskEntity subTask(String id, String todoId, String title) {
+        return new SubTaskEntity(id, todoId, title, false, 0L, 0);
+    }
+
+    private static List<String> ids(List<TodoSearchResult> results) {
+        List<String> ids = new ArrayList<>();
+        for (TodoSearchResult result : results) {
+            ids.add(result.getId());
+        }
+        return ids;
+    }
+}
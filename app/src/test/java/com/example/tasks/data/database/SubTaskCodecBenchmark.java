@@ -0,0 +1,92 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assume.assumeTrue;
+
+import com.example.tasks.data.models.SubTask;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 子任务JSON编解码基准：旧的反射Gson转换器 vs 流式SubTaskJsonCodec
+ * GC profiler输出的gc.alloc.rate.norm即每次操作分配的字节数
+ *
+ * 默认跳过，运行方式：./gradlew :app:testDebugUnitTest --tests "*SubTaskCodecBenchmark" -Pbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(0)
+public class SubTaskCodecBenchmark {
+
+    @Param({"0", "5", "50", "500"})
+    public int size;
+
+    private final Gson gson = new Gson();
+    private List<SubTask> subTasks;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        subTasks = new ArrayList<>(SubTaskJsonCodecTest.sampleSubTasks(size));
+        json = gson.toJson(subTasks);
+    }
+
+    @Benchmark
+    public List<SubTask> decodeReflectiveGson() {
+        // 与旧Converters.toSubTaskList相同：每次调用都新建TypeToken
+        Type listType = new TypeToken<List<SubTask>>(){}.getType();
+        List<SubTask> result = gson.fromJson(json, listType);
+        return result != null ? result : new ArrayList<>();
+    }
+
+    @Benchmark
+    public List<SubTask> decodeStreamingCodec() {
+        return SubTaskJsonCodec.decode(json);
+    }
+
+    @Benchmark
+    public String encodeReflectiveGson() {
+        return gson.toJson(subTasks);
+    }
+
+    @Benchmark
+    public String encodeStreamingCodec() {
+        return SubTaskJsonCodec.encode(subTasks);
+    }
+
+    @Test
+    public void runBenchmark() throws RunnerException {
+        assumeTrue("未开启基准测试", Boolean.getBoolean("benchmark"));
+
+        Options options = new OptionsBuilder()
+                .include(SubTaskCodecBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
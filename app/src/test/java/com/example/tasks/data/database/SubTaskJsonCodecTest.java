@@ -0,0 +1,93 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tasks.data.models.SubTask;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式编解码必须能读取旧版Gson反射写入的JSON，且Gson也能读取新编码
+ */
+public class SubTaskJsonCodecTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void decodesLegacyGsonJson() {
+        List<SubTask> original = sampleSubTasks(5);
+        String legacy = gson.toJson(original);
+
+        List<SubTask> decoded = SubTaskJsonCodec.decode(legacy);
+
+        assertSameSubTasks(original, decoded);
+    }
+
+    @Test
+    public void encodedJsonIsReadableByGson() {
+        List<SubTask> original = sampleSubTasks(5);
+
+        List<SubTask> decoded = gson.fromJson(SubTaskJsonCodec.encode(original),
+                new TypeToken<List<SubTask>>(){}.getType());
+
+        assertSameSubTasks(original, decoded);
+    }
+
+    @Test
+    public void nullAndEmptyInputDecodeToEmptyList() {
+        assertTrue(SubTaskJsonCodec.decode(null).isEmpty());
+        assertTrue(SubTaskJsonCodec.decode("").isEmpty());
+        assertTrue(SubTaskJsonCodec.decode("null").isEmpty());
+        assertTrue(SubTaskJsonCodec.decode("[]").isEmpty());
+        assertEquals("null", SubTaskJsonCodec.encode(null));
+    }
+
+    @Test
+    public void toleratesNullFieldsAndUnknownFields() {
+        List<SubTask> decoded = SubTaskJsonCodec.decode(
+                "[{\"id\":\"a\",\"title\":null,\"extra\":{\"x\":[1,2]},\"isCompleted\":true,\"createdAt\":7},null]");
+
+        assertEquals(1, decoded.size());
+        assertEquals("a", decoded.get(0).getId());
+        assertNull(decoded.get(0).getTitle());
+        assertTrue(decoded.get(0).isCompleted());
+        assertEquals(7L, decoded.get(0).getCreatedAt());
+    }
+
+    @Test
+    public void roundTripsSpecialCharacters() {
+        List<SubTask> original = new ArrayList<>();
+        original.add(new SubTask("id", "买菜 \"牛奶\" \\ <鸡蛋>\n换行", false, 1L));
+
+        List<SubTask> decoded = SubTaskJsonCodec.decode(SubTaskJsonCodec.encode(original));
+
+        assertSameSubTasks(original, decoded);
+        assertFalse(decoded.get(0).isCompleted());
+    }
+
+    static List<SubTask> sampleSubTasks(int count) {
+        List<SubTask> subTasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            subTasks.add(new SubTask("subtask-" + i, "子任务 " + i, i % 2 == 0, 1700000000000L + i));
+        }
+        return subTasks;
+    }
+
+    private static void assertSameSubTasks(List<SubTask> expected, List<SubTask> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).isCompleted(), actual.get(i).isCompleted());
+            assertEquals(expected.get(i).getCreatedAt(), actual.get(i).getCreatedAt());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.tasks.data.database;
+
+import com.example.tasks.data.models.Priority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 确定性的测试数据生成器：相同的参数和种子总是生成相同的数据，基准结果可以跨构建比较
+ * 时间都以固定的baseTime为基准，不依赖运行时的当前时间
+ */
+public final class SyntheticDataset {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int INSERT_BATCH = 1_000;
+
+    private static final String[] WORDS = {
+        "整理", "会议", "报告", "采购", "复习", "提交", "预约", "回复", "设计", "部署",
+        "report", "meeting", "review", "deploy", "invoice", "dentist", "gym", "email", "plan", "trip"
+    };
+
+    private final List<TodoEntity> todos;
+    private final List<SubTaskEntity> subTasks;
+    private final Builder config;
+
+    private SyntheticDataset(Builder config, List<TodoEntity> todos, List<SubTaskEntity> subTasks) {
+        this.config = config;
+        this.todos = Collections.unmodifiableList(todos);
+        this.subTasks = Collections.unmodifiableList(subTasks);
+    }
+
+    public List<TodoEntity> getTodos() {
+        return todos;
+    }
+
+    public List<SubTaskEntity> getSubTasks() {
+        return subTasks;
+    }
+
+    public List<String> getTodoIds() {
+        List<String> ids = new ArrayList<>(todos.size());
+        for (TodoEntity todo : todos) {
+            ids.add(todo.id);
+        }
+        return ids;
+    }
+
+    public long getBaseTime() {
+        return config.baseTime;
+    }
+
+    /**
+     * 按批写入数据库，每批一个事务
+     */
+    public void insertInto(TodoDao dao) {
+        int subTaskIndex = 0;
+        for (int start = 0; start < todos.size(); start += INSERT_BATCH) {
+            List<TodoEntity> batch = todos.subList(start, Math.min(todos.size(), start + INSERT_BATCH));
+            // 子任务按所属待办事项的顺序生成，取出属于本批的连续区间
+            String lastId = batch.get(batch.size() - 1).id;
+            int subTaskEnd = subTaskIndex;
+            while (subTaskEnd < subTasks.size() && subTasks.get(subTaskEnd).todoId.compareTo(lastId) <= 0) {
+                subTaskEnd++;
+            }
+            dao.insertAllWithSubTasks(batch, subTasks.subList(subTaskIndex, subTaskEnd));
+            subTaskIndex = subTaskEnd;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "SyntheticDataset{seed=%d, todos=%d, subTasks=%d, maxSubTasks=%d, subTaskProbability=%.2f, "
+                        + "dueDateSpreadDays=%d, noDueDateRatio=%.2f, completionRatio=%.2f}",
+                config.seed, todos.size(), subTasks.size(), config.maxSubTasks, config.subTaskProbability,
+                config.dueDateSpreadDays, config.noDueDateRatio, config.completionRatio);
+    }
+
+    public static class Builder {
+        private long seed = 42L;
+        private int todoCount = 1_000;
+        private int maxSubTasks = 8;
+        private double subTaskProbability = 0.4;
+        private int dueDateSpreadDays = 90;
+        private double noDueDateRatio = 0.2;
+        private double completionRatio = 0.5;
+        private long baseTime = 1_700_000_000_000L;
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder setTodoCount(int todoCount) {
+            this.todoCount = todoCount;
+            return this;
+        }
+
+        /**
+         * 子任务分布：以probability的概率带子任务，数量在1..maxSubTasks之间，小数量更常见
+         */
+        public Builder setSubTaskDistribution(double probability, int maxSubTasks) {
+            this.subTaskProbability = probability;
+            this.maxSubTasks = maxSubTasks;
+            return this;
+        }
+
+        /**
+         * 截止时间在baseTime前后spreadDays天内均匀分布，noDueDateRatio比例的任务没有截止时间
+         */
+        public Builder setDueDateSpread(int spreadDays, double noDueDateRatio) {
+            this.dueDateSpreadDays = spreadDays;
+            this.noDueDateRatio = noDueDateRatio;
+            return this;
+        }
+
+        public Builder setCompletionRatio(double completionRatio) {
+            this.completionRatio = completionRatio;
+            return this;
+        }
+
+        public Builder setBaseTime(long baseTime) {
+            this.baseTime = baseTime;
+            return this;
+        }
+
+        public SyntheticDataset build() {
+            Random random = new Random(seed);
+            Priority[] priorities = Priority.values();
+            List<TodoEntity> todos = new ArrayList<>(todoCount);
+            List<SubTaskEntity> subTasks = new ArrayList<>();
+            for (int i = 0; i < todoCount; i++) {
+                // 定长编号保证ID的字典序与生成顺序一致
+                String id = String.format(Locale.ROOT, "todo-%07d", i);
+                long createdAt = baseTime - (long) (random.nextDouble() * dueDateSpreadDays * DAY_MS);
+                Long dueDate = random.nextDouble() < noDueDateRatio ? null
+                        : baseTime + (long) ((random.nextDouble() * 2 - 1) * dueDateSpreadDays * DAY_MS);
+                boolean completed = random.nextDouble() < completionRatio;
+                Long completedAt = completed ? createdAt + (long) (random.nextDouble() * (baseTime - createdAt)) : null;
+
+                int subTaskCount = random.nextDouble() < subTaskProbability
+                        ? 1 + (int) (Math.pow(random.nextDouble(), 2) * maxSubTasks) : 0;
+                subTaskCount = Math.min(subTaskCount, maxSubTasks);
+                int subTaskDone = 0;
+                for (int position = 0; position < subTaskCount; position++) {
+                    boolean subTaskCompleted = completed || random.nextBoolean();
+                    if (subTaskCompleted) subTaskDone++;
+                    subTasks.add(new SubTaskEntity(id + "-s" + position, id, sentence(random, 3),
+                            subTaskCompleted, createdAt, position));
+                }
+
+                todos.add(new TodoEntity(id, sentence(random, 4), sentence(random, 12), completed,
+                        priorities[random.nextInt(priorities.length)], dueDate, createdAt, completedAt,
+                        subTaskCount, subTaskDone));
+            }
+            return new SyntheticDataset(this, todos, subTasks);
+        }
+
+        private static String sentence(Random random, int words) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < words; i++) {
+                if (i > 0) builder.append(' ');
+                builder.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            return builder.toString();
+        }
+    }
+}
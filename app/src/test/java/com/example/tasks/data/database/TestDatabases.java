@@ -0,0 +1,28 @@
+package com.example.tasks.data.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * 其他包的测试用的内存数据库，带有正式数据库打开时创建的全部触发器和全文索引
+ */
+public final class TestDatabases {
+
+    private TestDatabases() {
+    }
+
+    public static TodoDatabase inMemory(Context context) {
+        TodoDatabase database = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        Migrations.createSubTaskCountTriggers(db);
+        Migrations.createChangeTrackingTriggers(db);
+        Migrations.createSyncTriggers(db);
+        Migrations.createRecurrenceTriggers(db);
+        SearchIndex.ensureCreated(db);
+        return database;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.models.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 归档：分批移动旧的已完成任务、恢复和分批删除
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TodoArchiveTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long CUTOFF = NOW - 30L * 24 * 60 * 60 * 1000;
+
+    private TodoDatabase database;
+    private TodoDao dao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        Migrations.createSubTaskCountTriggers(database.getOpenHelper().getWritableDatabase());
+        dao = database.todoDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void archivesOnlyOldCompletedTodosInChunks() {
+        List<TodoEntity> todos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            todos.add(todo("old-" + i, true, CUTOFF - 1_000 - i));
+        }
+        todos.add(todo("recent", true, CUTOFF + 1_000));
+        todos.add(todo("open", false, null));
+        dao.insertAll(todos);
+
+        assertEquals(2, dao.archiveCompletedBefore(CUTOFF, 2, NOW));
+        assertEquals(2, dao.archiveCompletedBefore(CUTOFF, 2, NOW));
+        assertEquals(1, dao.archiveCompletedBefore(CUTOFF, 2, NOW));
+        assertEquals(0, dao.archiveCompletedBefore(CUTOFF, 2, NOW));
+
+        assertNull(dao.getTodoById("old-0"));
+        assertNotNull(dao.getTodoById("recent"));
+        assertNotNull(dao.getTodoById("open"));
+        ArchivedTodoEntity archived = dao.getArchivedTodoById("old-4");
+        assertNotNull(archived);
+        assertEquals(NOW, archived.archivedAt);
+    }
+
+    @Test
+    public void archiveKeepsSubTasksAndRestoreBringsThemBack() {
+        dao.insertTodoWithSubTasks(todo("t1", true, CUTOFF - 1), Arrays.asList(
+                new SubTaskEntity("s2", "t1", "second", false, 0L, 1),
+                new SubTaskEntity("s1", "t1", "first", true, 0L, 0)));
+
+        dao.archiveCompletedBefore(CUTOFF, 10, NOW);
+        ArchivedTodoEntity archived = dao.getArchivedTodoById("t1");
+        assertEquals(2, archived.subtaskTotal);
+        assertEquals(Arrays.asList("first", "second"),
+                Arrays.asList(archived.subTasks.get(0).getTitle(), archived.subTasks.get(1).getTitle()));
+        assertNull(dao.getSubTaskById("s1"));
+
+        dao.restoreArchivedTodo("t1");
+
+        assertNull(dao.getArchivedTodoById("t1"));
+        TodoWithSubTasks restored = dao.getTodoById("t1");
+        assertFalse(restored.todo.isCompleted);
+        assertNull(restored.todo.completedAt);
+        assertEquals(2, restored.subTasks.size());
+        assertEquals(2, restored.todo.subtaskTotal);
+        assertEquals(1, restored.todo.subtaskDone);
+    }
+
+    @Test
+    public void deleteCompletedTodosIsBounded() {
+        List<TodoEntity> todos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            todos.add(todo("done-" + i, true, NOW));
+        }
+        todos.add(todo("open", false, null));
+        dao.insertAll(todos);
+
+        assertEquals(3, dao.deleteCompletedTodos(3));
+        assertEquals(2, dao.deleteCompletedTodos(3));
+        assertEquals(0, dao.deleteCompletedTodos(3));
+        assertNotNull(dao.getTodoById("open"));
+    }
+
+    private static TodoEntity todo(String id, boolean completed, Long completedAt) {
+        return new TodoEntity(id, id, "", completed, Priority.MEDIUM, null, 0L, completedAt);
+    }
+}
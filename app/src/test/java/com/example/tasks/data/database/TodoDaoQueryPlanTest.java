@@ -0,0 +1,175 @@
+package com.example.tasks.data.database;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 检查TodoDao中每条查询的执行计划，防止新查询退化为全表扫描
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TodoDaoQueryPlanTest {
+
+    private static final String DAO_SOURCE = "src/main/java/com/example/tasks/data/database/TodoDao.java";
+
+    /**
+     * 字符串字面量或常量名，多个之间用+拼接
+     */
+    private static final String TERM = "\"(?:[^\"\\\\]|\\\\.)*\"|[A-Za-z_]\\w*";
+    private static final String CONCAT = "(?:" + TERM + ")(?:\\s*\\+\\s*(?:" + TERM + "))*";
+    private static final Pattern QUERY_ANNOTATION = Pattern.compile("@Query\\(\\s*(" + CONCAT + ")\\s*\\)");
+    private static final Pattern STRING_CONSTANT = Pattern.compile(
+            "(?:(?:public|static|final)\\s+)*String\\s+(\\w+)\\s*=\\s*(" + CONCAT + ")\\s*;");
+    private static final Pattern TERMS = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"|([A-Za-z_]\\w*)");
+    private static final Pattern BIND_PARAM = Pattern.compile(":\\w+");
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?(\\w+)$");
+    private static final String TEMP_SORT = "USE TEMP B-TREE FOR ORDER BY";
+
+    /**
+     * Room为@Relation生成的查询不在DAO源码里，单独列出
+     */
+    private static final String[] GENERATED_QUERIES = {
+        "SELECT * FROM subtasks WHERE todoId IN (?)"
+    };
+
+    private TodoDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void daoSourceContainsQueries() throws IOException {
+        assertFalse("未从TodoDao源码中解析到任何@Query", readDaoQueries().isEmpty());
+    }
+
+    @Test
+    public void queriesDeclaredAsConstantsAreResolved() throws IOException {
+        assertTrue("@Query(STATS_QUERY)未被解析", readDaoQueries().contains(TodoDao.STATS_QUERY));
+    }
+
+    @Test
+    public void noDaoQueryScansWholeTable() throws IOException {
+        List<String> queries = readDaoQueries();
+        for (String query : GENERATED_QUERIES) {
+            queries.add(query);
+        }
+
+        List<String> failures = new ArrayList<>();
+        for (String query : queries) {
+            for (String detail : explain(query)) {
+                Matcher matcher = FULL_SCAN.matcher(detail);
+                if (matcher.matches() && needsIndex(query)) {
+                    failures.add(query + "  ->  " + detail);
+                }
+            }
+        }
+        assertTrue("以下查询退化为全表扫描:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void orderedDaoQueriesAreSortedByIndex() throws IOException {
+        List<String> failures = new ArrayList<>();
+        for (String query : readDaoQueries()) {
+            for (String detail : explain(query)) {
+                if (detail.contains(TEMP_SORT)) {
+                    failures.add(query + "  ->  " + detail);
+                }
+            }
+        }
+        assertTrue("以下查询的排序没有命中索引:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * 只有带过滤或排序条件的语句才要求走索引，不带条件的COUNT(*)本身就需要遍历
+     */
+    private static boolean needsIndex(String query) {
+        String upper = query.toUpperCase(Locale.ROOT);
+        return upper.contains(" WHERE ") || upper.contains(" ORDER BY ");
+    }
+
+    private List<String> explain(String query) {
+        String sql = BIND_PARAM.matcher(query).replaceAll("?");
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        }
+        return details;
+    }
+
+    private static List<String> readDaoQueries() throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(DAO_SOURCE)), StandardCharsets.UTF_8);
+        // 接口中的字段都是常量，按声明顺序解析，常量可以引用前面声明的常量
+        Map<String, String> constants = new HashMap<>();
+        Matcher constant = STRING_CONSTANT.matcher(source);
+        while (constant.find()) {
+            constants.put(constant.group(1), concat(constant.group(2), constants));
+        }
+        List<String> queries = new ArrayList<>();
+        Matcher matcher = QUERY_ANNOTATION.matcher(source);
+        while (matcher.find()) {
+            queries.add(concat(matcher.group(1), constants));
+        }
+        return queries;
+    }
+
+    /**
+     * 多行查询由若干字符串字面量和常量拼接而成，引用了无法解析的名字时失败，不会把查询漏掉
+     */
+    private static String concat(String expression, Map<String, String> constants) {
+        StringBuilder value = new StringBuilder();
+        Matcher term = TERMS.matcher(expression);
+        while (term.find()) {
+            if (term.group(1) != null) {
+                value.append(term.group(1));
+            } else {
+                String resolved = constants.get(term.group(2));
+                if (resolved == null) {
+                    throw new AssertionError("无法解析TodoDao中的字符串常量：" + term.group(2));
+                }
+                value.append(resolved);
+            }
+        }
+        return value.toString();
+    }
+}
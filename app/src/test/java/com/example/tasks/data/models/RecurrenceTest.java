@@ -0,0 +1,114 @@
+package com.example.tasks.data.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * 重复规则的解析和窗口内展开，时区固定，结果不依赖运行环境
+ */
+public class RecurrenceTest {
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void dailyIntervalJumpsToWindow() {
+        Recurrence recurrence = Recurrence.parse("FREQ=DAILY;INTERVAL=3");
+        long first = time(2024, 1, 1, 9);
+
+        assertEquals(Arrays.asList(time(2024, 1, 10, 9), time(2024, 1, 13, 9), time(2024, 1, 16, 9),
+                time(2024, 1, 19, 9)), recurrence.occurrencesBetween(first, time(2024, 1, 10, 0),
+                time(2024, 1, 21, 0) - 1));
+        // 十年后的窗口同样只算窗口内的几天
+        List<Long> later = Recurrence.parse("FREQ=DAILY").occurrencesBetween(first, time(2034, 3, 1, 0),
+                time(2034, 3, 4, 0) - 1);
+        assertEquals(Arrays.asList(time(2034, 3, 1, 9), time(2034, 3, 2, 9), time(2034, 3, 3, 9)), later);
+        assertTrue(recurrence.occurrencesBetween(first, time(2023, 12, 1, 0), time(2023, 12, 31, 0)).isEmpty());
+    }
+
+    @Test
+    public void weeklyByDayCountsFromFirstOccurrence() {
+        Recurrence recurrence = Recurrence.parse("FREQ=WEEKLY;BYDAY=MO,WE,FR;COUNT=5");
+        // 2024-01-03是周三，同一周的周一不算
+        long first = time(2024, 1, 3, 9);
+
+        assertEquals(Arrays.asList(time(2024, 1, 3, 9), time(2024, 1, 5, 9), time(2024, 1, 8, 9),
+                time(2024, 1, 10, 9), time(2024, 1, 12, 9)),
+                recurrence.occurrencesBetween(first, time(2024, 1, 1, 0), time(2024, 2, 1, 0)));
+        // 窗口从中间开始时，次数仍从第一次算起
+        assertEquals(Arrays.asList(time(2024, 1, 10, 9), time(2024, 1, 12, 9)),
+                recurrence.occurrencesBetween(first, time(2024, 1, 9, 0), time(2024, 2, 1, 0)));
+        assertEquals(Arrays.asList(time(2024, 1, 16, 9), time(2024, 1, 30, 9)),
+                Recurrence.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=TU")
+                        .occurrencesBetween(first, time(2024, 1, 1, 0), time(2024, 2, 1, 0)));
+    }
+
+    @Test
+    public void monthlySkipsMonthsWithoutTheDay() {
+        long first = time(2024, 1, 31, 9);
+
+        assertEquals(Arrays.asList(time(2024, 1, 31, 9), time(2024, 3, 31, 9), time(2024, 5, 31, 9)),
+                Recurrence.parse("FREQ=MONTHLY;COUNT=3").occurrencesBetween(first, time(2024, 1, 1, 0),
+                        time(2025, 1, 1, 0)));
+        assertEquals(Arrays.asList(time(2024, 2, 29, 9), time(2028, 2, 29, 9)),
+                Recurrence.parse("FREQ=YEARLY").occurrencesBetween(time(2024, 2, 29, 9), time(2024, 1, 1, 0),
+                        time(2029, 1, 1, 0)));
+    }
+
+    @Test
+    public void untilDateIncludesWholeDay() {
+        List<Long> occurrences = Recurrence.parse("FREQ=DAILY;UNTIL=20240105")
+                .occurrencesBetween(time(2024, 1, 1, 9), time(2023, 12, 1, 0), time(2024, 2, 1, 0));
+
+        assertEquals(5, occurrences.size());
+        assertEquals(time(2024, 1, 5, 9), (long) occurrences.get(4));
+    }
+
+    @Test
+    public void parsesAndFormatsRules() {
+        assertEquals("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10",
+                Recurrence.parse("RRULE:FREQ=WEEKLY;INTERVAL=2;BYDAY=WE,MO;WKST=MO;COUNT=10").toRule());
+        assertEquals("FREQ=DAILY;UNTIL=20240105T120000Z", Recurrence.parse("freq=daily;until=20240105T120000Z").toRule());
+        assertEquals(Recurrence.RULE_MONTHLY, Recurrence.parse(Recurrence.RULE_MONTHLY).toRule());
+        assertNull(Recurrence.parse(null));
+        assertNull(Recurrence.parse(" "));
+
+        for (String rule : new String[]{"FREQ=HOURLY", "INTERVAL=2", "FREQ=DAILY;BYSETPOS=1",
+                "FREQ=DAILY;INTERVAL=0", "FREQ=DAILY;COUNT=x", "FREQ=WEEKLY;BYDAY=1MO"}) {
+            try {
+                Recurrence.parse(rule);
+                fail("应拒绝: " + rule);
+            } catch (IllegalArgumentException expected) {
+                // 不支持的规则不展开
+            }
+        }
+    }
+
+    private static long time(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+}
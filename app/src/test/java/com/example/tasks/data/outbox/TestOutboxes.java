@@ -0,0 +1,19 @@
+package com.example.tasks.data.outbox;
+
+import com.example.tasks.data.database.TodoDatabase;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+/**
+ * 其他包的测试用的写队列，日志文件和写线程由测试指定
+ */
+public final class TestOutboxes {
+
+    private TestOutboxes() {
+    }
+
+    public static WriteOutbox open(File file, TodoDatabase database, Executor writer) {
+        return new WriteOutbox(file, () -> database, writer);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.tasks.data.outbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TestDatabases;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 写队列的顺序执行、崩溃后重放和日志损坏处理
+ * 写线程用同步执行器代替，追加返回时写入已完成；丢弃任务的执行器模拟写入数据库之前进程被杀
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WriteOutboxTest {
+
+    private static final Executor DIRECT = Runnable::run;
+    private static final Executor KILLED = command -> { };
+
+    private TodoDatabase database;
+    private TodoDao dao;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = TestDatabases.inMemory(context);
+        dao = database.todoDao();
+        file = File.createTempFile("write_outbox", ".log");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        file.delete();
+    }
+
+    @Test
+    public void writesApplyInOrder() {
+        WriteOutbox outbox = open(DIRECT);
+        outbox.append(WriteOp.insertTodos(Collections.singletonList(todo("t1")), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step", false, 1L, 0))));
+        outbox.append(WriteOp.toggleCompleted("t1", 5L));
+        outbox.append(WriteOp.toggleSubTask("s1"));
+        outbox.append(WriteOp.appendSubTask("s2", "t1", "next", 2L));
+
+        TodoEntity todo = dao.getTodoById("t1").todo;
+        assertTrue(todo.isCompleted);
+        assertEquals(Long.valueOf(5L), todo.completedAt);
+        assertTrue(dao.getSubTaskById("s1").isCompleted);
+        assertEquals(1, dao.getSubTaskById("s2").position);
+        assertEquals(4, dao.getOutboxAppliedSeq());
+
+        outbox.append(WriteOp.deleteTodos(Collections.singletonList("t1")));
+        assertNull(dao.getTodoById("t1"));
+    }
+
+    @Test
+    public void pendingWritesReplayAfterProcessDeath() {
+        WriteOutbox killed = open(KILLED);
+        killed.append(WriteOp.insertTodos(Collections.singletonList(todo("t1")), Collections.emptyList()));
+        killed.append(WriteOp.toggleCompleted("t1", 5L));
+        assertNull(dao.getTodoById("t1"));
+
+        open(DIRECT);
+
+        TodoEntity todo = dao.getTodoById("t1").todo;
+        assertTrue(todo.isCompleted);
+        assertEquals(2, dao.getOutboxAppliedSeq());
+    }
+
+    @Test
+    public void appliedWritesAreNotReplayed() {
+        WriteOutbox first = open(DIRECT);
+        first.append(WriteOp.insertTodos(Collections.singletonList(todo("t1")), Collections.emptyList()));
+        first.append(WriteOp.toggleCompleted("t1", 5L));
+
+        // 重新打开时日志还在，切换操作不能再执行一次
+        WriteOutbox second = open(DIRECT);
+        assertTrue(dao.getTodoById("t1").todo.isCompleted);
+
+        // 新的写操作接着原来的序号
+        second.append(WriteOp.toggleCompleted("t1", 6L));
+        assertFalse(dao.getTodoById("t1").todo.isCompleted);
+        assertEquals(3, dao.getOutboxAppliedSeq());
+    }
+
+    @Test
+    public void tornTailIsDiscarded() throws IOException {
+        WriteOutbox killed = open(KILLED);
+        killed.append(WriteOp.insertTodos(Collections.singletonList(todo("t1")), Collections.emptyList()));
+        long intact = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] {0, 0, 0, 40, 1, 2, 3});
+        }
+
+        open(DIRECT);
+        assertEquals(intact, file.length());
+        assertNotNull(dao.getTodoById("t1"));
+
+        // 截断后追加的记录可以被再次读出
+        WriteOutbox killedAgain = open(KILLED);
+        killedAgain.append(WriteOp.insertTodos(Collections.singletonList(todo("t2")), Collections.emptyList()));
+        open(DIRECT);
+        assertNotNull(dao.getTodoById("t2"));
+    }
+
+    @Test
+    public void appliedListenerReceivesTodoIds() {
+        WriteOutbox outbox = open(DIRECT);
+        Set<String> applied = new HashSet<>();
+        outbox.addOnAppliedListener(applied::addAll);
+        outbox.append(WriteOp.insertTodos(Arrays.asList(todo("t1"), todo("t2")), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step", false, 1L, 0))));
+        outbox.append(WriteOp.toggleSubTask("s1"));
+        assertEquals(new HashSet<>(Arrays.asList("t1", "t2")), applied);
+
+        // 只改子任务的操作不涉及待办事项的截止时间
+        applied.clear();
+        outbox.append(WriteOp.toggleSubTask("s1"));
+        assertTrue(applied.isEmpty());
+
+        outbox.append(WriteOp.toggleCompleted("t2", 5L));
+        assertEquals(Collections.singleton("t2"), applied);
+    }
+
+    @Test
+    public void groupResultReportsFailedMember() {
+        WriteOutbox outbox = open(DIRECT);
+        outbox.append(WriteOp.insertTodos(Collections.singletonList(todo("t1")), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step", false, 1L, 0),
+                new SubTaskEntity("s2", "t1", "step", false, 1L, 1))));
+        database.getOpenHelper().getWritableDatabase().execSQL("CREATE TRIGGER fail_s2 BEFORE UPDATE ON subtasks "
+                + "WHEN NEW.id = 's2' BEGIN SELECT RAISE(ABORT, 'test'); END");
+
+        List<Boolean> results = new ArrayList<>();
+        outbox.appendAll(Collections.singletonList(WriteOp.toggleSubTask("s1")), results::add);
+        outbox.appendAll(Arrays.asList(WriteOp.toggleSubTask("s1"), WriteOp.toggleSubTask("s2")), results::add);
+
+        // 第二组中失败的操作被跳过，同组成功的照常写入：s1切换两次，s2没有改变
+        assertEquals(Arrays.asList(true, false), results);
+        for (SubTaskEntity subTask : dao.getTodoById("t1").subTasks) {
+            assertFalse(subTask.id, subTask.isCompleted);
+        }
+    }
+
+    private WriteOutbox open(Executor writer) {
+        return new WriteOutbox(file, () -> database, writer);
+    }
+
+    private static TodoEntity todo(String id) {
+        return new TodoEntity(id, id, "", false, Priority.MEDIUM, null, 1L, null);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.tasks.data.reminder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.Manifest;
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TestDatabases;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 提醒调度：无论有多少个提醒都只登记一个唤醒，增量更新后改登记，同一分钟的提醒合成一条通知
+ * 调度线程用同步执行器代替，时钟可调
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReminderSchedulerTest {
+
+    /**
+     * 对齐到整分钟的固定起点
+     */
+    private static final long BASE = 1_900_000_020_000L;
+    private static final long MINUTE = ReminderScheduler.MINUTE_MS;
+
+    private Context context;
+    private TodoDatabase database;
+    private TodoDao dao;
+    private AtomicLong clock;
+    private ReminderScheduler scheduler;
+    private ShadowAlarmManager alarms;
+    private ShadowNotificationManager notifications;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        shadowOf((Application) context).grantPermissions(Manifest.permission.POST_NOTIFICATIONS);
+        database = TestDatabases.inMemory(context);
+        dao = database.todoDao();
+        clock = new AtomicLong(BASE);
+        scheduler = new ReminderScheduler(context, () -> database, Runnable::run, clock::get);
+        alarms = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+        notifications = shadowOf((NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void fiftyThousandRemindersArmOneAlarm() {
+        List<TodoEntity> todos = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            // 打乱顺序，最早的一个不在开头
+            todos.add(todo("t" + i, BASE + MINUTE + ((i * 7919L) % 50_000) * 97_000L));
+        }
+        dao.insertAllWithSubTasks(todos, Collections.<SubTaskEntity>emptyList());
+        // 已过期和已完成的不提醒
+        dao.insertTodo(todo("past", BASE - MINUTE));
+        TodoEntity done = todo("done", BASE + 30_000);
+        done.isCompleted = true;
+        dao.insertTodo(done);
+
+        scheduler.rebuild();
+
+        assertEquals(50_000, scheduler.size());
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(BASE + MINUTE, alarms.getNextScheduledAlarm().getTriggerAtMs());
+
+        // 插入更早的提醒：改登记，仍只有一个唤醒
+        dao.insertTodo(todo("soon", BASE + 30_000));
+        scheduler.onTodosChanged(Collections.singleton("soon"));
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(BASE, alarms.getNextScheduledAlarm().getTriggerAtMs());
+
+        // 完成后恢复原来的唤醒
+        dao.setCompleted(Collections.singletonList("soon"), true, BASE);
+        scheduler.onTodosChanged(Collections.singleton("soon"));
+        assertEquals(BASE + MINUTE, alarms.getNextScheduledAlarm().getTriggerAtMs());
+
+        // 把最早的推迟，唤醒跟着移到下一个
+        TodoEntity first = dao.getTodoById("t0").todo;
+        first.dueDate = BASE + 100 * 24 * 60 * MINUTE;
+        dao.updateTodo(first);
+        scheduler.onTodosChanged(Collections.singleton("t0"));
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(ReminderScheduler.floorMinute(BASE + MINUTE + 97_000L),
+                alarms.getNextScheduledAlarm().getTriggerAtMs());
+
+        dao.deleteByIds(Arrays.asList("t0"));
+        scheduler.onTodosChanged(Collections.singleton("t0"));
+        assertEquals(49_999, scheduler.size());
+    }
+
+    @Test
+    public void remindersInSameMinuteShareOneNotification() {
+        long minute = BASE + 5 * MINUTE;
+        dao.insertAllWithSubTasks(Arrays.asList(
+                todo("a", minute),
+                todo("b", minute + 10_000),
+                todo("c", minute + 59_000),
+                todo("d", minute + MINUTE)), Collections.<SubTaskEntity>emptyList());
+        scheduler.rebuild();
+        assertEquals(minute, alarms.getNextScheduledAlarm().getTriggerAtMs());
+
+        clock.set(minute + 1_000);
+        scheduler.onAlarm(null);
+
+        List<Notification> posted = notifications.getAllNotifications();
+        assertEquals(1, posted.size());
+        assertEquals("3 个任务到期", posted.get(0).extras.getCharSequence(Notification.EXTRA_TITLE).toString());
+        assertEquals(1, alarms.getScheduledAlarms().size());
+        assertEquals(minute + MINUTE, alarms.getNextScheduledAlarm().getTriggerAtMs());
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    public void recurringReminderMovesToNextOccurrence() {
+        TodoEntity daily = todo("daily", BASE + 10 * MINUTE);
+        daily.recurrence = "FREQ=DAILY";
+        dao.insertTodo(daily);
+        scheduler.rebuild();
+        assertEquals(BASE + 10 * MINUTE, alarms.getNextScheduledAlarm().getTriggerAtMs());
+
+        clock.set(BASE + 10 * MINUTE);
+        scheduler.onAlarm(null);
+
+        assertEquals(1, notifications.getAllNotifications().size());
+        assertEquals("daily", notifications.getAllNotifications().get(0).extras
+                .getCharSequence(Notification.EXTRA_TITLE).toString());
+        long next = alarms.getNextScheduledAlarm().getTriggerAtMs();
+        assertTrue(next > BASE + 10 * MINUTE);
+        assertEquals(BASE + 10 * MINUTE + 24 * 60 * MINUTE, next, 60 * MINUTE);
+    }
+
+    private static TodoEntity todo(String id, long dueDate) {
+        return new TodoEntity(id, id, "", false, Priority.MEDIUM, dueDate, 1L, null);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.tasks.data.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tasks.data.database.RecurrenceExceptionEntity;
+import com.example.tasks.data.database.RecurringTodoRow;
+import com.example.tasks.data.models.DayTaskCount;
+import com.example.tasks.data.models.OccurrenceRow;
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * 重复任务按窗口展开：完成记录、系列结束、按天计数，以及一个月内展开几百条规则的耗时
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class OccurrenceExpanderTest {
+
+    private static final String[] RULES = {"FREQ=DAILY", "FREQ=WEEKLY;BYDAY=MO,WE,FR", "FREQ=WEEKLY;INTERVAL=2",
+            "FREQ=MONTHLY", "FREQ=DAILY;INTERVAL=3;COUNT=400", "FREQ=MONTHLY;COUNT=24"};
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void exceptionsMarkSingleOccurrencesCompleted() {
+        RecurringTodoRow daily = todo("t1", "FREQ=DAILY", time(2024, 1, 1, 9));
+        RecurringTodoRow ended = todo("t2", "FREQ=DAILY", time(2024, 1, 1, 9));
+        ended.isCompleted = true;
+        RecurringTodoRow broken = todo("t3", "FREQ=SOMETIMES", time(2024, 1, 1, 9));
+        List<RecurringTodoRow> todos = Arrays.asList(daily, ended, broken);
+        List<RecurrenceExceptionEntity> exceptions = Collections.singletonList(
+                exception("t1", TodoRepository.startOfDay(time(2024, 1, 3, 9)), 42L));
+        long start = time(2024, 1, 1, 0);
+        long end = time(2024, 1, 6, 0) - 1;
+
+        List<TodoListRow> all = OccurrenceExpander.expand(todos, exceptions, start, end, null);
+        assertEquals(5, all.size());
+        OccurrenceRow third = (OccurrenceRow) all.get(2);
+        assertTrue(third.isCompleted());
+        assertEquals(42L, (long) third.getCompletedAt());
+        assertEquals(TodoRepository.startOfDay(time(2024, 1, 3, 9)), third.getOccurrenceDate());
+
+        assertEquals(4, OccurrenceExpander.expand(todos, exceptions, start, end, false).size());
+        List<TodoListRow> completed = OccurrenceExpander.expand(todos, exceptions, start, end, true);
+        assertEquals(1, completed.size());
+        assertEquals(time(2024, 1, 3, 9), (long) completed.get(0).getDueDate());
+    }
+
+    @Test
+    public void dayCountsIncludeOccurrences() {
+        List<TodoListRow> occurrences = OccurrenceExpander.expand(
+                Collections.singletonList(todo("t1", "FREQ=DAILY", time(2024, 1, 1, 9))),
+                Collections.singletonList(exception("t1", TodoRepository.startOfDay(time(2024, 1, 2, 9)), 1L)),
+                time(2024, 1, 1, 0), time(2024, 1, 3, 0) - 1, null);
+        List<DayTaskCount> counts = OccurrenceExpander.mergeDayCounts(
+                Collections.singletonList(new DayTaskCount("2024-01-02", 2, 0)), occurrences);
+
+        assertEquals(2, counts.size());
+        assertEquals("2024-01-01", counts.get(0).getDay());
+        assertEquals(1, counts.get(0).getIncompleteCount());
+        assertEquals(2, counts.get(1).getIncompleteCount());
+        assertEquals(1, counts.get(1).getCompletedCount());
+    }
+
+    @Test
+    public void statsCountOnlyTodaysOccurrences() {
+        // 系列从一个月前开始，只有当天的发生计入今天到期，已过时间且未完成的计入逾期
+        RecurringTodoRow morning = todo("t1", "FREQ=DAILY", time(2024, 1, 1, 9));
+        RecurringTodoRow evening = todo("t2", "FREQ=DAILY", time(2024, 1, 1, 20));
+        RecurringTodoRow weekly = todo("t3", "FREQ=WEEKLY", time(2024, 1, 2, 9));
+        long dayStart = time(2024, 2, 1, 0);
+        long dayEnd = time(2024, 2, 2, 0) - 1;
+        List<TodoListRow> today = OccurrenceExpander.expand(Arrays.asList(morning, evening, weekly),
+                Collections.<RecurrenceExceptionEntity>emptyList(), dayStart, dayEnd, null);
+
+        TodoStats stats = OccurrenceExpander.addToStats(new TodoStats(5, 1, 4, 1, 1), today, time(2024, 2, 1, 12));
+
+        assertEquals(5, stats.getTotalCount());
+        assertEquals(4, stats.getIncompleteCount());
+        assertEquals(2, stats.getOverdueCount());
+        assertEquals(3, stats.getDueTodayCount());
+
+        // 当天已完成的发生不再计入
+        today = OccurrenceExpander.expand(Arrays.asList(morning, evening, weekly),
+                Collections.singletonList(exception("t1", dayStart, 1L)), dayStart, dayEnd, null);
+        stats = OccurrenceExpander.addToStats(new TodoStats(5, 1, 4, 1, 1), today, time(2024, 2, 1, 12));
+        assertEquals(1, stats.getOverdueCount());
+        assertEquals(2, stats.getDueTodayCount());
+    }
+
+    @Test
+    public void monthOfHundredsOfRulesExpandsQuickly() {
+        List<RecurringTodoRow> todos = new ArrayList<>();
+        List<RecurrenceExceptionEntity> exceptions = new ArrayList<>();
+        long first = time(2022, 1, 1, 9);
+        for (int i = 0; i < 500; i++) {
+            todos.add(todo("t" + i, RULES[i % RULES.length], first + i * 3_600_000L));
+            exceptions.add(exception("t" + i, TodoRepository.startOfDay(time(2024, 6, 1 + i % 28, 9)), 1L));
+        }
+        long start = time(2024, 6, 1, 0);
+        long end = time(2024, 7, 1, 0) - 1;
+
+        // 预热一次，排除类加载
+        OccurrenceExpander.expand(todos, exceptions, start, end, null);
+        long begin = System.nanoTime();
+        List<TodoListRow> month = OccurrenceExpander.expand(todos, exceptions, start, end, null);
+        long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+        assertTrue(month.size() > 4000);
+        for (int i = 1; i < month.size(); i++) {
+            assertTrue(month.get(i - 1).getDueDate() <= month.get(i).getDueDate());
+        }
+        assertTrue("展开耗时 " + elapsedMs + " ms", elapsedMs < 1000);
+    }
+
+    private static RecurringTodoRow todo(String id, String rule, long dueDate) {
+        RecurringTodoRow todo = new RecurringTodoRow();
+        todo.id = id;
+        todo.title = id;
+        todo.descriptionPreview = "";
+        todo.priority = Priority.MEDIUM;
+        todo.dueDate = dueDate;
+        todo.recurrence = rule;
+        return todo;
+    }
+
+    private static RecurrenceExceptionEntity exception(String todoId, long occurrenceDate, long completedAt) {
+        RecurrenceExceptionEntity exception = new RecurrenceExceptionEntity();
+        exception.todoId = todoId;
+        exception.occurrenceDate = occurrenceDate;
+        exception.completedAt = completedAt;
+        return exception;
+    }
+
+    private static long time(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.tasks.data.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TestDatabases;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.Todo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 仓库的按ID缓存：命中计数、返回副本、容量淘汰，以及绕过仓库直接经由DAO的写入之后不会读到旧值
+ * 失效通知由测试同步触发
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TodoCacheTest {
+
+    private TodoDatabase database;
+    private TodoDao dao;
+    private TodoCache cache;
+    private TodoRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = TestDatabases.inMemory(context);
+        dao = database.todoDao();
+        dao.insertAllWithSubTasks(Arrays.asList(todo("t1"), todo("t2"), todo("t3")), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step", false, 1L, 0),
+                new SubTaskEntity("s2", "t2", "step", false, 1L, 0)));
+        cache = new TodoCache(database, 2);
+        cache.register();
+        repository = new TodoRepository(dao, null, null, cache);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void repeatedReadsHitAndReturnCopies() {
+        Todo first = repository.getTodoById("t1");
+        first.setTitle("changed");
+        first.getSubTasks().get(0).setCompleted(true);
+
+        Todo second = repository.getTodoById("t1");
+        assertEquals("t1", second.getTitle());
+        assertFalse(second.getSubTasks().get(0).isCompleted());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        repository.getTodoById("t1");
+        repository.getTodoById("t2");
+        repository.getTodoById("t1");
+        repository.getTodoById("t3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        repository.getTodoById("t1");
+        assertEquals(2, cache.getHitCount());
+        repository.getTodoById("t2");
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void writesThroughAnyDaoPathAreSeen() {
+        repository.getTodoById("t1");
+        repository.getTodoById("t2");
+
+        // 批量删除和子任务写入都不经过仓库
+        dao.deleteByIds(Collections.singletonList("t1"));
+        dao.toggleSubTaskCompleted("s2");
+        database.getInvalidationTracker().refreshVersionsSync();
+
+        assertNull(repository.getTodoById("t1"));
+        Todo second = repository.getTodoById("t2");
+        assertTrue(second.getSubTasks().get(0).isCompleted());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getEvictionCount());
+
+        // 没有新的写入时不再查询
+        assertTrue(repository.getTodoById("t2").getSubTasks().get(0).isCompleted());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void pendingWriteIsReadBeforeItIsApplied() {
+        Todo todo = repository.getTodoById("t1");
+        todo.setTitle("edited");
+        cache.putPending(todo);
+
+        // 写操作还在写队列中，数据库里是旧值，读取不能覆盖写穿的条目
+        cache.put(new Todo("t1", "stale", "", false, Priority.MEDIUM, null, null, 1L, null), 0L,
+                cache.generation());
+        assertEquals("edited", repository.getTodoById("t1").getTitle());
+
+        // 写队列应用后丢弃，再读取时得到数据库中的值
+        cache.invalidate(Collections.singleton("t1"));
+        assertEquals("t1", repository.getTodoById("t1").getTitle());
+    }
+
+    private static TodoEntity todo(String id) {
+        return new TodoEntity(id, id, "", false, Priority.MEDIUM, null, 1L, null);
+    }
+}
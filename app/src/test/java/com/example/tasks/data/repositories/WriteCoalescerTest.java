@@ -0,0 +1,252 @@
+package com.example.tasks.data.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.TestDatabases;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.SubTask;
+import com.example.tasks.data.models.Todo;
+import com.example.tasks.data.outbox.TestOutboxes;
+import com.example.tasks.data.outbox.WriteOp;
+import com.example.tasks.data.outbox.WriteOutbox;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 子任务切换的合并：窗口内的连续点击只写入一次，偶数次相互抵消，写入前读取即可看到，写入失败时撤销
+ * 写线程用同步执行器代替，可以暂停后手动执行；窗口由主线程Looper的时钟推进
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class WriteCoalescerTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(WriteCoalescer.WINDOW_MS);
+
+    private TodoDatabase database;
+    private TodoDao dao;
+    private File file;
+    private WriteOutbox outbox;
+    private WriteCoalescer coalescer;
+    private TodoRepository repository;
+    private final ArrayDeque<Runnable> queued = new ArrayDeque<>();
+    private boolean paused;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = TestDatabases.inMemory(context);
+        dao = database.todoDao();
+        dao.insertAllWithSubTasks(Collections.singletonList(
+                new TodoEntity("t1", "t1", "", false, Priority.MEDIUM, null, 1L, null)), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step", false, 1L, 0),
+                new SubTaskEntity("s2", "t1", "step", false, 1L, 1),
+                new SubTaskEntity("s3", "t1", "step", false, 1L, 2)));
+        file = File.createTempFile("write_outbox", ".log");
+        assertTrue(file.delete());
+        outbox = TestOutboxes.open(file, database, task -> {
+            if (paused) {
+                queued.add(task);
+            } else {
+                task.run();
+            }
+        });
+        coalescer = new WriteCoalescer(outbox, new Handler(Looper.getMainLooper()), Runnable::run,
+                WriteCoalescer.WINDOW_MS);
+        repository = new TodoRepository(dao, outbox, null, null, coalescer);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        file.delete();
+    }
+
+    @Test
+    public void rapidTogglesAreReadImmediatelyAndWrittenOnce() {
+        repository.toggleSubTaskCompletion("t1", "s1");
+        repository.toggleSubTaskCompletion("t1", "s2");
+        repository.toggleSubTaskCompletion("t1", "s1");
+        repository.toggleSubTaskCompletion("t1", "s3");
+        repository.toggleSubTaskCompletion("t1", "s1");
+
+        // 窗口结束前数据库没有变化，读取时已叠加全部点击
+        assertEquals(0, coalescer.getWriteCount());
+        assertEquals(expected(false, false, false), storedStates());
+        assertEquals(expected(true, true, true), states(repository.getTodoById("t1")));
+
+        shadowOf(Looper.getMainLooper()).idleFor(WINDOW);
+
+        assertEquals(5, coalescer.getToggleCount());
+        assertEquals(1, coalescer.getWriteCount());
+        assertEquals(expected(true, true, true), storedStates());
+        assertEquals(expected(true, true, true), states(repository.getTodoById("t1")));
+    }
+
+    @Test
+    public void evenTogglesCancelOut() {
+        repository.toggleSubTaskCompletion("t1", "s1");
+        repository.toggleSubTaskCompletion("t1", "s1");
+        assertEquals(expected(false, false, false), states(repository.getTodoById("t1")));
+
+        shadowOf(Looper.getMainLooper()).idleFor(WINDOW);
+
+        assertEquals(0, coalescer.getWriteCount());
+        assertEquals(expected(false, false, false), storedStates());
+    }
+
+    @Test
+    public void failedWriteIsRolledBack() {
+        database.getOpenHelper().getWritableDatabase().execSQL("CREATE TRIGGER fail_s2 BEFORE UPDATE ON subtasks "
+                + "WHEN NEW.id = 's2' BEGIN SELECT RAISE(ABORT, 'test'); END");
+        AtomicReference<Set<String>> rolledBack = new AtomicReference<>();
+        repository.setOnToggleRolledBackListener(rolledBack::set);
+
+        repository.toggleSubTaskCompletion("t1", "s1");
+        repository.toggleSubTaskCompletion("t1", "s2");
+        assertEquals(expected(true, true, false), states(repository.getTodoById("t1")));
+        assertNull(rolledBack.get());
+
+        shadowOf(Looper.getMainLooper()).idleFor(WINDOW);
+
+        // 失败的切换不再叠加，读取结果与数据库一致
+        assertEquals(Collections.singleton("t1"), rolledBack.get());
+        assertEquals(expected(true, false, false), storedStates());
+        assertEquals(expected(true, false, false), states(repository.getTodoById("t1")));
+    }
+
+    @Test
+    public void readBetweenCommitAndResultIsNotFlippedTwice() {
+        AtomicReference<Map<String, Boolean>> seen = new AtomicReference<>();
+        outbox.addOnAppliedListener(todoIds -> seen.set(states(repository.getTodoById("t1"))));
+
+        // 切换和另一个写操作在同一批提交，提交后、切换的结果回调之前读取
+        paused = true;
+        repository.toggleSubTaskCompletion("t1", "s1");
+        shadowOf(Looper.getMainLooper()).idleFor(WINDOW);
+        outbox.append(WriteOp.setCompleted(Collections.singletonList("t1"), false, null));
+        paused = false;
+        while (!queued.isEmpty()) {
+            queued.poll().run();
+        }
+
+        assertEquals(expected(true, false, false), seen.get());
+        assertEquals(expected(true, false, false), storedStates());
+        assertEquals(expected(true, false, false), states(repository.getTodoById("t1")));
+    }
+
+    @Test
+    public void repositoriesShareOneCoalescer() {
+        assertSame(WriteCoalescer.getInstance(outbox), WriteCoalescer.getInstance(outbox));
+        TodoRepository first = new TodoRepository(dao, outbox, null, null);
+        TodoRepository second = new TodoRepository(dao, outbox, null, null);
+
+        first.toggleSubTaskCompletion("t1", "s2");
+        assertEquals(expected(false, true, false), states(second.getTodoById("t1")));
+
+        // 抵消掉，窗口结束时没有要写入的切换
+        second.toggleSubTaskCompletion("t1", "s2");
+        assertEquals(expected(false, false, false), states(first.getTodoById("t1")));
+    }
+
+    @Test
+    public void fullUpdateWritesPendingTogglesFirst() {
+        repository.toggleSubTaskCompletion("t1", "s1");
+        Todo edited = repository.getTodoById("t1");
+        edited.setTitle("edited");
+
+        // 整行更新带着叠加后的状态，积攒的切换先于它写入，窗口结束后不会再切换一次
+        repository.updateTodo(edited);
+        shadowOf(Looper.getMainLooper()).idleFor(WINDOW);
+
+        assertEquals(1, coalescer.getWriteCount());
+        assertEquals("edited", dao.getTodoById("t1").todo.title);
+        assertEquals(expected(true, false, false), storedStates());
+    }
+
+    @Test
+    public void editDoesNotOverwriteQueuedToggles() {
+        // 编辑界面在切换写入之前读到旧值，切换和编辑先后排进队列
+        paused = true;
+        Todo edited = repository.getTodoById("t1");
+        repository.toggleTodoCompletion("t1");
+        outbox.append(WriteOp.toggleSubTask("s2"));
+        edited.setTitle("edited");
+        List<SubTask> subTasks = new ArrayList<>();
+        for (SubTask subTask : edited.getSubTasks()) {
+            if (!subTask.getId().equals("s3")) subTasks.add(subTask);
+        }
+        subTasks.add(new SubTask("s4", "added", false, 2L));
+        edited.setSubTasks(subTasks);
+        repository.updateTodo(edited);
+        paused = false;
+        while (!queued.isEmpty()) {
+            queued.poll().run();
+        }
+
+        TodoEntity stored = dao.getTodoById("t1").todo;
+        assertEquals("edited", stored.title);
+        assertTrue(stored.isCompleted);
+        assertNotNull(stored.completedAt);
+        Map<String, Boolean> states = expected(false, true, false);
+        states.remove("s3");
+        states.put("s4", false);
+        assertEquals(states, storedStates());
+    }
+
+    private Map<String, Boolean> storedStates() {
+        Map<String, Boolean> states = new HashMap<>();
+        for (SubTaskEntity subTask : dao.getTodoById("t1").subTasks) {
+            states.put(subTask.id, subTask.isCompleted);
+        }
+        return states;
+    }
+
+    private static Map<String, Boolean> states(Todo todo) {
+        Map<String, Boolean> states = new HashMap<>();
+        for (SubTask subTask : todo.getSubTasks()) {
+            states.put(subTask.getId(), subTask.isCompleted());
+        }
+        return states;
+    }
+
+    private static Map<String, Boolean> expected(boolean s1, boolean s2, boolean s3) {
+        Map<String, Boolean> states = new HashMap<>();
+        states.put("s1", s1);
+        states.put("s2", s2);
+        states.put("s3", s3);
+        return states;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.tasks.data.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tasks.data.models.Priority;
+import com.example.tasks.data.models.TodoListRow;
+import com.example.tasks.data.models.TodoStats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 首屏快照的二进制格式读写
+ */
+public class ListSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripPreservesRowsAndStats() throws IOException {
+        File file = folder.newFile("snapshot.bin");
+        ListSnapshot snapshot = new ListSnapshot(123L, new TodoStats(10, 4, 6, 2, 1), Arrays.asList(
+                new TodoListRow("a", "写周报", "本周进展", false, Priority.URGENT, 1_700_000_000_000L, null, 3, 1,
+                        "FREQ=WEEKLY"),
+                new TodoListRow("b", null, "", false, Priority.LOW, null, null, 0, 0, null)));
+
+        snapshot.writeTo(file);
+        ListSnapshot read = ListSnapshot.readFrom(file);
+
+        assertNotNull(read);
+        assertEquals(123L, read.getWrittenAt());
+        assertEquals(10, read.getStats().getTotalCount());
+        assertEquals(1, read.getStats().getDueTodayCount());
+        assertEquals(2, read.getRows().size());
+        TodoListRow first = read.getRows().get(0);
+        assertEquals("写周报", first.getTitle());
+        assertEquals("本周进展", first.getDescriptionPreview());
+        assertEquals(Priority.URGENT, first.getPriority());
+        assertEquals(Long.valueOf(1_700_000_000_000L), first.getDueDate());
+        assertNull(first.getCompletedAt());
+        assertEquals(3, first.getSubtaskTotal());
+        assertEquals(1, first.getSubtaskDone());
+        assertTrue(first.isRecurring());
+        assertFalse(read.getRows().get(1).isRecurring());
+        assertNull(read.getRows().get(1).getTitle());
+        assertNull(read.getRows().get(1).getDueDate());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void missingOrCorruptFileReadsAsNull() throws IOException {
+        assertNull(ListSnapshot.readFrom(new File(folder.getRoot(), "missing.bin")));
+
+        File file = folder.newFile("snapshot.bin");
+        new ListSnapshot(1L, new TodoStats(1, 0, 1, 0, 0), Collections.singletonList(
+                new TodoListRow("a", "title", "", false, Priority.MEDIUM, null, null, 0, 0, null))).writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 6);
+        }
+
+        assertNull(ListSnapshot.readFrom(file));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.tasks.data.sync;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * MockWebServer上的最小同步服务器：按修改时间后写者胜，每行一个递增版本号，
+ * 追加日志的序号作为拉取游标，不把设备自己推送的变化发回给它
+ */
+final class FakeSyncServer extends Dispatcher {
+
+    private final Map<String, JsonObject> rows = new HashMap<>();
+    private final List<JsonObject> log = new ArrayList<>();
+    private final List<String> logDevices = new ArrayList<>();
+    private int gzipPushes;
+    private long pushedBytes;
+
+    /**
+     * 服务器上当前未删除的行数
+     */
+    synchronized int liveRowCount() {
+        int count = 0;
+        for (JsonObject row : rows.values()) {
+            if (!row.get(SyncCodec.FIELD_DELETED).getAsBoolean()) count++;
+        }
+        return count;
+    }
+
+    synchronized JsonObject row(String id) {
+        return rows.get(id);
+    }
+
+    synchronized int getGzipPushes() {
+        return gzipPushes;
+    }
+
+    /**
+     * 推送请求体压缩后的总字节数
+     */
+    synchronized long getPushedBytes() {
+        return pushedBytes;
+    }
+
+    @NonNull
+    @Override
+    public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+        try {
+            String path = request.getRequestUrl().encodedPath();
+            if (path.endsWith("/sync/push")) {
+                return push(request);
+            }
+            if (path.endsWith("/sync/pull")) {
+                return pull(request);
+            }
+            return new MockResponse().setResponseCode(404);
+        } catch (IOException e) {
+            return new MockResponse().setResponseCode(400).setBody(e.toString());
+        }
+    }
+
+    private MockResponse push(RecordedRequest request) throws IOException {
+        boolean gzip = "gzip".equals(request.getHeader("Content-Encoding"));
+        if (gzip) gzipPushes++;
+        pushedBytes += request.getBodySize();
+        Reader reader = new InputStreamReader(gzip
+                ? new GZIPInputStream(request.getBody().inputStream())
+                : request.getBody().inputStream(), StandardCharsets.UTF_8);
+        JsonObject body = JsonParser.parseReader(reader).getAsJsonObject();
+        String device = body.get(SyncCodec.FIELD_DEVICE_ID).getAsString();
+
+        JsonObject versions = new JsonObject();
+        JsonArray conflicts = new JsonArray();
+        for (JsonElement element : body.getAsJsonArray(SyncCodec.FIELD_CHANGES)) {
+            JsonObject change = element.getAsJsonObject();
+            String id = change.get(SyncCodec.FIELD_ID).getAsString();
+            JsonObject current = rows.get(id);
+            if (current != null && current.get(SyncCodec.FIELD_UPDATED_AT).getAsLong()
+                    > change.get(SyncCodec.FIELD_UPDATED_AT).getAsLong()) {
+                conflicts.add(current);
+                continue;
+            }
+            long version = current != null ? current.get(SyncCodec.FIELD_VERSION).getAsLong() + 1 : 1;
+            JsonObject stored = change.deepCopy();
+            stored.addProperty(SyncCodec.FIELD_VERSION, version);
+            rows.put(id, stored);
+            log.add(stored);
+            logDevices.add(device);
+            versions.addProperty(id, version);
+        }
+        JsonObject response = new JsonObject();
+        response.add(SyncCodec.FIELD_VERSIONS, versions);
+        response.add(SyncCodec.FIELD_CONFLICTS, conflicts);
+        return json(request, response);
+    }
+
+    private MockResponse pull(RecordedRequest request) throws IOException {
+        String cursor = request.getRequestUrl().queryParameter(SyncCodec.FIELD_CURSOR);
+        int limit = Integer.parseInt(request.getRequestUrl().queryParameter("limit"));
+        String device = request.getHeader("X-Device-Id");
+        int position = cursor != null ? Integer.parseInt(cursor) : 0;
+        JsonArray changes = new JsonArray();
+        while (position < log.size() && changes.size() < limit) {
+            if (!logDevices.get(position).equals(device)) {
+                changes.add(log.get(position));
+            }
+            position++;
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty(SyncCodec.FIELD_CURSOR, String.valueOf(position));
+        response.addProperty(SyncCodec.FIELD_HAS_MORE, position < log.size());
+        response.add(SyncCodec.FIELD_CHANGES, changes);
+        return json(request, response);
+    }
+
+    /**
+     * 客户端声明接受gzip时压缩响应
+     */
+    private static MockResponse json(RecordedRequest request, JsonObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        MockResponse response = new MockResponse().setHeader("Content-Type", "application/json");
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            Buffer buffer = new Buffer();
+            try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+                sink.write(bytes);
+            }
+            return response.setHeader("Content-Encoding", "gzip").setBody(buffer);
+        }
+        return response.setBody(new Buffer().write(bytes));
+    }
+}
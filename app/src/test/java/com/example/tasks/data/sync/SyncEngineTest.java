@@ -0,0 +1,209 @@
+package com.example.tasks.data.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.SyntheticDataset;
+import com.example.tasks.data.database.TestDatabases;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.database.TodoWithSubTasks;
+import com.example.tasks.data.models.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * 两台设备通过MockWebServer上的同步服务器交换增量变化
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SyncEngineTest {
+
+    private final FakeSyncServer server = new FakeSyncServer();
+    private final OkHttpClient httpClient = new OkHttpClient();
+    private MockWebServer webServer;
+    private TodoDatabase first;
+    private TodoDatabase second;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        webServer = new MockWebServer();
+        webServer.setDispatcher(server);
+        webServer.start();
+        first = TestDatabases.inMemory(context);
+        second = TestDatabases.inMemory(context);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        first.close();
+        second.close();
+        webServer.shutdown();
+    }
+
+    @Test
+    public void pushSendsGzipBatchesAndClearsChangeLog() throws IOException {
+        TodoDao dao = first.todoDao();
+        dao.insertTodoWithSubTasks(todo("t1", "first"), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step", false, 1L, 0)));
+        dao.insertTodo(todo("t2", "second"));
+        dao.insertTodo(todo("t3", "third"));
+        assertEquals(3, dao.getPendingChangeCount());
+
+        SyncEngine.Stats stats = engine(first, "device-a", 2).sync(null);
+
+        assertEquals(3, stats.pushed);
+        // 3条变化按每批2条推送
+        assertEquals(2, server.getGzipPushes());
+        assertEquals(0, dao.getPendingChangeCount());
+        assertEquals(1, dao.getTodoById("t1").todo.version);
+        assertEquals(3, server.liveRowCount());
+    }
+
+    @Test
+    public void pulledChangesAreAppliedWithoutEcho() throws IOException {
+        TodoDao source = first.todoDao();
+        source.insertTodoWithSubTasks(todo("t1", "first"), Arrays.asList(
+                new SubTaskEntity("s1", "t1", "step one", false, 1L, 0),
+                new SubTaskEntity("s2", "t1", "step two", true, 2L, 1)));
+        source.insertTodo(todo("t2", "second"));
+        engine(first, "device-a").sync(null);
+
+        TodoDao target = second.todoDao();
+        SyncEngine.Stats stats = engine(second, "device-b").sync(null);
+
+        assertEquals(2, stats.pulled);
+        TodoWithSubTasks pulled = target.getTodoById("t1");
+        assertEquals("first", pulled.todo.title);
+        assertEquals(1, pulled.todo.version);
+        assertEquals(2, pulled.subTasks.size());
+        assertEquals(1, pulled.todo.subtaskDone);
+        // 拉取写入的行不会再记为待推送
+        assertEquals(0, target.getPendingChangeCount());
+
+        // 删除同样通过增量传播
+        source.deleteTodoById("t2");
+        engine(first, "device-a").sync(null);
+        stats = engine(second, "device-b").sync(null);
+        assertEquals(1, stats.pulled);
+        assertNull(target.getTodoById("t2"));
+        assertEquals(0, stats.pushed);
+    }
+
+    @Test
+    public void pulledRowsAreStampedWithApplyTime() throws IOException {
+        // 服务器上的修改时间早于上次备份，拉取后仍需被下一次增量备份选中
+        TodoEntity old = todo("t1", "first");
+        old.updatedAt = 1_000L;
+        first.todoDao().insertTodo(old);
+        engine(first, "device-a").sync(null);
+
+        long before = System.currentTimeMillis();
+        engine(second, "device-b").sync(null);
+
+        TodoEntity pulled = second.todoDao().getTodoById("t1").todo;
+        assertEquals("first", pulled.title);
+        assertTrue(pulled.updatedAt >= before);
+        assertEquals(0, second.todoDao().getPendingChangeCount());
+    }
+
+    @Test
+    public void localEditKeepsSyncedVersion() throws IOException {
+        TodoDao dao = first.todoDao();
+        dao.insertTodo(todo("t1", "original"));
+        engine(first, "device-a").sync(null);
+        assertEquals(1, dao.getTodoById("t1").todo.version);
+
+        // 与写队列的整行更新相同：界面上的Todo转换成的实体不带版本号
+        TodoEntity edited = todo("t1", "edited");
+        dao.updateAllWithSubTasks(Arrays.asList(edited), Arrays.<SubTaskEntity>asList());
+
+        TodoEntity stored = dao.getTodoById("t1").todo;
+        assertEquals("edited", stored.title);
+        assertEquals(1, stored.version);
+        assertEquals(1, dao.getPendingChangeCount());
+
+        engine(first, "device-a").sync(null);
+        assertEquals(2, dao.getTodoById("t1").todo.version);
+    }
+
+    @Test
+    public void laterServerEditWinsConflict() throws IOException {
+        first.todoDao().insertTodo(todo("t1", "original"));
+        engine(first, "device-a").sync(null);
+        engine(second, "device-b").sync(null);
+
+        // 两台设备离线修改同一行，B的修改时间更晚
+        TodoEntity older = first.todoDao().getTodoById("t1").todo;
+        older.title = "from a";
+        older.updatedAt = older.updatedAt + 1_000;
+        first.todoDao().updateTodo(older);
+        TodoEntity newer = second.todoDao().getTodoById("t1").todo;
+        newer.title = "from b";
+        newer.updatedAt = newer.updatedAt + 2_000;
+        second.todoDao().updateTodo(newer);
+
+        engine(second, "device-b").sync(null);
+        SyncEngine.Stats stats = engine(first, "device-a").sync(null);
+
+        assertEquals(1, stats.conflicts);
+        assertEquals("from b", first.todoDao().getTodoById("t1").todo.title);
+        assertEquals("from b", server.row("t1").getAsJsonObject("todo").get("title").getAsString());
+        assertEquals(0, first.todoDao().getPendingChangeCount());
+    }
+
+    @Test
+    public void largeBacklogSyncsInBatches() throws IOException {
+        SyntheticDataset dataset = new SyntheticDataset.Builder()
+                .setTodoCount(10_000)
+                .build();
+        dataset.insertInto(first.todoDao());
+        assertEquals(10_000, first.todoDao().getPendingChangeCount());
+
+        SyncEngine.Stats pushed = engine(first, "device-a").sync(null);
+        SyncEngine.Stats pulled = engine(second, "device-b").sync(null);
+
+        assertEquals(10_000, pushed.pushed);
+        assertEquals(10_000 / SyncEngine.DEFAULT_BATCH_SIZE, server.getGzipPushes());
+        assertEquals(0, first.todoDao().getPendingChangeCount());
+        assertEquals(10_000, pulled.pulled);
+        assertEquals(10_000, second.todoDao().getTodoCount());
+        assertEquals(0, second.todoDao().getPendingChangeCount());
+        assertNotNull(second.todoDao().getTodoById(dataset.getTodoIds().get(9_999)));
+        assertTrue(server.getPushedBytes() > 0);
+    }
+
+    private SyncEngine engine(TodoDatabase database, String device) {
+        return engine(database, device, SyncEngine.DEFAULT_BATCH_SIZE);
+    }
+
+    private SyncEngine engine(TodoDatabase database, String device, int batchSize) {
+        Context context = ApplicationProvider.getApplicationContext();
+        SyncClient client = new SyncClient(httpClient, webServer.url("/").toString(), device);
+        return new SyncEngine(database.todoDao(), client, new SyncPreferences(context, "sync_" + device), batchSize);
+    }
+
+    private static TodoEntity todo(String id, String title) {
+        return new TodoEntity(id, title, "", false, Priority.MEDIUM, null, 1L, null);
+    }
+}
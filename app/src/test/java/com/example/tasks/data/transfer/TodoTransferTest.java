@@ -0,0 +1,234 @@
+package com.example.tasks.data.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.tasks.data.database.SubTaskEntity;
+import com.example.tasks.data.database.SyntheticDataset;
+import com.example.tasks.data.database.TodoDao;
+import com.example.tasks.data.database.TodoDatabase;
+import com.example.tasks.data.database.TodoEntity;
+import com.example.tasks.data.database.TodoWithSubTasks;
+import com.example.tasks.data.models.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 流式导入导出：JSON/CSV往返、分批写入和取消
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TodoTransferTest {
+
+    private TodoDatabase source;
+    private TodoDatabase target;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        source = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        target = Room.inMemoryDatabaseBuilder(context, TodoDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void jsonRoundTripKeepsAllFields() throws IOException {
+        seedSample(source.todoDao());
+
+        byte[] exported = export(source.todoDao(), TransferFormat.JSON);
+        long imported = new TodoImporter(target.todoDao())
+                .importFrom(new ByteArrayInputStream(exported), exported.length, TransferFormat.JSON, null, null);
+
+        assertEquals(3, imported);
+        assertSampleImported(target.todoDao());
+    }
+
+    @Test
+    public void csvRoundTripHandlesQuotesAndNewlines() throws IOException {
+        seedSample(source.todoDao());
+
+        byte[] exported = export(source.todoDao(), TransferFormat.CSV);
+        long imported = new TodoImporter(target.todoDao())
+                .importFrom(new ByteArrayInputStream(exported), exported.length, TransferFormat.CSV, null, null);
+
+        assertEquals(3, imported);
+        assertSampleImported(target.todoDao());
+    }
+
+    @Test
+    public void csvImportAcceptsHeaderOrderAndMissingColumns() throws IOException {
+        String csv = "\uFEFFpriority,title,isCompleted\r\nHIGH,\"Buy milk, eggs\",0\r\n\r\nlow,Call mom,1\r\n";
+
+        long imported = new TodoImporter(target.todoDao()).importFrom(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), -1, TransferFormat.CSV, null, null);
+
+        assertEquals(2, imported);
+        assertEquals(2, target.todoDao().getTodoCount());
+    }
+
+    @Test
+    public void importWritesInBatchesAndReportsProgress() throws IOException {
+        seedSample(source.todoDao());
+        byte[] exported = export(source.todoDao(), TransferFormat.JSON);
+        List<Long> progress = new ArrayList<>();
+
+        new TodoImporter(target.todoDao(), 2).importFrom(new ByteArrayInputStream(exported), exported.length,
+                TransferFormat.JSON, (processed, total) -> progress.add(processed), null);
+
+        // 3行按每批2行写入，每次提交后报告一次
+        assertEquals(2, progress.size());
+        assertEquals(exported.length, (long) progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void cancelledImportKeepsCommittedBatches() throws IOException {
+        seedSample(source.todoDao());
+        byte[] exported = export(source.todoDao(), TransferFormat.JSON);
+        CancellationSignal cancellation = new CancellationSignal();
+
+        try {
+            new TodoImporter(target.todoDao(), 1).importFrom(new ByteArrayInputStream(exported), exported.length,
+                    TransferFormat.JSON, (processed, total) -> cancellation.cancel(), cancellation);
+            fail("应当被取消");
+        } catch (OperationCanceledException expected) {
+            // 第一批提交后报告进度时取消
+        }
+        assertEquals(1, target.todoDao().getTodoCount());
+    }
+
+    @Test
+    public void importReplacesExistingTodoAndSubTasks() throws IOException {
+        TodoDao dao = target.todoDao();
+        dao.insertTodoWithSubTasks(todo("t1", "Old", false), Arrays.asList(
+                new SubTaskEntity("old-s1", "t1", "stale", false, 0L, 0)));
+        String json = "{\"version\":1,\"todos\":[{\"id\":\"t1\",\"title\":\"New\",\"subTasks\":"
+                + "[{\"id\":\"s1\",\"title\":\"fresh\",\"isCompleted\":true,\"createdAt\":5}]}]}";
+
+        new TodoImporter(dao).importFrom(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                -1, TransferFormat.JSON, null, null);
+
+        TodoWithSubTasks todo = dao.getTodoById("t1");
+        assertEquals("New", todo.todo.title);
+        assertEquals(1, todo.subTasks.size());
+        assertEquals("fresh", todo.subTasks.get(0).title);
+        assertNull(dao.getSubTaskById("old-s1"));
+    }
+
+    /**
+     * 20万行的导出和导入耗时，默认跳过，-Pbenchmark=true时运行
+     */
+    @Test
+    public void largeFileRoundTrip() throws IOException {
+        assumeTrue("未开启基准测试", Boolean.getBoolean("benchmark"));
+        SyntheticDataset dataset = new SyntheticDataset.Builder()
+                .setTodoCount(200_000)
+                .build();
+        dataset.insertInto(source.todoDao());
+        File file = File.createTempFile("todo-export", ".json");
+        try {
+            long start = System.nanoTime();
+            try (OutputStream out = new FileOutputStream(file)) {
+                new TodoExporter(source.todoDao()).export(out, TransferFormat.JSON, null, null);
+            }
+            long exportNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long imported;
+            try (InputStream in = new FileInputStream(file)) {
+                imported = new TodoImporter(target.todoDao())
+                        .importFrom(in, file.length(), TransferFormat.JSON, null, null);
+            }
+            long importNanos = System.nanoTime() - start;
+
+            assertEquals(200_000, imported);
+            System.out.println(String.format(Locale.ROOT, "transfer %d todos (%.1f MB): export=%.2fs import=%.2fs",
+                    imported, file.length() / 1e6, exportNanos / 1e9, importNanos / 1e9));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private static byte[] export(TodoDao dao, TransferFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TodoExporter(dao).export(out, format, null, null);
+        return out.toByteArray();
+    }
+
+    private static void seedSample(TodoDao dao) {
+        TodoEntity first = new TodoEntity("t1", "Quote \"this\", please", "line one\nline two", false,
+                Priority.URGENT, 1_700_000_000_000L, 10L, null);
+        first.recurrence = "FREQ=WEEKLY;BYDAY=MO,WE";
+        dao.insertTodoWithSubTasks(first, Arrays.asList(
+                new SubTaskEntity("s2", "t1", "second", true, 12L, 1),
+                new SubTaskEntity("s1", "t1", "first, with comma", false, 11L, 0)));
+        dao.insertTodo(todo("t2", "简单任务", true));
+        dao.insertTodoWithSubTasks(todo("t3", "Third", false), Arrays.asList(
+                new SubTaskEntity("s3", "t3", "only", false, 13L, 0)));
+    }
+
+    private static void assertSampleImported(TodoDao dao) {
+        TodoWithSubTasks first = dao.getTodoById("t1");
+        assertEquals("Quote \"this\", please", first.todo.title);
+        assertEquals("line one\nline two", first.todo.description);
+        assertEquals(Priority.URGENT, first.todo.priority);
+        assertEquals(Long.valueOf(1_700_000_000_000L), first.todo.dueDate);
+        assertEquals(10L, first.todo.createdAt);
+        assertFalse(first.todo.isCompleted);
+        assertEquals("FREQ=WEEKLY;BYDAY=MO,WE", first.todo.recurrence);
+        assertEquals(2, first.subTasks.size());
+        first.subTasks.sort((a, b) -> Integer.compare(a.position, b.position));
+        assertEquals("first, with comma", first.subTasks.get(0).title);
+        assertTrue(first.subTasks.get(1).isCompleted);
+
+        TodoWithSubTasks second = dao.getTodoById("t2");
+        assertTrue(second.todo.isCompleted);
+        assertEquals(Long.valueOf(5L), second.todo.completedAt);
+        assertTrue(second.subTasks.isEmpty());
+        assertNull(second.todo.recurrence);
+
+        assertEquals(1, dao.getTodoById("t3").subTasks.size());
+    }
+
+    private static TodoEntity todo(String id, String title, boolean completed) {
+        return new TodoEntity(id, title, "", completed, Priority.MEDIUM, null, 0L, completed ? 5L : null);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.tasks.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 共用线程池：写线程按提交顺序执行、串行执行器不并发，以及队列长度和完成数的统计
+ * 线程池是进程内单例，统计按差值比较
+ */
+public class AppExecutorsTest {
+
+    @Test
+    public void writerRunsTasksInSubmissionOrder() throws InterruptedException {
+        AppExecutors.Pool writer = AppExecutors.getInstance().writer();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            writer.execute(() -> {
+                order.add(value);
+                threads.add(Thread.currentThread().getName());
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        for (String name : threads) {
+            assertTrue(name, name.startsWith("tasks-writer-"));
+        }
+    }
+
+    @Test
+    public void serialReaderNeverRunsTasksConcurrently() throws InterruptedException {
+        Executor serial = AppExecutors.getInstance().newSerialReader();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            int value = i;
+            serial.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(value);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void queueDepthAndFinishedTasksAreRecorded() throws InterruptedException {
+        AppExecutors.Pool network = AppExecutors.getInstance().network();
+        long finishedBefore = network.getFinishedTaskCount();
+        int threads = network.getMaximumPoolSize();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads + 10);
+        // 先占满全部线程，后面的任务只能排队
+        for (int i = 0; i < threads + 10; i++) {
+            network.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        assertEquals(10, network.getQueueDepth());
+        assertTrue(network.getMaxQueueDepth() >= 10);
+
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // 计数在任务返回后才更新
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (network.getFinishedTaskCount() < finishedBefore + threads + 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(finishedBefore + threads + 10, network.getFinishedTaskCount());
+        assertEquals(0, network.getQueueDepth());
+    }
+
+    @Test
+    public void scheduledTaskRunsOnTargetPoolAfterDelay() throws InterruptedException {
+        AppExecutors executors = AppExecutors.getInstance();
+        AtomicReference<String> thread = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        executors.schedule(() -> {
+            thread.set(Thread.currentThread().getName());
+            done.countDown();
+        }, 50, TimeUnit.MILLISECONDS, executors.reader());
+        // 取消的任务不执行，也不留在计时队列里
+        ScheduledFuture<?> cancelled = executors.schedule(() -> fail("已取消"), 50, TimeUnit.MILLISECONDS,
+                executors.reader());
+        assertTrue(cancelled.cancel(false));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(thread.get(), thread.get().startsWith("tasks-reader-"));
+        assertEquals(0, executors.getPendingScheduledCount());
+    }
+}